@@ -1,11 +1,13 @@
 package com.jivs.platform.controller;
 
 import com.jivs.platform.domain.migration.Migration;
+import com.jivs.platform.domain.migration.MigrationDeadLetter;
 import com.jivs.platform.domain.migration.MigrationMetrics;
 import com.jivs.platform.dto.BulkActionRequest;
 import com.jivs.platform.dto.BulkActionResponse;
 import com.jivs.platform.repository.MigrationRepository;
 import com.jivs.platform.security.UserPrincipal;
+import com.jivs.platform.service.migration.DeadLetterStore;
 import com.jivs.platform.service.migration.MigrationModels;
 import com.jivs.platform.service.migration.MigrationOrchestrator;
 import lombok.RequiredArgsConstructor;
@@ -35,6 +37,7 @@ public class MigrationController {
 
     private final MigrationOrchestrator migrationOrchestrator;
     private final MigrationRepository migrationRepository;
+    private final DeadLetterStore deadLetterStore;
 
     /**
      * Create a new migration job
@@ -436,6 +439,133 @@ public class MigrationController {
         }
     }
 
+    /**
+     * Rehearse a migration into an isolated schema of its target, leaving live tables untouched
+     */
+    @PostMapping("/{id}/shadow-run")
+    @PreAuthorize("hasAnyRole('ADMIN', 'DATA_ENGINEER')")
+    public ResponseEntity<Map<String, Object>> startShadowRun(
+            @PathVariable Long id,
+            @RequestParam(required = false) String schema,
+            @RequestParam(defaultValue = "false") boolean keepTables) {
+        log.info("Starting shadow run of migration: {} (schema: {})", id, schema);
+
+        try {
+            Migration migration = migrationOrchestrator.requestShadowRun(id, schema, keepTables);
+            migrationOrchestrator.executeMigration(id);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("id", id.toString());
+            response.put("status", "RUNNING");
+            response.put("shadowSchema", migration.getShadowReport().getShadowSchema());
+            response.put("message", "Shadow run started successfully");
+
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Failed to start shadow run: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Report of a migration's shadow run: phase throughput, bottleneck, errors and table diffs
+     */
+    @GetMapping("/{id}/shadow-report")
+    @PreAuthorize("hasAnyRole('ADMIN', 'DATA_ENGINEER', 'VIEWER')")
+    public ResponseEntity<Object> getShadowReport(@PathVariable Long id) {
+        log.info("Getting shadow report of migration: {}", id);
+
+        MigrationModels.ShadowReport report = migrationRepository.findById(id)
+            .map(Migration::getShadowReport)
+            .orElse(null);
+        if (report == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", "No shadow run for migration " + id));
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * List the dead-letter segments of a migration: load batches with rejected records
+     */
+    @GetMapping("/{id}/dead-letters")
+    @PreAuthorize("hasAnyRole('ADMIN', 'DATA_ENGINEER', 'VIEWER')")
+    public ResponseEntity<Map<String, Object>> getDeadLetters(@PathVariable Long id) {
+        log.info("Getting dead letters of migration: {}", id);
+
+        try {
+            List<Map<String, Object>> segments = new ArrayList<>();
+            long pendingRecords = 0;
+            for (MigrationDeadLetter segment : deadLetterStore.segments(id)) {
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("id", segment.getId());
+                entry.put("batchId", segment.getBatchId());
+                entry.put("targetTable", segment.getTargetTable());
+                entry.put("recordCount", segment.getRecordCount());
+                entry.put("reason", segment.getReason());
+                entry.put("status", segment.getStatus());
+                entry.put("replayCount", segment.getReplayCount());
+                entry.put("sizeBytes", segment.getPayload().length);
+                entry.put("createdAt", segment.getCreatedAt());
+                entry.put("replayedAt", segment.getReplayedAt());
+                segments.add(entry);
+                if (MigrationDeadLetter.PENDING.equals(segment.getStatus())) {
+                    pendingRecords += segment.getRecordCount();
+                }
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("migrationId", id.toString());
+            response.put("pendingRecords", pendingRecords);
+            response.put("segments", segments);
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("Failed to get dead letters: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Replay only the dead-lettered records of a migration, optionally for one table
+     */
+    @PostMapping("/{id}/dead-letters/replay")
+    @PreAuthorize("hasAnyRole('ADMIN', 'DATA_ENGINEER')")
+    public ResponseEntity<Map<String, Object>> replayDeadLetters(
+            @PathVariable Long id,
+            @RequestParam(required = false) String table) {
+        log.info("Replaying dead letters of migration: {} (table: {})", id, table);
+
+        try {
+            MigrationModels.DeadLetterReplayResult result = deadLetterStore.replay(id, table);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("migrationId", id.toString());
+            response.put("segments", result.getSegments());
+            response.put("replayedRecords", result.getReplayedRecords());
+            response.put("duplicateRecords", result.getDuplicateRecords());
+            response.put("rejectedRecords", result.getRejectedRecords());
+            response.put("errors", result.getErrors());
+
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Failed to replay dead letters: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * Get migration statistics
      * ✅ NOW READS FROM DATABASE!
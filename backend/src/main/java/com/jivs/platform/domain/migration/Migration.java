@@ -103,13 +103,25 @@ public class Migration {
     @Transient
     private String migrationType;
 
-    @Transient
+    @Column(name = "migration_phase", length = 20)
+    @Enumerated(EnumType.STRING)
     private MigrationPhase phase = MigrationPhase.PLANNING;
 
-    @Transient
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "checkpoint_state")
+    private String checkpointState;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "shadow_report")
+    private String shadowReportJson;
+
+    // Progress counters, on the metrics columns added by V111
+    @Embedded
     private MigrationMetrics metrics = new MigrationMetrics();
 
-    @Transient
+    // Run options such as loadStrategy, deferIndexes, shadow and tables, read again by the async run
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "migration_parameters")
     private Map<String, String> parameters = new HashMap<>();
 
     @Transient
@@ -172,7 +184,8 @@ public class Migration {
     @Transient
     private String targetAnalysisJson;
 
-    @Transient
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "migration_plan")
     private String migrationPlanJson;
 
     @Transient
@@ -256,10 +269,22 @@ public class Migration {
     public MigrationPhase getPhase() { return phase; }
     public void setPhase(MigrationPhase phase) { this.phase = phase; }
 
-    public MigrationMetrics getMetrics() { return metrics; }
+    public MigrationMetrics getMetrics() {
+        // Hibernate loads an embeddable whose columns are all null as null
+        if (metrics == null) {
+            metrics = new MigrationMetrics();
+        }
+        return metrics;
+    }
     public void setMetrics(MigrationMetrics metrics) { this.metrics = metrics; }
 
-    public Map<String, String> getParameters() { return parameters; }
+    public Map<String, String> getParameters() {
+        // Migrations created before the column was mapped have no parameters stored
+        if (parameters == null) {
+            parameters = new HashMap<>();
+        }
+        return parameters;
+    }
     public void setParameters(Map<String, String> parameters) { this.parameters = parameters; }
 
     public Integer getBatchSize() { return batchSize; }
@@ -316,6 +341,11 @@ public class Migration {
     public String getErrorStackTrace() { return errorStackTrace; }
     public void setErrorStackTrace(String errorStackTrace) { this.errorStackTrace = errorStackTrace; }
 
+    public String getCheckpointState() { return checkpointState; }
+    public void setCheckpointState(String checkpointState) { this.checkpointState = checkpointState; }
+    public String getShadowReportJson() { return shadowReportJson; }
+    public void setShadowReportJson(String shadowReportJson) { this.shadowReportJson = shadowReportJson; }
+
     // Backward compatibility for old field names
     public LocalDateTime getCreatedDate() { return createdAt; }
     public void setCreatedDate(LocalDateTime createdDate) { this.createdAt = createdDate; }
@@ -384,6 +414,26 @@ public class Migration {
         return fromJson(verificationResultJson, VerificationResult.class);
     }
 
+    @Transient
+    public void setCheckpoint(MigrationCheckpoint checkpoint) {
+        this.checkpointState = toJson(checkpoint);
+    }
+
+    @Transient
+    public MigrationCheckpoint getCheckpoint() {
+        return fromJson(checkpointState, MigrationCheckpoint.class);
+    }
+
+    @Transient
+    public void setShadowReport(ShadowReport report) {
+        this.shadowReportJson = toJson(report);
+    }
+
+    @Transient
+    public ShadowReport getShadowReport() {
+        return fromJson(shadowReportJson, ShadowReport.class);
+    }
+
     // JSON serialization helper methods
     private String toJson(Object object) {
         if (object == null) {
@@ -0,0 +1,53 @@
+package com.jivs.platform.domain.migration;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Rows one extraction or transformation batch produced, read by the batch after it.
+ * Maps to migration_batch_data table
+ */
+@Entity
+@Table(name = "migration_batch_data",
+    uniqueConstraints = @UniqueConstraint(name = "uq_batch_data_batch", columnNames = {"migration_id", "batch_id"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MigrationBatchData {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "migration_id", nullable = false)
+    private Long migrationId;
+
+    /** Id of the task that produced the rows */
+    @Column(name = "batch_id", nullable = false)
+    private String batchId;
+
+    @Column(name = "record_count", nullable = false)
+    private int recordCount;
+
+    /** GZIP-compressed rows; see RowSegments. Length only sizes generated schemas (bytea otherwise) */
+    @ToString.Exclude
+    @Column(nullable = false, length = 64 * 1024 * 1024)
+    private byte[] payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
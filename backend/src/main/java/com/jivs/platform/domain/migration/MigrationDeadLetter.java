@@ -0,0 +1,79 @@
+package com.jivs.platform.domain.migration;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records of one load batch that the target rejected, kept for replay.
+ * Maps to migration_dead_letters table
+ */
+@Entity
+@Table(name = "migration_dead_letters",
+    uniqueConstraints = @UniqueConstraint(name = "uq_dead_letters_batch", columnNames = {"migration_id", "batch_id"}),
+    indexes = @Index(name = "idx_dead_letters_migration_status", columnList = "migration_id, status"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MigrationDeadLetter {
+
+    public static final String PENDING = "PENDING";
+    public static final String REPLAYED = "REPLAYED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "migration_id", nullable = false)
+    private Long migrationId;
+
+    @Column(name = "batch_id", nullable = false)
+    private String batchId;
+
+    @Column(name = "target_system", nullable = false, length = 100)
+    private String targetSystem;
+
+    @Column(name = "target_table", nullable = false)
+    private String targetTable;
+
+    @Column(name = "key_columns", length = 1000)
+    private String keyColumns;
+
+    @Column(name = "record_count", nullable = false)
+    private int recordCount;
+
+    /** Reason given for the first rejected record */
+    @Column(length = 1000)
+    private String reason;
+
+    /** GZIP-compressed rows; see DeadLetterStore. Length only sizes generated schemas (bytea otherwise) */
+    @ToString.Exclude
+    @Column(nullable = false, length = 64 * 1024 * 1024)
+    private byte[] payload;
+
+    @Builder.Default
+    @Column(nullable = false, length = 20)
+    private String status = PENDING;
+
+    @Column(name = "replay_count", nullable = false)
+    private int replayCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "replayed_at")
+    private LocalDateTime replayedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
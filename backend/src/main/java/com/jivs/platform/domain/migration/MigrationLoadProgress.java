@@ -0,0 +1,47 @@
+package com.jivs.platform.domain.migration;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Chunks a load batch (or one partition of it) committed before the batch did.
+ * Maps to migration_load_progress table
+ */
+@Entity
+@Table(name = "migration_load_progress",
+    uniqueConstraints = @UniqueConstraint(name = "uq_load_progress_batch", columnNames = {"migration_id", "batch_id"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MigrationLoadProgress {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "migration_id", nullable = false)
+    private Long migrationId;
+
+    /** Id of the load batch, suffixed "_<n>" for a partition of a parallel load */
+    @Column(name = "batch_id", nullable = false)
+    private String batchId;
+
+    /** JSON of the committed chunks; see MigrationModels.LoadedChunks */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String progress;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
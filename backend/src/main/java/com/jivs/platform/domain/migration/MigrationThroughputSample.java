@@ -0,0 +1,70 @@
+package com.jivs.platform.domain.migration;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Observed throughput of one phase of a migration run.
+ * Maps to migration_throughput_history table
+ */
+@Entity
+@Table(name = "migration_throughput_history", indexes = {
+        @Index(name = "idx_throughput_source_phase", columnList = "source_system, phase, recorded_at"),
+        @Index(name = "idx_throughput_target_phase", columnList = "target_system, phase, recorded_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MigrationThroughputSample {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "migration_id")
+    private Long migrationId;
+
+    @Column(name = "source_system", nullable = false, length = 100)
+    private String sourceSystem;
+
+    @Column(name = "target_system", nullable = false, length = 100)
+    private String targetSystem;
+
+    @Column(nullable = false, length = 20)
+    private String phase;
+
+    @Column(nullable = false)
+    private long records;
+
+    @Column(nullable = false)
+    private int batches;
+
+    @Column(name = "duration_ms", nullable = false)
+    private long durationMs;
+
+    @Column(nullable = false)
+    private int concurrency;
+
+    @Column(name = "recorded_at", nullable = false)
+    private LocalDateTime recordedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (recordedAt == null) {
+            recordedAt = LocalDateTime.now();
+        }
+    }
+
+    /**
+     * Records per second across all concurrent batches
+     */
+    public double recordsPerSecond() {
+        return durationMs > 0 ? records * 1000.0 / durationMs : 0;
+    }
+}
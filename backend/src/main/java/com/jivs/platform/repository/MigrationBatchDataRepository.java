@@ -0,0 +1,34 @@
+package com.jivs.platform.repository;
+
+import com.jivs.platform.domain.migration.MigrationBatchData;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository for the rows handed between the batches of a migration
+ * Maps to migration_batch_data table
+ */
+@Repository
+public interface MigrationBatchDataRepository extends JpaRepository<MigrationBatchData, Long> {
+
+    Optional<MigrationBatchData> findByMigrationIdAndBatchId(Long migrationId, String batchId);
+
+    /**
+     * Drop the rows of a batch, so a batch that runs again replaces them
+     */
+    @Modifying
+    @Query("DELETE FROM MigrationBatchData b WHERE b.migrationId = :migrationId AND b.batchId = :batchId")
+    int deleteByBatch(@Param("migrationId") Long migrationId, @Param("batchId") String batchId);
+
+    /**
+     * Drop every batch of a migration
+     */
+    @Modifying
+    @Query("DELETE FROM MigrationBatchData b WHERE b.migrationId = :migrationId")
+    int deleteByMigrationId(@Param("migrationId") Long migrationId);
+}
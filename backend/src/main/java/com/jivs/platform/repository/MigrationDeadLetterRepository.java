@@ -0,0 +1,43 @@
+package com.jivs.platform.repository;
+
+import com.jivs.platform.domain.migration.MigrationDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for rejected load records kept for replay
+ * Maps to migration_dead_letters table
+ */
+@Repository
+public interface MigrationDeadLetterRepository extends JpaRepository<MigrationDeadLetter, Long> {
+
+    /**
+     * Segments of a migration in a given status, oldest first
+     */
+    List<MigrationDeadLetter> findByMigrationIdAndStatusOrderByIdAsc(Long migrationId, String status);
+
+    /**
+     * All segments of a migration, oldest first
+     */
+    List<MigrationDeadLetter> findByMigrationIdOrderByIdAsc(Long migrationId);
+
+    /**
+     * Drop the segment of a batch, so a batch that runs again replaces its rejects
+     */
+    @Modifying
+    @Query("DELETE FROM MigrationDeadLetter d WHERE d.migrationId = :migrationId AND d.batchId = :batchId")
+    int deleteByBatch(@Param("migrationId") Long migrationId, @Param("batchId") String batchId);
+
+    /**
+     * Drop the segments of a migration for the given target tables
+     */
+    @Modifying
+    @Query("DELETE FROM MigrationDeadLetter d WHERE d.migrationId = :migrationId AND d.targetTable IN :tables")
+    int deleteByTables(@Param("migrationId") Long migrationId, @Param("tables") Collection<String> tables);
+}
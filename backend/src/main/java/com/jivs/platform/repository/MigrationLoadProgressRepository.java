@@ -0,0 +1,38 @@
+package com.jivs.platform.repository;
+
+import com.jivs.platform.domain.migration.MigrationLoadProgress;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository for the committed chunks of load batches
+ * Maps to migration_load_progress table
+ */
+@Repository
+public interface MigrationLoadProgressRepository extends JpaRepository<MigrationLoadProgress, Long> {
+
+    Optional<MigrationLoadProgress> findByMigrationIdAndBatchId(Long migrationId, String batchId);
+
+    /**
+     * Drop the progress of a batch and its partitions once the batch commits
+     *
+     * @param partitions LIKE pattern of the partitions' ids, escaped with '!'
+     */
+    @Modifying
+    @Query("DELETE FROM MigrationLoadProgress p WHERE p.migrationId = :migrationId"
+        + " AND (p.batchId = :batchId OR p.batchId LIKE :partitions ESCAPE '!')")
+    int deleteByBatch(@Param("migrationId") Long migrationId, @Param("batchId") String batchId,
+                      @Param("partitions") String partitions);
+
+    /**
+     * Drop the progress of every batch of a migration
+     */
+    @Modifying
+    @Query("DELETE FROM MigrationLoadProgress p WHERE p.migrationId = :migrationId")
+    int deleteByMigrationId(@Param("migrationId") Long migrationId);
+}
@@ -5,9 +5,11 @@ import com.jivs.platform.domain.migration.MigrationStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -121,4 +123,41 @@ public interface MigrationRepository extends JpaRepository<Migration, Long> {
      */
     @Query("SELECT COUNT(m) FROM Migration m WHERE m.status = :status")
     long getMigrationCountByStatus(@Param("status") MigrationStatus status);
+
+    /**
+     * Read only the status of a migration (used for cooperative pause polling)
+     */
+    @Query("SELECT m.status FROM Migration m WHERE m.id = :id")
+    Optional<MigrationStatus> findStatusById(@Param("id") Long id);
+
+    /**
+     * Persist the status of a migration without rewriting the whole entity
+     */
+    @Modifying
+    @Query("UPDATE Migration m SET m.status = :status WHERE m.id = :id")
+    int updateStatus(@Param("id") Long id, @Param("status") MigrationStatus status);
+
+    /**
+     * Persist the execution checkpoint without rewriting the whole entity
+     */
+    @Modifying
+    @Query("UPDATE Migration m SET m.checkpointState = :state WHERE m.id = :id")
+    int updateCheckpointState(@Param("id") Long id, @Param("state") String state);
+
+    /**
+     * Persist live progress counters without rewriting the whole entity
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Migration m SET m.metrics.extractedRecords = :extracted, "
+        + "m.metrics.transformedRecords = :transformed, m.metrics.loadedRecords = :loaded, "
+        + "m.metrics.processedRecords = :processed, m.metrics.successfulRecords = :successful, "
+        + "m.metrics.failedRecords = :failed WHERE m.id = :id")
+    int updateMetrics(@Param("id") Long id,
+                      @Param("extracted") Integer extracted,
+                      @Param("transformed") Integer transformed,
+                      @Param("loaded") Integer loaded,
+                      @Param("processed") Integer processed,
+                      @Param("successful") Integer successful,
+                      @Param("failed") Integer failed);
 }
@@ -0,0 +1,46 @@
+package com.jivs.platform.repository;
+
+import com.jivs.platform.domain.migration.MigrationThroughputSample;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for observed migration throughput
+ * Maps to migration_throughput_history table
+ */
+@Repository
+public interface MigrationThroughputRepository extends JpaRepository<MigrationThroughputSample, Long> {
+
+    /**
+     * Most recent samples of a phase between a source and a target system
+     */
+    @Query("SELECT s FROM MigrationThroughputSample s WHERE s.sourceSystem = :source AND s.targetSystem = :target "
+        + "AND s.phase = :phase ORDER BY s.recordedAt DESC")
+    List<MigrationThroughputSample> findRecent(@Param("source") String sourceSystem,
+                                               @Param("target") String targetSystem,
+                                               @Param("phase") String phase,
+                                               Pageable pageable);
+
+    /**
+     * Most recent samples of a phase reading from a source system, whatever the target
+     */
+    @Query("SELECT s FROM MigrationThroughputSample s WHERE s.sourceSystem = :source AND s.phase = :phase "
+        + "ORDER BY s.recordedAt DESC")
+    List<MigrationThroughputSample> findRecentBySource(@Param("source") String sourceSystem,
+                                                       @Param("phase") String phase,
+                                                       Pageable pageable);
+
+    /**
+     * Most recent samples of a phase writing to a target system, whatever the source
+     */
+    @Query("SELECT s FROM MigrationThroughputSample s WHERE s.targetSystem = :target AND s.phase = :phase "
+        + "ORDER BY s.recordedAt DESC")
+    List<MigrationThroughputSample> findRecentByTarget(@Param("target") String targetSystem,
+                                                       @Param("phase") String phase,
+                                                       Pageable pageable);
+}
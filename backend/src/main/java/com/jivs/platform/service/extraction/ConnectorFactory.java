@@ -4,6 +4,7 @@ import com.jivs.platform.common.exception.BusinessException;
 import com.jivs.platform.common.util.CryptoUtil;
 import com.jivs.platform.domain.extraction.DataSource;
 import com.jivs.platform.security.SqlInjectionValidator;
+import com.jivs.platform.service.migration.AdaptiveBatchControllerRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
@@ -23,6 +24,7 @@ public class ConnectorFactory {
     private final CryptoUtil cryptoUtil;
     private final ExtractionDataSourcePool dataSourcePool;
     private final SqlInjectionValidator sqlInjectionValidator;
+    private final AdaptiveBatchControllerRegistry batchControllers;
 
     /**
      * Get connector for data source with connection pooling
@@ -37,7 +39,8 @@ public class ConnectorFactory {
             case SQL_SERVER:
                 // P0.2: Use pooled JDBC connector for better performance
                 // SEC-001: Pass SQL injection validator for security
-                return new PooledJdbcConnector(dataSourcePool, dataSource, sqlInjectionValidator);
+                return new PooledJdbcConnector(dataSourcePool, dataSource, sqlInjectionValidator,
+                        batchControllers.forSource(dataSource.getName()));
 
             case SAP:
                 return new SapConnector(
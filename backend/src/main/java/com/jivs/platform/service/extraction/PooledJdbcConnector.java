@@ -2,6 +2,7 @@ package com.jivs.platform.service.extraction;
 
 import com.jivs.platform.domain.extraction.DataSource;
 import com.jivs.platform.security.SqlInjectionValidator;
+import com.jivs.platform.service.migration.AdaptiveBatchController;
 
 import java.io.File;
 import java.nio.file.Path;
@@ -24,7 +25,7 @@ import java.util.concurrent.atomic.AtomicLong;
  *
  * Performance Optimizations:
  * - Uses HikariCP connection pool (P0.2)
- * - Batch processing (1000 records per batch) (P0.1)
+ * - Batch processing, sized at runtime by an AdaptiveBatchController (P0.1)
  * - Parallel stream processing (4 threads) (P0.1)
  * - Optimized fetch size (P0.1)
  *
@@ -37,8 +38,7 @@ public class PooledJdbcConnector implements DataConnector {
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(PooledJdbcConnector.class);
 
-    // P0.1: Batch processing constants
-    private static final int BATCH_SIZE = 1000;
+    // P0.1: Batch processing constants (batch size itself is tuned by batchController)
     private static final int FETCH_SIZE = 1000;
     private static final int PARALLEL_THREADS = 4;
     private static final int LOG_INTERVAL = 10000;
@@ -46,13 +46,16 @@ public class PooledJdbcConnector implements DataConnector {
     private final ExtractionDataSourcePool dataSourcePool;
     private final DataSource dataSource;
     private final SqlInjectionValidator sqlInjectionValidator;
+    private final AdaptiveBatchController batchController;
 
     public PooledJdbcConnector(ExtractionDataSourcePool dataSourcePool,
                                DataSource dataSource,
-                               SqlInjectionValidator sqlInjectionValidator) {
+                               SqlInjectionValidator sqlInjectionValidator,
+                               AdaptiveBatchController batchController) {
         this.dataSourcePool = dataSourcePool;
         this.dataSource = dataSource;
         this.sqlInjectionValidator = sqlInjectionValidator;
+        this.batchController = batchController;
     }
 
     @Override
@@ -107,8 +110,10 @@ public class PooledJdbcConnector implements DataConnector {
             executor = Executors.newFixedThreadPool(PARALLEL_THREADS);
 
             // P0.1: Batch processing with parallel execution
-            List<Map<String, Object>> batch = new ArrayList<>(BATCH_SIZE);
+            int batchSize = batchController.getBatchSize();
+            List<Map<String, Object>> batch = new ArrayList<>(batchSize);
             long totalRecords = 0;
+            long batchNumber = 0;
 
             while (rs.next()) {
                 // Extract record into map
@@ -131,21 +136,29 @@ public class PooledJdbcConnector implements DataConnector {
                 totalRecords++;
 
                 // P0.1: Process batch when full
-                if (batch.size() >= BATCH_SIZE) {
+                if (batch.size() >= batchSize) {
                     final List<Map<String, Object>> currentBatch = new ArrayList<>(batch);
-                    final long batchNumber = totalRecords / BATCH_SIZE;
+                    final long currentBatchNumber = ++batchNumber;
 
                     executor.submit(() -> {
+                        long start = System.nanoTime();
+                        boolean processed = false;
                         try {
-                            processBatch(currentBatch, outputPath, batchNumber);
+                            processBatch(currentBatch, outputPath, currentBatchNumber);
                             recordCount.addAndGet(currentBatch.size());
+                            processed = true;
                         } catch (Exception e) {
-                            log.error("Batch processing failed for batch {}", batchNumber, e);
+                            log.error("Batch processing failed for batch {}", currentBatchNumber, e);
                             failedCount.addAndGet(currentBatch.size());
+                        } finally {
+                            batchController.record(currentBatch.size(),
+                                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), processed);
                         }
                     });
 
                     batch.clear();
+                    // Pick up the controller's latest decision for the next batch
+                    batchSize = batchController.getBatchSize();
                 }
 
                 // P0.1: Reduced logging overhead - log every 10k records
@@ -157,7 +170,7 @@ public class PooledJdbcConnector implements DataConnector {
             // P0.1: Process remaining records in final batch
             if (!batch.isEmpty()) {
                 final List<Map<String, Object>> finalBatch = new ArrayList<>(batch);
-                processBatch(finalBatch, outputPath, totalRecords / BATCH_SIZE + 1);
+                processBatch(finalBatch, outputPath, batchNumber + 1);
                 recordCount.addAndGet(finalBatch.size());
             }
 
@@ -0,0 +1,117 @@
+package com.jivs.platform.service.migration;
+
+/**
+ * AIMD controller that tunes batch size and concurrency from observed batch outcomes.
+ *
+ * After every committed batch the caller reports the record count, the commit latency
+ * and whether it succeeded:
+ * - Failures halve batch size and concurrency (multiplicative decrease)
+ * - Latency above the target shrinks the batch by 30%
+ * - Healthy batches grow the batch additively while smoothed throughput keeps up
+ *   with the best observed rate; if throughput falls off the batch is trimmed instead
+ * - Concurrency grows by one worker after a window of consecutive healthy batches
+ *
+ * Values always stay within the configured bounds. The controller is thread-safe and
+ * is shared by all workers loading into (or extracting from) the same table.
+ */
+public class AdaptiveBatchController {
+
+    private static final double EWMA_ALPHA = 0.3;
+    private static final double LATENCY_DECREASE_FACTOR = 0.7;
+    private static final double THROUGHPUT_TOLERANCE = 0.9;
+    private static final double THROUGHPUT_DECREASE_FACTOR = 0.9;
+    private static final int CONCURRENCY_WINDOW = 10;
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final long targetLatencyMillis;
+    private final int additiveStep;
+
+    private volatile int batchSize;
+    private volatile int concurrency;
+
+    private double smoothedThroughput;
+    private double bestThroughput;
+    private double errorRate;
+    private int healthyStreak;
+    private long increases;
+    private long decreases;
+
+    public AdaptiveBatchController(int minBatchSize, int maxBatchSize, int initialBatchSize,
+                                   int minConcurrency, int maxConcurrency, int initialConcurrency,
+                                   long targetLatencyMillis) {
+        if (minBatchSize < 1 || maxBatchSize < minBatchSize) {
+            throw new IllegalArgumentException("Invalid batch size bounds: " + minBatchSize + ".." + maxBatchSize);
+        }
+        if (minConcurrency < 1 || maxConcurrency < minConcurrency) {
+            throw new IllegalArgumentException("Invalid concurrency bounds: " + minConcurrency + ".." + maxConcurrency);
+        }
+
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.targetLatencyMillis = targetLatencyMillis;
+        this.additiveStep = Math.max(1, minBatchSize);
+        this.batchSize = clamp(initialBatchSize, minBatchSize, maxBatchSize);
+        this.concurrency = clamp(initialConcurrency, minConcurrency, maxConcurrency);
+    }
+
+    /**
+     * Report the outcome of one batch and adjust the next decisions
+     *
+     * @param records       records in the batch
+     * @param latencyMillis time to write and commit the batch
+     * @param success       whether the batch committed
+     */
+    public synchronized void record(int records, long latencyMillis, boolean success) {
+        errorRate = EWMA_ALPHA * (success ? 0.0 : 1.0) + (1 - EWMA_ALPHA) * errorRate;
+
+        if (!success) {
+            batchSize = Math.max(minBatchSize, batchSize / 2);
+            concurrency = Math.max(minConcurrency, concurrency / 2);
+            healthyStreak = 0;
+            decreases++;
+            return;
+        }
+
+        double throughput = records * 1000.0 / Math.max(1, latencyMillis);
+        smoothedThroughput = smoothedThroughput == 0
+            ? throughput
+            : EWMA_ALPHA * throughput + (1 - EWMA_ALPHA) * smoothedThroughput;
+
+        if (latencyMillis > targetLatencyMillis) {
+            batchSize = Math.max(minBatchSize, (int) (batchSize * LATENCY_DECREASE_FACTOR));
+            healthyStreak = 0;
+            decreases++;
+        } else if (smoothedThroughput >= bestThroughput * THROUGHPUT_TOLERANCE) {
+            batchSize = Math.min(maxBatchSize, batchSize + additiveStep);
+            increases++;
+
+            if (++healthyStreak >= CONCURRENCY_WINDOW) {
+                concurrency = Math.min(maxConcurrency, concurrency + 1);
+                healthyStreak = 0;
+            }
+        } else {
+            // Larger batches stopped paying off - step back towards the last good size
+            batchSize = Math.max(minBatchSize, (int) (batchSize * THROUGHPUT_DECREASE_FACTOR));
+            healthyStreak = 0;
+            decreases++;
+        }
+
+        bestThroughput = Math.max(bestThroughput, smoothedThroughput);
+    }
+
+    public int getBatchSize() { return batchSize; }
+    public int getConcurrency() { return concurrency; }
+    public synchronized double getThroughput() { return smoothedThroughput; }
+    public synchronized double getErrorRate() { return errorRate; }
+    public synchronized long getIncreases() { return increases; }
+    public synchronized long getDecreases() { return decreases; }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,110 @@
+package com.jivs.platform.service.migration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one AdaptiveBatchController per load target / extraction source so tuning
+ * carries over between batches, and exposes every controller's decisions as metrics
+ * tagged with its key.
+ */
+@Component
+@RequiredArgsConstructor
+public class AdaptiveBatchControllerRegistry {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(AdaptiveBatchControllerRegistry.class);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AdaptiveBatchController> controllers = new ConcurrentHashMap<>();
+
+    @Value("${jivs.migration.adaptive.min-batch-size:100}")
+    private int minBatchSize = 100;
+
+    @Value("${jivs.migration.adaptive.max-batch-size:10000}")
+    private int maxBatchSize = 10000;
+
+    @Value("${jivs.migration.adaptive.initial-batch-size:1000}")
+    private int initialBatchSize = 1000;
+
+    @Value("${jivs.migration.adaptive.min-concurrency:1}")
+    private int minConcurrency = 1;
+
+    @Value("${jivs.migration.adaptive.max-concurrency:16}")
+    private int maxConcurrency = 16;
+
+    @Value("${jivs.migration.adaptive.target-latency-ms:500}")
+    private long targetLatencyMillis = 500;
+
+    /**
+     * Controller for loads into a target table
+     */
+    public AdaptiveBatchController forTarget(String targetSystem, String targetTable) {
+        return forKey("load:" + targetSystem + ":" + targetTable);
+    }
+
+    /**
+     * Controller for extraction from a source
+     */
+    public AdaptiveBatchController forSource(String sourceName) {
+        return forKey("extract:" + sourceName);
+    }
+
+    /**
+     * Get or create the controller for a key
+     */
+    public AdaptiveBatchController forKey(String key) {
+        return controllers.computeIfAbsent(key, this::createController);
+    }
+
+    private AdaptiveBatchController createController(String key) {
+        AdaptiveBatchController controller = new AdaptiveBatchController(
+            minBatchSize, maxBatchSize, initialBatchSize,
+            minConcurrency, maxConcurrency, Math.min(4, maxConcurrency),
+            targetLatencyMillis
+        );
+
+        Gauge.builder("migration.adaptive.batch.size", controller, AdaptiveBatchController::getBatchSize)
+            .description("Current adaptive batch size")
+            .tag("key", key)
+            .register(meterRegistry);
+
+        Gauge.builder("migration.adaptive.concurrency", controller, AdaptiveBatchController::getConcurrency)
+            .description("Current adaptive worker concurrency")
+            .tag("key", key)
+            .register(meterRegistry);
+
+        Gauge.builder("migration.adaptive.throughput", controller, AdaptiveBatchController::getThroughput)
+            .description("Smoothed throughput observed by the controller (records/sec)")
+            .tag("key", key)
+            .register(meterRegistry);
+
+        Gauge.builder("migration.adaptive.error.rate", controller, AdaptiveBatchController::getErrorRate)
+            .description("Smoothed batch error rate observed by the controller")
+            .tag("key", key)
+            .register(meterRegistry);
+
+        FunctionCounter.builder("migration.adaptive.adjustments", controller, AdaptiveBatchController::getIncreases)
+            .description("Adaptive controller adjustments")
+            .tag("key", key)
+            .tag("direction", "increase")
+            .register(meterRegistry);
+
+        FunctionCounter.builder("migration.adaptive.adjustments", controller, AdaptiveBatchController::getDecreases)
+            .description("Adaptive controller adjustments")
+            .tag("key", key)
+            .tag("direction", "decrease")
+            .register(meterRegistry);
+
+        log.debug("Created adaptive batch controller for {} (batch {}..{}, concurrency {}..{})",
+            key, minBatchSize, maxBatchSize, minConcurrency, maxConcurrency);
+
+        return controller;
+    }
+}
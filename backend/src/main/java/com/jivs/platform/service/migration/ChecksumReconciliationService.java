@@ -0,0 +1,893 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.security.SqlInjectionValidator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Merkle-style checksum reconciliation between a migrated source and target table.
+ *
+ * Both tables are split into key ranges and every range is reduced to a row count plus an
+ * order-independent sum of 60-bit row hashes. When both sides run the same supported
+ * database (PostgreSQL, MySQL/MariaDB) hashing and bucketing are pushed down as one
+ * GROUP BY aggregate per level, so only (bucket, count, sum) tuples cross the network.
+ * Ranges whose digests differ are split again and only mismatched leaves are compared
+ * key by key, so at most {@code leafRows} rows per side are held at once. Other
+ * combinations hash streamed rows client-side with the same algorithm.
+ *
+ * Integral single-column keys are split into key ranges. Other keys are split the same
+ * way over a 60-bit hash of the normalized key, computed in the database when pushed down.
+ * Column values are normalized per SQL type before hashing, so equal values stored with a
+ * different scale or precision on each side hash the same.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChecksumReconciliationService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ChecksumReconciliationService.class);
+
+    private static final String NULL_TOKEN = "\\N";
+    private static final String SEPARATOR = "|";
+    private static final long MAX_KEY_HASH = (1L << 60) - 1;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSSSS");
+
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    });
+
+    private final Map<String, DataSource> dataSources;
+    private final SqlInjectionValidator sqlInjectionValidator;
+    // Source and target digests of a level are computed concurrently on virtual threads
+    private final MigrationTaskScopes taskScopes;
+
+    @Value("${jivs.migration.verification.root-chunks:256}")
+    private int rootChunks = 256;
+
+    @Value("${jivs.migration.verification.fanout:16}")
+    private int fanout = 16;
+
+    @Value("${jivs.migration.verification.leaf-rows:1000}")
+    private int leafRows = 1000;
+
+    @Value("${jivs.migration.verification.max-reported-keys:100}")
+    private int maxReportedKeys = 100;
+
+    @Value("${jivs.migration.verification.fetch-size:5000}")
+    private int fetchSize = 5000;
+
+    /**
+     * Data source registered for a system name, if any
+     */
+    public Optional<DataSource> dataSourceFor(String system) {
+        return system != null ? Optional.ofNullable(dataSources.get(system)) : Optional.empty();
+    }
+
+    /**
+     * Reconcile a source table against its migrated target table.
+     *
+     * @param keyColumn single-column key shared by both tables; the source primary key when null
+     */
+    public MigrationModels.TableReconciliation reconcile(DataSource source, String sourceTable,
+                                                         DataSource target, String targetTable,
+                                                         String keyColumn) {
+        long start = System.currentTimeMillis();
+
+        MigrationModels.TableReconciliation result = new MigrationModels.TableReconciliation();
+        result.setSourceTable(sourceTable);
+        result.setTargetTable(targetTable);
+
+        try {
+            TableSide src = describe(source, sourceTable, keyColumn);
+            TableSide tgt = describe(target, targetTable, keyColumn != null ? keyColumn : src.keyColumn);
+            alignColumns(src, tgt);
+
+            // Pushed-down hashes are only comparable when both sides compute them the same way
+            if (src.dialect != tgt.dialect || src.dialect == Dialect.GENERIC) {
+                src.dialect = Dialect.GENERIC;
+                tgt.dialect = Dialect.GENERIC;
+            }
+            result.setKeyColumn(src.keyColumn);
+            result.setHashMode(src.dialect == Dialect.GENERIC ? "CLIENT" : "PUSHDOWN");
+
+            KeyBounds srcBounds = bounds(src);
+            KeyBounds tgtBounds = bounds(tgt);
+            result.setSourceRows(srcBounds.rows);
+            result.setTargetRows(tgtBounds.rows);
+
+            if (srcBounds.rows > 0 || tgtBounds.rows > 0) {
+                if (srcBounds.isIntegral() && tgtBounds.isIntegral()) {
+                    long lo = Math.min(srcBounds.rows > 0 ? srcBounds.min : Long.MAX_VALUE,
+                                       tgtBounds.rows > 0 ? tgtBounds.min : Long.MAX_VALUE);
+                    long hi = Math.max(srcBounds.rows > 0 ? srcBounds.max : Long.MIN_VALUE,
+                                       tgtBounds.rows > 0 ? tgtBounds.max : Long.MIN_VALUE);
+                    if (hi - lo >= 0) {
+                        compareRange(src, tgt, false, lo, hi, rootChunks, result);
+                    } else {
+                        // Key span overflows a long
+                        compareRange(src, tgt, true, 0, MAX_KEY_HASH, rootChunks, result);
+                    }
+                } else {
+                    compareRange(src, tgt, true, 0, MAX_KEY_HASH, rootChunks, result);
+                }
+            }
+
+            result.setMatched(result.getMissingInTarget() == 0
+                && result.getExtraInTarget() == 0
+                && result.getChangedRows() == 0
+                && result.getSourceRows() == result.getTargetRows());
+
+        } catch (Exception e) {
+            log.error("Checksum reconciliation failed for {} -> {}", sourceTable, targetTable, e);
+            result.setMatched(false);
+            result.setErrorMessage(e.getMessage());
+        }
+
+        result.setDurationMillis(System.currentTimeMillis() - start);
+        log.info("Reconciled {} -> {}: matched={}, rows {}/{}, chunks {} ({} mismatched), missing {}, extra {}, changed {} in {} ms",
+            sourceTable, targetTable, result.isMatched(), result.getSourceRows(), result.getTargetRows(),
+            result.getChunksCompared(), result.getMismatchedChunks(), result.getMissingInTarget(),
+            result.getExtraInTarget(), result.getChangedRows(), result.getDurationMillis());
+
+        return result;
+    }
+
+    /**
+     * Count orphaned rows for every foreign key of a target table.
+     *
+     * Relationships are taken from the target's declared foreign keys and from the source
+     * table's foreign keys (mapped by name), so they are checked even when the target was
+     * created without constraints. The anti-join runs entirely in the target database.
+     */
+    public List<MigrationModels.ReferentialCheck> checkReferentialIntegrity(DataSource source, String sourceTable,
+                                                                           DataSource target, String targetTable) {
+        JdbcTemplate targetJdbc = new JdbcTemplate(target);
+
+        Map<String, ForeignKey> foreignKeys = new LinkedHashMap<>();
+        for (ForeignKey fk : importedKeys(targetJdbc, targetTable)) {
+            foreignKeys.putIfAbsent(fk.signature(), fk);
+        }
+        if (source != null) {
+            for (ForeignKey fk : importedKeys(new JdbcTemplate(source), sourceTable)) {
+                ForeignKey mapped = mapToTarget(targetJdbc, targetTable, fk);
+                if (mapped != null) {
+                    foreignKeys.putIfAbsent(mapped.signature(), mapped);
+                }
+            }
+        }
+
+        List<MigrationModels.ReferentialCheck> checks = new ArrayList<>();
+        for (ForeignKey fk : foreignKeys.values()) {
+            MigrationModels.ReferentialCheck check = new MigrationModels.ReferentialCheck();
+            check.setConstraintName(fk.name);
+            check.setChildTable(fk.childTable);
+            check.setChildColumns(fk.childColumns);
+            check.setParentTable(fk.parentTable);
+            check.setParentColumns(fk.parentColumns);
+
+            String sql = orphanCountSql(targetJdbc, fk);
+            Long orphans = targetJdbc.queryForObject(sql, Long.class);
+            check.setOrphanedRows(orphans != null ? orphans : 0);
+            check.setPassed(check.getOrphanedRows() == 0);
+
+            if (!check.isPassed()) {
+                log.warn("{} orphaned rows in {} for foreign key {} -> {}",
+                    check.getOrphanedRows(), fk.childTable, fk.childColumns, fk.parentTable);
+            }
+            checks.add(check);
+        }
+
+        return checks;
+    }
+
+    // ---------------------------------------------------------------------
+    // Range (Merkle) comparison
+    // ---------------------------------------------------------------------
+
+    /**
+     * Compare [lo, hi] split into buckets, drilling into mismatched ones.
+     *
+     * @param hashed split the 60-bit key hash instead of the integral key itself
+     */
+    private void compareRange(TableSide src, TableSide tgt, boolean hashed, long lo, long hi, int buckets,
+                              MigrationModels.TableReconciliation result) {
+        long span = hi - lo + 1;
+        long width = Math.max(1, span / buckets + (span % buckets == 0 ? 0 : 1));
+
+        CompletableFuture<Map<Long, ChunkDigest>> targetDigests =
+            CompletableFuture.supplyAsync(() -> rangeDigests(tgt, hashed, lo, hi, width), taskScopes.executor());
+        Map<Long, ChunkDigest> sourceDigests = rangeDigests(src, hashed, lo, hi, width);
+        Map<Long, ChunkDigest> targetByBucket = targetDigests.join();
+
+        SortedSet<Long> chunks = new TreeSet<>(sourceDigests.keySet());
+        chunks.addAll(targetByBucket.keySet());
+        result.setChunksCompared(result.getChunksCompared() + chunks.size());
+
+        for (Long bucket : chunks) {
+            ChunkDigest a = sourceDigests.getOrDefault(bucket, ChunkDigest.EMPTY);
+            ChunkDigest b = targetByBucket.getOrDefault(bucket, ChunkDigest.EMPTY);
+            if (a.sameAs(b)) {
+                continue;
+            }
+            result.setMismatchedChunks(result.getMismatchedChunks() + 1);
+
+            long chunkLo = lo + bucket * width;
+            long chunkHi = Math.min(hi, chunkLo + width - 1);
+            if (a.rows == 0 || b.rows == 0) {
+                // Nothing to pair up: every row of the other side is missing or extra
+                reportUnmatched(a.rows == 0 ? tgt : src, hashed, chunkLo, chunkHi, Math.max(a.rows, b.rows),
+                    a.rows > 0, result);
+            } else if (Math.max(a.rows, b.rows) <= leafRows || chunkLo == chunkHi) {
+                compareLeaf(src, tgt, hashed, chunkLo, chunkHi, result);
+            } else {
+                compareRange(src, tgt, hashed, chunkLo, chunkHi, fanout, result);
+            }
+        }
+    }
+
+    private Map<Long, ChunkDigest> rangeDigests(TableSide side, boolean hashed, long lo, long hi, long width) {
+        Map<Long, ChunkDigest> digests = new HashMap<>();
+
+        if (side.dialect == Dialect.GENERIC) {
+            streamKeyHashes(side, hashed, lo, hi, (key, hash) ->
+                digests.computeIfAbsent((partitionValue(key, hashed) - lo) / width, b -> new ChunkDigest()).add(hash));
+            return digests;
+        }
+
+        String partition = side.partitionExpression(hashed);
+        String sql = "SELECT " + side.dialect.bucketExpression(partition) + " AS bucket, COUNT(*), SUM("
+            + side.rowHashExpression() + ") FROM " + side.quotedTable
+            + " WHERE " + partition + " BETWEEN ? AND ? GROUP BY 1";
+
+        side.jdbc.query(sql, rs -> {
+            ChunkDigest digest = new ChunkDigest();
+            digest.rows = rs.getLong(2);
+            BigDecimal sum = rs.getBigDecimal(3);
+            // Sums are compared modulo 2^64, matching the client-side accumulation
+            digest.hashSum = sum != null ? sum.toBigInteger().longValue() : 0;
+            digests.put(rs.getLong(1), digest);
+        }, lo, width, lo, hi);
+
+        return digests;
+    }
+
+    private void compareLeaf(TableSide src, TableSide tgt, boolean hashed, long lo, long hi,
+                             MigrationModels.TableReconciliation result) {
+        CompletableFuture<Map<String, Long>> targetRows = CompletableFuture.supplyAsync(() -> {
+            Map<String, Long> rows = new HashMap<>();
+            streamKeyHashes(tgt, hashed, lo, hi, (key, hash) -> rows.put(normalize(key), hash));
+            return rows;
+        }, taskScopes.executor());
+
+        Map<String, Long> sourceRows = new HashMap<>();
+        streamKeyHashes(src, hashed, lo, hi, (key, hash) -> sourceRows.put(normalize(key), hash));
+
+        diff(sourceRows, targetRows.join(), result);
+    }
+
+    /**
+     * Count the rows of a chunk that is empty on the other side, reading only as many keys
+     * as are still sampled
+     */
+    private void reportUnmatched(TableSide side, boolean hashed, long lo, long hi, long rows, boolean missing,
+                                 MigrationModels.TableReconciliation result) {
+        List<String> keys;
+        if (missing) {
+            result.setMissingInTarget(result.getMissingInTarget() + rows);
+            keys = result.getSampleMissingKeys();
+        } else {
+            result.setExtraInTarget(result.getExtraInTarget() + rows);
+            keys = result.getSampleExtraKeys();
+        }
+        if (keys.size() >= maxReportedKeys) {
+            return;
+        }
+
+        boolean filterHere = hashed && side.dialect == Dialect.GENERIC;
+        String sql = "SELECT " + side.quote(side.keyColumn) + " FROM " + side.quotedTable
+            + (filterHere ? "" : " WHERE " + side.partitionExpression(hashed) + " BETWEEN ? AND ?");
+        Object[] args = filterHere ? new Object[0] : new Object[]{lo, hi};
+
+        side.jdbc.query(sql, (ResultSetExtractor<Void>) rs -> {
+            while (keys.size() < maxReportedKeys && rs.next()) {
+                Object key = rs.getObject(1);
+                if (!filterHere || inRange(keyHash(key), lo, hi)) {
+                    keys.add(normalize(key));
+                }
+            }
+            return null;
+        }, args);
+    }
+
+    private static long partitionValue(Object key, boolean hashed) {
+        return hashed ? keyHash(key) : ((Number) key).longValue();
+    }
+
+    private static boolean inRange(long value, long lo, long hi) {
+        return value >= lo && value <= hi;
+    }
+
+    // ---------------------------------------------------------------------
+    // Row hashing
+    // ---------------------------------------------------------------------
+
+    /**
+     * Stream (key, row hash) pairs of a key or key-hash range. Pushdown dialects filter and
+     * hash in the database; otherwise the compared columns are hashed here, and key-hash
+     * ranges are filtered after reading each key.
+     */
+    private void streamKeyHashes(TableSide side, boolean hashed, long lo, long hi, BiConsumer<Object, Long> consumer) {
+        String key = side.quote(side.keyColumn);
+        boolean client = side.dialect == Dialect.GENERIC;
+        boolean filterHere = client && hashed;
+        String select = client
+            ? (side.columns.isEmpty() ? key : key + ", " + String.join(", ", side.quotedColumns()))
+            : key + ", " + side.rowHashExpression();
+        String sql = "SELECT " + select + " FROM " + side.quotedTable
+            + (filterHere ? "" : " WHERE " + side.partitionExpression(hashed) + " BETWEEN ? AND ?");
+
+        Object[] args = filterHere ? new Object[0] : new Object[]{lo, hi};
+        int columnCount = side.columns.size();
+
+        side.jdbc.query(sql, rs -> {
+            Object keyValue = rs.getObject(1);
+            if (filterHere && !inRange(keyHash(keyValue), lo, hi)) {
+                return;
+            }
+            if (client) {
+                List<Object> values = new ArrayList<>(columnCount);
+                for (int i = 0; i < columnCount; i++) {
+                    values.add(rs.getObject(i + 2));
+                }
+                consumer.accept(keyValue, rowHash(values));
+            } else {
+                consumer.accept(keyValue, rs.getLong(2));
+            }
+        }, args);
+    }
+
+    /**
+     * 60-bit hash of a normalized key, the partition value of non-integral keys
+     */
+    static long keyHash(Object key) {
+        return rowHash(Collections.singletonList(key));
+    }
+
+    /**
+     * 60-bit row hash: the first 15 hex digits of MD5 over the normalized column values
+     * joined by '|', the same value the pushed-down SQL expressions produce.
+     */
+    static long rowHash(List<Object> values) {
+        StringJoiner text = new StringJoiner(SEPARATOR);
+        for (Object value : values) {
+            text.add(normalize(value));
+        }
+
+        byte[] digest = MD5.get().digest(text.toString().getBytes(StandardCharsets.UTF_8));
+        long hash = 0;
+        for (int i = 0; i < 8; i++) {
+            hash = (hash << 8) | (digest[i] & 0xff);
+        }
+        return hash >>> 4;
+    }
+
+    /**
+     * Driver-independent text form of a column value, so equal values loaded through
+     * different drivers hash the same
+     */
+    static String normalize(Object value) {
+        if (value == null) {
+            return NULL_TOKEN;
+        }
+        if (value instanceof Timestamp timestamp) {
+            return TIMESTAMP_FORMAT.format(timestamp.toLocalDateTime());
+        }
+        if (value instanceof LocalDateTime dateTime) {
+            return TIMESTAMP_FORMAT.format(dateTime);
+        }
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate().toString();
+        }
+        if (value instanceof java.sql.Time time) {
+            return time.toLocalTime().toString();
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.stripTrailingZeros().toPlainString();
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return BigDecimal.valueOf(((Number) value).doubleValue()).stripTrailingZeros().toPlainString();
+        }
+        if (value instanceof byte[] bytes) {
+            return HexFormat.of().formatHex(bytes);
+        }
+        return value.toString();
+    }
+
+    private void diff(Map<String, Long> sourceRows, Map<String, Long> targetRows,
+                      MigrationModels.TableReconciliation result) {
+        for (Map.Entry<String, Long> entry : sourceRows.entrySet()) {
+            Long targetHash = targetRows.remove(entry.getKey());
+            if (targetHash == null) {
+                result.setMissingInTarget(result.getMissingInTarget() + 1);
+                sample(result.getSampleMissingKeys(), entry.getKey());
+            } else if (!targetHash.equals(entry.getValue())) {
+                result.setChangedRows(result.getChangedRows() + 1);
+                sample(result.getSampleChangedKeys(), entry.getKey());
+            }
+        }
+        for (String key : targetRows.keySet()) {
+            result.setExtraInTarget(result.getExtraInTarget() + 1);
+            sample(result.getSampleExtraKeys(), key);
+        }
+    }
+
+    private void sample(List<String> keys, String key) {
+        if (keys.size() < maxReportedKeys) {
+            keys.add(key);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Metadata
+    // ---------------------------------------------------------------------
+
+    private TableSide describe(DataSource dataSource, String table, String keyColumn) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.setFetchSize(fetchSize);
+
+        return jdbc.execute((ConnectionCallback<TableSide>) con -> {
+            DatabaseMetaData md = con.getMetaData();
+            TableRef ref = resolveTable(con, table);
+            if (ref == null) {
+                throw new IllegalArgumentException("Table not found: " + table);
+            }
+
+            List<String> columns = new ArrayList<>();
+            Map<String, Integer> types = new HashMap<>();
+            try (ResultSet rs = md.getColumns(ref.catalog, ref.schema, ref.name, null)) {
+                while (rs.next()) {
+                    columns.add(rs.getString("COLUMN_NAME"));
+                    types.put(rs.getString("COLUMN_NAME"), rs.getInt("DATA_TYPE"));
+                }
+            }
+
+            String key = keyColumn != null ? matchColumn(columns, keyColumn) : primaryKey(md, ref);
+            if (key == null) {
+                throw new IllegalStateException("No single-column key available for table " + table);
+            }
+
+            TableSide side = new TableSide(jdbc, Dialect.of(md.getDatabaseProductName()), quoteString(md));
+            side.keyColumn = key;
+            side.quotedTable = side.quoteTable(ref);
+            side.types = types;
+            side.columns = columns.stream()
+                .filter(c -> !c.equalsIgnoreCase(key))
+                .collect(Collectors.toList());
+            return side;
+        });
+    }
+
+    /**
+     * Compare the same columns, in the same order, on both sides
+     */
+    private void alignColumns(TableSide src, TableSide tgt) {
+        List<String> sourceColumns = new ArrayList<>();
+        List<String> targetColumns = new ArrayList<>();
+        for (String column : src.columns) {
+            String match = matchColumn(tgt.columns, column);
+            if (match != null) {
+                sourceColumns.add(column);
+                targetColumns.add(match);
+            } else {
+                log.debug("Column {} of {} has no counterpart in {}; excluded from checksums",
+                    column, src.quotedTable, tgt.quotedTable);
+            }
+        }
+        src.columns = sourceColumns;
+        tgt.columns = targetColumns;
+    }
+
+    private KeyBounds bounds(TableSide side) {
+        String key = side.quote(side.keyColumn);
+        return side.jdbc.queryForObject(
+            "SELECT MIN(" + key + "), MAX(" + key + "), COUNT(*) FROM " + side.quotedTable,
+            (rs, rowNum) -> new KeyBounds(rs.getObject(1), rs.getObject(2), rs.getLong(3)));
+    }
+
+    private TableRef resolveTable(Connection con, String table) throws SQLException {
+        String[] parts = table.split("\\.");
+        for (String part : parts) {
+            sqlInjectionValidator.sanitizeIdentifier(part);
+        }
+        String schema = parts.length > 1 ? parts[parts.length - 2] : null;
+        String name = parts[parts.length - 1];
+
+        DatabaseMetaData md = con.getMetaData();
+        for (String candidate : List.of(name, name.toUpperCase(Locale.ROOT), name.toLowerCase(Locale.ROOT))) {
+            String schemaCandidate = schema == null ? null
+                : candidate.equals(name) ? schema
+                : candidate.equals(name.toUpperCase(Locale.ROOT)) ? schema.toUpperCase(Locale.ROOT)
+                : schema.toLowerCase(Locale.ROOT);
+            try (ResultSet rs = md.getTables(con.getCatalog(), schemaCandidate, candidate, null)) {
+                if (rs.next()) {
+                    return new TableRef(rs.getString("TABLE_CAT"), rs.getString("TABLE_SCHEM"), rs.getString("TABLE_NAME"));
+                }
+            }
+        }
+        return null;
+    }
+
+    private String primaryKey(DatabaseMetaData md, TableRef ref) throws SQLException {
+        List<String> keys = new ArrayList<>();
+        try (ResultSet rs = md.getPrimaryKeys(ref.catalog, ref.schema, ref.name)) {
+            while (rs.next()) {
+                keys.add(rs.getString("COLUMN_NAME"));
+            }
+        }
+        return keys.size() == 1 ? keys.get(0) : null;
+    }
+
+    private List<ForeignKey> importedKeys(JdbcTemplate jdbc, String table) {
+        return jdbc.execute((ConnectionCallback<List<ForeignKey>>) con -> {
+            TableRef ref = resolveTable(con, table);
+            if (ref == null) {
+                return Collections.emptyList();
+            }
+
+            Map<String, ForeignKey> keys = new LinkedHashMap<>();
+            try (ResultSet rs = con.getMetaData().getImportedKeys(ref.catalog, ref.schema, ref.name)) {
+                while (rs.next()) {
+                    String parent = rs.getString("PKTABLE_NAME");
+                    String name = rs.getString("FK_NAME") != null ? rs.getString("FK_NAME") : "fk_" + parent;
+                    ForeignKey fk = keys.computeIfAbsent(name, n -> new ForeignKey(n, ref.name, parent));
+                    fk.parentSchema = rs.getString("PKTABLE_SCHEM");
+                    fk.childSchema = ref.schema;
+                    // Rows arrive ordered by KEY_SEQ within each key
+                    fk.childColumns.add(rs.getString("FKCOLUMN_NAME"));
+                    fk.parentColumns.add(rs.getString("PKCOLUMN_NAME"));
+                }
+            }
+            return new ArrayList<>(keys.values());
+        });
+    }
+
+    /**
+     * Translate a source foreign key to the target's tables and columns, or null when the
+     * parent table or a column does not exist in the target
+     */
+    private ForeignKey mapToTarget(JdbcTemplate targetJdbc, String targetTable, ForeignKey fk) {
+        return targetJdbc.execute((ConnectionCallback<ForeignKey>) con -> {
+            TableRef child = resolveTable(con, targetTable);
+            TableRef parent = resolveTable(con, fk.parentTable);
+            if (child == null || parent == null) {
+                return null;
+            }
+
+            DatabaseMetaData md = con.getMetaData();
+            List<String> childColumns = columnNames(md, child);
+            List<String> parentColumns = columnNames(md, parent);
+
+            ForeignKey mapped = new ForeignKey(fk.name, child.name, parent.name);
+            mapped.childSchema = child.schema;
+            mapped.parentSchema = parent.schema;
+            for (int i = 0; i < fk.childColumns.size(); i++) {
+                String childColumn = matchColumn(childColumns, fk.childColumns.get(i));
+                String parentColumn = matchColumn(parentColumns, fk.parentColumns.get(i));
+                if (childColumn == null || parentColumn == null) {
+                    return null;
+                }
+                mapped.childColumns.add(childColumn);
+                mapped.parentColumns.add(parentColumn);
+            }
+            return mapped;
+        });
+    }
+
+    private String orphanCountSql(JdbcTemplate jdbc, ForeignKey fk) {
+        String q = jdbc.execute((ConnectionCallback<String>) ChecksumReconciliationService::quoteString);
+
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM ")
+            .append(qualified(q, fk.childSchema, fk.childTable)).append(" c WHERE ");
+        StringBuilder join = new StringBuilder();
+        for (int i = 0; i < fk.childColumns.size(); i++) {
+            String childColumn = "c." + quote(q, fk.childColumns.get(i));
+            sql.append(childColumn).append(" IS NOT NULL AND ");
+            if (i > 0) {
+                join.append(" AND ");
+            }
+            join.append("p.").append(quote(q, fk.parentColumns.get(i))).append(" = ").append(childColumn);
+        }
+        sql.append("NOT EXISTS (SELECT 1 FROM ").append(qualified(q, fk.parentSchema, fk.parentTable))
+            .append(" p WHERE ").append(join).append(")");
+        return sql.toString();
+    }
+
+    private static List<String> columnNames(DatabaseMetaData md, TableRef ref) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (ResultSet rs = md.getColumns(ref.catalog, ref.schema, ref.name, null)) {
+            while (rs.next()) {
+                columns.add(rs.getString("COLUMN_NAME"));
+            }
+        }
+        return columns;
+    }
+
+    private static String matchColumn(List<String> columns, String name) {
+        return columns.stream().filter(c -> c.equalsIgnoreCase(name)).findFirst().orElse(null);
+    }
+
+    private static String quoteString(Connection con) throws SQLException {
+        return quoteString(con.getMetaData());
+    }
+
+    private static String quoteString(DatabaseMetaData md) throws SQLException {
+        String q = md.getIdentifierQuoteString();
+        return q == null || q.isBlank() ? "" : q.trim();
+    }
+
+    private static String quote(String q, String identifier) {
+        if (!q.isEmpty() && identifier.contains(q)) {
+            throw new IllegalArgumentException("Invalid identifier: " + identifier);
+        }
+        return q + identifier + q;
+    }
+
+    private static String qualified(String q, String schema, String name) {
+        return schema != null ? quote(q, schema) + "." + quote(q, name) : quote(q, name);
+    }
+
+    /**
+     * Databases that can compute row hashes and bucket aggregates in SQL
+     */
+    enum Dialect {
+        POSTGRESQL {
+            @Override
+            String rowHashExpression(List<String> values) {
+                return "('x' || substr(md5(" + rowText(values, "'\\N'") + "), 1, 15))::bit(60)::bigint";
+            }
+
+            @Override
+            String bucketExpression(String key) {
+                return "(CAST(" + key + " AS BIGINT) - ?) / ?";
+            }
+
+            @Override
+            String valueExpression(String column, int sqlType) {
+                return switch (sqlType) {
+                    case Types.NUMERIC, Types.DECIMAL, Types.REAL, Types.FLOAT, Types.DOUBLE ->
+                        "trim_scale(" + column + "::numeric)::text";
+                    case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE ->
+                        "to_char(" + column + ", 'YYYY-MM-DD\"T\"HH24:MI:SS.US')";
+                    case Types.DATE -> "to_char(" + column + ", 'YYYY-MM-DD')";
+                    case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB ->
+                        "encode(" + column + ", 'hex')";
+                    default -> column + "::text";
+                };
+            }
+        },
+        MYSQL {
+            @Override
+            String rowHashExpression(List<String> values) {
+                return "CAST(CONV(SUBSTRING(MD5(" + rowText(values, "'\\\\N'") + "), 1, 15), 16, 10) AS UNSIGNED)";
+            }
+
+            @Override
+            String bucketExpression(String key) {
+                return "(CAST(" + key + " AS SIGNED) - ?) DIV ?";
+            }
+
+            @Override
+            String valueExpression(String column, int sqlType) {
+                String text = "CAST(" + column + " AS CHAR)";
+                return switch (sqlType) {
+                    case Types.NUMERIC, Types.DECIMAL, Types.REAL, Types.FLOAT, Types.DOUBLE ->
+                        "IF(INSTR(" + text + ", '.') > 0, TRIM(TRAILING '.' FROM TRIM(TRAILING '0' FROM " + text + ")), "
+                            + text + ")";
+                    case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE ->
+                        "DATE_FORMAT(" + column + ", '%Y-%m-%dT%H:%i:%s.%f')";
+                    case Types.DATE -> "DATE_FORMAT(" + column + ", '%Y-%m-%d')";
+                    case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB ->
+                        "LOWER(HEX(" + column + "))";
+                    case Types.BIT, Types.BOOLEAN -> "CAST(" + column + " + 0 AS CHAR)";
+                    default -> text;
+                };
+            }
+        },
+        GENERIC;
+
+        /**
+         * 60-bit hash over already normalized value expressions
+         */
+        String rowHashExpression(List<String> values) {
+            throw new UnsupportedOperationException("Row hashes are computed client-side for " + name());
+        }
+
+        String bucketExpression(String key) {
+            throw new UnsupportedOperationException("Buckets are computed client-side for " + name());
+        }
+
+        /**
+         * Text form of a column that does not depend on its declared type, matching
+         * {@link ChecksumReconciliationService#normalize(Object)}: numbers without trailing
+         * zeros, timestamps with microseconds, binary as lowercase hex
+         */
+        String valueExpression(String column, int sqlType) {
+            throw new UnsupportedOperationException("Values are normalized client-side for " + name());
+        }
+
+        static Dialect of(String productName) {
+            String product = productName != null ? productName.toLowerCase(Locale.ROOT) : "";
+            if (product.contains("postgres")) {
+                return POSTGRESQL;
+            }
+            if (product.contains("mysql") || product.contains("mariadb")) {
+                return MYSQL;
+            }
+            return GENERIC;
+        }
+
+        private static String rowText(List<String> values, String nullToken) {
+            if (values.isEmpty()) {
+                return "''";
+            }
+            return values.stream()
+                .map(v -> "COALESCE(" + v + ", " + nullToken + ")")
+                .collect(Collectors.joining(", ", "CONCAT_WS('" + SEPARATOR + "', ", ")"));
+        }
+    }
+
+    /**
+     * Row count and order-independent hash sum (mod 2^64) of one chunk
+     */
+    static final class ChunkDigest {
+        static final ChunkDigest EMPTY = new ChunkDigest();
+
+        long rows;
+        long hashSum;
+
+        void add(long rowHash) {
+            rows++;
+            hashSum += rowHash;
+        }
+
+        boolean sameAs(ChunkDigest other) {
+            return rows == other.rows && hashSum == other.hashSum;
+        }
+    }
+
+    private static final class TableSide {
+        final JdbcTemplate jdbc;
+        final String quoteString;
+        Dialect dialect;
+        String quotedTable;
+        String keyColumn;
+        List<String> columns;
+        Map<String, Integer> types;
+
+        TableSide(JdbcTemplate jdbc, Dialect dialect, String quoteString) {
+            this.jdbc = jdbc;
+            this.dialect = dialect;
+            this.quoteString = quoteString;
+        }
+
+        String quote(String identifier) {
+            return ChecksumReconciliationService.quote(quoteString, identifier);
+        }
+
+        String quoteTable(TableRef ref) {
+            return qualified(quoteString, ref.schema, ref.name);
+        }
+
+        List<String> quotedColumns() {
+            return columns.stream().map(this::quote).collect(Collectors.toList());
+        }
+
+        /**
+         * Value the key space is split on: the key itself, or its hash computed in the database
+         */
+        String partitionExpression(boolean hashed) {
+            return hashed ? dialect.rowHashExpression(List.of(valueExpression(keyColumn))) : quote(keyColumn);
+        }
+
+        String rowHashExpression() {
+            return dialect.rowHashExpression(columns.stream().map(this::valueExpression).collect(Collectors.toList()));
+        }
+
+        private String valueExpression(String column) {
+            return dialect.valueExpression(quote(column), types.getOrDefault(column, Types.VARCHAR));
+        }
+    }
+
+    private static final class TableRef {
+        final String catalog;
+        final String schema;
+        final String name;
+
+        TableRef(String catalog, String schema, String name) {
+            this.catalog = catalog;
+            this.schema = schema;
+            this.name = name;
+        }
+    }
+
+    private static final class KeyBounds {
+        final Object rawMin;
+        final Object rawMax;
+        final long rows;
+        long min;
+        long max;
+
+        KeyBounds(Object rawMin, Object rawMax, long rows) {
+            this.rawMin = rawMin;
+            this.rawMax = rawMax;
+            this.rows = rows;
+            if (isIntegral()) {
+                this.min = rows > 0 ? ((Number) rawMin).longValue() : 0;
+                this.max = rows > 0 ? ((Number) rawMax).longValue() : 0;
+            }
+        }
+
+        boolean isIntegral() {
+            return rows == 0 || (integral(rawMin) && integral(rawMax));
+        }
+
+        private static boolean integral(Object value) {
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return true;
+            }
+            if (value instanceof BigInteger big) {
+                return big.bitLength() < 64;
+            }
+            if (value instanceof BigDecimal decimal) {
+                return decimal.stripTrailingZeros().scale() <= 0 && decimal.abs().compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) <= 0;
+            }
+            return false;
+        }
+    }
+
+    private static final class ForeignKey {
+        final String name;
+        final String childTable;
+        final String parentTable;
+        String childSchema;
+        String parentSchema;
+        final List<String> childColumns = new ArrayList<>();
+        final List<String> parentColumns = new ArrayList<>();
+
+        ForeignKey(String name, String childTable, String parentTable) {
+            this.name = name;
+            this.childTable = childTable;
+            this.parentTable = parentTable;
+        }
+
+        String signature() {
+            return (parentTable + ":" + String.join(",", childColumns)).toLowerCase(Locale.ROOT);
+        }
+    }
+}
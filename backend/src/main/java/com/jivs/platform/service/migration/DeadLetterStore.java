@@ -0,0 +1,321 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.domain.migration.Migration;
+import com.jivs.platform.domain.migration.MigrationDeadLetter;
+import com.jivs.platform.domain.migration.MigrationMetrics;
+import com.jivs.platform.domain.migration.MigrationStatus;
+import com.jivs.platform.repository.MigrationDeadLetterRepository;
+import com.jivs.platform.repository.MigrationRepository;
+import com.jivs.platform.security.SqlInjectionValidator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Dead-letter store for records the target rejected during loading.
+ *
+ * The rejects of a load batch are kept as one compressed segment: column names and value
+ * types once, then one row and one reason per record. Replaying a migration's segments
+ * loads only those records, skipping any whose key is already in the target, so fixing a
+ * handful of bad rows costs a handful of inserts rather than a rerun.
+ */
+@Service
+@RequiredArgsConstructor
+public class DeadLetterStore {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(DeadLetterStore.class);
+
+    /** Keys looked up per existence query during deduplication */
+    private static final int KEY_LOOKUP_CHUNK = 500;
+
+    private final MigrationDeadLetterRepository deadLetterRepository;
+    private final MigrationRepository migrationRepository;
+    private final LoadService loadService;
+    private final Map<String, DataSource> targetDataSources;
+    private final SqlInjectionValidator sqlInjectionValidator;
+
+    private final Set<Long> replaying = java.util.concurrent.ConcurrentHashMap.newKeySet();
+
+    /**
+     * Keep the rejected records of a load batch, replacing any segment an earlier
+     * attempt of the same batch left behind
+     *
+     * @return the stored segment, or null if nothing was rejected
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public MigrationDeadLetter capture(Long migrationId, String targetSystem, MigrationModels.LoadTask task,
+                                       List<LoadService.RejectedRecord> rejected) {
+        if (rejected == null || rejected.isEmpty()) {
+            return null;
+        }
+
+        deadLetterRepository.deleteByBatch(migrationId, task.getId());
+        MigrationDeadLetter segment = deadLetterRepository.save(MigrationDeadLetter.builder()
+            .migrationId(migrationId)
+            .batchId(task.getId())
+            .targetSystem(targetSystem)
+            .targetTable(task.getTargetTable())
+            .keyColumns(keyColumns(task))
+            .recordCount(rejected.size())
+            .reason(truncate(rejected.get(0).getReason()))
+            .payload(encode(rejected))
+            .build());
+
+        log.info("Dead-lettered {} records of batch {} of migration {} ({} bytes)",
+            rejected.size(), task.getId(), migrationId, segment.getPayload().length);
+        return segment;
+    }
+
+    /**
+     * Dead-letter segments of a migration, oldest first
+     */
+    public List<MigrationDeadLetter> segments(Long migrationId) {
+        return deadLetterRepository.findByMigrationIdOrderByIdAsc(migrationId);
+    }
+
+    /**
+     * Drop the segments of some target tables, e.g. the rejects of a shadow run once reported
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int discard(Long migrationId, Collection<String> tables) {
+        return tables.isEmpty() ? 0 : deadLetterRepository.deleteByTables(migrationId, tables);
+    }
+
+    /**
+     * Records and reasons of a segment
+     */
+    public List<LoadService.RejectedRecord> read(MigrationDeadLetter segment) {
+        return decode(segment.getPayload());
+    }
+
+    /**
+     * Load the pending dead-lettered records of a migration again, e.g. after fixing the
+     * target constraint or the data that rejected them. Records whose key already exists
+     * in the target are dropped; records rejected again stay in their segment.
+     *
+     * @param table only replay segments of this target table, or all if null
+     */
+    public MigrationModels.DeadLetterReplayResult replay(Long migrationId, String table) {
+        Migration migration = migrationRepository.findById(migrationId)
+            .orElseThrow(() -> new IllegalArgumentException("Migration not found: " + migrationId));
+        if (migration.getStatus() == MigrationStatus.IN_PROGRESS) {
+            throw new IllegalStateException("Migration " + migrationId + " is running; replay once it has stopped");
+        }
+        if (!replaying.add(migrationId)) {
+            throw new IllegalStateException("Dead letters of migration " + migrationId + " are already being replayed");
+        }
+
+        MigrationModels.DeadLetterReplayResult result = new MigrationModels.DeadLetterReplayResult();
+        try {
+            for (MigrationDeadLetter segment :
+                    deadLetterRepository.findByMigrationIdAndStatusOrderByIdAsc(migrationId, MigrationDeadLetter.PENDING)) {
+                if (table == null || table.equalsIgnoreCase(segment.getTargetTable())) {
+                    replaySegment(segment, result);
+                }
+            }
+        } finally {
+            replaying.remove(migrationId);
+        }
+
+        if (result.getReplayedRecords() > 0 || result.getDuplicateRecords() > 0) {
+            updateMetrics(migration, result);
+        }
+        log.info("Replayed dead letters of migration {}: {} segments, {} loaded, {} already present, {} rejected again",
+            migrationId, result.getSegments(), result.getReplayedRecords(),
+            result.getDuplicateRecords(), result.getRejectedRecords());
+        return result;
+    }
+
+    private void replaySegment(MigrationDeadLetter segment, MigrationModels.DeadLetterReplayResult result) {
+        result.setSegments(result.getSegments() + 1);
+
+        List<Map<String, Object>> records = read(segment).stream()
+            .map(LoadService.RejectedRecord::getRecord)
+            .collect(Collectors.toList());
+        List<String> keyColumns = splitKeyColumns(segment.getKeyColumns());
+
+        Set<List<String>> loadedKeys = loadedKeys(segment.getTargetSystem(), segment.getTargetTable(), keyColumns, records);
+        List<Map<String, Object>> pending = records.stream()
+            .filter(record -> !loadedKeys.contains(keyOf(record, keyColumns)))
+            .collect(Collectors.toList());
+        int duplicates = records.size() - pending.size();
+
+        LoadService.LoadResult loaded = new LoadService.LoadResult(segment.getBatchId(), true, null);
+        if (!pending.isEmpty()) {
+            LoadService.LoadContext context = new LoadService.LoadContext();
+            context.setMigrationId(segment.getMigrationId());
+            context.setBatchId(segment.getBatchId() + "-replay-" + (segment.getReplayCount() + 1));
+            context.setTargetSystem(segment.getTargetSystem());
+            context.setTargetTable(segment.getTargetTable());
+            context.setColumns(RowSegments.columnsOf(pending));
+            context.setKeyColumns(keyColumns);
+            context.setData(pending);
+            context.setStrategy(LoadService.LoadStrategy.BATCH);
+            loaded = loadService.loadBatch(context);
+        }
+
+        if (!loaded.isSuccess()) {
+            // Nothing committed; the segment stays as it was for the next replay
+            result.getErrors().add(segment.getBatchId() + ": " + loaded.getErrorMessage());
+            return;
+        }
+
+        segment.setReplayCount(segment.getReplayCount() + 1);
+        if (loaded.getRejectedRecords().isEmpty()) {
+            segment.setStatus(MigrationDeadLetter.REPLAYED);
+            segment.setReplayedAt(LocalDateTime.now());
+        } else {
+            segment.setPayload(encode(loaded.getRejectedRecords()));
+            segment.setRecordCount(loaded.getRejectedRecords().size());
+            segment.setReason(truncate(loaded.getRejectedRecords().get(0).getReason()));
+        }
+        deadLetterRepository.save(segment);
+
+        result.setReplayedRecords(result.getReplayedRecords() + loaded.getRecordsLoaded());
+        result.setDuplicateRecords(result.getDuplicateRecords() + duplicates);
+        result.setRejectedRecords(result.getRejectedRecords() + loaded.getRejectedRecords().size());
+    }
+
+    /**
+     * Keys of the given records that already exist in the target table
+     */
+    Set<List<String>> loadedKeys(String targetSystem, String table, List<String> keyColumns,
+                                 List<Map<String, Object>> records) {
+        DataSource dataSource = targetDataSources.get(targetSystem);
+        if (keyColumns.isEmpty() || dataSource == null) {
+            return Collections.emptySet();
+        }
+
+        String tableName = Arrays.stream(table.split("\\."))
+            .map(sqlInjectionValidator::sanitizeIdentifier)
+            .collect(Collectors.joining("."));
+        String columnList = sqlInjectionValidator.sanitizeColumns(keyColumns);
+        String match = keyColumns.stream().map(c -> c + " = ?").collect(Collectors.joining(" AND ", "(", ")"));
+
+        List<List<Object>> keys = records.stream()
+            .map(record -> keyColumns.stream().map(c -> value(record, c)).collect(Collectors.toList()))
+            .filter(key -> key.stream().noneMatch(Objects::isNull))
+            .collect(Collectors.toList());
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Set<List<String>> loaded = new HashSet<>();
+        for (int offset = 0; offset < keys.size(); offset += KEY_LOOKUP_CHUNK) {
+            List<List<Object>> chunk = keys.subList(offset, Math.min(keys.size(), offset + KEY_LOOKUP_CHUNK));
+            String sql = "SELECT " + columnList + " FROM " + tableName + " WHERE "
+                + chunk.stream().map(k -> match).collect(Collectors.joining(" OR "));
+            Object[] params = chunk.stream().flatMap(List::stream).toArray();
+            jdbcTemplate.query(sql, rs -> {
+                List<String> key = new ArrayList<>(keyColumns.size());
+                for (int i = 1; i <= keyColumns.size(); i++) {
+                    key.add(normalize(rs.getObject(i)));
+                }
+                loaded.add(key);
+            }, params);
+        }
+        return loaded;
+    }
+
+    /**
+     * Move replayed records from failed to loaded, writing only the metrics columns so the
+     * entity read before the replay cannot overwrite anything else
+     */
+    private void updateMetrics(Migration migration, MigrationModels.DeadLetterReplayResult result) {
+        MigrationMetrics metrics = migration.getMetrics();
+        int replayed = (int) result.getReplayedRecords();
+        int resolved = (int) (result.getReplayedRecords() + result.getDuplicateRecords());
+        metrics.setLoadedRecords(valueOrZero(metrics.getLoadedRecords()) + replayed);
+        metrics.setSuccessfulRecords(valueOrZero(metrics.getSuccessfulRecords()) + replayed);
+        metrics.setFailedRecords(Math.max(0, valueOrZero(metrics.getFailedRecords()) - resolved));
+        migrationRepository.updateMetrics(migration.getId(),
+            metrics.getExtractedRecords(), metrics.getTransformedRecords(), metrics.getLoadedRecords(),
+            metrics.getProcessedRecords(), metrics.getSuccessfulRecords(), metrics.getFailedRecords());
+    }
+
+    // ---------------------------------------------------------------------
+    // Segment encoding
+    // ---------------------------------------------------------------------
+
+    /**
+     * Rows in the {@link RowSegments} format, with one reason per row
+     */
+    static byte[] encode(List<LoadService.RejectedRecord> rejected) {
+        List<Map<String, Object>> records = rejected.stream().map(LoadService.RejectedRecord::getRecord).toList();
+        List<String> reasons = rejected.stream().map(LoadService.RejectedRecord::getReason).toList();
+        return RowSegments.encode(records, Map.of("reasons", reasons));
+    }
+
+    static List<LoadService.RejectedRecord> decode(byte[] payload) {
+        Map<String, List<Object>> segment = RowSegments.read(payload);
+        List<Map<String, Object>> records = RowSegments.records(segment);
+        List<Object> reasons = segment.get("reasons");
+
+        List<LoadService.RejectedRecord> rejected = new ArrayList<>(records.size());
+        for (int r = 0; r < records.size(); r++) {
+            rejected.add(new LoadService.RejectedRecord(records.get(r), (String) reasons.get(r)));
+        }
+        return rejected;
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers
+    // ---------------------------------------------------------------------
+
+    private static String keyColumns(MigrationModels.LoadTask task) {
+        Object keyColumn = task.getParameters() != null ? task.getParameters().get("keyColumn") : null;
+        return keyColumn != null && !keyColumn.toString().isBlank() ? keyColumn.toString() : null;
+    }
+
+    private static List<String> splitKeyColumns(String keyColumns) {
+        if (keyColumns == null || keyColumns.isBlank()) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(keyColumns.split(","))
+            .map(String::trim)
+            .filter(c -> !c.isEmpty())
+            .collect(Collectors.toList());
+    }
+
+    private static List<String> keyOf(Map<String, Object> record, List<String> keyColumns) {
+        return keyColumns.stream().map(c -> normalize(value(record, c))).collect(Collectors.toList());
+    }
+
+    /**
+     * Column value regardless of the case the catalog reported the key column in
+     */
+    private static Object value(Map<String, Object> record, String column) {
+        if (record.containsKey(column)) {
+            return record.get(column);
+        }
+        return record.entrySet().stream()
+            .filter(e -> e.getKey().equalsIgnoreCase(column))
+            .map(Map.Entry::getValue)
+            .findFirst()
+            .orElse(null);
+    }
+
+    /**
+     * Comparable form of a key value, so 42, 42L and 42.0 read back from JSON and JDBC match
+     */
+    private static String normalize(Object value) {
+        if (value instanceof Number) {
+            return new BigDecimal(value.toString()).stripTrailingZeros().toPlainString();
+        }
+        return String.valueOf(value);
+    }
+
+    private static int valueOrZero(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static String truncate(String reason) {
+        return reason != null && reason.length() > 1000 ? reason.substring(0, 1000) : reason;
+    }
+}
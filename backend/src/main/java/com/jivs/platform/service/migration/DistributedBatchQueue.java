@@ -0,0 +1,448 @@
+package com.jivs.platform.service.migration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jivs.platform.domain.migration.MigrationPhase;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.redisson.api.RDeque;
+import org.redisson.api.RList;
+import org.redisson.api.RMap;
+import org.redisson.api.RSet;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Distributes migration batches across backend replicas through Redis work queues.
+ *
+ * The node executing a migration coordinates each phase: it publishes the pending batches
+ * and waits for their outcomes. Every replica runs workers that claim batches from any
+ * active queue. A claimed batch carries a lease that its worker renews by heartbeat;
+ * leases of crashed or stalled workers expire and the batch is redelivered, up to
+ * {@code max-attempts} deliveries. Only the coordinator writes the migration checkpoint,
+ * so a batch delivered twice is still committed once.
+ *
+ * Keys of one queue share a hash tag so they live in the same Redis Cluster slot:
+ * <pre>
+ * jivs:migration:{42}:LOADING:pending      deque of unclaimed task ids
+ * jivs:migration:{42}:LOADING:processing   claimed task ids
+ * jivs:migration:{42}:LOADING:leases       task id -> lease expiry (epoch millis)
+ * jivs:migration:{42}:LOADING:attempts     task id -> deliveries
+ * jivs:migration:{42}:LOADING:tasks        task id -> task JSON
+ * jivs:migration:{42}:LOADING:results      task id -> outcome JSON
+ * jivs:migration:{42}:LOADING:coordinator  expires when the coordinator stops refreshing it
+ * </pre>
+ */
+@Service
+@RequiredArgsConstructor
+public class DistributedBatchQueue {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(DistributedBatchQueue.class);
+
+    private static final String KEY_PREFIX = "jivs:migration:";
+    private static final String ACTIVE_QUEUES = KEY_PREFIX + "queues";
+
+    private final RedissonClient redissonClient;
+    private final MigrationCheckpointService checkpointService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<MigrationPhase, Handler<?>> handlers = new ConcurrentHashMap<>();
+    private final Map<String, Claim> claims = new ConcurrentHashMap<>();
+    private final Map<String, Long> unleasedSince = new ConcurrentHashMap<>();
+
+    @Value("${jivs.migration.distributed.enabled:false}")
+    private boolean enabled;
+
+    @Value("${jivs.migration.distributed.workers:4}")
+    private int workerCount = 4;
+
+    @Value("${jivs.migration.distributed.lease-ms:30000}")
+    private long leaseMillis = 30000;
+
+    @Value("${jivs.migration.distributed.heartbeat-ms:10000}")
+    private long heartbeatMillis = 10000;
+
+    @Value("${jivs.migration.distributed.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    @Value("${jivs.migration.distributed.poll-interval-ms:500}")
+    private long pollIntervalMillis = 500;
+
+    private ExecutorService workers;
+    private ScheduledExecutorService heartbeats;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        running = true;
+        workers = Executors.newFixedThreadPool(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::workLoop);
+        }
+        heartbeats = Executors.newSingleThreadScheduledExecutor();
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+
+        log.info("Distributed batch execution enabled: {} workers, lease {} ms, heartbeat {} ms",
+            workerCount, leaseMillis, heartbeatMillis);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+        if (heartbeats != null) {
+            heartbeats.shutdownNow();
+        }
+        // Unfinished claims are not renewed any more and are redelivered once their leases expire
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Register how this node runs a batch of a phase. Every replica registers the same
+     * handlers, so any of them can run a batch published by another.
+     */
+    public <T> void registerHandler(MigrationPhase phase, Class<T> taskType,
+                                    BiFunction<Long, T, MigrationModels.BatchOutcome> body) {
+        handlers.put(phase, new Handler<>(taskType, body));
+    }
+
+    /**
+     * Publish the batches of a phase and wait until every batch has an outcome.
+     *
+     * Outcomes are handed to {@code onOutcome} on the calling thread as they arrive. When a
+     * pause is requested, unclaimed batches are withdrawn and the call returns once the
+     * batches already claimed have finished.
+     *
+     * @param tasks pending tasks by task id, in batch order
+     */
+    public <T> List<MigrationModels.BatchOutcome> execute(Long migrationId, MigrationPhase phase,
+                                                          Map<String, T> tasks,
+                                                          Consumer<MigrationModels.BatchOutcome> onOutcome) {
+        List<MigrationModels.BatchOutcome> outcomes = new ArrayList<>();
+        if (tasks.isEmpty()) {
+            return outcomes;
+        }
+
+        QueueKeys keys = new QueueKeys(migrationId, phase);
+        delete(keys);
+
+        Map<String, String> payloads = new LinkedHashMap<>();
+        tasks.forEach((taskId, task) -> payloads.put(taskId, write(task)));
+
+        refreshCoordinator(keys);
+        redissonClient.<String, String>getMap(keys.tasks()).putAll(payloads);
+        RDeque<String> pending = redissonClient.getDeque(keys.pending());
+        // Workers take from the tail, so the first batch goes in last
+        for (String taskId : tasks.keySet()) {
+            pending.addFirst(taskId);
+        }
+        redissonClient.<String>getSet(ACTIVE_QUEUES).add(keys.prefix());
+
+        log.info("Published {} {} batches of migration {} to the distributed queue",
+            tasks.size(), phase, migrationId);
+
+        RMap<String, String> results = redissonClient.getMap(keys.results());
+        RList<String> processing = redissonClient.getList(keys.processing());
+        Set<String> outstanding = new LinkedHashSet<>(tasks.keySet());
+        boolean draining = false;
+
+        try {
+            while (!outstanding.isEmpty()) {
+                refreshCoordinator(keys);
+
+                if (!draining && checkpointService.isPauseRequested(migrationId)) {
+                    draining = true;
+                    String unclaimed;
+                    while ((unclaimed = pending.pollLast()) != null) {
+                        outstanding.remove(unclaimed);
+                    }
+                    log.info("Pause requested: withdrew unclaimed {} batches of migration {}", phase, migrationId);
+                }
+
+                // Workers publish their result before releasing the claim, so once nothing is
+                // claimed the results read below are complete
+                boolean idle = draining && processing.isEmpty();
+
+                Map<String, String> arrived = results.getAll(outstanding);
+                for (String taskId : outstanding.toArray(new String[0])) {
+                    String json = arrived.get(taskId);
+                    if (json != null) {
+                        MigrationModels.BatchOutcome outcome = read(json, MigrationModels.BatchOutcome.class);
+                        outstanding.remove(taskId);
+                        outcomes.add(outcome);
+                        onOutcome.accept(outcome);
+                    }
+                }
+
+                if (idle || outstanding.isEmpty()) {
+                    break;
+                }
+                sleep(pollIntervalMillis);
+            }
+        } finally {
+            delete(keys);
+        }
+
+        return outcomes;
+    }
+
+    private void workLoop() {
+        while (running) {
+            boolean worked = false;
+            try {
+                for (String prefix : redissonClient.<String>getSet(ACTIVE_QUEUES).readAll()) {
+                    if (!running) {
+                        break;
+                    }
+                    worked |= claimAndRun(QueueKeys.parse(prefix));
+                }
+            } catch (Exception e) {
+                log.warn("Distributed batch worker error: {}", e.getMessage(), e);
+            }
+
+            if (!worked) {
+                try {
+                    Thread.sleep(pollIntervalMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Claim one batch of a queue and run it
+     *
+     * @return whether a batch was claimed
+     */
+    private boolean claimAndRun(QueueKeys keys) {
+        Handler<?> handler = handlers.get(keys.phase());
+        if (handler == null) {
+            return false;
+        }
+
+        RDeque<String> pending = redissonClient.getDeque(keys.pending());
+        // Atomic move, so a batch is always either pending or claimed
+        String taskId = pending.pollLastAndOfferFirstTo(keys.processing());
+        if (taskId == null) {
+            return false;
+        }
+
+        RMap<String, Long> leases = redissonClient.getMap(keys.leases());
+        RList<String> processing = redissonClient.getList(keys.processing());
+        Claim claim = new Claim(keys, taskId, System.currentTimeMillis() + leaseMillis);
+        leases.fastPut(taskId, claim.expiresAt);
+        claims.put(claim.id(), claim);
+
+        try {
+            if (checkpointService.isPauseRequested(keys.migrationId())) {
+                // Hand it back; the coordinator withdraws pending batches when it sees the pause
+                if (processing.remove(taskId)) {
+                    pending.addLast(taskId);
+                }
+                return false;
+            }
+
+            long attempt = redissonClient.<String, Long>getMap(keys.attempts()).addAndGet(taskId, 1L);
+            MigrationModels.BatchOutcome outcome;
+            if (attempt > maxAttempts) {
+                outcome = MigrationModels.BatchOutcome.failed(taskId,
+                    "Batch abandoned after " + maxAttempts + " delivery attempts");
+            } else {
+                String payload = redissonClient.<String, String>getMap(keys.tasks()).get(taskId);
+                if (payload == null) {
+                    // Queue was discarded while the batch was being claimed
+                    return true;
+                }
+                outcome = handler.run(keys.migrationId(), taskId, payload);
+            }
+
+            // First result wins if the batch was redelivered while still running here; a queue
+            // whose coordinator already finished is not recreated by a late result
+            if (redissonClient.getBucket(keys.coordinator()).isExists()) {
+                redissonClient.<String, String>getMap(keys.results()).fastPutIfAbsent(taskId, write(outcome));
+            }
+            return true;
+
+        } finally {
+            claims.remove(claim.id());
+            leases.remove(taskId, claim.expiresAt);
+            processing.remove(taskId);
+        }
+    }
+
+    /**
+     * Renew the leases of batches running on this node, then redeliver batches whose
+     * leases expired on any node
+     */
+    private void heartbeat() {
+        try {
+            long now = System.currentTimeMillis();
+            for (Claim claim : claims.values()) {
+                long renewed = now + leaseMillis;
+                RMap<String, Long> leases = redissonClient.getMap(claim.keys.leases());
+                if (leases.replace(claim.taskId, claim.expiresAt, renewed)) {
+                    claim.expiresAt = renewed;
+                } else {
+                    log.warn("Lease on batch {} of {} was lost; the batch may run twice",
+                        claim.taskId, claim.keys.prefix());
+                }
+            }
+            reapExpiredLeases(now);
+        } catch (Exception e) {
+            log.warn("Distributed batch heartbeat failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void reapExpiredLeases(long now) {
+        Set<String> stillUnleased = new HashSet<>();
+
+        for (String prefix : redissonClient.<String>getSet(ACTIVE_QUEUES).readAll()) {
+            QueueKeys keys = QueueKeys.parse(prefix);
+            if (!redissonClient.getBucket(keys.coordinator()).isExists()) {
+                // The coordinating node died; the migration re-publishes its batches on resume
+                log.warn("Coordinator of {} stopped refreshing its queue, discarding it", prefix);
+                delete(keys);
+                continue;
+            }
+
+            RMap<String, Long> leases = redissonClient.getMap(keys.leases());
+            for (String taskId : redissonClient.<String>getList(keys.processing()).readAll()) {
+                Long expiresAt = leases.get(taskId);
+                if (expiresAt == null) {
+                    // Claimed but not yet leased - or the claimer died in between
+                    String key = prefix + '|' + taskId;
+                    stillUnleased.add(key);
+                    long since = unleasedSince.computeIfAbsent(key, k -> now);
+                    if (now - since >= leaseMillis) {
+                        redeliver(keys, taskId, "never leased");
+                    }
+                } else if (expiresAt < now && leases.remove(taskId, expiresAt)) {
+                    redeliver(keys, taskId, "lease expired");
+                }
+            }
+        }
+
+        unleasedSince.keySet().retainAll(stillUnleased);
+    }
+
+    private void redeliver(QueueKeys keys, String taskId, String reason) {
+        if (redissonClient.<String>getList(keys.processing()).remove(taskId)) {
+            // Redelivered batches go to the tail so they are claimed next
+            redissonClient.<String>getDeque(keys.pending()).addLast(taskId);
+            log.warn("Redelivering batch {} of {}: {}", taskId, keys.prefix(), reason);
+        }
+    }
+
+    private void refreshCoordinator(QueueKeys keys) {
+        redissonClient.<Long>getBucket(keys.coordinator())
+            .set(System.currentTimeMillis(), 3 * leaseMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void delete(QueueKeys keys) {
+        RSet<String> active = redissonClient.getSet(ACTIVE_QUEUES);
+        active.remove(keys.prefix());
+        redissonClient.getKeys().delete(keys.pending(), keys.processing(), keys.leases(), keys.attempts(),
+            keys.tasks(), keys.results(), keys.coordinator());
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize batch: " + e.getMessage(), e);
+        }
+    }
+
+    private <T> T read(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to deserialize batch: " + e.getMessage(), e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for distributed batches", e);
+        }
+    }
+
+    private final class Handler<T> {
+        private final Class<T> taskType;
+        private final BiFunction<Long, T, MigrationModels.BatchOutcome> body;
+
+        Handler(Class<T> taskType, BiFunction<Long, T, MigrationModels.BatchOutcome> body) {
+            this.taskType = taskType;
+            this.body = body;
+        }
+
+        MigrationModels.BatchOutcome run(Long migrationId, String taskId, String payload) {
+            try {
+                return body.apply(migrationId, read(payload, taskType));
+            } catch (Exception e) {
+                log.error("Distributed batch {} of migration {} failed", taskId, migrationId, e);
+                return MigrationModels.BatchOutcome.failed(taskId, e.getMessage());
+            }
+        }
+    }
+
+    private static final class Claim {
+        private final QueueKeys keys;
+        private final String taskId;
+        private volatile long expiresAt;
+
+        Claim(QueueKeys keys, String taskId, long expiresAt) {
+            this.keys = keys;
+            this.taskId = taskId;
+            this.expiresAt = expiresAt;
+        }
+
+        String id() {
+            return keys.prefix() + '|' + taskId;
+        }
+    }
+
+    private record QueueKeys(Long migrationId, MigrationPhase phase) {
+
+        static QueueKeys parse(String prefix) {
+            // jivs:migration:{42}:LOADING
+            String[] parts = prefix.substring(KEY_PREFIX.length()).split(":");
+            Long migrationId = Long.valueOf(parts[0].substring(1, parts[0].length() - 1));
+            return new QueueKeys(migrationId, MigrationPhase.valueOf(parts[1]));
+        }
+
+        String prefix() { return KEY_PREFIX + "{" + migrationId + "}:" + phase.name(); }
+        String pending() { return prefix() + ":pending"; }
+        String processing() { return prefix() + ":processing"; }
+        String leases() { return prefix() + ":leases"; }
+        String attempts() { return prefix() + ":attempts"; }
+        String tasks() { return prefix() + ":tasks"; }
+        String results() { return prefix() + ":results"; }
+        String coordinator() { return prefix() + ":coordinator"; }
+    }
+}
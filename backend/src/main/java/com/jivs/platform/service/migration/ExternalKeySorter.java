@@ -0,0 +1,282 @@
+package com.jivs.platform.service.migration;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Sorts an unbounded number of string keys with a bounded in-memory buffer.
+ *
+ * Keys are buffered up to {@code bufferSize}, then sorted and spilled to a temporary run
+ * file; reading merges the runs with a k-way merge. When there are more runs than
+ * {@code fanIn}, they are first merged in passes of at most {@code fanIn} runs each, so
+ * no more than {@code fanIn} files and read buffers are open at once. Run files are
+ * deleted on {@link #close()}.
+ */
+final class ExternalKeySorter implements AutoCloseable {
+
+    /** Runs merged at once; each holds an open file and a 64KB read buffer */
+    static final int DEFAULT_FAN_IN = 64;
+
+    private final int bufferSize;
+    private final int fanIn;
+    private final List<String> buffer = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+    private long size;
+
+    ExternalKeySorter(int bufferSize) {
+        this(bufferSize, DEFAULT_FAN_IN);
+    }
+
+    ExternalKeySorter(int bufferSize, int fanIn) {
+        this.bufferSize = Math.max(1, bufferSize);
+        this.fanIn = Math.max(2, fanIn);
+    }
+
+    void add(String key) {
+        buffer.add(key);
+        size++;
+        if (buffer.size() >= bufferSize) {
+            spill();
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    int runCount() {
+        return runs.size();
+    }
+
+    /**
+     * Visit the distinct keys in ascending order with their number of occurrences
+     */
+    void forEachGroup(ObjLongConsumer<String> consumer) {
+        try (Groups groups = groups()) {
+            while (groups.next()) {
+                consumer.accept(groups.key(), groups.count());
+            }
+        }
+    }
+
+    /**
+     * Pull-style cursor over the distinct keys in ascending order, for merge joins
+     */
+    Groups groups() {
+        if (runs.isEmpty()) {
+            Collections.sort(buffer);
+            return new Groups(buffer.iterator(), Collections.emptyList());
+        }
+
+        spill();
+        while (runs.size() > fanIn) {
+            mergePass();
+        }
+        List<RunReader> readers = open(runs);
+        return new Groups(new MergeIterator(readers), readers);
+    }
+
+    @Override
+    public void close() {
+        runs.forEach(ExternalKeySorter::deleteQuietly);
+        runs.clear();
+        buffer.clear();
+    }
+
+    private void spill() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        Collections.sort(buffer);
+        try {
+            runs.add(writeRun(buffer.iterator()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill sorted keys", e);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Merge every group of {@code fanIn} runs into one longer run
+     */
+    private void mergePass() {
+        List<Path> merged = new ArrayList<>();
+        try {
+            for (int from = 0; from < runs.size(); from += fanIn) {
+                List<Path> group = runs.subList(from, Math.min(from + fanIn, runs.size()));
+                if (group.size() == 1) {
+                    merged.add(group.get(0));
+                    continue;
+                }
+                List<RunReader> readers = open(group);
+                try {
+                    merged.add(writeRun(new MergeIterator(readers)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to merge sorted key runs", e);
+                } finally {
+                    readers.forEach(RunReader::closeQuietly);
+                }
+                group.forEach(ExternalKeySorter::deleteQuietly);
+            }
+        } catch (RuntimeException e) {
+            // Keep the merged runs tracked so close() still deletes them
+            runs.addAll(merged);
+            throw e;
+        }
+        runs.clear();
+        runs.addAll(merged);
+    }
+
+    private Path writeRun(Iterator<String> keys) throws IOException {
+        Path run = Files.createTempFile("jivs-keys-", ".run");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+            while (keys.hasNext()) {
+                byte[] bytes = keys.next().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            deleteQuietly(run);
+            throw e;
+        }
+        return run;
+    }
+
+    private static List<RunReader> open(List<Path> paths) {
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            for (Path run : paths) {
+                readers.add(new RunReader(run));
+            }
+        } catch (IOException e) {
+            readers.forEach(RunReader::closeQuietly);
+            throw new UncheckedIOException("Failed to open sorted key runs", e);
+        }
+        return readers;
+    }
+
+    private static void deleteQuietly(Path run) {
+        try {
+            Files.deleteIfExists(run);
+        } catch (IOException ignored) {
+            // Temp files are also cleaned up by the OS
+        }
+    }
+
+    /**
+     * Cursor over groups of equal keys
+     */
+    static final class Groups implements AutoCloseable {
+        private final Iterator<String> sorted;
+        private final List<RunReader> readers;
+        private String pending;
+        private String key;
+        private long count;
+
+        private Groups(Iterator<String> sorted, List<RunReader> readers) {
+            this.sorted = sorted;
+            this.readers = readers;
+            this.pending = sorted.hasNext() ? sorted.next() : null;
+        }
+
+        boolean next() {
+            if (pending == null) {
+                key = null;
+                return false;
+            }
+            key = pending;
+            count = 1;
+            pending = null;
+            while (sorted.hasNext()) {
+                String candidate = sorted.next();
+                if (!candidate.equals(key)) {
+                    pending = candidate;
+                    break;
+                }
+                count++;
+            }
+            return true;
+        }
+
+        String key() { return key; }
+        long count() { return count; }
+
+        @Override
+        public void close() {
+            readers.forEach(RunReader::closeQuietly);
+        }
+    }
+
+    private static final class MergeIterator implements Iterator<String> {
+        private final PriorityQueue<RunReader> queue =
+            new PriorityQueue<>((a, b) -> a.current.compareTo(b.current));
+
+        MergeIterator(List<RunReader> readers) {
+            for (RunReader reader : readers) {
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public String next() {
+            RunReader reader = queue.poll();
+            String key = reader.current;
+            if (reader.advance()) {
+                queue.add(reader);
+            }
+            return key;
+        }
+    }
+
+    private static final class RunReader {
+        private final DataInputStream in;
+        String current;
+
+        RunReader(Path run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+        }
+
+        boolean advance() {
+            try {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    current = null;
+                    return false;
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                current = new String(bytes, StandardCharsets.UTF_8);
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read sorted key run", e);
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // Nothing to recover
+            }
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.security.SqlInjectionValidator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Index and constraint deferral for bulk loads.
+ *
+ * Before a large load the non-unique secondary indexes and outgoing foreign keys of a
+ * target table are snapshotted from JDBC metadata and set aside, so inserts pay no index
+ * maintenance or per-row reference checks. Afterwards the indexes are rebuilt in parallel,
+ * each in a single sort, followed by the foreign keys.
+ *
+ * SQL Server disables and rebuilds them in place; other databases drop and recreate them.
+ * The primary key, unique indexes (they guard the load itself), clustered indexes and
+ * indexes metadata cannot describe faithfully (expression or partial indexes) stay in place.
+ */
+@Service
+@RequiredArgsConstructor
+public class IndexDeferralManager {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(IndexDeferralManager.class);
+
+    private final Map<String, DataSource> targetDataSources;
+    private final SqlInjectionValidator sqlInjectionValidator;
+    private final MigrationTaskScopes taskScopes;
+
+    @Value("${jivs.migration.load.defer-indexes:false}")
+    private boolean deferByDefault = false;
+
+    @Value("${jivs.migration.load.index-rebuild-parallelism:4}")
+    private int rebuildParallelism = 4;
+
+    /**
+     * Whether a migration defers indexes; the "deferIndexes" parameter overrides the default
+     */
+    public boolean isEnabled(Map<String, String> parameters) {
+        String requested = parameters != null ? parameters.get("deferIndexes") : null;
+        return requested != null && !requested.isBlank() ? Boolean.parseBoolean(requested.trim()) : deferByDefault;
+    }
+
+    /**
+     * Snapshot the deferrable indexes and foreign keys of a table
+     */
+    public MigrationModels.DeferredIndexes snapshot(String targetSystem, String table) {
+        for (String part : table.split("\\.")) {
+            sqlInjectionValidator.sanitizeIdentifier(part);
+        }
+
+        MigrationModels.DeferredIndexes deferred = new MigrationModels.DeferredIndexes();
+        deferred.setTargetSystem(targetSystem);
+        deferred.setTable(table);
+        deferred.setState(MigrationModels.DeferredIndexes.DEFERRING);
+
+        jdbc(targetSystem).execute((ConnectionCallback<Void>) con -> {
+            StagingTableManager.TableRef ref = StagingTableManager.resolve(con, table);
+            if (ref == null) {
+                throw new IllegalArgumentException("Table not found: " + table);
+            }
+            DatabaseMetaData md = con.getMetaData();
+            Dialect dialect = Dialect.of(md.getDatabaseProductName());
+
+            // Foreign keys are set aside first and restored last; they may rely on the indexes
+            deferred.getDefinitions().addAll(foreignKeys(md, dialect, ref, table));
+            deferred.getDefinitions().addAll(indexes(md, dialect, ref, table));
+            return null;
+        });
+
+        log.info("Snapshotted {} deferrable indexes and foreign keys of {}", deferred.getDefinitions().size(), table);
+        return deferred;
+    }
+
+    /**
+     * Set aside every snapshotted definition still in place. Safe to repeat after a crash.
+     */
+    public void defer(MigrationModels.DeferredIndexes deferred) {
+        jdbc(deferred.getTargetSystem()).execute((ConnectionCallback<Void>) con -> {
+            Dialect dialect = Dialect.of(con.getMetaData().getDatabaseProductName());
+            try (Statement statement = con.createStatement()) {
+                for (MigrationModels.IndexDefinition definition : deferred.getDefinitions()) {
+                    if (dialect.dropsDefinitions() && !exists(con, deferred.getTable(), definition)) {
+                        continue;
+                    }
+                    statement.execute(definition.getDeferSql());
+                    definition.setRebuilt(false);
+                }
+            }
+            return null;
+        });
+
+        deferred.setState(MigrationModels.DeferredIndexes.DEFERRED);
+        log.info("Deferred {} indexes and foreign keys of {} for bulk load",
+            deferred.getDefinitions().size(), deferred.getTable());
+    }
+
+    /**
+     * Rebuild the deferred indexes in parallel, then the foreign keys, reporting each one
+     * that completes. Definitions that fail are left for {@link #restore}.
+     *
+     * @throws IllegalStateException listing the definitions that could not be rebuilt
+     */
+    public void rebuild(MigrationModels.DeferredIndexes deferred, Long migrationId,
+                        Consumer<MigrationModels.DeferredIndexes> onProgress) {
+        long start = System.currentTimeMillis();
+        rebuildAll(deferred, migrationId, MigrationModels.IndexDefinition.INDEX, onProgress);
+        rebuildAll(deferred, migrationId, MigrationModels.IndexDefinition.FOREIGN_KEY, onProgress);
+
+        List<String> failed = deferred.getDefinitions().stream()
+            .filter(definition -> !definition.isRebuilt())
+            .map(definition -> definition.getName() + ": " + definition.getErrorMessage())
+            .toList();
+        if (!failed.isEmpty()) {
+            deferred.setState(MigrationModels.DeferredIndexes.FAILED);
+            throw new IllegalStateException("Could not rebuild deferred indexes of " + deferred.getTable() + ": " + failed);
+        }
+
+        deferred.setState(MigrationModels.DeferredIndexes.REBUILT);
+        log.info("Rebuilt {} indexes and foreign keys of {} in {} ms",
+            deferred.getDefinitions().size(), deferred.getTable(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Bring back the original definitions after a failed load, one at a time and
+     * best effort: a definition that cannot be restored is logged and kept for the next attempt.
+     */
+    public void restore(MigrationModels.DeferredIndexes deferred) {
+        for (String type : List.of(MigrationModels.IndexDefinition.INDEX, MigrationModels.IndexDefinition.FOREIGN_KEY)) {
+            for (MigrationModels.IndexDefinition definition : deferred.getDefinitions()) {
+                if (type.equals(definition.getType()) && !definition.isRebuilt()) {
+                    rebuildOne(deferred, definition);
+                }
+            }
+        }
+
+        long missing = deferred.getDefinitions().size() - deferred.rebuiltCount();
+        deferred.setState(missing == 0 ? MigrationModels.DeferredIndexes.RESTORED : MigrationModels.DeferredIndexes.FAILED);
+        if (missing > 0) {
+            log.error("{} deferred indexes or foreign keys of {} could not be restored", missing, deferred.getTable());
+        } else {
+            log.info("Restored original indexes and foreign keys of {}", deferred.getTable());
+        }
+    }
+
+    private void rebuildAll(MigrationModels.DeferredIndexes deferred, Long migrationId, String type,
+                            Consumer<MigrationModels.DeferredIndexes> onProgress) {
+        Queue<MigrationModels.IndexDefinition> pending = new ConcurrentLinkedQueue<>();
+        for (MigrationModels.IndexDefinition definition : deferred.getDefinitions()) {
+            if (type.equals(definition.getType()) && !definition.isRebuilt()) {
+                pending.add(definition);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // Each worker builds one index at a time on its own connection
+        int workers = Math.min(Math.max(1, rebuildParallelism), pending.size());
+        try (MigrationTaskScopes.PhaseScope scope = taskScopes.open(migrationId, "index rebuild of " + deferred.getTable())) {
+            for (int i = 0; i < workers; i++) {
+                scope.fork(() -> {
+                    MigrationModels.IndexDefinition definition;
+                    while ((definition = pending.poll()) != null) {
+                        if (rebuildOne(deferred, definition)) {
+                            onProgress.accept(deferred);
+                        }
+                    }
+                    return null;
+                });
+            }
+            scope.join();
+        }
+    }
+
+    private boolean rebuildOne(MigrationModels.DeferredIndexes deferred, MigrationModels.IndexDefinition definition) {
+        long start = System.currentTimeMillis();
+        try {
+            jdbc(deferred.getTargetSystem()).execute((ConnectionCallback<Void>) con -> {
+                Dialect dialect = Dialect.of(con.getMetaData().getDatabaseProductName());
+                // A crash after the DDL but before the checkpoint leaves it already in place
+                if (!dialect.dropsDefinitions() || !exists(con, deferred.getTable(), definition)) {
+                    try (Statement statement = con.createStatement()) {
+                        statement.execute(definition.getRestoreSql());
+                    }
+                }
+                return null;
+            });
+            definition.setRebuilt(true);
+            definition.setErrorMessage(null);
+            log.info("Rebuilt {} on {} in {} ms ({}/{})", definition.getName(), deferred.getTable(),
+                System.currentTimeMillis() - start, deferred.rebuiltCount(), deferred.getDefinitions().size());
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to rebuild {} on {}", definition.getName(), deferred.getTable(), e);
+            definition.setErrorMessage(e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean exists(Connection con, String table, MigrationModels.IndexDefinition definition) throws SQLException {
+        StagingTableManager.TableRef ref = StagingTableManager.resolve(con, table);
+        if (ref == null) {
+            return false;
+        }
+
+        DatabaseMetaData md = con.getMetaData();
+        boolean foreignKey = MigrationModels.IndexDefinition.FOREIGN_KEY.equals(definition.getType());
+        try (ResultSet rs = foreignKey
+                ? md.getImportedKeys(ref.catalog, ref.schema, ref.name)
+                : md.getIndexInfo(ref.catalog, ref.schema, ref.name, false, true)) {
+            while (rs.next()) {
+                String name = rs.getString(foreignKey ? "FK_NAME" : "INDEX_NAME");
+                if (name != null && name.equalsIgnoreCase(definition.getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private List<MigrationModels.IndexDefinition> indexes(DatabaseMetaData md, Dialect dialect,
+                                                          StagingTableManager.TableRef ref, String table) throws SQLException {
+        Map<String, SortedMap<Short, String>> indexColumns = new LinkedHashMap<>();
+        Set<String> excluded = new HashSet<>();
+        try (ResultSet rs = md.getIndexInfo(ref.catalog, ref.schema, ref.name, false, true)) {
+            while (rs.next()) {
+                String indexName = rs.getString("INDEX_NAME");
+                if (indexName == null || rs.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) {
+                    continue;
+                }
+                String column = rs.getString("COLUMN_NAME");
+                String filter = rs.getString("FILTER_CONDITION");
+                if (!rs.getBoolean("NON_UNIQUE") || column == null
+                        || rs.getShort("TYPE") == DatabaseMetaData.tableIndexClustered
+                        || (filter != null && !filter.isBlank())) {
+                    excluded.add(indexName);
+                    continue;
+                }
+                String direction = "D".equals(rs.getString("ASC_OR_DESC")) ? " DESC" : "";
+                indexColumns.computeIfAbsent(indexName, n -> new TreeMap<>())
+                    .put(rs.getShort("ORDINAL_POSITION"), column + direction);
+            }
+        }
+
+        List<MigrationModels.IndexDefinition> definitions = new ArrayList<>();
+        for (Map.Entry<String, SortedMap<Short, String>> index : indexColumns.entrySet()) {
+            if (excluded.contains(index.getKey())) {
+                continue;
+            }
+            MigrationModels.IndexDefinition definition = new MigrationModels.IndexDefinition();
+            definition.setName(index.getKey());
+            definition.setType(MigrationModels.IndexDefinition.INDEX);
+            definition.setDeferSql(dialect.deferIndexSql(table, index.getKey()));
+            definition.setRestoreSql(dialect.restoreIndexSql(table, index.getKey(), new ArrayList<>(index.getValue().values())));
+            definitions.add(definition);
+        }
+        return definitions;
+    }
+
+    private List<MigrationModels.IndexDefinition> foreignKeys(DatabaseMetaData md, Dialect dialect,
+                                                              StagingTableManager.TableRef ref, String table) throws SQLException {
+        Map<String, ForeignKey> foreignKeys = new LinkedHashMap<>();
+        try (ResultSet rs = md.getImportedKeys(ref.catalog, ref.schema, ref.name)) {
+            while (rs.next()) {
+                String name = rs.getString("FK_NAME");
+                if (name == null) {
+                    continue;
+                }
+                ForeignKey foreignKey = foreignKeys.computeIfAbsent(name, n -> new ForeignKey());
+                String referencedSchema = rs.getString("PKTABLE_SCHEM");
+                foreignKey.referencedTable = table.contains(".") && referencedSchema != null
+                    ? referencedSchema + "." + rs.getString("PKTABLE_NAME")
+                    : rs.getString("PKTABLE_NAME");
+                foreignKey.columns.put(rs.getShort("KEY_SEQ"), rs.getString("FKCOLUMN_NAME"));
+                foreignKey.referencedColumns.put(rs.getShort("KEY_SEQ"), rs.getString("PKCOLUMN_NAME"));
+                foreignKey.updateRule = rs.getShort("UPDATE_RULE");
+                foreignKey.deleteRule = rs.getShort("DELETE_RULE");
+            }
+        }
+
+        List<MigrationModels.IndexDefinition> definitions = new ArrayList<>();
+        for (Map.Entry<String, ForeignKey> entry : foreignKeys.entrySet()) {
+            ForeignKey foreignKey = entry.getValue();
+            StringBuilder restore = new StringBuilder("ALTER TABLE ").append(table)
+                .append(" ADD CONSTRAINT ").append(entry.getKey())
+                .append(" FOREIGN KEY (").append(String.join(", ", foreignKey.columns.values()))
+                .append(") REFERENCES ").append(foreignKey.referencedTable)
+                .append(" (").append(String.join(", ", foreignKey.referencedColumns.values())).append(")")
+                .append(referentialAction("DELETE", foreignKey.deleteRule));
+            if (dialect != Dialect.ORACLE) {
+                // Oracle has no ON UPDATE actions
+                restore.append(referentialAction("UPDATE", foreignKey.updateRule));
+            }
+
+            MigrationModels.IndexDefinition definition = new MigrationModels.IndexDefinition();
+            definition.setName(entry.getKey());
+            definition.setType(MigrationModels.IndexDefinition.FOREIGN_KEY);
+            definition.setDeferSql(dialect.deferForeignKeySql(table, entry.getKey()));
+            definition.setRestoreSql(dialect == Dialect.SQLSERVER
+                ? "ALTER TABLE " + table + " WITH CHECK CHECK CONSTRAINT " + entry.getKey()
+                : restore.toString());
+            definitions.add(definition);
+        }
+        return definitions;
+    }
+
+    private static String referentialAction(String event, short rule) {
+        switch (rule) {
+            case DatabaseMetaData.importedKeyCascade:
+                return " ON " + event + " CASCADE";
+            case DatabaseMetaData.importedKeySetNull:
+                return " ON " + event + " SET NULL";
+            case DatabaseMetaData.importedKeySetDefault:
+                return " ON " + event + " SET DEFAULT";
+            default:
+                return "";
+        }
+    }
+
+    private JdbcTemplate jdbc(String targetSystem) {
+        DataSource dataSource = targetDataSources.get(targetSystem);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("No data source registered for target system: " + targetSystem);
+        }
+        return new JdbcTemplate(dataSource);
+    }
+
+    private static final class ForeignKey {
+        String referencedTable;
+        final SortedMap<Short, String> columns = new TreeMap<>();
+        final SortedMap<Short, String> referencedColumns = new TreeMap<>();
+        short updateRule;
+        short deleteRule;
+    }
+
+    /**
+     * Deferral DDL per database
+     */
+    enum Dialect {
+        MYSQL {
+            @Override
+            String deferIndexSql(String table, String index) {
+                return "DROP INDEX " + index + " ON " + table;
+            }
+
+            @Override
+            String deferForeignKeySql(String table, String foreignKey) {
+                return "ALTER TABLE " + table + " DROP FOREIGN KEY " + foreignKey;
+            }
+        },
+        SQLSERVER {
+            @Override
+            String deferIndexSql(String table, String index) {
+                return "ALTER INDEX " + index + " ON " + table + " DISABLE";
+            }
+
+            @Override
+            String restoreIndexSql(String table, String index, List<String> columns) {
+                return "ALTER INDEX " + index + " ON " + table + " REBUILD";
+            }
+
+            @Override
+            String deferForeignKeySql(String table, String foreignKey) {
+                return "ALTER TABLE " + table + " NOCHECK CONSTRAINT " + foreignKey;
+            }
+
+            @Override
+            boolean dropsDefinitions() {
+                return false;
+            }
+        },
+        ORACLE,
+        GENERIC;
+
+        String deferIndexSql(String table, String index) {
+            // Index names live in the table's schema
+            int dot = table.lastIndexOf('.');
+            return "DROP INDEX " + (dot > 0 ? table.substring(0, dot + 1) : "") + index;
+        }
+
+        String restoreIndexSql(String table, String index, List<String> columns) {
+            return "CREATE INDEX " + index + " ON " + table + " (" + String.join(", ", columns) + ")";
+        }
+
+        String deferForeignKeySql(String table, String foreignKey) {
+            return "ALTER TABLE " + table + " DROP CONSTRAINT " + foreignKey;
+        }
+
+        /**
+         * Whether deferral drops definitions, rather than disabling them in place
+         */
+        boolean dropsDefinitions() {
+            return true;
+        }
+
+        static Dialect of(String productName) {
+            switch (StagingTableManager.Dialect.of(productName)) {
+                case MYSQL:
+                    return MYSQL;
+                case SQLSERVER:
+                    return SQLSERVER;
+                case ORACLE:
+                    return ORACLE;
+                default:
+                    return GENERIC;
+            }
+        }
+    }
+}
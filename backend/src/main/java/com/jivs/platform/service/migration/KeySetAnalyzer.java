@@ -0,0 +1,245 @@
+package com.jivs.platform.service.migration;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Exact duplicate and missing-reference detection over key sets too large for a HashSet.
+ *
+ * Bloom filters absorb the common case (unique keys, present references) in one pass;
+ * only keys the filter cannot rule out are spilled to an {@link ExternalKeySorter} and
+ * resolved exactly by sort/merge. Memory is bounded by the filters and the sort buffer,
+ * never by the number of keys, and the results are exact.
+ *
+ * Keys are compared by their {@link #encode(Object) encoded} form. Numbers compare by
+ * value and temporal values by the point or date they denote, whatever class the driver
+ * returned them as; other values keep their type, so {@code "1"} and {@code 1} stay distinct.
+ */
+final class KeySetAnalyzer {
+
+    private static final String NULL_KEY = "\u0000null";
+
+    private final int sortBufferKeys;
+    private final double falsePositiveRate;
+
+    KeySetAnalyzer(int sortBufferKeys, double falsePositiveRate) {
+        this.sortBufferKeys = sortBufferKeys;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Count values that repeat an earlier value.
+     *
+     * Pass 1 flags every value the Bloom filter has (probably) seen before; every second
+     * and later occurrence of a duplicate is flagged. Pass 2 spills all values matching a
+     * filter of the flagged keys - all occurrences of real duplicates plus a few false
+     * positives - and an external sort counts exact occurrences.
+     */
+    long countDuplicates(Iterable<?> values, long expectedSize) {
+        BloomFilter<CharSequence> seen = newFilter(expectedSize);
+
+        try (ExternalKeySorter flagged = new ExternalKeySorter(sortBufferKeys)) {
+            for (Object value : values) {
+                String key = encode(value);
+                if (seen.mightContain(key)) {
+                    flagged.add(key);
+                } else {
+                    seen.put(key);
+                }
+            }
+            if (flagged.size() == 0) {
+                return 0;
+            }
+
+            BloomFilter<CharSequence> candidates = newFilter(flagged.size());
+            flagged.forEachGroup((key, count) -> candidates.put(key));
+
+            try (ExternalKeySorter occurrences = new ExternalKeySorter(sortBufferKeys)) {
+                for (Object value : values) {
+                    String key = encode(value);
+                    if (candidates.mightContain(key)) {
+                        occurrences.add(key);
+                    }
+                }
+
+                long[] duplicates = {0};
+                occurrences.forEachGroup((key, count) -> duplicates[0] += count - 1);
+                return duplicates[0];
+            }
+        }
+    }
+
+    /**
+     * Find distinct child values that have no matching parent key.
+     *
+     * Child values the parent filter rejects are certainly missing; the rest are resolved
+     * by merge-joining the sorted candidates with the parent keys that match a filter of
+     * the candidates.
+     */
+    MissingKeys findMissing(Iterable<?> childValues, Iterable<?> parentKeys, long expectedParents, int sampleLimit) {
+        BloomFilter<CharSequence> parents = newFilter(expectedParents);
+        for (Object parent : parentKeys) {
+            parents.put(encode(parent));
+        }
+
+        try (ExternalKeySorter missing = new ExternalKeySorter(sortBufferKeys);
+             ExternalKeySorter candidates = new ExternalKeySorter(sortBufferKeys)) {
+
+            for (Object child : childValues) {
+                String key = encode(child);
+                if (parents.mightContain(key)) {
+                    candidates.add(key);
+                } else {
+                    missing.add(key);
+                }
+            }
+
+            if (candidates.size() > 0) {
+                resolveCandidates(candidates, parentKeys, missing);
+            }
+
+            MissingKeys result = new MissingKeys();
+            missing.forEachGroup((key, count) -> result.add(decode(key), sampleLimit));
+            return result;
+        }
+    }
+
+    private void resolveCandidates(ExternalKeySorter candidates, Iterable<?> parentKeys, ExternalKeySorter missing) {
+        BloomFilter<CharSequence> candidateFilter = newFilter(candidates.size());
+        candidates.forEachGroup((key, count) -> candidateFilter.put(key));
+
+        try (ExternalKeySorter matchingParents = new ExternalKeySorter(sortBufferKeys)) {
+            for (Object parent : parentKeys) {
+                String key = encode(parent);
+                if (candidateFilter.mightContain(key)) {
+                    matchingParents.add(key);
+                }
+            }
+
+            // Merge-join: both cursors visit keys in ascending order
+            try (ExternalKeySorter.Groups candidateKeys = candidates.groups();
+                 ExternalKeySorter.Groups parentGroups = matchingParents.groups()) {
+                boolean parentsLeft = parentGroups.next();
+                while (candidateKeys.next()) {
+                    String key = candidateKeys.key();
+                    while (parentsLeft && parentGroups.key().compareTo(key) < 0) {
+                        parentsLeft = parentGroups.next();
+                    }
+                    if (!parentsLeft || !parentGroups.key().equals(key)) {
+                        missing.add(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Estimate the number of distinct values with a HyperLogLog sketch
+     */
+    static HyperLogLog sketch(Iterable<?> values) {
+        HyperLogLog sketch = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        for (Object value : values) {
+            sketch.add(encode(value));
+        }
+        return sketch;
+    }
+
+    /**
+     * Text form of a key: numbers and temporal values normalised so that, for example, an
+     * Integer 1 and a Long 1 or a Timestamp and the equal LocalDateTime encode alike; other
+     * values qualified by their type
+     */
+    static String encode(Object value) {
+        if (value == null) {
+            return NULL_KEY;
+        }
+        if (value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long) {
+            return "number:" + ((Number) value).longValue();
+        }
+        if (value instanceof BigInteger || value instanceof BigDecimal) {
+            BigDecimal decimal = value instanceof BigInteger big ? new BigDecimal(big) : (BigDecimal) value;
+            return "number:" + (decimal.signum() == 0 ? "0" : decimal.stripTrailingZeros().toPlainString());
+        }
+        if ((value instanceof Double || value instanceof Float) && Double.isFinite(((Number) value).doubleValue())) {
+            // Through the shortest decimal form, so 1.5f and 1.5 and 1.50 are one key
+            return encode(new BigDecimal(value.toString()));
+        }
+        if (value instanceof java.sql.Timestamp timestamp) {
+            return "timestamp:" + timestamp.toLocalDateTime();
+        }
+        if (value instanceof java.sql.Date sqlDate) {
+            return "date:" + sqlDate.toLocalDate();
+        }
+        if (value instanceof java.sql.Time time) {
+            return "time:" + time.toLocalTime();
+        }
+        if (value instanceof LocalDateTime) {
+            return "timestamp:" + value;
+        }
+        if (value instanceof LocalDate) {
+            return "date:" + value;
+        }
+        if (value instanceof LocalTime) {
+            return "time:" + value;
+        }
+        if (value instanceof OffsetDateTime offset) {
+            return "instant:" + offset.toInstant();
+        }
+        if (value instanceof ZonedDateTime zoned) {
+            return "instant:" + zoned.toInstant();
+        }
+        if (value instanceof Date date) {
+            return "instant:" + date.toInstant();
+        }
+        if (value instanceof Instant) {
+            return "instant:" + value;
+        }
+        return value.getClass().getName() + ':' + value;
+    }
+
+    /**
+     * Value of an encoded key as reported to users
+     */
+    static String decode(String key) {
+        if (NULL_KEY.equals(key)) {
+            return "null";
+        }
+        return key.substring(key.indexOf(':') + 1);
+    }
+
+    private BloomFilter<CharSequence> newFilter(long expectedInsertions) {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+            Math.max(1024, expectedInsertions), falsePositiveRate);
+    }
+
+    /**
+     * Distinct missing references: exact count and a sample
+     */
+    static final class MissingKeys {
+        private long count;
+        private final List<String> sample = new ArrayList<>();
+
+        void add(String key, int sampleLimit) {
+            count++;
+            if (sample.size() < sampleLimit) {
+                sample.add(key);
+            }
+        }
+
+        long getCount() { return count; }
+        List<String> getSample() { return sample; }
+    }
+}
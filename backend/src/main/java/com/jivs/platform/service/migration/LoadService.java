@@ -1,12 +1,23 @@
 package com.jivs.platform.service.migration;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Connection;
@@ -24,7 +35,17 @@ public class LoadService {
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(LoadService.class);
 
     private final Map<String, DataSource> targetDataSources;
-    private final ExecutorService executorService = Executors.newFixedThreadPool(10);
+    private final AdaptiveBatchControllerRegistry batchControllers;
+    private final MigrationTaskScopes taskScopes;
+
+    // SQLSTATEs reported for deadlock victims / serialization failures (PostgreSQL 40P01, MySQL 40001)
+    private static final Set<String> DEADLOCK_SQL_STATES = Set.of("40P01", "40001");
+
+    @Value("${jivs.migration.load.deadlock-max-retries:3}")
+    private int deadlockMaxRetries = 3;
+
+    @Value("${jivs.migration.load.deadlock-backoff-ms:50}")
+    private long deadlockBackoffMs = 50;
 
     /**
      * Load data batch into target system
@@ -56,10 +77,17 @@ public class LoadService {
                 case UPSERT:
                     result = upsertLoad(context);
                     break;
+                case STAGED:
+                    result = stagedLoad(context);
+                    break;
                 default:
                     throw new UnsupportedOperationException("Unknown load strategy: " + strategy);
             }
 
+            // A strategy that reports an error instead of throwing must not pass for a success
+            if (result.getErrorMessage() != null) {
+                throw new IllegalStateException(result.getErrorMessage());
+            }
             result.setSuccess(true);
             log.info("Batch {} loaded successfully. Records: {}", context.getBatchId(), result.getRecordsLoaded());
 
@@ -80,9 +108,6 @@ public class LoadService {
      * Batch load using JDBC batch operations
      */
     private LoadResult batchLoad(LoadContext context) {
-        LoadResult result = new LoadResult();
-        result.setBatchId(context.getBatchId());
-
         String targetSystem = context.getTargetSystem();
         DataSource dataSource = targetDataSources.get(targetSystem);
 
@@ -90,33 +115,201 @@ public class LoadService {
             throw new IllegalArgumentException("No data source configured for: " + targetSystem);
         }
 
-        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
         String sql = buildInsertSql(context.getTargetTable(), context.getColumns());
+        return executeBatch(context, dataSource, sql);
+    }
+
+    /**
+     * Batch upsert using JDBC batch operations
+     */
+    private LoadResult batchUpsertLoad(LoadContext context) {
+        DataSource dataSource = targetDataSources.get(context.getTargetSystem());
+
+        if (dataSource == null) {
+            throw new IllegalArgumentException("No data source configured for: " + context.getTargetSystem());
+        }
+
+        String sql = buildUpsertSql(
+            context.getTargetTable(),
+            context.getColumns(),
+            context.getKeyColumns(),
+            context.getTargetSystem()
+        );
+        return executeBatch(context, dataSource, sql);
+    }
+
+    /**
+     * Execute a parameterised statement once per record in adaptively sized JDBC batches.
+     *
+     * Each chunk commits in its own new target transaction (even inside a caller's transaction
+     * on the same data source), is retried when the database picks it as a deadlock victim,
+     * and reports its commit latency to the table's batch controller.
+     * Unless fail-fast is set, a chunk rejected for its data is bisected until the offending
+     * records are isolated; they are returned as rejected records and the rest still load.
+     *
+     * Committed chunks stay committed when a later chunk fails, so each one is recorded in the
+     * context's chunk progress and a retry of the batch starts after the last of them.
+     */
+    private LoadResult executeBatch(LoadContext context, DataSource dataSource, String sql) {
+        LoadResult result = new LoadResult();
+        result.setBatchId(context.getBatchId());
+
+        AdaptiveBatchController controller =
+            batchControllers.forTarget(context.getTargetSystem(), context.getTargetTable());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate transactionTemplate =
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
 
         List<Map<String, Object>> data = context.getData();
-        int[] updateCounts = jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
-            @Override
-            public void setValues(PreparedStatement ps, int i) throws SQLException {
-                Map<String, Object> record = data.get(i);
-                int paramIndex = 1;
-                for (String column : context.getColumns()) {
-                    ps.setObject(paramIndex++, record.get(column));
-                }
+        ChunkProgress progress = context.getChunkProgress();
+        MigrationModels.LoadedChunks resumed = progress != null ? progress.committed(context.getBatchId()) : null;
+        Map<Integer, String> rejectedIndexes = new LinkedHashMap<>();
+        int successCount = 0;
+        int offset = 0;
+        if (resumed != null && resumed.getOffset() > 0) {
+            if (resumed.getOffset() > data.size()) {
+                throw new IllegalStateException("Batch " + context.getBatchId() + " has " + data.size()
+                    + " records but an earlier attempt committed " + resumed.getOffset());
+            }
+            log.info("Resuming batch {} after {} records committed by an earlier attempt",
+                context.getBatchId(), resumed.getOffset());
+            rejectedIndexes.putAll(resumed.getRejected());
+            rejectedIndexes.forEach((index, reason) -> result.reject(data.get(index), reason));
+            successCount = resumed.getLoaded();
+            offset = resumed.getOffset();
+        }
+
+        while (offset < data.size()) {
+            int end = Math.min(data.size(), offset + controller.getBatchSize());
+            List<Map<String, Object>> chunk = data.subList(offset, end);
+            int rejectedBefore = result.getRejectedRecords().size();
+
+            long start = System.nanoTime();
+            boolean committed = false;
+            try {
+                successCount += executeChunkIsolatingFailures(
+                    context, transactionTemplate, jdbcTemplate, sql, chunk, result);
+                committed = true;
+            } finally {
+                controller.record(chunk.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), committed);
             }
 
-            @Override
-            public int getBatchSize() {
-                return data.size();
+            if (progress != null) {
+                List<RejectedRecord> rejected = result.getRejectedRecords();
+                for (RejectedRecord record : rejected.subList(rejectedBefore, rejected.size())) {
+                    rejectedIndexes.put(offset + indexOf(chunk, record.getRecord()), record.getReason());
+                }
+                MigrationModels.LoadedChunks chunks = new MigrationModels.LoadedChunks();
+                chunks.setOffset(end);
+                chunks.setLoaded(successCount);
+                chunks.setRejected(new LinkedHashMap<>(rejectedIndexes));
+                progress.record(context.getBatchId(), chunks);
             }
-        });
+            offset = end;
+        }
 
-        int successCount = Arrays.stream(updateCounts).sum();
         result.setRecordsLoaded(successCount);
         result.setFailedRecords(data.size() - successCount);
 
         return result;
     }
 
+    private static int indexOf(List<Map<String, Object>> chunk, Map<String, Object> record) {
+        for (int i = 0; i < chunk.size(); i++) {
+            if (chunk.get(i) == record) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Rejected record is not part of its chunk");
+    }
+
+    /**
+     * Write a chunk, splitting it in halves on failure so only the records the database
+     * rejects are left out. Costs O(k log n) extra round trips for k bad records.
+     */
+    private int executeChunkIsolatingFailures(
+            LoadContext context,
+            TransactionTemplate transactionTemplate,
+            JdbcTemplate jdbcTemplate,
+            String sql,
+            List<Map<String, Object>> chunk,
+            LoadResult result) {
+
+        try {
+            return executeChunkWithRetry(context, transactionTemplate, jdbcTemplate, sql, chunk);
+        } catch (RuntimeException e) {
+            // Exhausted deadlock retries are not the data's fault; the whole batch is retried later
+            if (context.isFailFast() || isDeadlock(e)) {
+                throw e;
+            }
+            if (chunk.size() == 1) {
+                log.warn("Record rejected loading batch {}: {}", context.getBatchId(), rootMessage(e));
+                result.reject(chunk.get(0), rootMessage(e));
+                return 0;
+            }
+            int middle = chunk.size() / 2;
+            return executeChunkIsolatingFailures(context, transactionTemplate, jdbcTemplate, sql,
+                    chunk.subList(0, middle), result)
+                + executeChunkIsolatingFailures(context, transactionTemplate, jdbcTemplate, sql,
+                    chunk.subList(middle, chunk.size()), result);
+        }
+    }
+
+    /**
+     * Write one chunk atomically, retrying with jittered exponential backoff on deadlock
+     */
+    private int executeChunkWithRetry(
+            LoadContext context,
+            TransactionTemplate transactionTemplate,
+            JdbcTemplate jdbcTemplate,
+            String sql,
+            List<Map<String, Object>> chunk) {
+
+        int attempt = 0;
+        while (true) {
+            try {
+                // Whole chunk commits or rolls back together, so retrying it never duplicates rows
+                Integer loaded = transactionTemplate.execute(status -> {
+                    int[] updateCounts = jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Map<String, Object> record = chunk.get(i);
+                            int paramIndex = 1;
+                            for (String column : context.getColumns()) {
+                                ps.setObject(paramIndex++, record.get(column));
+                            }
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    });
+                    return Arrays.stream(updateCounts).sum();
+                });
+                return loaded != null ? loaded : 0;
+            } catch (RuntimeException e) {
+                if (!isDeadlock(e) || attempt >= deadlockMaxRetries) {
+                    throw e;
+                }
+
+                attempt++;
+                long backoff = deadlockBackoffMs * (1L << (attempt - 1))
+                    + ThreadLocalRandom.current().nextLong(deadlockBackoffMs + 1);
+                log.warn("Deadlock detected loading batch {} (attempt {}/{}), retrying in {} ms",
+                    context.getBatchId(), attempt, deadlockMaxRetries, backoff);
+
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while retrying batch " + context.getBatchId(), ie);
+                }
+            }
+        }
+    }
+
     /**
      * Bulk load using database-specific bulk operations
      */
@@ -148,83 +341,102 @@ public class LoadService {
     }
 
     /**
-     * PostgreSQL COPY command for bulk loading
+     * Load into the migration's staging table instead of the live table; the orchestrator
+     * swaps the staging table in once every batch has committed. The staging table fills
+     * through the batched insert path, so chunks resume and rejected records are kept as
+     * for any other batch.
+     */
+    private LoadResult stagedLoad(LoadContext context) {
+        if (context.getMigrationId() == null) {
+            throw new IllegalArgumentException("Staged load requires a migration id");
+        }
+
+        LoadContext stagingContext = new LoadContext();
+        stagingContext.setMigrationId(context.getMigrationId());
+        stagingContext.setBatchId(context.getBatchId());
+        stagingContext.setTargetSystem(context.getTargetSystem());
+        stagingContext.setTargetTable(
+            StagingTableManager.stagingTableName(context.getTargetTable(), context.getMigrationId()));
+        stagingContext.setColumns(context.getColumns());
+        stagingContext.setKeyColumns(context.getKeyColumns());
+        stagingContext.setData(context.getData());
+        stagingContext.setStrategy(LoadStrategy.BATCH);
+        stagingContext.setFailFast(context.isFailFast());
+        stagingContext.setChunkProgress(context.getChunkProgress());
+
+        return batchLoad(stagingContext);
+    }
+
+    /**
+     * PostgreSQL COPY command for bulk loading. COPY is all or nothing, so a failure loads
+     * no record and fails the batch.
      */
     private LoadResult postgresqlBulkLoad(LoadContext context) {
         LoadResult result = new LoadResult();
         result.setBatchId(context.getBatchId());
 
-        try {
-            DataSource dataSource = targetDataSources.get(context.getTargetSystem());
-            Connection connection = dataSource.getConnection();
-
-            // Use COPY command for bulk insert
-            String copyCommand = String.format(
-                "COPY %s (%s) FROM STDIN WITH (FORMAT csv, HEADER false)",
-                context.getTargetTable(),
-                String.join(", ", context.getColumns())
-            );
+        DataSource dataSource = targetDataSources.get(context.getTargetSystem());
+        String copyCommand = String.format(
+            "COPY %s (%s) FROM STDIN WITH (FORMAT csv, HEADER false)",
+            context.getTargetTable(),
+            String.join(", ", context.getColumns())
+        );
 
+        long recordsLoaded;
+        try (Connection connection = dataSource.getConnection()) {
+            // The pool hands out a proxy; COPY needs the driver's own connection
             org.postgresql.copy.CopyManager copyManager =
-                new org.postgresql.copy.CopyManager((org.postgresql.core.BaseConnection) connection);
-
-            String csvData = convertToCsv(context.getData(), context.getColumns());
-            long recordsLoaded = copyManager.copyIn(copyCommand, new java.io.StringReader(csvData));
-
-            result.setRecordsLoaded((int) recordsLoaded);
-            result.setFailedRecords(context.getData().size() - (int) recordsLoaded);
-
-            connection.close();
-
-        } catch (Exception e) {
-            log.error("PostgreSQL bulk load failed", e);
-            result.setSuccess(false);
-            result.setErrorMessage(e.getMessage());
+                new org.postgresql.copy.CopyManager(connection.unwrap(org.postgresql.core.BaseConnection.class));
+            recordsLoaded = copyManager.copyIn(copyCommand,
+                new java.io.StringReader(convertToCsv(context.getData(), context.getColumns())));
+        } catch (SQLException | java.io.IOException e) {
+            throw new IllegalStateException("PostgreSQL bulk load of batch " + context.getBatchId() + " failed", e);
         }
 
+        requireAllLoaded(context, recordsLoaded);
+        result.setRecordsLoaded((int) recordsLoaded);
         return result;
     }
 
     /**
-     * MySQL LOAD DATA INFILE for bulk loading
+     * MySQL LOAD DATA INFILE for bulk loading. LOCAL turns row errors into warnings, so a
+     * load that skipped rows fails the batch rather than passing for complete.
      */
     private LoadResult mysqlBulkLoad(LoadContext context) {
         LoadResult result = new LoadResult();
         result.setBatchId(context.getBatchId());
 
+        DataSource dataSource = targetDataSources.get(context.getTargetSystem());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Path tempFile = createTempCsvFile(context.getData(), context.getColumns());
         try {
-            // Create temporary CSV file
-            String tempFile = createTempCsvFile(context.getData(), context.getColumns());
-
-            DataSource dataSource = targetDataSources.get(context.getTargetSystem());
-            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
-
             String loadDataSql = String.format(
                 "LOAD DATA LOCAL INFILE '%s' INTO TABLE %s " +
-                "FIELDS TERMINATED BY ',' ENCLOSED BY '\"' " +
+                "FIELDS TERMINATED BY ',' ENCLOSED BY '\"' ESCAPED BY '' " +
                 "LINES TERMINATED BY '\\n' " +
                 "(%s)",
-                tempFile,
+                tempFile.toAbsolutePath().toString().replace("\\", "/"),
                 context.getTargetTable(),
                 String.join(", ", context.getColumns())
             );
 
             int recordsLoaded = jdbcTemplate.update(loadDataSql);
+            requireAllLoaded(context, recordsLoaded);
             result.setRecordsLoaded(recordsLoaded);
-            result.setFailedRecords(context.getData().size() - recordsLoaded);
-
-            // Clean up temp file
+        } finally {
             deleteTempFile(tempFile);
-
-        } catch (Exception e) {
-            log.error("MySQL bulk load failed", e);
-            result.setSuccess(false);
-            result.setErrorMessage(e.getMessage());
         }
 
         return result;
     }
 
+    private static void requireAllLoaded(LoadContext context, long recordsLoaded) {
+        if (recordsLoaded != context.getData().size()) {
+            throw new IllegalStateException(String.format("Bulk load of batch %s loaded %d of %d records",
+                context.getBatchId(), recordsLoaded, context.getData().size()));
+        }
+    }
+
     /**
      * Oracle SQL*Loader for bulk loading
      */
@@ -272,6 +484,7 @@ public class LoadService {
             } catch (Exception e) {
                 log.error("Failed to load record", e);
                 failedCount++;
+                result.reject(record, rootMessage(e));
 
                 if (context.isFailFast()) {
                     throw new RuntimeException("Streaming load failed", e);
@@ -286,43 +499,78 @@ public class LoadService {
     }
 
     /**
-     * Parallel load using multiple threads
+     * Parallel load using multiple threads.
+     *
+     * Records are partitioned by a hash of the partition columns (falling back to the key
+     * columns) so each worker owns a disjoint key space. The number of workers is capped
+     * by the adaptive concurrency of the target table.
      */
     private LoadResult parallelLoad(LoadContext context) {
         LoadResult result = new LoadResult();
         result.setBatchId(context.getBatchId());
 
-        List<Map<String, Object>> data = context.getData();
-        int parallelism = context.getParallelism();
-        int batchSize = data.size() / parallelism;
-
-        List<CompletableFuture<LoadResult>> futures = new ArrayList<>();
-
-        for (int i = 0; i < parallelism; i++) {
-            int start = i * batchSize;
-            int end = (i == parallelism - 1) ? data.size() : (i + 1) * batchSize;
-            List<Map<String, Object>> batch = data.subList(start, end);
-
-            LoadContext batchContext = new LoadContext();
-            batchContext.setBatchId(context.getBatchId() + "_" + i);
-            batchContext.setTargetSystem(context.getTargetSystem());
-            batchContext.setTargetTable(context.getTargetTable());
-            batchContext.setColumns(context.getColumns());
-            batchContext.setData(batch);
-            batchContext.setStrategy(LoadStrategy.BATCH);
-
-            CompletableFuture<LoadResult> future = CompletableFuture.supplyAsync(
-                () -> batchLoad(batchContext),
-                executorService
-            );
-
-            futures.add(future);
+        AdaptiveBatchController controller =
+            batchControllers.forTarget(context.getTargetSystem(), context.getTargetTable());
+        int parallelism = Math.max(1, Math.min(context.getParallelism(), controller.getConcurrency()));
+        ChunkProgress progress = context.getChunkProgress();
+        if (progress != null) {
+            // Partition progress only holds for the same split, so a retry keeps the first attempt's
+            MigrationModels.LoadedChunks split = progress.committed(context.getBatchId());
+            if (split != null && split.getPartitions() > 0) {
+                parallelism = split.getPartitions();
+            } else {
+                split = new MigrationModels.LoadedChunks();
+                split.setPartitions(parallelism);
+                progress.record(context.getBatchId(), split);
+            }
         }
 
-        // Aggregate results
-        List<LoadResult> batchResults = futures.stream()
-            .map(CompletableFuture::join)
-            .collect(Collectors.toList());
+        List<List<Map<String, Object>>> partitions = KeyHashPartitioner.partition(
+            context.getData(),
+            resolvePartitionColumns(context),
+            parallelism
+        );
+
+        List<LoadResult> batchResults = new ArrayList<>();
+
+        // Partitions load on virtual threads; cancelling the migration interrupts them
+        try (MigrationTaskScopes.PhaseScope scope =
+                 taskScopes.open(context.getMigrationId(), "load " + context.getBatchId())) {
+            List<MigrationTaskScopes.Subtask<LoadResult>> subtasks = new ArrayList<>();
+
+            for (int i = 0; i < partitions.size(); i++) {
+                List<Map<String, Object>> partition = partitions.get(i);
+                if (partition.isEmpty()) {
+                    continue;
+                }
+
+                LoadContext partitionContext = new LoadContext();
+                partitionContext.setBatchId(context.getBatchId() + "_" + i);
+                partitionContext.setMigrationId(context.getMigrationId());
+                partitionContext.setTargetSystem(context.getTargetSystem());
+                partitionContext.setTargetTable(context.getTargetTable());
+                partitionContext.setColumns(context.getColumns());
+                partitionContext.setKeyColumns(context.getKeyColumns());
+                partitionContext.setData(partition);
+                partitionContext.setChunkProgress(progress);
+                partitionContext.setStrategy(hasKeyColumns(context) && context.isUpsertPartitions()
+                    ? LoadStrategy.UPSERT
+                    : LoadStrategy.BATCH);
+
+                subtasks.add(scope.fork(
+                    () -> partitionContext.getStrategy() == LoadStrategy.UPSERT
+                        ? batchUpsertLoad(partitionContext)
+                        : batchLoad(partitionContext)
+                ));
+            }
+
+            scope.join();
+
+            // Aggregate results
+            for (MigrationTaskScopes.Subtask<LoadResult> subtask : subtasks) {
+                batchResults.add(subtask.resultOrThrow());
+            }
+        }
 
         int totalLoaded = batchResults.stream()
             .mapToInt(LoadResult::getRecordsLoaded)
@@ -334,10 +582,57 @@ public class LoadService {
 
         result.setRecordsLoaded(totalLoaded);
         result.setFailedRecords(totalFailed);
+        batchResults.forEach(r -> result.getRejectedRecords().addAll(r.getRejectedRecords()));
 
         return result;
     }
 
+    /**
+     * Check whether a failure was caused by a deadlock or serialization conflict
+     */
+    private boolean isDeadlock(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof PessimisticLockingFailureException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                String sqlState = ((SQLException) t).getSQLState();
+                if (sqlState != null && DEADLOCK_SQL_STATES.contains(sqlState)) {
+                    return true;
+                }
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Most specific message of a failure, e.g. the constraint violation under a Spring wrapper
+     */
+    static String rootMessage(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+    }
+
+    /**
+     * Columns used to route records to workers: explicit partition columns, else the key columns
+     */
+    private List<String> resolvePartitionColumns(LoadContext context) {
+        if (context.getPartitionColumns() != null && !context.getPartitionColumns().isEmpty()) {
+            return context.getPartitionColumns();
+        }
+        return hasKeyColumns(context) ? context.getKeyColumns() : Collections.emptyList();
+    }
+
+    private boolean hasKeyColumns(LoadContext context) {
+        return context.getKeyColumns() != null && !context.getKeyColumns().isEmpty();
+    }
+
     /**
      * Upsert (INSERT or UPDATE) load
      */
@@ -366,6 +661,7 @@ public class LoadService {
             } catch (Exception e) {
                 log.error("Failed to upsert record", e);
                 failedCount++;
+                result.reject(record, rootMessage(e));
 
                 if (context.isFailFast()) {
                     throw new RuntimeException("Upsert failed", e);
@@ -490,28 +786,49 @@ public class LoadService {
     }
 
     /**
-     * Escape CSV value
+     * Escape CSV value; an empty string is quoted, as COPY reads an unquoted empty field as null
      */
     private String escapeCsvValue(String value) {
-        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+        if (value.isEmpty() || value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
             return "\"" + value.replace("\"", "\"\"") + "\"";
         }
         return value;
     }
 
     /**
-     * Create temporary CSV file
+     * Write records to a temporary file for LOAD DATA: every value quoted, quotes doubled,
+     * and NULL unquoted for a null, so no value is read back as a null or split on a comma
      */
-    private String createTempCsvFile(List<Map<String, Object>> data, List<String> columns) {
-        // Create temp file and write CSV data
-        return "/tmp/load_" + UUID.randomUUID() + ".csv"; // Simplified
+    private Path createTempCsvFile(List<Map<String, Object>> data, List<String> columns) {
+        try {
+            Path file = Files.createTempFile("load_", ".csv");
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (Map<String, Object> record : data) {
+                    for (int i = 0; i < columns.size(); i++) {
+                        if (i > 0) {
+                            writer.write(',');
+                        }
+                        Object value = record.get(columns.get(i));
+                        writer.write(value != null ? "\"" + value.toString().replace("\"", "\"\"") + "\"" : "NULL");
+                    }
+                    writer.write('\n');
+                }
+            }
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write bulk load file", e);
+        }
     }
 
     /**
      * Delete temporary file
      */
-    private void deleteTempFile(String filePath) {
-        // Delete temp file
+    private void deleteTempFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete bulk load file {}", file, e);
+        }
     }
 
     /**
@@ -536,18 +853,35 @@ public class LoadService {
     }
 
     // Supporting classes
+
+    /**
+     * Durable record of the chunks of each batch that committed, keyed by batch id
+     */
+    public interface ChunkProgress {
+        /** Chunks an earlier attempt of the batch committed, or null */
+        MigrationModels.LoadedChunks committed(String batchId);
+
+        void record(String batchId, MigrationModels.LoadedChunks chunks);
+    }
+
     public static class LoadContext {
+    private Long migrationId;
     private String batchId;
     private String targetSystem;
     private String targetTable;
     private List<String> columns;
     private List<String> keyColumns;
+    private List<String> partitionColumns;
     private List<Map<String, Object>> data;
     private LoadStrategy strategy;
     private int parallelism = 4;
     private boolean failFast = false;
+    private boolean upsertPartitions = false;
+    private ChunkProgress chunkProgress;
 
     // Getters and setters
+    public Long getMigrationId() { return migrationId; }
+    public void setMigrationId(Long migrationId) { this.migrationId = migrationId; }
     public String getBatchId() { return batchId; }
     public void setBatchId(String batchId) { this.batchId = batchId; }
     public String getTargetSystem() { return targetSystem; }
@@ -558,6 +892,8 @@ public class LoadService {
     public void setColumns(List<String> columns) { this.columns = columns; }
     public List<String> getKeyColumns() { return keyColumns; }
     public void setKeyColumns(List<String> keyColumns) { this.keyColumns = keyColumns; }
+    public List<String> getPartitionColumns() { return partitionColumns; }
+    public void setPartitionColumns(List<String> partitionColumns) { this.partitionColumns = partitionColumns; }
     public List<Map<String, Object>> getData() { return data; }
     public void setData(List<Map<String, Object>> data) { this.data = data; }
     public LoadStrategy getStrategy() { return strategy; }
@@ -566,6 +902,10 @@ public class LoadService {
     public void setParallelism(int parallelism) { this.parallelism = parallelism; }
     public boolean isFailFast() { return failFast; }
     public void setFailFast(boolean failFast) { this.failFast = failFast; }
+    public boolean isUpsertPartitions() { return upsertPartitions; }
+    public void setUpsertPartitions(boolean upsertPartitions) { this.upsertPartitions = upsertPartitions; }
+    public ChunkProgress getChunkProgress() { return chunkProgress; }
+    public void setChunkProgress(ChunkProgress chunkProgress) { this.chunkProgress = chunkProgress; }
     }
 
     public static class LoadResult {
@@ -577,6 +917,7 @@ public class LoadService {
     private Date startTime;
     private Date endTime;
     private long duration;
+    private List<RejectedRecord> rejectedRecords = new ArrayList<>();
 
     // Constructor for simplified usage
     public LoadResult() {}
@@ -604,6 +945,35 @@ public class LoadService {
     public void setEndTime(Date endTime) { this.endTime = endTime; }
     public long getDuration() { return duration; }
     public void setDuration(long duration) { this.duration = duration; }
+    public List<RejectedRecord> getRejectedRecords() { return rejectedRecords; }
+    public void setRejectedRecords(List<RejectedRecord> rejectedRecords) { this.rejectedRecords = rejectedRecords; }
+
+    /**
+     * Keep a record the target refused, with the reason, for the dead-letter store
+     */
+    public void reject(Map<String, Object> record, String reason) {
+        rejectedRecords.add(new RejectedRecord(record, reason));
+    }
+    }
+
+    /**
+     * A record the target refused to load, with the reason it gave
+     */
+    public static class RejectedRecord {
+    private Map<String, Object> record;
+    private String reason;
+
+    public RejectedRecord() {}
+
+    public RejectedRecord(Map<String, Object> record, String reason) {
+        this.record = record;
+        this.reason = reason;
+    }
+
+    public Map<String, Object> getRecord() { return record; }
+    public void setRecord(Map<String, Object> record) { this.record = record; }
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
     }
 
     public static enum LoadStrategy {
@@ -611,6 +981,7 @@ public class LoadService {
         BULK,
         STREAMING,
         PARALLEL,
-        UPSERT
+        UPSERT,
+        STAGED
     }
 }
\ No newline at end of file
@@ -0,0 +1,281 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.domain.migration.Migration;
+import com.jivs.platform.domain.migration.MigrationBatchData;
+import com.jivs.platform.repository.MigrationBatchDataRepository;
+import com.jivs.platform.security.SqlInjectionValidator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Rows handed between the phases of a migration. Extraction reads a page of the source
+ * table and keeps it under its task id; transformation reads it back and keeps its output
+ * under its own id for the load batch. Batches live in the database, so a batch queued to
+ * another node or resumed after a restart finds the rows of the batch before it.
+ */
+@Service
+@RequiredArgsConstructor
+public class MigrationBatchStore {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MigrationBatchStore.class);
+
+    private final MigrationBatchDataRepository batchDataRepository;
+    private final Map<String, DataSource> dataSources;
+    private final SqlInjectionValidator sqlInjectionValidator;
+
+    /**
+     * Page of the source table an extraction task covers, ordered by the table's primary key
+     * ("orderBy" parameter) so consecutive pages neither overlap nor skip rows. A task given a
+     * key range by {@link #assignKeyRanges} seeks to it through the key; others skip
+     * {@code offset} rows, which costs a scan of every row before the page.
+     */
+    public List<Map<String, Object>> readSource(Migration migration, MigrationModels.ExtractionTask task) {
+        DataSource dataSource = dataSource(migration);
+        String table = table(task);
+        List<String> keyColumns = keyColumns(task);
+        Map<String, Object> parameters = task.getParameters() != null ? task.getParameters() : Map.of();
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM ").append(table);
+        List<Object> params = new ArrayList<>();
+        if (Boolean.TRUE.equals(parameters.get("keyRange")) && !keyColumns.isEmpty()) {
+            // Range bounds rather than a row count, so rows added since planning are read too
+            StringJoiner where = new StringJoiner(" AND ", " WHERE ", "").setEmptyValue("");
+            if (parameters.get("after") instanceof List<?> after) {
+                where.add(keyCondition(keyColumns, after, true, params));
+            }
+            if (parameters.get("through") instanceof List<?> through) {
+                where.add(keyCondition(keyColumns, through, false, params));
+            }
+            sql.append(where).append(" ORDER BY ").append(String.join(", ", keyColumns));
+        } else {
+            String product = productName(dataSource);
+            boolean offsetFetch = product.contains("sql server") || product.contains("oracle");
+            if (!keyColumns.isEmpty()) {
+                sql.append(" ORDER BY ").append(String.join(", ", keyColumns));
+            } else if (product.contains("sql server")) {
+                // OFFSET needs an ORDER BY on SQL Server
+                sql.append(" ORDER BY (SELECT NULL)");
+            }
+            if (offsetFetch) {
+                sql.append(" OFFSET ? ROWS FETCH NEXT ? ROWS ONLY");
+                params.add(task.getOffset());
+                params.add(task.getBatchSize());
+            } else {
+                sql.append(" LIMIT ? OFFSET ?");
+                params.add(task.getBatchSize());
+                params.add(task.getOffset());
+            }
+        }
+
+        List<Map<String, Object>> records = new ArrayList<>();
+        new JdbcTemplate(dataSource).queryForList(sql.toString(), params.toArray())
+            .forEach(row -> records.add(new LinkedHashMap<>(row)));
+        return records;
+    }
+
+    /**
+     * Give the extraction tasks of each keyed source table a key range in place of their
+     * offset. One pass over the key columns, in key order, picks the key ending each task's
+     * page; the table's last task is open-ended. Tables whose keys are not integers or
+     * strings keep offsets, as other key values do not survive the plan's JSON unchanged.
+     */
+    public void assignKeyRanges(Migration migration, List<MigrationModels.ExtractionTask> tasks) {
+        Map<String, List<MigrationModels.ExtractionTask>> byTable = new LinkedHashMap<>();
+        for (MigrationModels.ExtractionTask task : tasks) {
+            if (!keyColumns(task).isEmpty()) {
+                byTable.computeIfAbsent(task.getSourceTable(), t -> new ArrayList<>()).add(task);
+            }
+        }
+        if (byTable.isEmpty()) {
+            return;
+        }
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource(migration));
+        for (List<MigrationModels.ExtractionTask> tableTasks : byTable.values()) {
+            tableTasks.sort(Comparator.comparingInt(MigrationModels.ExtractionTask::getOffset));
+            MigrationModels.ExtractionTask first = tableTasks.get(0);
+            List<List<Object>> bounds = jdbc.execute((ConnectionCallback<List<List<Object>>>) con ->
+                pageBounds(con, table(first), keyColumns(first), first.getBatchSize(), tableTasks.size() - 1));
+            if (bounds == null) {
+                log.debug("Keeping offsets for {}: it is empty or its keys are not integers or strings", first.getSourceTable());
+                continue;
+            }
+            for (int i = 0; i < tableTasks.size(); i++) {
+                Map<String, Object> parameters = tableTasks.get(i).getParameters();
+                parameters.put("keyRange", true);
+                if (i > 0) {
+                    parameters.put("after", bounds.get(i - 1));
+                }
+                if (i < tableTasks.size() - 1) {
+                    parameters.put("through", bounds.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Key of every {@code pageRows}-th row in key order, {@code count} of them. A table with
+     * fewer rows repeats its last key, leaving the pages after it empty.
+     *
+     * @return the bounds, or null if the table is empty or has keys that cannot be kept
+     */
+    private static List<List<Object>> pageBounds(Connection con, String table, List<String> keyColumns,
+                                                 int pageRows, int count) throws SQLException {
+        List<List<Object>> bounds = new ArrayList<>();
+        List<Object> last = null;
+        boolean autoCommit = con.getAutoCommit();
+        // Drivers such as PostgreSQL only stream a result set inside a transaction
+        con.setAutoCommit(false);
+        try (Statement statement = con.createStatement()) {
+            statement.setFetchSize(10_000);
+            String columns = String.join(", ", keyColumns);
+            try (ResultSet rs = statement.executeQuery("SELECT " + columns + " FROM " + table + " ORDER BY " + columns)) {
+                for (long row = 1; bounds.size() < count && rs.next(); row++) {
+                    last = new ArrayList<>(keyColumns.size());
+                    for (int i = 1; i <= keyColumns.size(); i++) {
+                        Object key = portableKey(rs.getObject(i));
+                        if (key == null) {
+                            return null;
+                        }
+                        last.add(key);
+                    }
+                    if (row % pageRows == 0) {
+                        bounds.add(last);
+                    }
+                }
+            }
+        } finally {
+            con.commit();
+            con.setAutoCommit(autoCommit);
+        }
+        if (bounds.size() < count && last == null && count > 0) {
+            return null;
+        }
+        while (bounds.size() < count) {
+            bounds.add(last);
+        }
+        return bounds;
+    }
+
+    /**
+     * Key value as the plan's JSON reads it back, or null if it would come back different
+     */
+    private static Object portableKey(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof String) {
+            return value;
+        }
+        if (value instanceof Short || value instanceof Byte) {
+            return ((Number) value).intValue();
+        }
+        try {
+            if (value instanceof BigDecimal decimal) {
+                return decimal.longValueExact();
+            }
+            if (value instanceof BigInteger integer) {
+                return integer.longValueExact();
+            }
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * Rows past ({@code after}) or up to and including a key, spelled out column by column
+     * as not every database compares row values
+     */
+    private static String keyCondition(List<String> keyColumns, List<?> key, boolean after, List<Object> params) {
+        StringJoiner any = new StringJoiner(" OR ", "(", ")");
+        for (int i = 0; i < keyColumns.size(); i++) {
+            StringJoiner all = new StringJoiner(" AND ", "(", ")");
+            for (int j = 0; j < i; j++) {
+                all.add(keyColumns.get(j) + " = ?");
+                params.add(key.get(j));
+            }
+            String op = after ? " > ?" : i == keyColumns.size() - 1 ? " <= ?" : " < ?";
+            all.add(keyColumns.get(i) + op);
+            params.add(key.get(i));
+            any.add(all.toString());
+        }
+        return any.toString();
+    }
+
+    private DataSource dataSource(Migration migration) {
+        DataSource dataSource = dataSources.get(migration.getSourceSystem());
+        if (dataSource == null) {
+            throw new IllegalStateException("No data source registered for source system " + migration.getSourceSystem());
+        }
+        return dataSource;
+    }
+
+    private String table(MigrationModels.ExtractionTask task) {
+        return Arrays.stream(task.getSourceTable().split("\\."))
+            .map(sqlInjectionValidator::sanitizeIdentifier)
+            .collect(Collectors.joining("."));
+    }
+
+    private List<String> keyColumns(MigrationModels.ExtractionTask task) {
+        Object orderBy = task.getParameters() != null ? task.getParameters().get("orderBy") : null;
+        return orderBy != null && !orderBy.toString().isBlank()
+            ? Arrays.stream(orderBy.toString().split(",")).map(String::trim).map(sqlInjectionValidator::sanitizeIdentifier).toList()
+            : List.of();
+    }
+
+    /**
+     * Keep the rows a batch produced, replacing those of an earlier attempt
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void store(Long migrationId, String batchId, List<Map<String, Object>> records) {
+        batchDataRepository.deleteByBatch(migrationId, batchId);
+        MigrationBatchData data = batchDataRepository.save(MigrationBatchData.builder()
+            .migrationId(migrationId)
+            .batchId(batchId)
+            .recordCount(records.size())
+            .payload(RowSegments.encode(records, Map.of()))
+            .build());
+        log.debug("Stored {} records of batch {} of migration {} ({} bytes)",
+            records.size(), batchId, migrationId, data.getPayload().length);
+    }
+
+    /**
+     * Rows a batch produced
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> read(Long migrationId, String batchId) {
+        return batchDataRepository.findByMigrationIdAndBatchId(migrationId, batchId)
+            .map(data -> RowSegments.decode(data.getPayload()))
+            .orElseThrow(() -> new IllegalStateException(
+                "No data for batch " + batchId + " of migration " + migrationId));
+    }
+
+    /**
+     * Drop the rows of every batch of a migration
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void discard(Long migrationId) {
+        int dropped = batchDataRepository.deleteByMigrationId(migrationId);
+        log.debug("Dropped {} batches of migration {}", dropped, migrationId);
+    }
+
+    private static String productName(DataSource dataSource) {
+        try (Connection con = dataSource.getConnection()) {
+            return con.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read source database metadata", e);
+        }
+    }
+}
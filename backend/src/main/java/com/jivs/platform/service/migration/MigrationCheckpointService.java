@@ -0,0 +1,337 @@
+package com.jivs.platform.service.migration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jivs.platform.domain.migration.Migration;
+import com.jivs.platform.domain.migration.MigrationLoadProgress;
+import com.jivs.platform.domain.migration.MigrationPhase;
+import com.jivs.platform.domain.migration.MigrationStatus;
+import com.jivs.platform.repository.MigrationLoadProgressRepository;
+import com.jivs.platform.repository.MigrationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Durable per-task checkpoints and cooperative pause for running migrations.
+ *
+ * Every committed batch is written to the migration's checkpoint_state column in its own
+ * transaction, so a paused or crashed migration resumes at the exact committed batch.
+ * Only the node coordinating a run writes the checkpoint; the chunks a load batch commits
+ * are kept in a row per batch, so workers on any node record them without touching it.
+ * Workers call {@link #checkPause(Long)} between batches to stop cleanly on pause or cancel.
+ */
+@Service
+public class MigrationCheckpointService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MigrationCheckpointService.class);
+
+    private final MigrationRepository migrationRepository;
+    private final MigrationLoadProgressRepository loadProgressRepository;
+    private final TransactionTemplate requiresNewTransaction;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<Long, MigrationModels.MigrationCheckpoint> activeCheckpoints = new ConcurrentHashMap<>();
+    private final Set<Long> pauseRequests = ConcurrentHashMap.newKeySet();
+    private final Set<Long> cancelRequests = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Long> lastPauseCheck = new ConcurrentHashMap<>();
+
+    @Value("${jivs.migration.pause-poll-interval-ms:1000}")
+    private long pausePollIntervalMillis = 1000;
+
+    public MigrationCheckpointService(MigrationRepository migrationRepository,
+                                      MigrationLoadProgressRepository loadProgressRepository,
+                                      PlatformTransactionManager transactionManager) {
+        this.migrationRepository = migrationRepository;
+        this.loadProgressRepository = loadProgressRepository;
+        // Checkpoint reads/writes must not join (or flush) the long-running orchestration transaction
+        this.requiresNewTransaction = new TransactionTemplate(transactionManager);
+        this.requiresNewTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Load the persisted checkpoint (or start a fresh one) for an execution run
+     */
+    public MigrationModels.MigrationCheckpoint begin(Migration migration) {
+        MigrationModels.MigrationCheckpoint checkpoint = migration.getCheckpoint();
+        if (checkpoint == null) {
+            checkpoint = new MigrationModels.MigrationCheckpoint();
+        } else {
+            log.info("Resuming migration {} from checkpoint: completed phases {}",
+                migration.getId(), checkpoint.getCompletedPhases());
+        }
+
+        if (!checkpoint.getLoadedChunks().isEmpty()) {
+            // Checkpoints written before chunk progress had rows of its own
+            LoadService.ChunkProgress progress = chunkProgress(migration.getId());
+            checkpoint.getLoadedChunks().forEach(progress::record);
+            checkpoint.getLoadedChunks().clear();
+        }
+
+        pauseRequests.remove(migration.getId());
+        cancelRequests.remove(migration.getId());
+        activeCheckpoints.put(migration.getId(), checkpoint);
+        return checkpoint;
+    }
+
+    /**
+     * Release in-memory state once a run ends (completed, failed or paused)
+     */
+    public void end(Long migrationId) {
+        activeCheckpoints.remove(migrationId);
+        pauseRequests.remove(migrationId);
+        cancelRequests.remove(migrationId);
+        lastPauseCheck.remove(migrationId);
+    }
+
+    /**
+     * Whether a phase already finished in an earlier run
+     */
+    public boolean isPhaseCompleted(Migration migration, MigrationPhase phase) {
+        return checkpoint(migration).isPhaseCompleted(phase.name());
+    }
+
+    /**
+     * Mark the phase the run is currently executing
+     */
+    public void startPhase(Migration migration, MigrationPhase phase) {
+        MigrationModels.MigrationCheckpoint checkpoint = checkpoint(migration);
+        synchronized (checkpoint) {
+            checkpoint.setCurrentPhase(phase.name());
+            checkpoint.phase(phase.name()).startRun(System.currentTimeMillis());
+            persist(migration, checkpoint);
+        }
+    }
+
+    /**
+     * Mark a phase as fully completed
+     */
+    public void completePhase(Migration migration, MigrationPhase phase) {
+        MigrationModels.MigrationCheckpoint checkpoint = checkpoint(migration);
+        synchronized (checkpoint) {
+            checkpoint.markPhaseCompleted(phase.name());
+            persist(migration, checkpoint);
+        }
+    }
+
+    /**
+     * Whether a batch of a phase committed in an earlier run and must be skipped
+     */
+    public boolean isBatchCommitted(Migration migration, MigrationPhase phase, int batchIndex) {
+        MigrationModels.MigrationCheckpoint checkpoint = checkpoint(migration);
+        synchronized (checkpoint) {
+            return checkpoint.phase(phase.name()).isBatchCommitted(batchIndex);
+        }
+    }
+
+    /**
+     * Durably record a committed batch. The checkpoint keeps batch indexes compacted behind
+     * the contiguously committed prefix, so the state written stays small as batches commit.
+     */
+    public void commitBatch(Migration migration, MigrationPhase phase, int batchIndex,
+                            String taskId, String watermark, long records) {
+        commitBatch(migration, phase, batchIndex, taskId, watermark, records, 0);
+    }
+
+    /**
+     * Durably record a committed batch together with the records it failed on
+     */
+    public void commitBatch(Migration migration, MigrationPhase phase, int batchIndex,
+                            String taskId, String watermark, long records, long failedRecords) {
+        MigrationModels.MigrationCheckpoint checkpoint = checkpoint(migration);
+        synchronized (checkpoint) {
+            checkpoint.phase(phase.name()).commitBatch(batchIndex, watermark, records, failedRecords);
+            persist(migration, checkpoint);
+        }
+        if (phase == MigrationPhase.LOADING) {
+            // Chunk progress only matters until its batch commits; partitions are suffixed "_<n>"
+            String partitions = taskId.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "!_%";
+            requiresNewTransaction.executeWithoutResult(tx ->
+                loadProgressRepository.deleteByBatch(migration.getId(), taskId, partitions));
+        }
+    }
+
+    /**
+     * Durable chunk progress of the migration's load batches, so a retried batch resumes
+     * after the chunks an earlier attempt committed instead of inserting them again. Each
+     * batch has a row of its own, written in its own transaction, so this works the same
+     * on a node that does not coordinate the run.
+     */
+    public LoadService.ChunkProgress chunkProgress(Long migrationId) {
+        return new LoadService.ChunkProgress() {
+            @Override
+            public MigrationModels.LoadedChunks committed(String batchId) {
+                return requiresNewTransaction.execute(tx ->
+                    loadProgressRepository.findByMigrationIdAndBatchId(migrationId, batchId)
+                        .map(row -> fromJson(row.getProgress()))
+                        .orElse(null));
+            }
+
+            @Override
+            public void record(String batchId, MigrationModels.LoadedChunks chunks) {
+                String progress = toJson(chunks);
+                requiresNewTransaction.executeWithoutResult(tx -> {
+                    MigrationLoadProgress row = loadProgressRepository.findByMigrationIdAndBatchId(migrationId, batchId)
+                        .orElseGet(() -> MigrationLoadProgress.builder().migrationId(migrationId).batchId(batchId).build());
+                    row.setProgress(progress);
+                    loadProgressRepository.save(row);
+                });
+            }
+        };
+    }
+
+    /**
+     * Drop the chunk progress of a migration's batches once the run no longer retries them
+     */
+    public void discardChunkProgress(Long migrationId) {
+        requiresNewTransaction.executeWithoutResult(tx -> loadProgressRepository.deleteByMigrationId(migrationId));
+    }
+
+    /**
+     * Number of batches of a phase committed across all runs
+     */
+    public int committedBatchCount(Migration migration, MigrationPhase phase) {
+        MigrationModels.MigrationCheckpoint checkpoint = checkpoint(migration);
+        synchronized (checkpoint) {
+            return checkpoint.phase(phase.name()).committedBatchCount();
+        }
+    }
+
+    /**
+     * Staging tables of the migration's staged load, keyed by live table
+     */
+    public Map<String, MigrationModels.StagedTable> stagedTables(Migration migration) {
+        MigrationModels.MigrationCheckpoint checkpoint = checkpoint(migration);
+        synchronized (checkpoint) {
+            return new java.util.LinkedHashMap<>(checkpoint.getStagedTables());
+        }
+    }
+
+    /**
+     * Durably record a staging table and its cutover state, so resume and rollback find it
+     */
+    public void recordStagedTable(Migration migration, MigrationModels.StagedTable stagedTable) {
+        MigrationModels.MigrationCheckpoint checkpoint = checkpoint(migration);
+        synchronized (checkpoint) {
+            checkpoint.getStagedTables().put(stagedTable.getLiveTable(), stagedTable);
+            persist(migration, checkpoint);
+        }
+    }
+
+    /**
+     * Indexes and foreign keys set aside for the migration's bulk load, keyed by table
+     */
+    public Map<String, MigrationModels.DeferredIndexes> deferredIndexes(Migration migration) {
+        MigrationModels.MigrationCheckpoint checkpoint = checkpoint(migration);
+        synchronized (checkpoint) {
+            return new java.util.LinkedHashMap<>(checkpoint.getDeferredIndexes());
+        }
+    }
+
+    /**
+     * Durably record deferred index definitions and rebuild progress, so they survive a crash mid-load
+     */
+    public void recordDeferredIndexes(Migration migration, MigrationModels.DeferredIndexes deferred) {
+        MigrationModels.MigrationCheckpoint checkpoint = checkpoint(migration);
+        synchronized (checkpoint) {
+            checkpoint.getDeferredIndexes().put(deferred.getTable(), deferred);
+            persist(migration, checkpoint);
+        }
+    }
+
+    /**
+     * Ask workers of a running migration to stop after their current batch
+     */
+    public void requestPause(Long migrationId) {
+        pauseRequests.add(migrationId);
+    }
+
+    /**
+     * Ask workers of a running migration to stop; unlike a pause the run ends as cancelled
+     */
+    public void requestCancel(Long migrationId) {
+        cancelRequests.add(migrationId);
+    }
+
+    /**
+     * Whether a pause or cancel was requested, either on this node or (polled at most once
+     * per interval) through the persisted migration status by another node
+     */
+    public boolean isPauseRequested(Long migrationId) {
+        if (pauseRequests.contains(migrationId) || cancelRequests.contains(migrationId)) {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+        Long last = lastPauseCheck.get(migrationId);
+        if (last != null && now - last < pausePollIntervalMillis) {
+            return false;
+        }
+        lastPauseCheck.put(migrationId, now);
+
+        MigrationStatus status = requiresNewTransaction.execute(tx ->
+            migrationRepository.findStatusById(migrationId).orElse(null));
+        if (status == MigrationStatus.PAUSED) {
+            pauseRequests.add(migrationId);
+            return true;
+        }
+        if (status == MigrationStatus.CANCELLED) {
+            cancelRequests.add(migrationId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cooperative pause point for workers, called between batches
+     *
+     * @throws MigrationModels.MigrationPausedException if a pause was requested
+     * @throws MigrationModels.MigrationCancelledException if the migration was cancelled
+     */
+    public void checkPause(Long migrationId) {
+        if (isPauseRequested(migrationId)) {
+            if (cancelRequests.contains(migrationId)) {
+                throw new MigrationModels.MigrationCancelledException("Migration " + migrationId + " cancelled");
+            }
+            throw new MigrationModels.MigrationPausedException("Migration " + migrationId + " paused");
+        }
+    }
+
+    private MigrationModels.MigrationCheckpoint checkpoint(Migration migration) {
+        return activeCheckpoints.computeIfAbsent(migration.getId(), id -> {
+            MigrationModels.MigrationCheckpoint persisted = migration.getCheckpoint();
+            return persisted != null ? persisted : new MigrationModels.MigrationCheckpoint();
+        });
+    }
+
+    private String toJson(MigrationModels.LoadedChunks chunks) {
+        try {
+            return objectMapper.writeValueAsString(chunks);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize chunk progress", e);
+        }
+    }
+
+    private MigrationModels.LoadedChunks fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, MigrationModels.LoadedChunks.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read chunk progress", e);
+        }
+    }
+
+    private void persist(Migration migration, MigrationModels.MigrationCheckpoint checkpoint) {
+        checkpoint.setUpdatedAtMillis(System.currentTimeMillis());
+        // Keep the managed entity in sync so the orchestrator's final save writes the same state
+        migration.setCheckpoint(checkpoint);
+        String state = migration.getCheckpointState();
+        requiresNewTransaction.executeWithoutResult(tx ->
+            migrationRepository.updateCheckpointState(migration.getId(), state));
+    }
+}
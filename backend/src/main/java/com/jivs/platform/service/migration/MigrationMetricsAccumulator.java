@@ -0,0 +1,292 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.domain.migration.Migration;
+import com.jivs.platform.domain.migration.MigrationMetrics;
+import com.jivs.platform.domain.migration.MigrationPhase;
+import com.jivs.platform.event.MigrationEventPublisher;
+import com.jivs.platform.repository.MigrationRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory progress counters of running migrations.
+ *
+ * Batch workers add to striped {@link LongAdder} counters without locking or touching the
+ * entity; a scheduled flush writes changed counters to the metrics columns in their own
+ * transaction and publishes a progress event. A resumed run starts from the records its
+ * checkpoint committed per phase, so counts lost with a crash after the last flush come back.
+ */
+@Service
+public class MigrationMetricsAccumulator {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MigrationMetricsAccumulator.class);
+
+    /** Phases whose records are counted batch by batch */
+    private static final MigrationPhase[] BATCH_PHASES = {
+        MigrationPhase.EXTRACTION, MigrationPhase.TRANSFORMATION, MigrationPhase.LOADING
+    };
+
+    private final MigrationRepository migrationRepository;
+    private final MigrationEventPublisher eventPublisher;
+    private final TransactionTemplate requiresNewTransaction;
+
+    private final Map<Long, LiveMetrics> active = new ConcurrentHashMap<>();
+
+    public MigrationMetricsAccumulator(MigrationRepository migrationRepository,
+                                       MigrationEventPublisher eventPublisher,
+                                       PlatformTransactionManager transactionManager) {
+        this.migrationRepository = migrationRepository;
+        this.eventPublisher = eventPublisher;
+        // Flushes must not join (or flush) the long-running orchestration transaction
+        this.requiresNewTransaction = new TransactionTemplate(transactionManager);
+        this.requiresNewTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Start accumulating for an execution run, seeded from the checkpoint and the last flush
+     */
+    public LiveMetrics begin(Migration migration) {
+        MigrationMetrics flushed = migration.getMetrics() != null ? migration.getMetrics() : new MigrationMetrics();
+        MigrationModels.MigrationCheckpoint checkpoint = migration.getCheckpoint();
+
+        LiveMetrics metrics = new LiveMetrics(migration.getId());
+        metrics.totalRecords = value(flushed.getTotalRecords());
+        // Failures of the batches an earlier run committed; those it left uncommitted run again
+        metrics.earlierFailures = checkpoint != null
+            ? checkpoint.getPhases().values().stream().mapToLong(MigrationModels.PhaseCheckpoint::getFailedRecordsCommitted).sum()
+            : value(flushed.getFailedRecords());
+        for (MigrationPhase phase : BATCH_PHASES) {
+            long committed = checkpoint != null && checkpoint.getPhases().containsKey(phase.name())
+                ? checkpoint.getPhases().get(phase.name()).getRecordsCommitted()
+                : flushedRecords(flushed, phase);
+            metrics.records.get(phase).add(committed);
+        }
+        if (migration.getPhase() != null) {
+            metrics.enterPhase(migration.getPhase());
+        }
+        // Nothing new to write until a worker reports
+        metrics.flushedUpdates = metrics.updates.sum();
+
+        active.put(migration.getId(), metrics);
+        return metrics;
+    }
+
+    /**
+     * Record the phase the run entered; batch phases become the basis of progress
+     */
+    public void enterPhase(Long migrationId, MigrationPhase phase) {
+        LiveMetrics metrics = active.get(migrationId);
+        if (metrics != null) {
+            metrics.enterPhase(phase);
+            metrics.updates.increment();
+        }
+    }
+
+    /**
+     * Set the number of records the migration is expected to move
+     */
+    public void setTotalRecords(Long migrationId, long totalRecords) {
+        LiveMetrics metrics = active.get(migrationId);
+        if (metrics != null) {
+            metrics.totalRecords = totalRecords;
+            metrics.updates.increment();
+        }
+    }
+
+    /**
+     * Add the outcome of a batch attempt; safe to call from any worker thread. Failed records
+     * are counted per batch: a retried batch's outcome replaces that of its earlier attempt.
+     */
+    public void recordBatch(Long migrationId, MigrationPhase phase, String batchId, long records, long failedRecords) {
+        LiveMetrics metrics = active.get(migrationId);
+        if (metrics == null) {
+            return;
+        }
+        LongAdder counter = metrics.records.get(phase);
+        if (counter != null && records > 0) {
+            counter.add(records);
+        }
+        String batch = phase.name() + "/" + batchId;
+        if (failedRecords > 0) {
+            metrics.batchFailures.put(batch, failedRecords);
+        } else {
+            metrics.batchFailures.remove(batch);
+        }
+        metrics.updates.increment();
+    }
+
+    /**
+     * Copy the current counters into the entity, so a whole-entity save writes the same values
+     */
+    public void applyTo(Migration migration) {
+        LiveMetrics metrics = active.get(migration.getId());
+        if (metrics == null) {
+            return;
+        }
+        if (migration.getMetrics() == null) {
+            migration.setMetrics(new MigrationMetrics());
+        }
+        MigrationMetrics target = migration.getMetrics();
+        target.setExtractedRecords(clamp(metrics.records(MigrationPhase.EXTRACTION)));
+        target.setTransformedRecords(clamp(metrics.records(MigrationPhase.TRANSFORMATION)));
+        target.setLoadedRecords(clamp(metrics.records(MigrationPhase.LOADING)));
+        target.setSuccessfulRecords(clamp(metrics.records(MigrationPhase.LOADING)));
+        target.setFailedRecords(clamp(metrics.failedRecords()));
+        target.setProcessedRecords(clamp(metrics.processedRecords()));
+    }
+
+    /**
+     * Flush and release a run's counters once it ends (completed, failed or paused)
+     */
+    public void end(Migration migration) {
+        applyTo(migration);
+        LiveMetrics metrics = active.remove(migration.getId());
+        if (metrics == null) {
+            return;
+        }
+        synchronized (metrics) {
+            try {
+                flush(metrics);
+            } catch (RuntimeException e) {
+                // The orchestrator's final save still writes the counters applied above
+                log.warn("Failed final metrics flush of migration {}", migration.getId(), e);
+            }
+            metrics.closed = true;
+        }
+    }
+
+    /**
+     * Flush every running migration whose counters changed since its last flush
+     */
+    @Scheduled(fixedDelayString = "${jivs.migration.metrics.flush-interval-ms:2000}")
+    public void flushAll() {
+        for (LiveMetrics metrics : active.values()) {
+            try {
+                flush(metrics);
+            } catch (RuntimeException e) {
+                // The counters stay in memory; the next flush writes them
+                log.warn("Failed to flush metrics of migration {}", metrics.migrationId, e);
+            }
+        }
+    }
+
+    /**
+     * Counters of a running migration, or null if it is not running on this node
+     */
+    public LiveMetrics get(Long migrationId) {
+        return active.get(migrationId);
+    }
+
+    private void flush(LiveMetrics metrics) {
+        synchronized (metrics) {
+            long updates = metrics.updates.sum();
+            if (metrics.closed || updates == metrics.flushedUpdates) {
+                return;
+            }
+
+            long loaded = metrics.records(MigrationPhase.LOADING);
+            long processed = metrics.processedRecords();
+            requiresNewTransaction.executeWithoutResult(tx -> migrationRepository.updateMetrics(
+                metrics.migrationId,
+                clamp(metrics.records(MigrationPhase.EXTRACTION)),
+                clamp(metrics.records(MigrationPhase.TRANSFORMATION)),
+                clamp(loaded),
+                clamp(processed),
+                clamp(loaded),
+                clamp(metrics.failedRecords())));
+            metrics.flushedUpdates = updates;
+
+            eventPublisher.publishProgressUpdate(String.valueOf(metrics.migrationId),
+                metrics.progressPercent(), processed, metrics.totalRecords,
+                metrics.phase != null ? metrics.phase.name() : null);
+        }
+    }
+
+    private static long flushedRecords(MigrationMetrics flushed, MigrationPhase phase) {
+        return switch (phase) {
+            case EXTRACTION -> value(flushed.getExtractedRecords());
+            case TRANSFORMATION -> value(flushed.getTransformedRecords());
+            case LOADING -> value(flushed.getLoadedRecords());
+            default -> 0;
+        };
+    }
+
+    private static long value(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static int clamp(long value) {
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Live counters of one run. Processed records are those committed by the most recent
+     * batch phase, so progress climbs to 100% once per extraction, transformation and load.
+     */
+    public static final class LiveMetrics {
+        private final Long migrationId;
+        private final Map<MigrationPhase, LongAdder> records;
+        private final Map<String, Long> batchFailures = new ConcurrentHashMap<>();
+        private final LongAdder updates = new LongAdder();
+        private volatile long earlierFailures;
+        private volatile long totalRecords;
+        private volatile MigrationPhase phase;
+        private volatile MigrationPhase progressPhase;
+        private long flushedUpdates;
+        private boolean closed;
+
+        LiveMetrics(Long migrationId) {
+            this.migrationId = migrationId;
+            Map<MigrationPhase, LongAdder> counters = new EnumMap<>(MigrationPhase.class);
+            for (MigrationPhase batchPhase : BATCH_PHASES) {
+                counters.put(batchPhase, new LongAdder());
+            }
+            // Never modified after construction, so reads need no locking
+            this.records = Collections.unmodifiableMap(counters);
+        }
+
+        void enterPhase(MigrationPhase entered) {
+            phase = entered;
+            if (records.containsKey(entered)) {
+                progressPhase = entered;
+            }
+        }
+
+        public long records(MigrationPhase batchPhase) {
+            LongAdder counter = records.get(batchPhase);
+            return counter != null ? counter.sum() : 0;
+        }
+
+        public long failedRecords() {
+            return earlierFailures + batchFailures.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long processedRecords() {
+            return progressPhase != null ? records(progressPhase) : 0;
+        }
+
+        public long getTotalRecords() {
+            return totalRecords;
+        }
+
+        public MigrationPhase getPhase() {
+            return phase;
+        }
+
+        int progressPercent() {
+            if (totalRecords <= 0) {
+                return 0;
+            }
+            return (int) Math.min(100, processedRecords() * 100 / totalRecords);
+        }
+    }
+}
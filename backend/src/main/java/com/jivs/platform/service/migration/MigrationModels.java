@@ -1,5 +1,8 @@
 package com.jivs.platform.service.migration;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -142,6 +145,7 @@ public class MigrationModels {
     private List<ColumnInfo> columns;
     private List<String> primaryKeys;
     private List<String> foreignKeys;
+    private List<String> referencedBy;
     private int recordCount;
     private long sizeBytes;
 
@@ -154,6 +158,8 @@ public class MigrationModels {
     public void setPrimaryKeys(List<String> primaryKeys) { this.primaryKeys = primaryKeys; }
     public List<String> getForeignKeys() { return foreignKeys; }
     public void setForeignKeys(List<String> foreignKeys) { this.foreignKeys = foreignKeys; }
+    public List<String> getReferencedBy() { return referencedBy; }
+    public void setReferencedBy(List<String> referencedBy) { this.referencedBy = referencedBy; }
     public int getRecordCount() { return recordCount; }
     public void setRecordCount(int recordCount) { this.recordCount = recordCount; }
     public long getSizeBytes() { return sizeBytes; }
@@ -194,6 +200,7 @@ public class MigrationModels {
     private List<LoadTask> loadTasks;
     private List<com.jivs.platform.domain.migration.ValidationRule> validationRules;
     private Map<String, Object> executionParameters;
+    private List<PhaseEstimate> phaseEstimates;
     private int estimatedDuration;
 
     // Getters and setters
@@ -221,12 +228,43 @@ public class MigrationModels {
     public void setExecutionParameters(Map<String, Object> executionParameters) {
         this.executionParameters = executionParameters;
     }
+    public List<PhaseEstimate> getPhaseEstimates() { return phaseEstimates; }
+    public void setPhaseEstimates(List<PhaseEstimate> phaseEstimates) { this.phaseEstimates = phaseEstimates; }
     public int getEstimatedDuration() { return estimatedDuration; }
     public void setEstimatedDuration(int estimatedDuration) {
         this.estimatedDuration = estimatedDuration;
     }
     }
 
+    /**
+     * Planned work, concurrency and predicted duration of one phase
+     */
+    public static class PhaseEstimate {
+    private String phase;
+    private long records;
+    private int batches;
+    private int concurrency;
+    private double recordsPerSecond;
+    private long durationSeconds;
+    private int historySamples;
+
+    // Getters and setters
+    public String getPhase() { return phase; }
+    public void setPhase(String phase) { this.phase = phase; }
+    public long getRecords() { return records; }
+    public void setRecords(long records) { this.records = records; }
+    public int getBatches() { return batches; }
+    public void setBatches(int batches) { this.batches = batches; }
+    public int getConcurrency() { return concurrency; }
+    public void setConcurrency(int concurrency) { this.concurrency = concurrency; }
+    public double getRecordsPerSecond() { return recordsPerSecond; }
+    public void setRecordsPerSecond(double recordsPerSecond) { this.recordsPerSecond = recordsPerSecond; }
+    public long getDurationSeconds() { return durationSeconds; }
+    public void setDurationSeconds(long durationSeconds) { this.durationSeconds = durationSeconds; }
+    public int getHistorySamples() { return historySamples; }
+    public void setHistorySamples(int historySamples) { this.historySamples = historySamples; }
+    }
+
     /**
      * Extraction task
      */
@@ -367,6 +405,7 @@ public class MigrationModels {
     private boolean success;
     private String errorMessage;
     private int recordsTransformed;
+    private int recordsFailed;
     private long duration;
 
     public TransformationResult(String taskId, boolean success, String errorMessage) {
@@ -383,6 +422,8 @@ public class MigrationModels {
     public void setRecordsTransformed(int recordsTransformed) {
         this.recordsTransformed = recordsTransformed;
     }
+    public int getRecordsFailed() { return recordsFailed; }
+    public void setRecordsFailed(int recordsFailed) { this.recordsFailed = recordsFailed; }
     public long getDuration() { return duration; }
     public void setDuration(long duration) { this.duration = duration; }
     }
@@ -418,6 +459,8 @@ public class MigrationModels {
     private boolean referentialIntegrityPassed;
     private boolean businessRulesPassed;
     private List<String> issues = new ArrayList<>();
+    private List<TableReconciliation> reconciliations = new ArrayList<>();
+    private List<ReferentialCheck> referentialChecks = new ArrayList<>();
 
     public boolean isFullyVerified() {
         return recordCountMatch && dataIntegrityPassed &&
@@ -443,6 +486,102 @@ public class MigrationModels {
     }
     public List<String> getIssues() { return issues; }
     public void setIssues(List<String> issues) { this.issues = issues; }
+    public List<TableReconciliation> getReconciliations() { return reconciliations; }
+    public void setReconciliations(List<TableReconciliation> reconciliations) {
+        this.reconciliations = reconciliations;
+    }
+    public List<ReferentialCheck> getReferentialChecks() { return referentialChecks; }
+    public void setReferentialChecks(List<ReferentialCheck> referentialChecks) {
+        this.referentialChecks = referentialChecks;
+    }
+    }
+
+    /**
+     * Checksum reconciliation outcome for one source/target table pair
+     */
+    public static class TableReconciliation {
+    private String sourceTable;
+    private String targetTable;
+    private String keyColumn;
+    private String hashMode;
+    private long sourceRows;
+    private long targetRows;
+    private int chunksCompared;
+    private int mismatchedChunks;
+    private long missingInTarget;
+    private long extraInTarget;
+    private long changedRows;
+    private List<String> sampleMissingKeys = new ArrayList<>();
+    private List<String> sampleExtraKeys = new ArrayList<>();
+    private List<String> sampleChangedKeys = new ArrayList<>();
+    private boolean matched;
+    private long durationMillis;
+    private String errorMessage;
+
+    // Getters and setters
+    public String getSourceTable() { return sourceTable; }
+    public void setSourceTable(String sourceTable) { this.sourceTable = sourceTable; }
+    public String getTargetTable() { return targetTable; }
+    public void setTargetTable(String targetTable) { this.targetTable = targetTable; }
+    public String getKeyColumn() { return keyColumn; }
+    public void setKeyColumn(String keyColumn) { this.keyColumn = keyColumn; }
+    public String getHashMode() { return hashMode; }
+    public void setHashMode(String hashMode) { this.hashMode = hashMode; }
+    public long getSourceRows() { return sourceRows; }
+    public void setSourceRows(long sourceRows) { this.sourceRows = sourceRows; }
+    public long getTargetRows() { return targetRows; }
+    public void setTargetRows(long targetRows) { this.targetRows = targetRows; }
+    public int getChunksCompared() { return chunksCompared; }
+    public void setChunksCompared(int chunksCompared) { this.chunksCompared = chunksCompared; }
+    public int getMismatchedChunks() { return mismatchedChunks; }
+    public void setMismatchedChunks(int mismatchedChunks) { this.mismatchedChunks = mismatchedChunks; }
+    public long getMissingInTarget() { return missingInTarget; }
+    public void setMissingInTarget(long missingInTarget) { this.missingInTarget = missingInTarget; }
+    public long getExtraInTarget() { return extraInTarget; }
+    public void setExtraInTarget(long extraInTarget) { this.extraInTarget = extraInTarget; }
+    public long getChangedRows() { return changedRows; }
+    public void setChangedRows(long changedRows) { this.changedRows = changedRows; }
+    public List<String> getSampleMissingKeys() { return sampleMissingKeys; }
+    public void setSampleMissingKeys(List<String> sampleMissingKeys) { this.sampleMissingKeys = sampleMissingKeys; }
+    public List<String> getSampleExtraKeys() { return sampleExtraKeys; }
+    public void setSampleExtraKeys(List<String> sampleExtraKeys) { this.sampleExtraKeys = sampleExtraKeys; }
+    public List<String> getSampleChangedKeys() { return sampleChangedKeys; }
+    public void setSampleChangedKeys(List<String> sampleChangedKeys) { this.sampleChangedKeys = sampleChangedKeys; }
+    public boolean isMatched() { return matched; }
+    public void setMatched(boolean matched) { this.matched = matched; }
+    public long getDurationMillis() { return durationMillis; }
+    public void setDurationMillis(long durationMillis) { this.durationMillis = durationMillis; }
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+    }
+
+    /**
+     * Orphaned-row check for one foreign key of a target table
+     */
+    public static class ReferentialCheck {
+    private String constraintName;
+    private String childTable;
+    private List<String> childColumns;
+    private String parentTable;
+    private List<String> parentColumns;
+    private long orphanedRows;
+    private boolean passed;
+
+    // Getters and setters
+    public String getConstraintName() { return constraintName; }
+    public void setConstraintName(String constraintName) { this.constraintName = constraintName; }
+    public String getChildTable() { return childTable; }
+    public void setChildTable(String childTable) { this.childTable = childTable; }
+    public List<String> getChildColumns() { return childColumns; }
+    public void setChildColumns(List<String> childColumns) { this.childColumns = childColumns; }
+    public String getParentTable() { return parentTable; }
+    public void setParentTable(String parentTable) { this.parentTable = parentTable; }
+    public List<String> getParentColumns() { return parentColumns; }
+    public void setParentColumns(List<String> parentColumns) { this.parentColumns = parentColumns; }
+    public long getOrphanedRows() { return orphanedRows; }
+    public void setOrphanedRows(long orphanedRows) { this.orphanedRows = orphanedRows; }
+    public boolean isPassed() { return passed; }
+    public void setPassed(boolean passed) { this.passed = passed; }
     }
 
     /**
@@ -468,6 +607,512 @@ public class MigrationModels {
     public void setState(Map<String, Object> state) { this.state = state; }
     }
 
+    /**
+     * Durable execution checkpoint persisted with the migration.
+     * Records which phases are finished and, per phase, which batches have committed.
+     */
+    public static class MigrationCheckpoint {
+    private String currentPhase;
+    private List<String> completedPhases = new ArrayList<>();
+    private Map<String, PhaseCheckpoint> phases = new HashMap<>();
+    private Map<String, StagedTable> stagedTables = new LinkedHashMap<>();
+    private Map<String, DeferredIndexes> deferredIndexes = new LinkedHashMap<>();
+    /** Read from older checkpoints only; chunk progress now has rows of its own */
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private Map<String, LoadedChunks> loadedChunks = new LinkedHashMap<>();
+    private long updatedAtMillis;
+
+    public boolean isPhaseCompleted(String phase) {
+        return completedPhases.contains(phase);
+    }
+
+    public void markPhaseCompleted(String phase) {
+        if (!completedPhases.contains(phase)) {
+            completedPhases.add(phase);
+        }
+    }
+
+    public PhaseCheckpoint phase(String phase) {
+        return phases.computeIfAbsent(phase, p -> new PhaseCheckpoint());
+    }
+
+    // Getters and setters
+    public String getCurrentPhase() { return currentPhase; }
+    public void setCurrentPhase(String currentPhase) { this.currentPhase = currentPhase; }
+    public List<String> getCompletedPhases() { return completedPhases; }
+    public void setCompletedPhases(List<String> completedPhases) { this.completedPhases = completedPhases; }
+    public Map<String, PhaseCheckpoint> getPhases() { return phases; }
+    public void setPhases(Map<String, PhaseCheckpoint> phases) { this.phases = phases; }
+    public Map<String, StagedTable> getStagedTables() { return stagedTables; }
+    public void setStagedTables(Map<String, StagedTable> stagedTables) { this.stagedTables = stagedTables; }
+    public Map<String, DeferredIndexes> getDeferredIndexes() { return deferredIndexes; }
+    public void setDeferredIndexes(Map<String, DeferredIndexes> deferredIndexes) { this.deferredIndexes = deferredIndexes; }
+    public Map<String, LoadedChunks> getLoadedChunks() { return loadedChunks; }
+    public void setLoadedChunks(Map<String, LoadedChunks> loadedChunks) { this.loadedChunks = loadedChunks; }
+    public long getUpdatedAtMillis() { return updatedAtMillis; }
+    public void setUpdatedAtMillis(long updatedAtMillis) { this.updatedAtMillis = updatedAtMillis; }
+    }
+
+    /**
+     * Per-phase checkpoint: the last contiguously committed batch and its watermark, plus the
+     * batches committed past it. Batches are known by their index in the phase's task list,
+     * so the checkpoint stays small however many of them commit.
+     */
+    @JsonIgnoreProperties({"committedTaskIds"})
+    public static class PhaseCheckpoint {
+    private SortedSet<Integer> pendingBatches = new TreeSet<>();
+    private int lastCommittedBatch = -1;
+    private String watermark;
+    private long recordsCommitted;
+    // Records the committed batches failed on; a resumed run counts its failures from here
+    private long failedRecordsCommitted;
+    private long runStartedAtMillis;
+    private long runStartRecords;
+    private int runStartBatches;
+
+    /**
+     * Remember where the current run started, so its observed rate excludes earlier runs
+     */
+    public void startRun(long nowMillis) {
+        runStartedAtMillis = nowMillis;
+        runStartRecords = recordsCommitted;
+        runStartBatches = committedBatchCount();
+    }
+
+    public boolean isBatchCommitted(int batchIndex) {
+        return batchIndex <= lastCommittedBatch || pendingBatches.contains(batchIndex);
+    }
+
+    public int committedBatchCount() {
+        return lastCommittedBatch + 1 + pendingBatches.size();
+    }
+
+    /**
+     * Record a committed batch; batches may commit out of order, so the
+     * watermark only advances across a contiguous prefix of batch indexes
+     */
+    public void commitBatch(int batchIndex, String batchWatermark, long records) {
+        commitBatch(batchIndex, batchWatermark, records, 0);
+    }
+
+    public void commitBatch(int batchIndex, String batchWatermark, long records, long failedRecords) {
+        if (isBatchCommitted(batchIndex)) {
+            return;
+        }
+        recordsCommitted += records;
+        failedRecordsCommitted += failedRecords;
+        pendingBatches.add(batchIndex);
+        while (pendingBatches.remove(lastCommittedBatch + 1)) {
+            lastCommittedBatch++;
+            if (lastCommittedBatch == batchIndex && batchWatermark != null) {
+                watermark = batchWatermark;
+            }
+        }
+    }
+
+    /**
+     * Batches committed past the contiguous prefix, as [first, last] ranges, so the batches
+     * committed behind a failed one do not grow the checkpoint one by one
+     */
+    @JsonProperty("pendingBatches")
+    public List<int[]> getPendingRanges() {
+        List<int[]> ranges = new ArrayList<>();
+        for (int batch : pendingBatches) {
+            int[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && last[1] == batch - 1) {
+                last[1] = batch;
+            } else {
+                ranges.add(new int[]{batch, batch});
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Older checkpoints list each batch index rather than ranges
+     */
+    @JsonProperty("pendingBatches")
+    public void setPendingRanges(List<Object> ranges) {
+        pendingBatches = new TreeSet<>();
+        for (Object range : ranges) {
+            if (range instanceof List<?> bounds) {
+                int last = ((Number) bounds.get(1)).intValue();
+                for (int batch = ((Number) bounds.get(0)).intValue(); batch <= last; batch++) {
+                    pendingBatches.add(batch);
+                }
+            } else {
+                pendingBatches.add(((Number) range).intValue());
+            }
+        }
+    }
+
+    // Getters and setters
+    public int getLastCommittedBatch() { return lastCommittedBatch; }
+    public void setLastCommittedBatch(int lastCommittedBatch) { this.lastCommittedBatch = lastCommittedBatch; }
+    public String getWatermark() { return watermark; }
+    public void setWatermark(String watermark) { this.watermark = watermark; }
+    public long getRecordsCommitted() { return recordsCommitted; }
+    public void setRecordsCommitted(long recordsCommitted) { this.recordsCommitted = recordsCommitted; }
+    public long getFailedRecordsCommitted() { return failedRecordsCommitted; }
+    public void setFailedRecordsCommitted(long failedRecordsCommitted) { this.failedRecordsCommitted = failedRecordsCommitted; }
+    public long getRunStartedAtMillis() { return runStartedAtMillis; }
+    public void setRunStartedAtMillis(long runStartedAtMillis) { this.runStartedAtMillis = runStartedAtMillis; }
+    public long getRunStartRecords() { return runStartRecords; }
+    public void setRunStartRecords(long runStartRecords) { this.runStartRecords = runStartRecords; }
+    public int getRunStartBatches() { return runStartBatches; }
+    public void setRunStartBatches(int runStartBatches) { this.runStartBatches = runStartBatches; }
+    }
+
+    /**
+     * Chunks of a load batch that committed before the batch failed, so its retry resumes after them
+     */
+    public static class LoadedChunks {
+    /** Records covered by the committed chunks, a prefix of the batch */
+    private int offset;
+    private int loaded;
+    /** Records of the prefix the target rejected, by index, with the reason */
+    private Map<Integer, String> rejected = new LinkedHashMap<>();
+    /** Partitions a parallel load split the batch into, so its retry splits it the same way */
+    private int partitions;
+
+    // Getters and setters
+    public int getOffset() { return offset; }
+    public void setOffset(int offset) { this.offset = offset; }
+    public int getLoaded() { return loaded; }
+    public void setLoaded(int loaded) { this.loaded = loaded; }
+    public Map<Integer, String> getRejected() { return rejected; }
+    public void setRejected(Map<Integer, String> rejected) { this.rejected = rejected; }
+    public int getPartitions() { return partitions; }
+    public void setPartitions(int partitions) { this.partitions = partitions; }
+    }
+
+    /**
+     * Live table loaded through a staging table, and how far its cutover got
+     */
+    public static class StagedTable {
+    public static final String STAGING = "STAGING";
+    public static final String COPIED = "COPIED";
+    public static final String SWAPPED = "SWAPPED";
+    public static final String ROLLED_BACK = "ROLLED_BACK";
+    public static final String COMPLETED = "COMPLETED";
+
+    private String targetSystem;
+    private String liveTable;
+    private String stagingTable;
+    private String backupTable;
+    private String state;
+
+    // Getters and setters
+    public String getTargetSystem() { return targetSystem; }
+    public void setTargetSystem(String targetSystem) { this.targetSystem = targetSystem; }
+    public String getLiveTable() { return liveTable; }
+    public void setLiveTable(String liveTable) { this.liveTable = liveTable; }
+    public String getStagingTable() { return stagingTable; }
+    public void setStagingTable(String stagingTable) { this.stagingTable = stagingTable; }
+    public String getBackupTable() { return backupTable; }
+    public void setBackupTable(String backupTable) { this.backupTable = backupTable; }
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+    }
+
+    /**
+     * Rehearsal of a migration into an isolated schema of its target: what each phase cost,
+     * where the time went, what failed, and how the live tables would change.
+     * Times are epoch millis, as the report is stored as JSON on the migration.
+     */
+    public static class ShadowReport {
+    public static final String REQUESTED = "REQUESTED";
+    public static final String RUNNING = "RUNNING";
+    public static final String REPORTED = "REPORTED";
+
+    private String shadowSchema;
+    private boolean keepTables;
+    private String state;
+    private String outcome;
+    private String errorMessage;
+    private long startedAtMillis;
+    private long completedAtMillis;
+    private long totalRecords;
+    private List<ShadowPhaseStats> phases = new ArrayList<>();
+    private String bottleneckPhase;
+    private double bottleneckShare;
+    private List<ShadowTableDiff> tables = new ArrayList<>();
+    private List<PhaseEstimate> plannedPhases = new ArrayList<>();
+    private List<PhaseEstimate> recommendedPhases = new ArrayList<>();
+
+    /** Whether the next execution of the migration is (still) the rehearsal */
+    public boolean inProgress() {
+        return REQUESTED.equals(state) || RUNNING.equals(state);
+    }
+
+    public ShadowPhaseStats phase(String phase) {
+        for (ShadowPhaseStats stats : phases) {
+            if (stats.getPhase().equals(phase)) {
+                return stats;
+            }
+        }
+        ShadowPhaseStats stats = new ShadowPhaseStats();
+        stats.setPhase(phase);
+        phases.add(stats);
+        return stats;
+    }
+
+    // Getters and setters
+    public String getShadowSchema() { return shadowSchema; }
+    public void setShadowSchema(String shadowSchema) { this.shadowSchema = shadowSchema; }
+    public boolean isKeepTables() { return keepTables; }
+    public void setKeepTables(boolean keepTables) { this.keepTables = keepTables; }
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+    public String getOutcome() { return outcome; }
+    public void setOutcome(String outcome) { this.outcome = outcome; }
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+    public long getStartedAtMillis() { return startedAtMillis; }
+    public void setStartedAtMillis(long startedAtMillis) { this.startedAtMillis = startedAtMillis; }
+    public long getCompletedAtMillis() { return completedAtMillis; }
+    public void setCompletedAtMillis(long completedAtMillis) { this.completedAtMillis = completedAtMillis; }
+    public long getTotalRecords() { return totalRecords; }
+    public void setTotalRecords(long totalRecords) { this.totalRecords = totalRecords; }
+    public List<ShadowPhaseStats> getPhases() { return phases; }
+    public void setPhases(List<ShadowPhaseStats> phases) { this.phases = phases; }
+    public String getBottleneckPhase() { return bottleneckPhase; }
+    public void setBottleneckPhase(String bottleneckPhase) { this.bottleneckPhase = bottleneckPhase; }
+    public double getBottleneckShare() { return bottleneckShare; }
+    public void setBottleneckShare(double bottleneckShare) { this.bottleneckShare = bottleneckShare; }
+    public List<ShadowTableDiff> getTables() { return tables; }
+    public void setTables(List<ShadowTableDiff> tables) { this.tables = tables; }
+    public List<PhaseEstimate> getPlannedPhases() { return plannedPhases; }
+    public void setPlannedPhases(List<PhaseEstimate> plannedPhases) { this.plannedPhases = plannedPhases; }
+    public List<PhaseEstimate> getRecommendedPhases() { return recommendedPhases; }
+    public void setRecommendedPhases(List<PhaseEstimate> recommendedPhases) { this.recommendedPhases = recommendedPhases; }
+    }
+
+    /**
+     * Observed cost of one phase of a shadow run
+     */
+    public static class ShadowPhaseStats {
+    private String phase;
+    private long durationMs;
+    private long records;
+    private int batches;
+    private int failedBatches;
+    private int concurrency;
+    private double recordsPerSecond;
+    private double shareOfRuntime;
+    private List<String> errorSamples = new ArrayList<>();
+
+    // Getters and setters
+    public String getPhase() { return phase; }
+    public void setPhase(String phase) { this.phase = phase; }
+    public long getDurationMs() { return durationMs; }
+    public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
+    public long getRecords() { return records; }
+    public void setRecords(long records) { this.records = records; }
+    public int getBatches() { return batches; }
+    public void setBatches(int batches) { this.batches = batches; }
+    public int getFailedBatches() { return failedBatches; }
+    public void setFailedBatches(int failedBatches) { this.failedBatches = failedBatches; }
+    public int getConcurrency() { return concurrency; }
+    public void setConcurrency(int concurrency) { this.concurrency = concurrency; }
+    public double getRecordsPerSecond() { return recordsPerSecond; }
+    public void setRecordsPerSecond(double recordsPerSecond) { this.recordsPerSecond = recordsPerSecond; }
+    public double getShareOfRuntime() { return shareOfRuntime; }
+    public void setShareOfRuntime(double shareOfRuntime) { this.shareOfRuntime = shareOfRuntime; }
+    public List<String> getErrorSamples() { return errorSamples; }
+    public void setErrorSamples(List<String> errorSamples) { this.errorSamples = errorSamples; }
+    }
+
+    /**
+     * How a live target table would change if the rehearsed migration ran for real
+     */
+    public static class ShadowTableDiff {
+    private String liveTable;
+    private String shadowTable;
+    private long shadowRows;
+    private long liveRows;
+    private long rowsToInsert;
+    private long rowsToUpdate;
+    private long liveOnlyRows;
+    private List<String> sampleInsertKeys = new ArrayList<>();
+    private List<String> sampleUpdateKeys = new ArrayList<>();
+    private Boolean sourceMatched;
+    private long deadLetteredRecords;
+    private String topRejectReason;
+    private int tunedBatchSize;
+    private int tunedConcurrency;
+    private String errorMessage;
+
+    // Getters and setters
+    public String getLiveTable() { return liveTable; }
+    public void setLiveTable(String liveTable) { this.liveTable = liveTable; }
+    public String getShadowTable() { return shadowTable; }
+    public void setShadowTable(String shadowTable) { this.shadowTable = shadowTable; }
+    public long getShadowRows() { return shadowRows; }
+    public void setShadowRows(long shadowRows) { this.shadowRows = shadowRows; }
+    public long getLiveRows() { return liveRows; }
+    public void setLiveRows(long liveRows) { this.liveRows = liveRows; }
+    public long getRowsToInsert() { return rowsToInsert; }
+    public void setRowsToInsert(long rowsToInsert) { this.rowsToInsert = rowsToInsert; }
+    public long getRowsToUpdate() { return rowsToUpdate; }
+    public void setRowsToUpdate(long rowsToUpdate) { this.rowsToUpdate = rowsToUpdate; }
+    public long getLiveOnlyRows() { return liveOnlyRows; }
+    public void setLiveOnlyRows(long liveOnlyRows) { this.liveOnlyRows = liveOnlyRows; }
+    public List<String> getSampleInsertKeys() { return sampleInsertKeys; }
+    public void setSampleInsertKeys(List<String> sampleInsertKeys) { this.sampleInsertKeys = sampleInsertKeys; }
+    public List<String> getSampleUpdateKeys() { return sampleUpdateKeys; }
+    public void setSampleUpdateKeys(List<String> sampleUpdateKeys) { this.sampleUpdateKeys = sampleUpdateKeys; }
+    public Boolean getSourceMatched() { return sourceMatched; }
+    public void setSourceMatched(Boolean sourceMatched) { this.sourceMatched = sourceMatched; }
+    public long getDeadLetteredRecords() { return deadLetteredRecords; }
+    public void setDeadLetteredRecords(long deadLetteredRecords) { this.deadLetteredRecords = deadLetteredRecords; }
+    public String getTopRejectReason() { return topRejectReason; }
+    public void setTopRejectReason(String topRejectReason) { this.topRejectReason = topRejectReason; }
+    public int getTunedBatchSize() { return tunedBatchSize; }
+    public void setTunedBatchSize(int tunedBatchSize) { this.tunedBatchSize = tunedBatchSize; }
+    public int getTunedConcurrency() { return tunedConcurrency; }
+    public void setTunedConcurrency(int tunedConcurrency) { this.tunedConcurrency = tunedConcurrency; }
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+    }
+
+    /**
+     * Outcome of replaying a migration's dead-lettered records
+     */
+    public static class DeadLetterReplayResult {
+    private int segments;
+    private long replayedRecords;
+    private long duplicateRecords;
+    private long rejectedRecords;
+    private List<String> errors = new ArrayList<>();
+
+    // Getters and setters
+    public int getSegments() { return segments; }
+    public void setSegments(int segments) { this.segments = segments; }
+    public long getReplayedRecords() { return replayedRecords; }
+    public void setReplayedRecords(long replayedRecords) { this.replayedRecords = replayedRecords; }
+    public long getDuplicateRecords() { return duplicateRecords; }
+    public void setDuplicateRecords(long duplicateRecords) { this.duplicateRecords = duplicateRecords; }
+    public long getRejectedRecords() { return rejectedRecords; }
+    public void setRejectedRecords(long rejectedRecords) { this.rejectedRecords = rejectedRecords; }
+    public List<String> getErrors() { return errors; }
+    public void setErrors(List<String> errors) { this.errors = errors; }
+    }
+
+    /**
+     * Secondary indexes and foreign keys of a target table set aside for a bulk load.
+     * The definitions are snapshotted before anything is dropped, so they can always be restored.
+     */
+    public static class DeferredIndexes {
+    public static final String DEFERRING = "DEFERRING";
+    public static final String DEFERRED = "DEFERRED";
+    public static final String REBUILT = "REBUILT";
+    public static final String RESTORED = "RESTORED";
+    public static final String FAILED = "FAILED";
+
+    private String targetSystem;
+    private String table;
+    private List<IndexDefinition> definitions = new ArrayList<>();
+    private String state;
+
+    public long rebuiltCount() {
+        return definitions.stream().filter(IndexDefinition::isRebuilt).count();
+    }
+
+    // Getters and setters
+    public String getTargetSystem() { return targetSystem; }
+    public void setTargetSystem(String targetSystem) { this.targetSystem = targetSystem; }
+    public String getTable() { return table; }
+    public void setTable(String table) { this.table = table; }
+    public List<IndexDefinition> getDefinitions() { return definitions; }
+    public void setDefinitions(List<IndexDefinition> definitions) { this.definitions = definitions; }
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+    }
+
+    /**
+     * One deferred index or foreign key with the DDL that sets it aside and brings it back
+     */
+    public static class IndexDefinition {
+    public static final String INDEX = "INDEX";
+    public static final String FOREIGN_KEY = "FOREIGN_KEY";
+
+    private String name;
+    private String type;
+    private String deferSql;
+    private String restoreSql;
+    private volatile boolean rebuilt;
+    private String errorMessage;
+
+    // Getters and setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    public String getDeferSql() { return deferSql; }
+    public void setDeferSql(String deferSql) { this.deferSql = deferSql; }
+    public String getRestoreSql() { return restoreSql; }
+    public void setRestoreSql(String restoreSql) { this.restoreSql = restoreSql; }
+    public boolean isRebuilt() { return rebuilt; }
+    public void setRebuilt(boolean rebuilt) { this.rebuilt = rebuilt; }
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+    }
+
+    /**
+     * Outcome of one extraction, transformation or load batch, whichever node ran it
+     */
+    public static class BatchOutcome {
+    private String taskId;
+    private boolean success;
+    private long records;
+    private long failedRecords;
+    private String errorMessage;
+
+    public BatchOutcome() {}
+
+    public BatchOutcome(String taskId, boolean success, long records, String errorMessage) {
+        this.taskId = taskId;
+        this.success = success;
+        this.records = records;
+        this.errorMessage = errorMessage;
+    }
+
+    public static BatchOutcome failed(String taskId, String errorMessage) {
+        return new BatchOutcome(taskId, false, 0, errorMessage);
+    }
+
+    // Getters and setters
+    public String getTaskId() { return taskId; }
+    public void setTaskId(String taskId) { this.taskId = taskId; }
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+    public long getRecords() { return records; }
+    public void setRecords(long records) { this.records = records; }
+    public long getFailedRecords() { return failedRecords; }
+    public void setFailedRecords(long failedRecords) { this.failedRecords = failedRecords; }
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+    }
+
+    /**
+     * Thrown by workers when a pause was requested; the migration stops at the last committed batch
+     */
+    public static class MigrationPausedException extends RuntimeException {
+        public MigrationPausedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Thrown when a migration is cancelled while it runs; in-flight subtasks are interrupted
+     */
+    public static class MigrationCancelledException extends RuntimeException {
+        public MigrationCancelledException(String message) {
+            super(message);
+        }
+    }
+
     /**
      * Validation exception
      */
@@ -4,6 +4,7 @@ import com.jivs.platform.domain.migration.Migration;
 import com.jivs.platform.domain.migration.MigrationStatus;
 import com.jivs.platform.domain.migration.MigrationPhase;
 import com.jivs.platform.domain.migration.MigrationMetrics;
+import com.jivs.platform.domain.transformation.TransformationRule;
 import com.jivs.platform.repository.MigrationRepository;
 import com.jivs.platform.service.extraction.ExtractionService;
 import com.jivs.platform.service.transformation.TransformationService;
@@ -13,14 +14,19 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 /**
  * Orchestrates the complete data migration lifecycle
@@ -38,9 +44,39 @@ public class MigrationOrchestrator {
     private final ValidationService validationService;
     private final LoadService loadService;
     private final StorageService storageService;
+    private final MigrationCheckpointService checkpointService;
+    private final ChecksumReconciliationService reconciliationService;
+    private final DistributedBatchQueue batchQueue;
+    private final MigrationTaskScopes taskScopes;
+    private final StagingTableManager stagingTableManager;
+    private final IndexDeferralManager indexDeferralManager;
+    private final MigrationPlanner migrationPlanner;
+    private final MigrationMetricsAccumulator metricsAccumulator;
+    private final DeadLetterStore deadLetterStore;
+    private final ShadowRunService shadowRunService;
+    private final MigrationBatchStore batchStore;
+    private final PlatformTransactionManager transactionManager;
     @org.springframework.beans.factory.annotation.Autowired(required = false)
     private RabbitTemplate rabbitTemplate;
-    private final ExecutorService executorService = Executors.newFixedThreadPool(10);
+    // Proxy to this bean so resume re-enters executeMigration through @Async/@Transactional
+    @org.springframework.beans.factory.annotation.Autowired
+    @org.springframework.context.annotation.Lazy
+    private MigrationOrchestrator self;
+    /**
+     * Let any replica run this node's batches when distributed execution is enabled
+     */
+    @jakarta.annotation.PostConstruct
+    void registerBatchHandlers() {
+        batchQueue.registerHandler(MigrationPhase.EXTRACTION, MigrationModels.ExtractionTask.class,
+            (migrationId, task) -> runExtractionBatch(task, findMigration(migrationId)));
+        batchQueue.registerHandler(MigrationPhase.TRANSFORMATION, MigrationModels.TransformationTask.class,
+            (migrationId, task) -> runTransformationBatch(task, findMigration(migrationId)));
+        batchQueue.registerHandler(MigrationPhase.LOADING, MigrationModels.LoadTask.class,
+            (migrationId, task) -> {
+                Migration migration = findMigration(migrationId);
+                return runLoadBatch(task, migration, determineLoadStrategy(migration, task));
+            });
+    }
 
     /**
      * Initiate a new migration
@@ -103,29 +139,43 @@ public class MigrationOrchestrator {
     }
 
     /**
-     * Execute migration workflow
+     * Execute migration workflow.
+     * Phases and batches already recorded in the migration's checkpoint are skipped,
+     * so a resumed migration continues from its last committed batch.
      */
     @Async
     @Transactional
     public CompletableFuture<Migration> executeMigration(Long migrationId) {
         log.info("Starting migration execution: {}", migrationId);
 
+        // Committed on its own, before the run's transaction loads the migration, so pause
+        // requests and dead-letter replays see the run while it is still going
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        requiresNew.executeWithoutResult(tx -> migrationRepository.updateStatus(migrationId, MigrationStatus.IN_PROGRESS));
+
         Migration migration = migrationRepository.findById(migrationId)
             .orElseThrow(() -> new IllegalArgumentException("Migration not found: " + migrationId));
 
         try {
             migration.setStatus(MigrationStatus.IN_PROGRESS);
-            migration.setStartTime(LocalDateTime.now());
+            if (migration.getStartTime() == null) {
+                migration.setStartTime(LocalDateTime.now());
+            }
+            shadowRunService.begin(migration);
             migrationRepository.save(migration);
 
-            // Execute migration phases
-            executePlanningPhase(migration);
-            executeExtractionPhase(migration);
-            executeTransformationPhase(migration);
-            executeValidationPhase(migration);
-            executeLoadingPhase(migration);
-            executeVerificationPhase(migration);
-            executeCleanupPhase(migration);
+            checkpointService.begin(migration);
+            metricsAccumulator.begin(migration);
+
+            // Execute migration phases, skipping those completed in an earlier run
+            runPhase(migration, MigrationPhase.PLANNING, this::executePlanningPhase);
+            runPhase(migration, MigrationPhase.EXTRACTION, this::executeExtractionPhase);
+            runPhase(migration, MigrationPhase.TRANSFORMATION, this::executeTransformationPhase);
+            runPhase(migration, MigrationPhase.VALIDATION, this::executeValidationPhase);
+            runPhase(migration, MigrationPhase.LOADING, this::executeLoadingPhase);
+            runPhase(migration, MigrationPhase.VERIFICATION, this::executeVerificationPhase);
+            runPhase(migration, MigrationPhase.CLEANUP, this::executeCleanupPhase);
 
             migration.setStatus(MigrationStatus.COMPLETED);
             migration.setPhase(MigrationPhase.COMPLETED);
@@ -133,6 +183,22 @@ public class MigrationOrchestrator {
 
             log.info("Migration {} completed successfully", migrationId);
 
+        } catch (MigrationModels.MigrationCancelledException e) {
+            // cancelMigration already recorded the cancellation and ran any rollback
+            migration.setStatus(MigrationStatus.CANCELLED);
+            if (migration.getCancelledTime() == null) {
+                migration.setCancelledTime(LocalDateTime.now());
+            }
+            log.info("Migration {} stopped after cancellation during {} phase", migrationId, migration.getPhase());
+
+        } catch (MigrationModels.MigrationPausedException e) {
+            // Workers stopped between batches; checkpoint already holds every committed batch
+            migration.setStatus(MigrationStatus.PAUSED);
+            if (migration.getPausedTime() == null) {
+                migration.setPausedTime(LocalDateTime.now());
+            }
+            log.info("Migration {} paused during {} phase", migrationId, migration.getPhase());
+
         } catch (Exception e) {
             log.error("Migration {} failed", migrationId, e);
             migration.setStatus(MigrationStatus.FAILED);
@@ -143,12 +209,186 @@ public class MigrationOrchestrator {
             if (migration.isRollbackEnabled()) {
                 executeRollback(migration);
             }
+        } finally {
+            checkpointService.end(migrationId);
+            metricsAccumulator.end(migration);
+            transformationService.releaseJob(transformationJobId(migrationId));
+        }
+
+        try {
+            shadowRunService.finish(migration);
+        } catch (Exception e) {
+            // The outcome of the rehearsal itself is still saved below
+            log.error("Failed to report shadow run of migration {}", migrationId, e);
         }
 
         Migration savedMigration = migrationRepository.save(migration);
         return CompletableFuture.completedFuture(savedMigration);
     }
 
+    /**
+     * Run a phase unless the checkpoint shows it already completed, then record completion
+     */
+    private void runPhase(Migration migration, MigrationPhase phase, java.util.function.Consumer<Migration> body) {
+        if (checkpointService.isPhaseCompleted(migration, phase)) {
+            log.info("Skipping {} phase for migration {}: completed in a previous run", phase, migration.getId());
+            return;
+        }
+
+        checkpointService.checkPause(migration.getId());
+        checkpointService.startPhase(migration, phase);
+        metricsAccumulator.enterPhase(migration.getId(), phase);
+        shadowRunService.phaseStarted(migration, phase);
+        try {
+            body.accept(migration);
+        } finally {
+            shadowRunService.phaseEnded(migration, phase);
+        }
+        checkpointService.completePhase(migration, phase);
+    }
+
+    /**
+     * Run the batches of a phase concurrently with per-batch checkpoints.
+     *
+     * Batches committed in an earlier run are skipped, each worker checks for a pause
+     * request before starting its batch, and every successful batch is durably recorded.
+     * If a pause was requested the phase stops once in-flight batches have finished.
+     * Locally every batch runs on its own virtual thread within the phase's scope, with a
+     * per-batch deadline and at most the planned concurrency at once; cancelling the
+     * migration interrupts batches still running. Local runs feed the planner's throughput
+     * history.
+     * With distributed execution enabled the batches run on any replica; this node
+     * still records every checkpoint.
+     */
+    private <T> List<MigrationModels.BatchOutcome> runCheckpointedBatches(
+            Migration migration,
+            MigrationPhase phase,
+            List<T> tasks,
+            Function<T, String> taskId,
+            Function<T, String> watermark,
+            Function<T, MigrationModels.BatchOutcome> work) {
+
+        List<T> batches = tasks != null ? tasks : Collections.emptyList();
+        Map<String, T> pending = new LinkedHashMap<>();
+        Map<String, Integer> batchIndexes = new HashMap<>();
+
+        for (int i = 0; i < batches.size(); i++) {
+            T task = batches.get(i);
+            String id = taskId.apply(task);
+            if (!checkpointService.isBatchCommitted(migration, phase, i)) {
+                pending.put(id, task);
+                batchIndexes.put(id, i);
+            }
+        }
+
+        java.util.function.Consumer<MigrationModels.BatchOutcome> commit = outcome -> {
+            T task = pending.get(outcome.getTaskId());
+            if (outcome.isSuccess() && task != null) {
+                checkpointService.commitBatch(migration, phase, batchIndexes.get(outcome.getTaskId()),
+                    outcome.getTaskId(), watermark.apply(task), outcome.getRecords(), outcome.getFailedRecords());
+            }
+            metricsAccumulator.recordBatch(migration.getId(), phase, outcome.getTaskId(),
+                outcome.isSuccess() ? outcome.getRecords() : 0, outcome.getFailedRecords());
+        };
+
+        List<MigrationModels.BatchOutcome> results;
+        if (batchQueue.isEnabled()) {
+            results = batchQueue.execute(migration.getId(), phase, pending, commit);
+        } else {
+            results = new ArrayList<>();
+            // The planner sizes each phase's concurrency from observed throughput
+            int concurrency = migrationPlanner.concurrencyFor(migration, migration.getPlan(), phase);
+            Semaphore slots = new Semaphore(concurrency);
+            long started = System.currentTimeMillis();
+            try (MigrationTaskScopes.PhaseScope scope = taskScopes.open(migration.getId(), phase.name())) {
+                Map<String, MigrationTaskScopes.Subtask<MigrationModels.BatchOutcome>> subtasks = new LinkedHashMap<>();
+                Map<String, RuntimeException> commitFailures = new ConcurrentHashMap<>();
+                for (Map.Entry<String, T> entry : pending.entrySet()) {
+                    if (!awaitSlot(migration, phase, slots)) {
+                        break;
+                    }
+                    String id = entry.getKey();
+                    T task = entry.getValue();
+                    MigrationTaskScopes.Subtask<MigrationModels.BatchOutcome> subtask = scope.fork(() ->
+                        checkpointService.isPauseRequested(migration.getId()) ? null : work.apply(task));
+                    // Also runs for a batch cancelled before it started. A batch that timed out or
+                    // was cancelled while running is never committed, even if its work finished.
+                    subtask.whenDone(() -> {
+                        try {
+                            if (subtask.state() == MigrationTaskScopes.Subtask.State.SUCCESS && subtask.get() != null) {
+                                commit.accept(subtask.get());
+                            }
+                        } catch (RuntimeException e) {
+                            commitFailures.put(id, e);
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                    subtasks.put(id, subtask);
+                }
+
+                scope.join();
+
+                subtasks.forEach((id, subtask) -> {
+                    switch (subtask.state()) {
+                        case SUCCESS:
+                            if (commitFailures.containsKey(id)) {
+                                log.error("{} batch {} of migration {} could not be committed",
+                                    phase, id, migration.getId(), commitFailures.get(id));
+                                results.add(MigrationModels.BatchOutcome.failed(id, commitFailures.get(id).getMessage()));
+                            } else if (subtask.get() != null) {
+                                results.add(subtask.get());
+                            }
+                            break;
+                        case TIMED_OUT:
+                            log.error("{} batch {} of migration {} exceeded its deadline of {} ms",
+                                phase, id, migration.getId(), taskScopes.getTaskTimeoutMillis());
+                            results.add(MigrationModels.BatchOutcome.failed(id, "Batch exceeded its deadline"));
+                            break;
+                        case FAILED:
+                            log.error("{} batch {} of migration {} failed", phase, id, migration.getId(), subtask.exception());
+                            results.add(MigrationModels.BatchOutcome.failed(id, subtask.exception().getMessage()));
+                            break;
+                        default:
+                            break;
+                    }
+                });
+            }
+
+            List<MigrationModels.BatchOutcome> succeeded = results.stream()
+                .filter(MigrationModels.BatchOutcome::isSuccess)
+                .toList();
+            migrationPlanner.recordThroughput(migration, phase,
+                succeeded.stream().mapToLong(MigrationModels.BatchOutcome::getRecords).sum(),
+                succeeded.size(), System.currentTimeMillis() - started, concurrency);
+        }
+        shadowRunService.recordBatches(migration, phase, results, batchQueue.isEnabled() ? 0
+            : migrationPlanner.concurrencyFor(migration, migration.getPlan(), phase));
+
+        checkpointService.checkPause(migration.getId());
+        return results;
+    }
+
+    /**
+     * Wait for a free batch slot of the phase
+     *
+     * @return false if a pause or cancel was requested meanwhile, so no further batches start
+     */
+    private boolean awaitSlot(Migration migration, MigrationPhase phase, Semaphore slots) {
+        try {
+            while (!slots.tryAcquire(1, TimeUnit.SECONDS)) {
+                if (checkpointService.isPauseRequested(migration.getId())) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationModels.MigrationCancelledException(
+                "Migration " + migration.getId() + " interrupted while scheduling " + phase + " batches");
+        }
+    }
+
     /**
      * Planning phase - Analyze source and target systems
      */
@@ -161,18 +401,23 @@ public class MigrationOrchestrator {
         migration.setSourceAnalysis(sourceAnalysis);
 
         // Analyze target system
-        MigrationModels.TargetAnalysis targetAnalysis = analyzeTargetSystem(migration);
+        MigrationModels.TargetAnalysis targetAnalysis = analyzeTargetSystem(migration, sourceAnalysis);
         migration.setTargetAnalysis(targetAnalysis);
 
         // Generate migration plan
         MigrationModels.MigrationPlan plan = generateMigrationPlan(sourceAnalysis, targetAnalysis, migration);
+        // Extraction pages seek the source's primary key instead of skipping the rows before them
+        batchStore.assignKeyRanges(migration, plan.getExtractionTasks());
+        // A shadow run loads into copies of the target tables in an isolated schema
+        shadowRunService.redirect(migration, plan);
         migration.setPlan(plan);
 
         // Estimate resources and time
-        MigrationModels.ResourceEstimation estimation = estimateResources(plan);
+        MigrationModels.ResourceEstimation estimation = estimateResources(migration, sourceAnalysis, plan);
         migration.setResourceEstimation(estimation);
 
         migration.getMetrics().setTotalRecords(sourceAnalysis.getTotalRecords());
+        metricsAccumulator.setTotalRecords(migration.getId(), sourceAnalysis.getTotalRecords());
 
         log.info("Planning phase completed. Total records to migrate: {}",
             sourceAnalysis.getTotalRecords());
@@ -186,26 +431,16 @@ public class MigrationOrchestrator {
         migration.setPhase(MigrationPhase.EXTRACTION);
 
         MigrationModels.MigrationPlan plan = migration.getPlan();
-        List<CompletableFuture<MigrationModels.ExtractionResult>> futures = new ArrayList<>();
 
         // Extract data in batches
-        for (MigrationModels.ExtractionTask task : plan.getExtractionTasks()) {
-            CompletableFuture<MigrationModels.ExtractionResult> future = CompletableFuture.supplyAsync(() -> {
-                try {
-                    return extractBatch(task, migration);
-                } catch (Exception e) {
-                    log.error("Extraction failed for task: {}", task.getId(), e);
-                    return new MigrationModels.ExtractionResult(task.getId(), false, e.getMessage());
-                }
-            }, executorService);
-
-            futures.add(future);
-        }
-
-        // Wait for all extractions to complete
-        List<MigrationModels.ExtractionResult> results = futures.stream()
-            .map(CompletableFuture::join)
-            .collect(Collectors.toList());
+        List<MigrationModels.BatchOutcome> results = runCheckpointedBatches(
+            migration,
+            MigrationPhase.EXTRACTION,
+            plan.getExtractionTasks(),
+            MigrationModels.ExtractionTask::getId,
+            task -> String.valueOf(task.getOffset() + task.getBatchSize()),
+            task -> runExtractionBatch(task, migration)
+        );
 
         // Update metrics
         updateExtractionMetrics(migration, results);
@@ -221,26 +456,14 @@ public class MigrationOrchestrator {
         log.info("Executing transformation phase for migration: {}", migration.getId());
         migration.setPhase(MigrationPhase.TRANSFORMATION);
 
-        List<MigrationModels.TransformationTask> tasks = migration.getPlan().getTransformationTasks();
-        List<CompletableFuture<MigrationModels.TransformationResult>> futures = new ArrayList<>();
-
-        for (MigrationModels.TransformationTask task : tasks) {
-            CompletableFuture<MigrationModels.TransformationResult> future = CompletableFuture.supplyAsync(() -> {
-                try {
-                    return transformBatch(task, migration);
-                } catch (Exception e) {
-                    log.error("Transformation failed for task: {}", task.getId(), e);
-                    return new MigrationModels.TransformationResult(task.getId(), false, e.getMessage());
-                }
-            }, executorService);
-
-            futures.add(future);
-        }
-
-        // Wait for all transformations
-        List<MigrationModels.TransformationResult> results = futures.stream()
-            .map(CompletableFuture::join)
-            .collect(Collectors.toList());
+        List<MigrationModels.BatchOutcome> results = runCheckpointedBatches(
+            migration,
+            MigrationPhase.TRANSFORMATION,
+            migration.getPlan().getTransformationTasks(),
+            MigrationModels.TransformationTask::getId,
+            MigrationModels.TransformationTask::getId,
+            task -> runTransformationBatch(task, migration)
+        );
 
         // Update metrics
         updateTransformationMetrics(migration, results);
@@ -283,32 +506,56 @@ public class MigrationOrchestrator {
         log.info("Executing loading phase for migration: {}", migration.getId());
         migration.setPhase(MigrationPhase.LOADING);
 
-        List<MigrationModels.LoadTask> tasks = migration.getPlan().getLoadTasks();
-        LoadService.LoadStrategy strategy = determineLoadStrategy(migration);
-
-        List<CompletableFuture<LoadService.LoadResult>> futures = new ArrayList<>();
-
-        for (MigrationModels.LoadTask task : tasks) {
-            CompletableFuture<LoadService.LoadResult> future = CompletableFuture.supplyAsync(() -> {
-                try {
-                    return loadBatch(task, migration, strategy);
-                } catch (Exception e) {
-                    log.error("Loading failed for task: {}", task.getId(), e);
-                    return new LoadService.LoadResult(task.getId(), false, e.getMessage());
-                }
-            }, executorService);
+        Set<String> stagedTables = new LinkedHashSet<>();
+        Set<String> directTables = new LinkedHashSet<>();
+        List<MigrationModels.LoadTask> loadTasks = migration.getPlan().getLoadTasks();
+        for (MigrationModels.LoadTask task : loadTasks != null ? loadTasks : List.<MigrationModels.LoadTask>of()) {
+            if (task.getTargetTable() != null) {
+                (determineLoadStrategy(migration, task) == LoadService.LoadStrategy.STAGED ? stagedTables : directTables)
+                    .add(task.getTargetTable());
+            }
+        }
 
-            futures.add(future);
+        boolean staged = !stagedTables.isEmpty();
+        if (staged) {
+            prepareStagingTables(migration, stagedTables);
+        }
+        // Staging tables are already index-free
+        boolean deferIndexes = !directTables.isEmpty() && indexDeferralManager.isEnabled(migration.getParameters());
+        if (deferIndexes) {
+            deferIndexes(migration, directTables);
         }
 
-        // Wait for all loads
-        List<LoadService.LoadResult> results = futures.stream()
-            .map(CompletableFuture::join)
-            .collect(Collectors.toList());
+        List<MigrationModels.BatchOutcome> results;
+        try {
+            results = runCheckpointedBatches(
+                migration,
+                MigrationPhase.LOADING,
+                migration.getPlan().getLoadTasks(),
+                MigrationModels.LoadTask::getId,
+                MigrationModels.LoadTask::getId,
+                task -> runLoadBatch(task, migration, determineLoadStrategy(migration, task))
+            );
+        } catch (MigrationModels.MigrationPausedException e) {
+            // The resumed run keeps loading without the deferred indexes
+            throw e;
+        } catch (RuntimeException e) {
+            if (deferIndexes) {
+                restoreDeferredIndexes(migration);
+            }
+            throw e;
+        }
 
         // Update metrics
         updateLoadMetrics(migration, results);
 
+        if (staged) {
+            cutOverStagingTables(migration);
+        }
+        if (deferIndexes) {
+            rebuildDeferredIndexes(migration);
+        }
+
         log.info("Loading phase completed. Loaded {} records",
             migration.getMetrics().getLoadedRecords());
     }
@@ -328,14 +575,17 @@ public class MigrationOrchestrator {
         // Perform various verification checks
         MigrationModels.VerificationResult result = new MigrationModels.VerificationResult();
 
+        // Chunked checksum reconciliation of every loaded table
+        reconcileTables(migration, result);
+
         // Record count verification
-        result.setRecordCountMatch(verifyRecordCounts(migration));
+        result.setRecordCountMatch(verifyRecordCounts(migration, result));
 
         // Data integrity verification
-        result.setDataIntegrityPassed(verifyDataIntegrity(migration));
+        result.setDataIntegrityPassed(verifyDataIntegrity(migration, result));
 
         // Referential integrity verification
-        result.setReferentialIntegrityPassed(verifyReferentialIntegrity(migration));
+        result.setReferentialIntegrityPassed(verifyReferentialIntegrity(migration, result));
 
         // Business rules verification
         result.setBusinessRulesPassed(verifyBusinessRules(migration));
@@ -404,6 +654,28 @@ public class MigrationOrchestrator {
         }
     }
 
+    /**
+     * Make the next execution of a migration a shadow run into an isolated schema of its
+     * target. The rehearsal plans from scratch; afterwards the migration is ready for the real run.
+     */
+    @Transactional
+    public Migration requestShadowRun(Long migrationId, String shadowSchema, boolean keepTables) {
+        Migration migration = migrationRepository.findById(migrationId)
+            .orElseThrow(() -> new IllegalArgumentException("Migration not found: " + migrationId));
+
+        if (migration.getStatus() == MigrationStatus.IN_PROGRESS || migration.getStatus() == MigrationStatus.PAUSED) {
+            throw new IllegalStateException("Migration " + migrationId + " is " + migration.getStatus()
+                + "; a shadow run must start before the real run");
+        }
+        shadowRunService.request(migration, shadowSchema, keepTables);
+        migration.setCheckpoint(null);
+        migration.setPlan(null);
+        migration.setPhase(MigrationPhase.PLANNING);
+        log.info("Shadow run requested for migration {}", migrationId);
+
+        return migrationRepository.save(migration);
+    }
+
     /**
      * Pause migration
      */
@@ -415,6 +687,8 @@ public class MigrationOrchestrator {
         if (migration.getStatus() == MigrationStatus.IN_PROGRESS) {
             migration.setStatus(MigrationStatus.PAUSED);
             migration.setPausedTime(LocalDateTime.now());
+            // Running workers stop after their current batch; progress is kept in the checkpoint
+            checkpointService.requestPause(migrationId);
             log.info("Migration {} paused", migrationId);
         }
 
@@ -434,8 +708,21 @@ public class MigrationOrchestrator {
             migration.setResumedTime(LocalDateTime.now());
             log.info("Migration {} resumed", migrationId);
 
-            // Continue from last checkpoint
-            executeMigration(migrationId);
+            Migration saved = migrationRepository.save(migration);
+
+            // Continue from last checkpoint once the resumed status is committed
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        self.executeMigration(migrationId);
+                    }
+                });
+            } else {
+                self.executeMigration(migrationId);
+            }
+
+            return saved;
         }
 
         return migrationRepository.save(migration);
@@ -452,6 +739,10 @@ public class MigrationOrchestrator {
         migration.setStatus(MigrationStatus.CANCELLED);
         migration.setCancelledTime(LocalDateTime.now());
 
+        // Stop the run: in-flight subtasks on this node are interrupted, other nodes see the status
+        checkpointService.requestCancel(migrationId);
+        taskScopes.cancel(migrationId);
+
         // Execute rollback if configured
         if (migration.isRollbackOnCancel()) {
             executeRollback(migration);
@@ -488,61 +779,344 @@ public class MigrationOrchestrator {
 
     // Helper methods
     private MigrationModels.SourceAnalysis analyzeSourceSystem(Migration migration) {
-        // Analyze source system structure and data
-        return new MigrationModels.SourceAnalysis(); // Simplified
+        return migrationPlanner.analyzeSource(migration);
     }
 
-    private MigrationModels.TargetAnalysis analyzeTargetSystem(Migration migration) {
-        // Analyze target system requirements
-        return new MigrationModels.TargetAnalysis(); // Simplified
+    private MigrationModels.TargetAnalysis analyzeTargetSystem(Migration migration, MigrationModels.SourceAnalysis source) {
+        return migrationPlanner.analyzeTarget(migration, source);
     }
 
     private MigrationModels.MigrationPlan generateMigrationPlan(
             MigrationModels.SourceAnalysis source,
             MigrationModels.TargetAnalysis target,
             Migration migration) {
-        // Generate detailed migration plan
-        return new MigrationModels.MigrationPlan(); // Simplified
+        return migrationPlanner.plan(migration, source, target);
+    }
+
+    private MigrationModels.ResourceEstimation estimateResources(Migration migration,
+                                                                 MigrationModels.SourceAnalysis source,
+                                                                 MigrationModels.MigrationPlan plan) {
+        return migrationPlanner.estimateResources(migration, source, plan);
+    }
+
+    private MigrationModels.BatchOutcome runExtractionBatch(MigrationModels.ExtractionTask task, Migration migration) {
+        try {
+            MigrationModels.ExtractionResult result = extractBatch(task, migration);
+            return new MigrationModels.BatchOutcome(task.getId(), result.isSuccess(),
+                result.getRecordsExtracted(), result.getErrorMessage());
+        } catch (Exception e) {
+            log.error("Extraction failed for task: {}", task.getId(), e);
+            return MigrationModels.BatchOutcome.failed(task.getId(), e.getMessage());
+        }
     }
 
-    private MigrationModels.ResourceEstimation estimateResources(MigrationModels.MigrationPlan plan) {
-        // Estimate required resources
-        return new MigrationModels.ResourceEstimation(); // Simplified
+    private MigrationModels.BatchOutcome runTransformationBatch(MigrationModels.TransformationTask task, Migration migration) {
+        try {
+            MigrationModels.TransformationResult result = transformBatch(task, migration);
+            MigrationModels.BatchOutcome outcome = new MigrationModels.BatchOutcome(task.getId(), result.isSuccess(),
+                result.getRecordsTransformed(), result.getErrorMessage());
+            outcome.setFailedRecords(result.getRecordsFailed());
+            return outcome;
+        } catch (Exception e) {
+            log.error("Transformation failed for task: {}", task.getId(), e);
+            return MigrationModels.BatchOutcome.failed(task.getId(), e.getMessage());
+        }
+    }
+
+    private MigrationModels.BatchOutcome runLoadBatch(MigrationModels.LoadTask task, Migration migration,
+                                                      LoadService.LoadStrategy strategy) {
+        try {
+            LoadService.LoadResult result = loadBatch(task, migration, strategy);
+            // Rejected records are kept for replay before the batch counts as committed
+            if (result.isSuccess()) {
+                deadLetterStore.capture(migration.getId(), migration.getTargetSystem(), task, result.getRejectedRecords());
+            }
+            MigrationModels.BatchOutcome outcome = new MigrationModels.BatchOutcome(task.getId(), result.isSuccess(),
+                result.getRecordsLoaded(), result.getErrorMessage());
+            outcome.setFailedRecords(result.getFailedRecords());
+            return outcome;
+        } catch (Exception e) {
+            log.error("Loading failed for task: {}", task.getId(), e);
+            return MigrationModels.BatchOutcome.failed(task.getId(), e.getMessage());
+        }
+    }
+
+    private Migration findMigration(Long migrationId) {
+        return migrationRepository.findById(migrationId)
+            .orElseThrow(() -> new IllegalArgumentException("Migration not found: " + migrationId));
     }
 
     private MigrationModels.ExtractionResult extractBatch(MigrationModels.ExtractionTask task, Migration migration) {
-        // Extract batch of data
-        return new MigrationModels.ExtractionResult(task.getId(), true, null);
+        List<Map<String, Object>> records = batchStore.readSource(migration, task);
+        batchStore.store(migration.getId(), task.getId(), records);
+
+        MigrationModels.ExtractionResult result = new MigrationModels.ExtractionResult(task.getId(), true, null);
+        result.setRecordsExtracted(records.size());
+        return result;
     }
 
     private MigrationModels.TransformationResult transformBatch(MigrationModels.TransformationTask task, Migration migration) {
-        // Transform batch of data
-        return new MigrationModels.TransformationResult(task.getId(), true, null);
+        List<Map<String, Object>> records = batchStore.read(migration.getId(), task.getSourceData());
+        List<TransformationRule> rules = transformationService.getMigrationRules(migration.getId());
+
+        List<Map<String, Object>> transformed = records;
+        int failed = 0;
+        if (!rules.isEmpty() && !records.isEmpty()) {
+            TransformationService.BatchTransformationResult batch = transformationService
+                .processJobBatch(transformationJobId(migration.getId()), records, rules, "JSON").join();
+            transformed = batch.getTransformedRecords();
+            failed = batch.getErrorCount();
+        }
+        batchStore.store(migration.getId(), task.getId(), transformed);
+
+        MigrationModels.TransformationResult result = new MigrationModels.TransformationResult(task.getId(), true, null);
+        result.setRecordsTransformed(transformed.size());
+        result.setRecordsFailed(failed);
+        return result;
+    }
+
+    /**
+     * Transformation job of a run, so the run's batches share compiled rules and their memo
+     */
+    private static String transformationJobId(Long migrationId) {
+        return "migration-" + migrationId;
     }
 
     private LoadService.LoadResult loadBatch(MigrationModels.LoadTask task, Migration migration, LoadService.LoadStrategy strategy) {
-        // Load batch into target
-        return new LoadService.LoadResult(task.getId(), true, null);
+        Object sourceBatch = task.getParameters() != null ? task.getParameters().get("sourceBatch") : null;
+        // Plans made before the batch hand-over name the transformation like the load
+        String transformationId = sourceBatch != null ? sourceBatch.toString() : task.getId().replaceFirst("^load-", "transform-");
+        List<Map<String, Object>> records = batchStore.read(migration.getId(), transformationId);
+        if (records.isEmpty()) {
+            return new LoadService.LoadResult(task.getId(), true, null);
+        }
+
+        Object keyColumn = task.getParameters() != null ? task.getParameters().get("keyColumn") : null;
+        LoadService.LoadContext context = new LoadService.LoadContext();
+        context.setMigrationId(migration.getId());
+        context.setBatchId(task.getId());
+        context.setTargetSystem(migration.getTargetSystem());
+        context.setTargetTable(task.getTargetTable());
+        context.setColumns(RowSegments.columnsOf(records));
+        context.setKeyColumns(keyColumn != null ? List.of(keyColumn.toString()) : List.of());
+        context.setData(records);
+        context.setStrategy(strategy);
+        // A retry of a batch that failed part way resumes after its committed chunks
+        context.setChunkProgress(checkpointService.chunkProgress(migration.getId()));
+        return loadService.loadBatch(context);
     }
 
-    private LoadService.LoadStrategy determineLoadStrategy(Migration migration) {
-        // Determine optimal load strategy
-        return LoadService.LoadStrategy.BATCH; // Simplified
+    private LoadService.LoadStrategy determineLoadStrategy(Migration migration, MigrationModels.LoadTask task) {
+        LoadService.LoadStrategy strategy = requestedLoadStrategy(migration, task);
+        // Shadow tables are thrown away, so there is nothing to swap in; batched inserts
+        // still resume after committed chunks and keep rejected records
+        if (strategy == LoadService.LoadStrategy.STAGED && task.getParameters() != null
+                && task.getParameters().containsKey(ShadowRunService.LIVE_TABLE)) {
+            return LoadService.LoadStrategy.BATCH;
+        }
+        return strategy;
     }
 
-    private boolean verifyRecordCounts(Migration migration) {
-        return migration.getMetrics().getTotalRecords() ==
-               migration.getMetrics().getLoadedRecords();
+    private LoadService.LoadStrategy requestedLoadStrategy(Migration migration, MigrationModels.LoadTask task) {
+        // An explicit "loadStrategy" parameter wins, e.g. STAGED for a swap-in cutover
+        String requested = migration.getParameters() != null ? migration.getParameters().get("loadStrategy") : null;
+        if (requested != null && !requested.isBlank()) {
+            return LoadService.LoadStrategy.valueOf(requested.trim().toUpperCase(Locale.ROOT));
+        }
+        // Otherwise the strategy the planner chose for the task's table
+        if (task.getLoadStrategy() != null) {
+            return LoadService.LoadStrategy.valueOf(task.getLoadStrategy());
+        }
+        return LoadService.LoadStrategy.BATCH;
     }
 
-    private boolean verifyDataIntegrity(Migration migration) {
-        // Verify data integrity
-        return true; // Simplified
+    /**
+     * Create a staging table for every staged target table not already swapped in an earlier run
+     */
+    private void prepareStagingTables(Migration migration, Set<String> tables) {
+        Map<String, MigrationModels.StagedTable> recorded = checkpointService.stagedTables(migration);
+        for (String table : tables) {
+            MigrationModels.StagedTable existing = recorded.get(table);
+            if (existing != null && (MigrationModels.StagedTable.COPIED.equals(existing.getState())
+                    || MigrationModels.StagedTable.SWAPPED.equals(existing.getState()))) {
+                continue;
+            }
+            checkpointService.recordStagedTable(migration,
+                stagingTableManager.prepare(migration.getTargetSystem(), table, migration.getId()));
+        }
     }
 
-    private boolean verifyReferentialIntegrity(Migration migration) {
-        // Verify referential integrity
-        return true; // Simplified
+    /**
+     * Swap every staging table in once all load batches have committed. With failed
+     * batches the live tables are left untouched and the phase fails, so rollback
+     * only has to drop the staging tables.
+     */
+    private void cutOverStagingTables(Migration migration) {
+        List<MigrationModels.LoadTask> tasks = migration.getPlan().getLoadTasks();
+        int committed = checkpointService.committedBatchCount(migration, MigrationPhase.LOADING);
+        if (committed < tasks.size()) {
+            throw new IllegalStateException(String.format(
+                "%d of %d load batches failed; staged tables were not swapped in",
+                tasks.size() - committed, tasks.size()));
+        }
+
+        for (MigrationModels.StagedTable stagedTable : checkpointService.stagedTables(migration).values()) {
+            // Checkpointed between the steps, so a resumed cutover does not copy the live rows twice
+            if (MigrationModels.StagedTable.STAGING.equals(stagedTable.getState())) {
+                stagingTableManager.copyLive(stagedTable);
+                checkpointService.recordStagedTable(migration, stagedTable);
+            }
+            if (MigrationModels.StagedTable.COPIED.equals(stagedTable.getState())) {
+                stagingTableManager.cutOver(stagedTable);
+                checkpointService.recordStagedTable(migration, stagedTable);
+            }
+        }
+    }
+
+    /**
+     * Set aside the secondary indexes and foreign keys of the given target tables. The snapshot is
+     * checkpointed before anything is dropped; a resumed load re-applies the recorded one.
+     */
+    private void deferIndexes(Migration migration, Set<String> tables) {
+        Map<String, MigrationModels.DeferredIndexes> recorded = checkpointService.deferredIndexes(migration);
+        for (String table : tables) {
+            MigrationModels.DeferredIndexes deferred = recorded.get(table);
+            if (deferred == null || MigrationModels.DeferredIndexes.REBUILT.equals(deferred.getState())
+                    || MigrationModels.DeferredIndexes.RESTORED.equals(deferred.getState())) {
+                deferred = indexDeferralManager.snapshot(migration.getTargetSystem(), table);
+                checkpointService.recordDeferredIndexes(migration, deferred);
+            }
+            indexDeferralManager.defer(deferred);
+            checkpointService.recordDeferredIndexes(migration, deferred);
+        }
+    }
+
+    /**
+     * Rebuild deferred indexes table by table, checkpointing progress as each one completes.
+     * If a rebuild fails the original definitions are restored before the phase fails.
+     */
+    private void rebuildDeferredIndexes(Migration migration) {
+        for (MigrationModels.DeferredIndexes deferred : checkpointService.deferredIndexes(migration).values()) {
+            if (!MigrationModels.DeferredIndexes.DEFERRED.equals(deferred.getState())) {
+                continue;
+            }
+            try {
+                indexDeferralManager.rebuild(deferred, migration.getId(), progress -> {
+                    checkpointService.recordDeferredIndexes(migration, progress);
+                    log.info("Migration {}: rebuilt {}/{} indexes and foreign keys of {}", migration.getId(),
+                        progress.rebuiltCount(), progress.getDefinitions().size(), progress.getTable());
+                });
+            } catch (RuntimeException e) {
+                restoreDeferredIndexes(migration);
+                throw e;
+            } finally {
+                checkpointService.recordDeferredIndexes(migration, deferred);
+            }
+        }
+    }
+
+    private void restoreDeferredIndexes(Migration migration) {
+        for (MigrationModels.DeferredIndexes deferred : checkpointService.deferredIndexes(migration).values()) {
+            if (MigrationModels.DeferredIndexes.REBUILT.equals(deferred.getState())
+                    || MigrationModels.DeferredIndexes.RESTORED.equals(deferred.getState())) {
+                continue;
+            }
+            indexDeferralManager.restore(deferred);
+            checkpointService.recordDeferredIndexes(migration, deferred);
+        }
+    }
+
+    /**
+     * Reconcile each loaded table against its source by chunked checksums and check its
+     * foreign keys for orphans. Load tasks may name the source table and key column through
+     * the "sourceTable" and "keyColumn" parameters; otherwise the target table name and the
+     * source primary key are used.
+     */
+    private void reconcileTables(Migration migration, MigrationModels.VerificationResult result) {
+        MigrationModels.MigrationPlan plan = migration.getPlan();
+        if (plan == null || plan.getLoadTasks() == null || plan.getLoadTasks().isEmpty()) {
+            return;
+        }
+
+        javax.sql.DataSource source = reconciliationService.dataSourceFor(migration.getSourceSystem()).orElse(null);
+        javax.sql.DataSource target = reconciliationService.dataSourceFor(migration.getTargetSystem()).orElse(null);
+        if (source == null || target == null) {
+            result.getIssues().add("Checksum reconciliation skipped: no data source registered for "
+                + (source == null ? migration.getSourceSystem() : migration.getTargetSystem()));
+            return;
+        }
+
+        Set<String> reconciled = new HashSet<>();
+        for (MigrationModels.LoadTask task : plan.getLoadTasks()) {
+            String targetTable = task.getTargetTable();
+            if (targetTable == null || !reconciled.add(targetTable)) {
+                continue;
+            }
+
+            Map<String, Object> parameters = task.getParameters() != null ? task.getParameters() : Collections.emptyMap();
+            String sourceTable = parameters.get("sourceTable") != null ? parameters.get("sourceTable").toString() : targetTable;
+            String keyColumn = parameters.get("keyColumn") != null ? parameters.get("keyColumn").toString() : null;
+
+            result.getReconciliations().add(
+                reconciliationService.reconcile(source, sourceTable, target, targetTable, keyColumn));
+
+            try {
+                result.getReferentialChecks().addAll(
+                    reconciliationService.checkReferentialIntegrity(source, sourceTable, target, targetTable));
+            } catch (Exception e) {
+                log.error("Referential integrity check failed for table {}", targetTable, e);
+                result.getIssues().add("Referential integrity check failed for " + targetTable + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean verifyRecordCounts(Migration migration, MigrationModels.VerificationResult result) {
+        if (result.getReconciliations().isEmpty()) {
+            return migration.getMetrics().getTotalRecords() ==
+                   migration.getMetrics().getLoadedRecords();
+        }
+
+        boolean passed = true;
+        for (MigrationModels.TableReconciliation reconciliation : result.getReconciliations()) {
+            if (reconciliation.getErrorMessage() != null
+                    || reconciliation.getSourceRows() != reconciliation.getTargetRows()) {
+                passed = false;
+                result.getIssues().add(String.format("Row count mismatch for %s: source %d, target %d",
+                    reconciliation.getTargetTable(), reconciliation.getSourceRows(), reconciliation.getTargetRows()));
+            }
+        }
+        return passed;
+    }
+
+    private boolean verifyDataIntegrity(Migration migration, MigrationModels.VerificationResult result) {
+        boolean passed = true;
+        for (MigrationModels.TableReconciliation reconciliation : result.getReconciliations()) {
+            if (reconciliation.getErrorMessage() != null) {
+                passed = false;
+                result.getIssues().add("Checksum reconciliation failed for " + reconciliation.getTargetTable()
+                    + ": " + reconciliation.getErrorMessage());
+            } else if (!reconciliation.isMatched()) {
+                passed = false;
+                result.getIssues().add(String.format(
+                    "Checksum mismatch for %s: %d missing, %d extra, %d changed rows (e.g. missing %s, changed %s)",
+                    reconciliation.getTargetTable(), reconciliation.getMissingInTarget(),
+                    reconciliation.getExtraInTarget(), reconciliation.getChangedRows(),
+                    reconciliation.getSampleMissingKeys(), reconciliation.getSampleChangedKeys()));
+            }
+        }
+        return passed;
+    }
+
+    private boolean verifyReferentialIntegrity(Migration migration, MigrationModels.VerificationResult result) {
+        boolean passed = true;
+        for (MigrationModels.ReferentialCheck check : result.getReferentialChecks()) {
+            if (!check.isPassed()) {
+                passed = false;
+                result.getIssues().add(String.format("%d orphaned rows in %s%s referencing %s",
+                    check.getOrphanedRows(), check.getChildTable(), check.getChildColumns(), check.getParentTable()));
+            }
+        }
+        return passed;
     }
 
     private boolean verifyBusinessRules(Migration migration) {
@@ -551,11 +1125,19 @@ public class MigrationOrchestrator {
     }
 
     private void cleanupTemporaryFiles(Migration migration) {
-        // Clean up temporary files
+        // Rows handed between the phases, and chunk progress, are only needed until the run completes
+        batchStore.discard(migration.getId());
+        checkpointService.discardChunkProgress(migration.getId());
     }
 
     private void releaseResources(Migration migration) {
-        // Release allocated resources
+        // Backups of swapped-in tables are only needed until the migration can no longer roll back
+        for (MigrationModels.StagedTable stagedTable : checkpointService.stagedTables(migration).values()) {
+            if (MigrationModels.StagedTable.SWAPPED.equals(stagedTable.getState())) {
+                stagingTableManager.dropBackup(stagedTable);
+                checkpointService.recordStagedTable(migration, stagedTable);
+            }
+        }
     }
 
     private void archiveMigrationData(Migration migration) {
@@ -563,31 +1145,52 @@ public class MigrationOrchestrator {
     }
 
     private List<MigrationModels.RollbackPoint> identifyRollbackPoints(Migration migration) {
-        // Identify rollback points
-        return new ArrayList<>();
+        // Staged loads roll back by dropping (or swapping out) their staging tables
+        List<MigrationModels.RollbackPoint> points = new ArrayList<>();
+        for (MigrationModels.StagedTable stagedTable : checkpointService.stagedTables(migration).values()) {
+            if (MigrationModels.StagedTable.STAGING.equals(stagedTable.getState())
+                    || MigrationModels.StagedTable.COPIED.equals(stagedTable.getState())
+                    || MigrationModels.StagedTable.SWAPPED.equals(stagedTable.getState())) {
+                MigrationModels.RollbackPoint point = new MigrationModels.RollbackPoint();
+                point.setId(stagedTable.getLiveTable());
+                point.setPhase(MigrationPhase.LOADING.name());
+                point.setTimestamp(LocalDateTime.now());
+                point.setDescription("Staged load of " + stagedTable.getLiveTable() + " (" + stagedTable.getState() + ")");
+                point.setState(Map.of("stagedTable", stagedTable));
+                points.add(point);
+            }
+        }
+        return points;
     }
 
     private void executeRollbackPoint(MigrationModels.RollbackPoint point, Migration migration) {
-        // Execute specific rollback point
+        Object state = point.getState() != null ? point.getState().get("stagedTable") : null;
+        if (state instanceof MigrationModels.StagedTable stagedTable) {
+            stagingTableManager.rollback(stagedTable);
+            checkpointService.recordStagedTable(migration, stagedTable);
+        }
     }
 
-    private void updateExtractionMetrics(Migration migration, List<MigrationModels.ExtractionResult> results) {
-        long successful = results.stream().filter(MigrationModels.ExtractionResult::isSuccess).count();
-        migration.getMetrics().setExtractedRecords((int) successful);
+    // Live counters were seeded from the checkpoint, so records from earlier runs are included
+    private void updateExtractionMetrics(Migration migration, List<MigrationModels.BatchOutcome> results) {
+        metricsAccumulator.applyTo(migration);
     }
 
-    private void updateTransformationMetrics(Migration migration, List<MigrationModels.TransformationResult> results) {
-        long successful = results.stream().filter(MigrationModels.TransformationResult::isSuccess).count();
-        migration.getMetrics().setTransformedRecords((int) successful);
+    private void updateTransformationMetrics(Migration migration, List<MigrationModels.BatchOutcome> results) {
+        metricsAccumulator.applyTo(migration);
     }
 
-    private void updateLoadMetrics(Migration migration, List<LoadService.LoadResult> results) {
-        long successful = results.stream().filter(LoadService.LoadResult::isSuccess).count();
-        migration.getMetrics().setLoadedRecords((int) successful);
-        migration.getMetrics().setSuccessfulRecords((int) successful);
+    private void updateLoadMetrics(Migration migration, List<MigrationModels.BatchOutcome> results) {
+        metricsAccumulator.applyTo(migration);
     }
 
     private Duration estimateTimeRemaining(Migration migration) {
+        // Planned phase durations, refined by the rate observed so far
+        Duration planned = migrationPlanner.estimateTimeRemaining(migration);
+        if (planned != null) {
+            return planned;
+        }
+
         if (migration.getStartTime() == null || migration.getMetrics().getProcessedRecords() == 0) {
             return Duration.ZERO;
         }
@@ -0,0 +1,859 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.domain.migration.Migration;
+import com.jivs.platform.domain.migration.MigrationPhase;
+import com.jivs.platform.domain.migration.MigrationThroughputSample;
+import com.jivs.platform.repository.MigrationThroughputRepository;
+import com.jivs.platform.security.SqlInjectionValidator;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Data-driven migration planning.
+ *
+ * Source tables are sized from catalog statistics (row counts and on-disk size, falling back
+ * to COUNT(*) and declared column widths), split into batches of roughly equal bytes, and
+ * given a load strategy from the state of the matching target table. Each phase gets a
+ * concurrency and a predicted rate from the throughput recorded by earlier runs between the
+ * same systems; without history the configured per-worker rates are used.
+ *
+ * While a migration runs, the remaining time of the current phase blends the prediction
+ * with the rate observed in this run, trusting the observation more as the phase progresses.
+ */
+@Service
+@RequiredArgsConstructor
+public class MigrationPlanner {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MigrationPlanner.class);
+
+    private static final List<MigrationPhase> ESTIMATED_PHASES = List.of(
+        MigrationPhase.EXTRACTION, MigrationPhase.TRANSFORMATION, MigrationPhase.VALIDATION,
+        MigrationPhase.LOADING, MigrationPhase.VERIFICATION);
+
+    // Declared width assumed for columns without a usable size (LOBs, unbounded text)
+    private static final int UNBOUNDED_COLUMN_BYTES = 256;
+
+    private final Map<String, DataSource> dataSources;
+    private final MigrationThroughputRepository throughputRepository;
+    private final SqlInjectionValidator sqlInjectionValidator;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${jivs.migration.planner.target-batch-bytes:4194304}")
+    private long targetBatchBytes = 4194304;
+
+    @Value("${jivs.migration.planner.min-batch-rows:100}")
+    private int minBatchRows = 100;
+
+    @Value("${jivs.migration.planner.max-batch-rows:10000}")
+    private int maxBatchRows = 10000;
+
+    @Value("${jivs.migration.planner.history-samples:20}")
+    private int historySamples = 20;
+
+    @Value("${jivs.migration.planner.bulk-threshold-rows:100000}")
+    private long bulkThresholdRows = 100000;
+
+    @Value("${jivs.migration.planner.auto-bulk:false}")
+    private boolean autoBulk = false;
+
+    @Value("${jivs.migration.planner.staged-threshold-rows:1000000}")
+    private long stagedThresholdRows = 1000000;
+
+    @Value("${jivs.migration.planner.auto-staged:false}")
+    private boolean autoStaged = false;
+
+    @Value("${jivs.migration.planner.row-memory-factor:4}")
+    private double rowMemoryFactor = 4;
+
+    @Value("${jivs.migration.planner.observed-weight-fraction:0.2}")
+    private double observedWeightFraction = 0.2;
+
+    @Value("${jivs.migration.adaptive.max-concurrency:16}")
+    private int maxConcurrency = 16;
+
+    // Per-worker records/second assumed for phases without history
+    @Value("${jivs.migration.planner.default-rates.extraction:5000}")
+    private double defaultExtractionRate = 5000;
+
+    @Value("${jivs.migration.planner.default-rates.transformation:20000}")
+    private double defaultTransformationRate = 20000;
+
+    @Value("${jivs.migration.planner.default-rates.validation:50000}")
+    private double defaultValidationRate = 50000;
+
+    @Value("${jivs.migration.planner.default-rates.loading:2000}")
+    private double defaultLoadingRate = 2000;
+
+    @Value("${jivs.migration.planner.default-rates.verification:20000}")
+    private double defaultVerificationRate = 20000;
+
+    // ---------------------------------------------------------------------
+    // Analysis
+    // ---------------------------------------------------------------------
+
+    /**
+     * Size the source tables from catalog statistics. Tables come from the "tables"
+     * parameter (comma separated) or, by default, every table of the source's default schema.
+     * Tables are ordered parents first.
+     */
+    public MigrationModels.SourceAnalysis analyzeSource(Migration migration) {
+        MigrationModels.SourceAnalysis analysis = new MigrationModels.SourceAnalysis();
+        analysis.setTables(new LinkedHashMap<>());
+        analysis.setDependencies(new ArrayList<>());
+
+        DataSource dataSource = dataSources.get(migration.getSourceSystem());
+        if (dataSource == null) {
+            log.warn("No data source registered for source system {}; planning without catalog statistics",
+                migration.getSourceSystem());
+            return analysis;
+        }
+
+        List<String> requested = requestedTables(migration);
+        new JdbcTemplate(dataSource).execute((ConnectionCallback<Void>) con -> {
+            DatabaseMetaData md = con.getMetaData();
+            analysis.setSystemType(md.getDatabaseProductName());
+            analysis.setVersion(md.getDatabaseProductVersion());
+
+            List<String> tables = requested.isEmpty() ? listTables(con) : requested;
+            for (String table : tables) {
+                MigrationModels.TableInfo info = describe(con, table);
+                if (info == null) {
+                    throw new IllegalArgumentException("Source table not found: " + table);
+                }
+                analysis.getTables().put(table, info);
+            }
+            return null;
+        });
+
+        long totalRecords = 0;
+        long totalSize = 0;
+        for (MigrationModels.TableInfo info : analysis.getTables().values()) {
+            totalRecords += info.getRecordCount();
+            totalSize += info.getSizeBytes();
+        }
+        analysis.setTotalRecords(saturatedInt(totalRecords));
+        analysis.setTotalSize(totalSize);
+        analysis.setDependencies(dependencyOrder(analysis.getTables()));
+
+        log.info("Analyzed {} source tables of {}: {} records, {} bytes",
+            analysis.getTables().size(), migration.getSourceSystem(), totalRecords, totalSize);
+        return analysis;
+    }
+
+    /**
+     * Describe the target tables matching the analyzed source tables
+     */
+    public MigrationModels.TargetAnalysis analyzeTarget(Migration migration, MigrationModels.SourceAnalysis source) {
+        MigrationModels.TargetAnalysis analysis = new MigrationModels.TargetAnalysis();
+        analysis.setTables(new LinkedHashMap<>());
+
+        DataSource dataSource = dataSources.get(migration.getTargetSystem());
+        if (dataSource == null || source.getTables().isEmpty()) {
+            return analysis;
+        }
+
+        new JdbcTemplate(dataSource).execute((ConnectionCallback<Void>) con -> {
+            DatabaseMetaData md = con.getMetaData();
+            analysis.setSystemType(md.getDatabaseProductName());
+            analysis.setVersion(md.getDatabaseProductVersion());
+            for (String table : source.getTables().keySet()) {
+                MigrationModels.TableInfo info = describe(con, table);
+                if (info != null) {
+                    analysis.getTables().put(table, info);
+                }
+            }
+            return null;
+        });
+        return analysis;
+    }
+
+    // ---------------------------------------------------------------------
+    // Planning
+    // ---------------------------------------------------------------------
+
+    /**
+     * Split every source table into batches of about {@code target-batch-bytes}, with one
+     * extraction, transformation and load task per batch, and choose each table's load strategy.
+     * Phase concurrency and predicted durations are attached as {@link MigrationModels.PhaseEstimate}s.
+     */
+    public MigrationModels.MigrationPlan plan(Migration migration,
+                                              MigrationModels.SourceAnalysis source,
+                                              MigrationModels.TargetAnalysis target) {
+        MigrationModels.MigrationPlan plan = new MigrationModels.MigrationPlan();
+        plan.setPlanId(UUID.randomUUID().toString());
+        plan.setExtractionTasks(new ArrayList<>());
+        plan.setTransformationTasks(new ArrayList<>());
+        plan.setLoadTasks(new ArrayList<>());
+        plan.setExecutionParameters(new LinkedHashMap<>());
+
+        Map<String, Object> batchRowsByTable = new LinkedHashMap<>();
+        Map<String, Object> strategyByTable = new LinkedHashMap<>();
+        for (String table : source.getDependencies()) {
+            MigrationModels.TableInfo info = source.getTables().get(table);
+            int batchRows = batchRows(info);
+            int batches = (int) Math.max(1, (info.getRecordCount() + batchRows - 1) / batchRows);
+            LoadService.LoadStrategy strategy = chooseLoadStrategy(info, target.getTables().get(table));
+            String keyColumn = info.getPrimaryKeys().size() == 1 ? info.getPrimaryKeys().get(0) : null;
+
+            for (int batch = 0; batch < batches; batch++) {
+                String suffix = table + "-" + batch;
+
+                MigrationModels.ExtractionTask extraction = new MigrationModels.ExtractionTask();
+                extraction.setId("extract-" + suffix);
+                extraction.setSourceTable(table);
+                extraction.setQuery("SELECT * FROM " + table);
+                extraction.setBatchSize(batchRows);
+                extraction.setOffset(batch * batchRows);
+                extraction.setParameters(new HashMap<>(Map.of("table", table)));
+                if (!info.getPrimaryKeys().isEmpty()) {
+                    extraction.getParameters().put("orderBy", String.join(",", info.getPrimaryKeys()));
+                }
+                plan.getExtractionTasks().add(extraction);
+
+                MigrationModels.TransformationTask transformation = new MigrationModels.TransformationTask();
+                transformation.setId("transform-" + suffix);
+                transformation.setSourceData(extraction.getId());
+                transformation.setTargetFormat(table);
+                plan.getTransformationTasks().add(transformation);
+
+                MigrationModels.LoadTask load = new MigrationModels.LoadTask();
+                load.setId("load-" + suffix);
+                load.setTargetTable(table);
+                load.setLoadStrategy(strategy.name());
+                load.setBatchSize(batchRows);
+                Map<String, Object> parameters = new HashMap<>();
+                parameters.put("sourceTable", table);
+                parameters.put("sourceBatch", transformation.getId());
+                if (keyColumn != null) {
+                    parameters.put("keyColumn", keyColumn);
+                }
+                load.setParameters(parameters);
+                plan.getLoadTasks().add(load);
+            }
+
+            batchRowsByTable.put(table, batchRows);
+            strategyByTable.put(table, strategy.name());
+        }
+        plan.getExecutionParameters().put("batchRows", batchRowsByTable);
+        plan.getExecutionParameters().put("loadStrategies", strategyByTable);
+
+        plan.setPhaseEstimates(estimatePhases(migration, source.getTotalRecords(), plan.getLoadTasks().size()));
+        long duration = plan.getPhaseEstimates().stream().mapToLong(MigrationModels.PhaseEstimate::getDurationSeconds).sum();
+        plan.setEstimatedDuration(saturatedInt(duration));
+        for (MigrationModels.PhaseEstimate estimate : plan.getPhaseEstimates()) {
+            plan.getExecutionParameters().put(concurrencyKey(estimate.getPhase()), estimate.getConcurrency());
+        }
+
+        log.info("Planned migration {}: {} tables, {} batches, estimated {} s",
+            migration.getId(), source.getTables().size(), plan.getLoadTasks().size(), duration);
+        return plan;
+    }
+
+    /**
+     * Memory, storage, CPU, bandwidth and connection needs of a plan
+     */
+    public MigrationModels.ResourceEstimation estimateResources(Migration migration,
+                                                                MigrationModels.SourceAnalysis source,
+                                                                MigrationModels.MigrationPlan plan) {
+        MigrationModels.ResourceEstimation estimation = new MigrationModels.ResourceEstimation();
+        Map<String, MigrationModels.PhaseEstimate> phases = new LinkedHashMap<>();
+        plan.getPhaseEstimates().forEach(estimate -> phases.put(estimate.getPhase(), estimate));
+
+        // Each in-flight batch holds its rows in memory, with object overhead
+        long largestBatchBytes = 0;
+        long stagedBytes = 0;
+        for (String table : source.getDependencies()) {
+            MigrationModels.TableInfo info = source.getTables().get(table);
+            largestBatchBytes = Math.max(largestBatchBytes, (long) batchRows(info) * averageRowBytes(info));
+            if (LoadService.LoadStrategy.STAGED.name().equals(loadStrategyOf(plan, table))) {
+                stagedBytes += info.getSizeBytes();
+            }
+        }
+        int peakConcurrency = phases.values().stream().mapToInt(MigrationModels.PhaseEstimate::getConcurrency).max().orElse(1);
+        estimation.setEstimatedMemory((long) (peakConcurrency * largestBatchBytes * rowMemoryFactor));
+        // Staged tables hold a second copy until cutover cleanup
+        estimation.setEstimatedStorage(source.getTotalSize() + stagedBytes);
+        estimation.setEstimatedCpu(Math.min(Runtime.getRuntime().availableProcessors(),
+            concurrencyOf(phases, MigrationPhase.TRANSFORMATION)));
+        long extractionSeconds = Math.max(1, durationOf(phases, MigrationPhase.EXTRACTION));
+        estimation.setEstimatedNetworkBandwidth(source.getTotalSize() / extractionSeconds);
+        estimation.setEstimatedDuration(plan.getEstimatedDuration());
+
+        Map<String, Object> recommendations = new LinkedHashMap<>();
+        recommendations.put("sourceConnections", concurrencyOf(phases, MigrationPhase.EXTRACTION) + 1);
+        recommendations.put("targetConnections", concurrencyOf(phases, MigrationPhase.LOADING) + 1);
+        phases.values().forEach(estimate -> recommendations.put(concurrencyKey(estimate.getPhase()), estimate.getConcurrency()));
+        recommendations.put("basis", phases.values().stream().anyMatch(e -> e.getHistorySamples() > 0) ? "history" : "defaults");
+        estimation.setRecommendations(recommendations);
+        return estimation;
+    }
+
+    /**
+     * Concurrency the plan chose for a phase, or the migration's parallelism setting
+     */
+    public int concurrencyFor(Migration migration, MigrationModels.MigrationPlan plan, MigrationPhase phase) {
+        Object planned = plan != null && plan.getExecutionParameters() != null
+            ? plan.getExecutionParameters().get(concurrencyKey(phase.name()))
+            : null;
+        if (planned instanceof Number number && number.intValue() > 0) {
+            return number.intValue();
+        }
+        return migration.getParallelism() != null ? Math.max(1, migration.getParallelism()) : 1;
+    }
+
+    // ---------------------------------------------------------------------
+    // Throughput history and online ETA
+    // ---------------------------------------------------------------------
+
+    /**
+     * Record the observed throughput of a phase run for future plans. Recorded in its own
+     * transaction so the history survives a failed migration, and a failed write, including
+     * one that only surfaces at commit, never fails the run.
+     */
+    public void recordThroughput(Migration migration, MigrationPhase phase, long records, int batches,
+                                 long durationMillis, int concurrency) {
+        if (records <= 0 || durationMillis <= 0) {
+            return;
+        }
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            requiresNew.executeWithoutResult(tx -> throughputRepository.save(MigrationThroughputSample.builder()
+                .migrationId(migration.getId())
+                .sourceSystem(migration.getSourceSystem())
+                .targetSystem(migration.getTargetSystem())
+                .phase(phase.name())
+                .records(records)
+                .batches(batches)
+                .durationMs(durationMillis)
+                .concurrency(concurrency)
+                .build()));
+        } catch (RuntimeException e) {
+            // History only improves later estimates; never fail a migration over it
+            log.warn("Could not record {} throughput of migration {}", phase, migration.getId(), e);
+        }
+    }
+
+    /**
+     * Remaining time from the plan's phase estimates, refined by the rate observed in the
+     * current phase of this run
+     *
+     * @return null if the migration has no phase estimates
+     */
+    public Duration estimateTimeRemaining(Migration migration) {
+        MigrationModels.MigrationPlan plan = migration.getPlan();
+        if (plan == null || plan.getPhaseEstimates() == null || plan.getPhaseEstimates().isEmpty()) {
+            return null;
+        }
+        MigrationModels.MigrationCheckpoint checkpoint = migration.getCheckpoint();
+        long now = System.currentTimeMillis();
+
+        double seconds = 0;
+        for (MigrationModels.PhaseEstimate estimate : plan.getPhaseEstimates()) {
+            if (checkpoint != null && checkpoint.isPhaseCompleted(estimate.getPhase())) {
+                continue;
+            }
+            MigrationModels.PhaseCheckpoint phase = checkpoint != null && estimate.getPhase().equals(checkpoint.getCurrentPhase())
+                ? checkpoint.getPhases().get(estimate.getPhase())
+                : null;
+            seconds += phase != null ? remainingSeconds(estimate, phase, now) : estimate.getDurationSeconds();
+        }
+        return Duration.ofSeconds(Math.round(seconds));
+    }
+
+    double remainingSeconds(MigrationModels.PhaseEstimate estimate, MigrationModels.PhaseCheckpoint phase, long now) {
+        double done = progress(estimate, phase.getRecordsCommitted(), phase.committedBatchCount());
+        double predicted = estimate.getDurationSeconds() * (1 - done);
+        if (phase.getRunStartedAtMillis() <= 0) {
+            return predicted;
+        }
+
+        double doneThisRun = done - progress(estimate, phase.getRunStartRecords(), phase.getRunStartBatches());
+        double elapsedSeconds = (now - phase.getRunStartedAtMillis()) / 1000.0;
+        if (doneThisRun <= 0 || elapsedSeconds <= 0) {
+            return predicted;
+        }
+
+        double observed = elapsedSeconds * (1 - done) / doneThisRun;
+        double weight = Math.min(1, doneThisRun / observedWeightFraction);
+        return weight * observed + (1 - weight) * predicted;
+    }
+
+    private static double progress(MigrationModels.PhaseEstimate estimate, long records, int batches) {
+        if (estimate.getRecords() > 0 && records > 0) {
+            return Math.min(1, (double) records / estimate.getRecords());
+        }
+        if (estimate.getBatches() > 0) {
+            return Math.min(1, (double) batches / estimate.getBatches());
+        }
+        return 0;
+    }
+
+    /**
+     * Phase estimates from the current throughput history, e.g. after a shadow run added to it
+     */
+    public List<MigrationModels.PhaseEstimate> reestimatePhases(Migration migration, long totalRecords, int batches) {
+        return estimatePhases(migration, totalRecords, batches);
+    }
+
+    private List<MigrationModels.PhaseEstimate> estimatePhases(Migration migration, long totalRecords, int batches) {
+        int requested = migration.getParallelism() != null ? Math.max(1, migration.getParallelism()) : 1;
+        List<MigrationModels.PhaseEstimate> estimates = new ArrayList<>();
+
+        for (MigrationPhase phase : ESTIMATED_PHASES) {
+            List<MigrationThroughputSample> samples = history(migration, phase);
+            int limit = concurrencyLimit(migration, phase);
+
+            MigrationModels.PhaseEstimate estimate = new MigrationModels.PhaseEstimate();
+            estimate.setPhase(phase.name());
+            estimate.setRecords(totalRecords);
+            estimate.setBatches(phase == MigrationPhase.VALIDATION || phase == MigrationPhase.VERIFICATION
+                ? 0 : batches);
+            estimate.setHistorySamples(samples.size());
+            estimate.setConcurrency(chooseConcurrency(samples, requested, limit));
+            estimate.setRecordsPerSecond(predictRate(samples, estimate.getConcurrency(), defaultRate(phase)));
+            estimate.setDurationSeconds(estimate.getRecordsPerSecond() > 0
+                ? (long) Math.ceil(estimate.getRecords() / estimate.getRecordsPerSecond())
+                : 0);
+            estimates.add(estimate);
+        }
+        return estimates;
+    }
+
+    /**
+     * Recent samples between the same systems, topped up with samples sharing the system
+     * that bounds the phase: the source for extraction, the target for loading
+     */
+    private List<MigrationThroughputSample> history(Migration migration, MigrationPhase phase) {
+        PageRequest page = PageRequest.of(0, Math.max(1, historySamples));
+        List<MigrationThroughputSample> samples = new ArrayList<>(throughputRepository.findRecent(
+            migration.getSourceSystem(), migration.getTargetSystem(), phase.name(), page));
+        if (samples.size() < historySamples) {
+            List<MigrationThroughputSample> related =
+                phase == MigrationPhase.EXTRACTION ? throughputRepository.findRecentBySource(migration.getSourceSystem(), phase.name(), page)
+                : phase == MigrationPhase.LOADING ? throughputRepository.findRecentByTarget(migration.getTargetSystem(), phase.name(), page)
+                : List.of();
+            Set<Long> seen = new HashSet<>();
+            samples.forEach(sample -> seen.add(sample.getId()));
+            for (MigrationThroughputSample sample : related) {
+                if (samples.size() >= historySamples) {
+                    break;
+                }
+                if (seen.add(sample.getId())) {
+                    samples.add(sample);
+                }
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Smallest observed concurrency reaching 95% of the best observed throughput. When the
+     * best level is also the highest tried, throughput may still scale, so the next plan probes
+     * half as many workers again.
+     */
+    static int chooseConcurrency(List<MigrationThroughputSample> samples, int requested, int limit) {
+        SortedMap<Integer, Double> throughput = throughputByConcurrency(samples);
+        if (throughput.isEmpty()) {
+            return clamp(requested, 1, limit);
+        }
+
+        double best = Collections.max(throughput.values());
+        int chosen = throughput.entrySet().stream()
+            .filter(level -> level.getValue() >= best * 0.95)
+            .map(Map.Entry::getKey)
+            .findFirst()
+            .orElse(requested);
+        if (chosen == throughput.lastKey() && chosen < limit) {
+            chosen = chosen + Math.max(1, chosen / 2);
+        }
+        return clamp(chosen, 1, limit);
+    }
+
+    /**
+     * Predicted records/second at a concurrency: the observed throughput at that level, else
+     * the nearest observed level scaled linearly, else the default per-worker rate
+     */
+    static double predictRate(List<MigrationThroughputSample> samples, int concurrency, double defaultPerWorker) {
+        SortedMap<Integer, Double> throughput = throughputByConcurrency(samples);
+        if (throughput.isEmpty()) {
+            return defaultPerWorker * concurrency;
+        }
+        if (throughput.containsKey(concurrency)) {
+            return throughput.get(concurrency);
+        }
+
+        int nearest = throughput.keySet().stream()
+            .min(Comparator.comparingInt(level -> Math.abs(level - concurrency)))
+            .orElseThrow();
+        return throughput.get(nearest) * concurrency / nearest;
+    }
+
+    /**
+     * Recency-weighted mean throughput per concurrency level; samples are newest first
+     */
+    private static SortedMap<Integer, Double> throughputByConcurrency(List<MigrationThroughputSample> samples) {
+        Map<Integer, double[]> sums = new HashMap<>();
+        double weight = 1;
+        for (MigrationThroughputSample sample : samples) {
+            if (sample.recordsPerSecond() > 0 && sample.getConcurrency() > 0) {
+                double[] sum = sums.computeIfAbsent(sample.getConcurrency(), level -> new double[2]);
+                sum[0] += weight * sample.recordsPerSecond();
+                sum[1] += weight;
+            }
+            weight *= 0.8;
+        }
+
+        SortedMap<Integer, Double> throughput = new TreeMap<>();
+        sums.forEach((level, sum) -> throughput.put(level, sum[0] / sum[1]));
+        return throughput;
+    }
+
+    /**
+     * Concurrency a phase can use: bounded by the connection pool of the system it reads
+     * or writes, and by the CPUs for transformation
+     */
+    private int concurrencyLimit(Migration migration, MigrationPhase phase) {
+        switch (phase) {
+            case EXTRACTION:
+                return Math.min(maxConcurrency, poolSize(migration.getSourceSystem()));
+            case LOADING:
+                return Math.min(maxConcurrency, poolSize(migration.getTargetSystem()));
+            case TRANSFORMATION:
+                return Math.min(maxConcurrency, Runtime.getRuntime().availableProcessors());
+            default:
+                return maxConcurrency;
+        }
+    }
+
+    private int poolSize(String system) {
+        DataSource dataSource = dataSources.get(system);
+        if (dataSource instanceof HikariDataSource hikari) {
+            // Leave one connection for checkpoints, metadata and verification queries
+            return Math.max(1, hikari.getMaximumPoolSize() - 1);
+        }
+        return maxConcurrency;
+    }
+
+    private double defaultRate(MigrationPhase phase) {
+        switch (phase) {
+            case EXTRACTION:
+                return defaultExtractionRate;
+            case TRANSFORMATION:
+                return defaultTransformationRate;
+            case VALIDATION:
+                return defaultValidationRate;
+            case LOADING:
+                return defaultLoadingRate;
+            default:
+                return defaultVerificationRate;
+        }
+    }
+
+    /**
+     * Load strategy from the target table's state: batched inserts into empty tables (bulk
+     * when enabled and above the threshold), a staged swap when enabled and the load dwarfs
+     * what is already there, upserts into populated keyed tables. Bulk loads neither resume
+     * after committed chunks nor isolate rejected records, and a staged swap write-locks the
+     * live table during cutover, so both are otherwise only used when a migration asks for them.
+     */
+    LoadService.LoadStrategy chooseLoadStrategy(MigrationModels.TableInfo source, MigrationModels.TableInfo target) {
+        if (target == null) {
+            return LoadService.LoadStrategy.BATCH;
+        }
+        long rows = source.getRecordCount();
+        if (target.getRecordCount() == 0) {
+            return autoBulk && rows >= bulkThresholdRows ? LoadService.LoadStrategy.BULK : LoadService.LoadStrategy.BATCH;
+        }
+        if (autoStaged && rows >= stagedThresholdRows && rows >= target.getRecordCount() && target.getReferencedBy().isEmpty()) {
+            return LoadService.LoadStrategy.STAGED;
+        }
+        return target.getPrimaryKeys().isEmpty() ? LoadService.LoadStrategy.BATCH : LoadService.LoadStrategy.UPSERT;
+    }
+
+    int batchRows(MigrationModels.TableInfo info) {
+        long rows = targetBatchBytes / Math.max(1, averageRowBytes(info));
+        return clamp((int) Math.min(Integer.MAX_VALUE, rows), minBatchRows, maxBatchRows);
+    }
+
+    private static long averageRowBytes(MigrationModels.TableInfo info) {
+        return info.getRecordCount() > 0 && info.getSizeBytes() > 0
+            ? Math.max(1, info.getSizeBytes() / info.getRecordCount())
+            : declaredRowBytes(info.getColumns());
+    }
+
+    private static String loadStrategyOf(MigrationModels.MigrationPlan plan, String table) {
+        Object strategies = plan.getExecutionParameters().get("loadStrategies");
+        return strategies instanceof Map<?, ?> map ? (String) map.get(table) : null;
+    }
+
+    private static int concurrencyOf(Map<String, MigrationModels.PhaseEstimate> phases, MigrationPhase phase) {
+        MigrationModels.PhaseEstimate estimate = phases.get(phase.name());
+        return estimate != null ? estimate.getConcurrency() : 1;
+    }
+
+    private static long durationOf(Map<String, MigrationModels.PhaseEstimate> phases, MigrationPhase phase) {
+        MigrationModels.PhaseEstimate estimate = phases.get(phase.name());
+        return estimate != null ? estimate.getDurationSeconds() : 0;
+    }
+
+    private static String concurrencyKey(String phase) {
+        return "concurrency." + phase;
+    }
+
+    // ---------------------------------------------------------------------
+    // Catalog statistics
+    // ---------------------------------------------------------------------
+
+    private List<String> requestedTables(Migration migration) {
+        String tables = migration.getParameters() != null ? migration.getParameters().get("tables") : null;
+        List<String> requested = new ArrayList<>();
+        if (tables != null) {
+            for (String table : tables.split(",")) {
+                if (!table.isBlank()) {
+                    for (String part : table.trim().split("\\.")) {
+                        sqlInjectionValidator.sanitizeIdentifier(part);
+                    }
+                    requested.add(table.trim());
+                }
+            }
+        }
+        return requested;
+    }
+
+    private List<String> listTables(Connection con) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (ResultSet rs = con.getMetaData().getTables(con.getCatalog(), con.getSchema(), "%",
+                new String[] {"TABLE", "BASE TABLE"})) {
+            while (rs.next()) {
+                tables.add(rs.getString("TABLE_NAME"));
+            }
+        }
+        return tables;
+    }
+
+    private MigrationModels.TableInfo describe(Connection con, String table) throws SQLException {
+        StagingTableManager.TableRef ref = StagingTableManager.resolve(con, table);
+        if (ref == null) {
+            return null;
+        }
+        DatabaseMetaData md = con.getMetaData();
+
+        MigrationModels.TableInfo info = new MigrationModels.TableInfo();
+        info.setTableName(table);
+        info.setColumns(new ArrayList<>());
+        try (ResultSet rs = md.getColumns(ref.catalog, ref.schema, ref.name, null)) {
+            while (rs.next()) {
+                MigrationModels.ColumnInfo column = new MigrationModels.ColumnInfo();
+                column.setName(rs.getString("COLUMN_NAME"));
+                column.setDataType(rs.getString("TYPE_NAME"));
+                column.setMaxLength(columnBytes(rs.getInt("DATA_TYPE"), rs.getInt("COLUMN_SIZE")));
+                column.setNullable(rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls);
+                column.setDefaultValue(rs.getString("COLUMN_DEF"));
+                info.getColumns().add(column);
+            }
+        }
+
+        SortedMap<Short, String> primaryKey = new TreeMap<>();
+        try (ResultSet rs = md.getPrimaryKeys(ref.catalog, ref.schema, ref.name)) {
+            while (rs.next()) {
+                primaryKey.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+            }
+        }
+        info.setPrimaryKeys(new ArrayList<>(primaryKey.values()));
+
+        Set<String> parents = new LinkedHashSet<>();
+        try (ResultSet rs = md.getImportedKeys(ref.catalog, ref.schema, ref.name)) {
+            while (rs.next()) {
+                parents.add(rs.getString("PKTABLE_NAME"));
+            }
+        }
+        info.setForeignKeys(new ArrayList<>(parents));
+
+        Set<String> children = new LinkedHashSet<>();
+        try (ResultSet rs = md.getExportedKeys(ref.catalog, ref.schema, ref.name)) {
+            while (rs.next()) {
+                children.add(rs.getString("FKTABLE_NAME"));
+            }
+        }
+        info.setReferencedBy(new ArrayList<>(children));
+
+        long[] statistics = statistics(con, ref, table);
+        long rows = statistics[0] >= 0 ? statistics[0] : countRows(con, table);
+        long size = statistics[1] > 0 ? statistics[1] : rows * declaredRowBytes(info.getColumns());
+        info.setRecordCount(saturatedInt(rows));
+        info.setSizeBytes(size);
+        return info;
+    }
+
+    /**
+     * Row count and size in bytes from the optimizer statistics; -1 where unavailable
+     */
+    private long[] statistics(Connection con, StagingTableManager.TableRef ref, String table) {
+        String sql;
+        List<String> arguments = new ArrayList<>();
+        switch (StagingTableManager.Dialect.of(safeProductName(con))) {
+            case POSTGRESQL:
+                sql = "SELECT c.reltuples::bigint, pg_total_relation_size(c.oid) FROM pg_class c "
+                    + "JOIN pg_namespace n ON n.oid = c.relnamespace "
+                    + "WHERE c.relname = ? AND n.nspname = COALESCE(?, current_schema())";
+                arguments.add(ref.name);
+                arguments.add(ref.schema);
+                break;
+            case MYSQL:
+                sql = "SELECT TABLE_ROWS, DATA_LENGTH + INDEX_LENGTH FROM information_schema.TABLES "
+                    + "WHERE TABLE_SCHEMA = COALESCE(?, DATABASE()) AND TABLE_NAME = ?";
+                arguments.add(ref.catalog);
+                arguments.add(ref.name);
+                break;
+            case ORACLE:
+                sql = "SELECT NUM_ROWS, NUM_ROWS * AVG_ROW_LEN FROM ALL_TABLES "
+                    + "WHERE OWNER = COALESCE(?, USER) AND TABLE_NAME = ?";
+                arguments.add(ref.schema);
+                arguments.add(ref.name);
+                break;
+            case SQLSERVER:
+                sql = "SELECT SUM(CASE WHEN a.type = 1 THEN p.rows ELSE 0 END), SUM(a.total_pages) * 8192 "
+                    + "FROM sys.partitions p JOIN sys.allocation_units a ON a.container_id = p.partition_id "
+                    + "WHERE p.object_id = OBJECT_ID(?) AND p.index_id IN (0, 1)";
+                arguments.add(ref.schema != null ? ref.schema + "." + ref.name : ref.name);
+                break;
+            default:
+                return new long[] {-1, -1};
+        }
+
+        try (PreparedStatement statement = con.prepareStatement(sql)) {
+            for (int i = 0; i < arguments.size(); i++) {
+                if (arguments.get(i) == null) {
+                    statement.setNull(i + 1, Types.VARCHAR);
+                } else {
+                    statement.setString(i + 1, arguments.get(i));
+                }
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    long rows = rs.getLong(1);
+                    boolean analyzed = !rs.wasNull() && rows >= 0;
+                    long size = rs.getLong(2);
+                    // Never-analyzed tables report no (or negative) row estimates
+                    return new long[] {analyzed ? rows : -1, rs.wasNull() ? -1 : size};
+                }
+            }
+        } catch (SQLException e) {
+            log.debug("No catalog statistics for {}: {}", table, e.getMessage());
+        }
+        return new long[] {-1, -1};
+    }
+
+    private long countRows(Connection con, String table) throws SQLException {
+        try (Statement statement = con.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static String safeProductName(Connection con) {
+        try {
+            return con.getMetaData().getDatabaseProductName();
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    private static int columnBytes(int sqlType, int columnSize) {
+        switch (sqlType) {
+            case Types.BOOLEAN:
+            case Types.BIT:
+            case Types.TINYINT:
+                return 1;
+            case Types.SMALLINT:
+                return 2;
+            case Types.INTEGER:
+            case Types.REAL:
+            case Types.DATE:
+                return 4;
+            case Types.BIGINT:
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+            case Types.TIME:
+                return 8;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return Math.max(4, columnSize / 2 + 2);
+            default:
+                // Variable-width values rarely fill their declared size
+                return columnSize > 0 && columnSize < 4096 ? Math.max(1, columnSize / 2) : UNBOUNDED_COLUMN_BYTES;
+        }
+    }
+
+    private static long declaredRowBytes(List<MigrationModels.ColumnInfo> columns) {
+        long bytes = columns == null ? 0 : columns.stream().mapToLong(MigrationModels.ColumnInfo::getMaxLength).sum();
+        return Math.max(1, bytes);
+    }
+
+    /**
+     * Source tables ordered so every table comes after the tables it references
+     */
+    private static List<String> dependencyOrder(Map<String, MigrationModels.TableInfo> tables) {
+        Map<String, String> byName = new HashMap<>();
+        tables.keySet().forEach(table -> byName.put(unqualified(table).toLowerCase(Locale.ROOT), table));
+
+        List<String> ordered = new ArrayList<>();
+        Set<String> visiting = new HashSet<>();
+        Set<String> done = new HashSet<>();
+        for (String table : tables.keySet()) {
+            visit(table, tables, byName, visiting, done, ordered);
+        }
+        return ordered;
+    }
+
+    private static void visit(String table, Map<String, MigrationModels.TableInfo> tables, Map<String, String> byName,
+                              Set<String> visiting, Set<String> done, List<String> ordered) {
+        if (done.contains(table) || !visiting.add(table)) {
+            // Already placed, or a reference cycle: keep declaration order
+            return;
+        }
+        for (String parent : tables.get(table).getForeignKeys()) {
+            String parentTable = byName.get(parent.toLowerCase(Locale.ROOT));
+            if (parentTable != null && !parentTable.equals(table)) {
+                visit(parentTable, tables, byName, visiting, done, ordered);
+            }
+        }
+        visiting.remove(table);
+        done.add(table);
+        ordered.add(table);
+    }
+
+    private static String unqualified(String table) {
+        return table.substring(table.lastIndexOf('.') + 1);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static int saturatedInt(long value) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, value));
+    }
+}
@@ -0,0 +1,290 @@
+package com.jivs.platform.service.migration;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Structured execution of migration subtasks on virtual threads.
+ *
+ * A phase opens a {@link PhaseScope}, forks its subtasks into it and joins them before it
+ * continues; closing the scope cancels anything still running, so no subtask outlives its
+ * phase. Every subtask has its own deadline, and cancelling a migration interrupts the
+ * subtasks of all its open scopes.
+ *
+ * Virtual threads make blocking JDBC and network calls cheap, so I/O-bound phases can run
+ * thousands of subtasks without a bounded pool to starve or leak; a global permit count
+ * still caps how many run at once.
+ */
+@Component
+public class MigrationTaskScopes {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MigrationTaskScopes.class);
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("migration-task-", 0).factory());
+    private final ScheduledExecutorService deadlines = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("migration-task-deadlines").daemon().factory());
+    private final Map<Long, Set<PhaseScope>> openScopes = new ConcurrentHashMap<>();
+
+    @Value("${jivs.migration.execution.task-timeout-ms:1800000}")
+    private long taskTimeoutMillis = 1800000;
+
+    @Value("${jivs.migration.execution.max-concurrent-tasks:1000}")
+    private int maxConcurrentTasks = 1000;
+
+    private volatile Semaphore permits;
+
+    /**
+     * Open a scope for the subtasks of one phase (or one step of it).
+     *
+     * @param migrationId migration whose cancellation cancels the scope, or null
+     */
+    public PhaseScope open(Long migrationId, String name) {
+        PhaseScope scope = new PhaseScope(migrationId, name);
+        if (migrationId != null) {
+            openScopes.computeIfAbsent(migrationId, id -> ConcurrentHashMap.newKeySet()).add(scope);
+        }
+        return scope;
+    }
+
+    /**
+     * Cancel every open scope of a migration, interrupting its in-flight subtasks
+     *
+     * @return number of scopes cancelled
+     */
+    public int cancel(Long migrationId) {
+        Set<PhaseScope> scopes = openScopes.getOrDefault(migrationId, Set.of());
+        scopes.forEach(PhaseScope::cancel);
+        if (!scopes.isEmpty()) {
+            log.info("Cancelled {} running scopes of migration {}", scopes.size(), migrationId);
+        }
+        return scopes.size();
+    }
+
+    /**
+     * Virtual-thread executor for unstructured fan-out (e.g. {@link CompletableFuture})
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    public long getTaskTimeoutMillis() {
+        return taskTimeoutMillis;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        openScopes.values().forEach(scopes -> scopes.forEach(PhaseScope::cancel));
+        executor.shutdownNow();
+        deadlines.shutdownNow();
+    }
+
+    private Semaphore permits() {
+        Semaphore current = permits;
+        if (current == null) {
+            synchronized (this) {
+                if (permits == null) {
+                    permits = new Semaphore(Math.max(1, maxConcurrentTasks));
+                }
+                current = permits;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Subtasks forked by one phase; joined together and cancelled together
+     */
+    public final class PhaseScope implements AutoCloseable {
+        private final Long migrationId;
+        private final String name;
+        private final List<Subtask<?>> subtasks = new ArrayList<>();
+        private volatile boolean cancelled;
+
+        private PhaseScope(Long migrationId, String name) {
+            this.migrationId = migrationId;
+            this.name = name;
+        }
+
+        /**
+         * Start a subtask on its own virtual thread. Its deadline starts once it holds a permit.
+         */
+        public <T> Subtask<T> fork(Callable<T> task) {
+            if (cancelled) {
+                throw cancelledException();
+            }
+
+            Subtask<T> subtask = new Subtask<>();
+            Map<String, String> context = MDC.getCopyOfContextMap();
+            subtask.future = new FutureTask<T>(() -> {
+                Semaphore permits = permits();
+                permits.acquire();
+                ScheduledFuture<?> deadline =
+                    deadlines.schedule(subtask::expire, taskTimeoutMillis, TimeUnit.MILLISECONDS);
+                try {
+                    if (context != null) {
+                        MDC.setContextMap(context);
+                    }
+                    return task.call();
+                } finally {
+                    deadline.cancel(false);
+                    MDC.clear();
+                    permits.release();
+                }
+            }) {
+                @Override
+                protected void done() {
+                    subtask.finished.complete(null);
+                }
+            };
+
+            synchronized (subtasks) {
+                subtasks.add(subtask);
+            }
+            executor.execute(subtask.future);
+            return subtask;
+        }
+
+        /**
+         * Wait until every forked subtask has finished, failed, timed out or been cancelled
+         *
+         * @throws MigrationModels.MigrationCancelledException if the scope was cancelled
+         */
+        public void join() {
+            for (Subtask<?> subtask : snapshot()) {
+                try {
+                    subtask.future.get();
+                } catch (InterruptedException e) {
+                    cancel();
+                    Thread.currentThread().interrupt();
+                    throw cancelledException();
+                } catch (ExecutionException | CancellationException e) {
+                    // Reported through the subtask's state
+                }
+                // Completion callbacks, e.g. checkpoint commits, finish before the join returns
+                subtask.callbacks().join();
+            }
+
+            if (cancelled) {
+                throw cancelledException();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            snapshot().forEach(subtask -> subtask.future.cancel(true));
+        }
+
+        @Override
+        public void close() {
+            // Subtasks never outlive their scope, e.g. when the phase failed before joining
+            snapshot().forEach(subtask -> subtask.future.cancel(true));
+            if (migrationId != null) {
+                openScopes.computeIfPresent(migrationId, (id, scopes) -> {
+                    scopes.remove(this);
+                    return scopes.isEmpty() ? null : scopes;
+                });
+            }
+        }
+
+        private List<Subtask<?>> snapshot() {
+            synchronized (subtasks) {
+                return new ArrayList<>(subtasks);
+            }
+        }
+
+        private MigrationModels.MigrationCancelledException cancelledException() {
+            return new MigrationModels.MigrationCancelledException(
+                "Migration " + migrationId + " cancelled during " + name);
+        }
+    }
+
+    /**
+     * Handle to a forked subtask, inspected after {@link PhaseScope#join()}
+     */
+    public static final class Subtask<T> {
+
+        public enum State { UNAVAILABLE, SUCCESS, FAILED, TIMED_OUT, CANCELLED }
+
+        private FutureTask<T> future;
+        private volatile boolean timedOut;
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+        private CompletableFuture<Void> callbacks = finished;
+
+        /**
+         * Run an action once the subtask is done however it ended, including when it was
+         * cancelled before it started. It runs on the thread that completed the subtask, or
+         * at once if it is already done; {@link PhaseScope#join()} waits for it.
+         */
+        public synchronized void whenDone(Runnable action) {
+            callbacks = callbacks.whenComplete((ignored, error) -> {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    log.error("Completion callback of a migration subtask failed", e);
+                }
+            });
+        }
+
+        private synchronized CompletableFuture<Void> callbacks() {
+            return callbacks;
+        }
+
+        public State state() {
+            switch (future.state()) {
+                case SUCCESS:
+                    return State.SUCCESS;
+                case FAILED:
+                    return State.FAILED;
+                case CANCELLED:
+                    return timedOut ? State.TIMED_OUT : State.CANCELLED;
+                default:
+                    return State.UNAVAILABLE;
+            }
+        }
+
+        /**
+         * Result of a successful subtask
+         */
+        public T get() {
+            return future.resultNow();
+        }
+
+        /**
+         * Exception thrown by a failed subtask
+         */
+        public Throwable exception() {
+            return future.exceptionNow();
+        }
+
+        /**
+         * Result of the subtask, rethrowing its failure, deadline or cancellation
+         */
+        public T resultOrThrow() {
+            switch (state()) {
+                case SUCCESS:
+                    return get();
+                case FAILED:
+                    Throwable error = exception();
+                    throw error instanceof RuntimeException runtime ? runtime : new CompletionException(error);
+                case TIMED_OUT:
+                    throw new CancellationException("Subtask exceeded its deadline");
+                default:
+                    throw new CancellationException("Subtask was cancelled");
+            }
+        }
+
+        private void expire() {
+            timedOut = true;
+            future.cancel(true);
+        }
+    }
+}
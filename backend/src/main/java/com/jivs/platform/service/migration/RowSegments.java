@@ -0,0 +1,163 @@
+package com.jivs.platform.service.migration;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact binary form of a list of rows: GZIP-compressed JSON of column names, each
+ * column's value type and the rows, plus any per-row lists the caller adds. Values read
+ * back with the Java type they were written with; a column holding values of more than
+ * one type is marked {@value #MIXED} and tags each value with its own type.
+ */
+final class RowSegments {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String MIXED = "*";
+
+    private RowSegments() {
+    }
+
+    static byte[] encode(List<Map<String, Object>> records, Map<String, ? extends List<?>> extras) {
+        List<String> columns = columnsOf(records);
+        List<String> types = new ArrayList<>();
+        for (String column : columns) {
+            Set<String> classes = new HashSet<>();
+            for (Map<String, Object> record : records) {
+                Object value = record.get(column);
+                if (value != null) {
+                    classes.add(value.getClass().getName());
+                }
+            }
+            types.add(classes.isEmpty() ? null : classes.size() == 1 ? classes.iterator().next() : MIXED);
+        }
+
+        List<List<Object>> rows = new ArrayList<>(records.size());
+        for (Map<String, Object> record : records) {
+            List<Object> row = new ArrayList<>(columns.size());
+            for (int c = 0; c < columns.size(); c++) {
+                Object value = record.get(columns.get(c));
+                row.add(MIXED.equals(types.get(c)) && value != null
+                    ? List.of(value.getClass().getName(), toJson(value))
+                    : toJson(value));
+            }
+            rows.add(row);
+        }
+
+        Map<String, Object> segment = new LinkedHashMap<>();
+        segment.put("columns", columns);
+        segment.put("types", types);
+        segment.put("rows", rows);
+        segment.putAll(extras);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(out, segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode row segment", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Lists of a segment by name, the rows still in their JSON form
+     */
+    static Map<String, List<Object>> read(byte[] payload) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return objectMapper.readValue(in, new TypeReference<Map<String, List<Object>>>() {});
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode row segment", e);
+        }
+    }
+
+    /**
+     * Rows of a segment as records, in their written order
+     */
+    static List<Map<String, Object>> records(Map<String, List<Object>> segment) {
+        List<Object> columns = segment.get("columns");
+        List<Object> types = segment.get("types");
+        List<Object> rows = segment.get("rows");
+
+        List<Map<String, Object>> records = new ArrayList<>(rows.size());
+        for (Object value : rows) {
+            List<?> row = (List<?>) value;
+            Map<String, Object> record = new LinkedHashMap<>();
+            for (int c = 0; c < columns.size(); c++) {
+                record.put((String) columns.get(c), fromJson(row.get(c), (String) types.get(c)));
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    static List<Map<String, Object>> decode(byte[] payload) {
+        return records(read(payload));
+    }
+
+    /**
+     * Union of the records' fields, in the order they first appear
+     */
+    static List<String> columnsOf(List<Map<String, Object>> records) {
+        Set<String> columns = new LinkedHashSet<>();
+        records.forEach(record -> columns.addAll(record.keySet()));
+        return new ArrayList<>(columns);
+    }
+
+    private static Object toJson(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean
+                || value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof Double || value instanceof Float) {
+            return value;
+        }
+        if (value instanceof byte[] bytes) {
+            return Base64.getEncoder().encodeToString(bytes);
+        }
+        // BigDecimal, temporal types, UUIDs: their string forms parse back losslessly
+        return value.toString();
+    }
+
+    private static Object fromJson(Object value, String type) {
+        if (value == null || type == null) {
+            return value;
+        }
+        if (MIXED.equals(type)) {
+            List<?> tagged = (List<?>) value;
+            return fromJson(tagged.get(1), (String) tagged.get(0));
+        }
+        return switch (type) {
+            case "java.lang.Integer" -> ((Number) value).intValue();
+            case "java.lang.Long" -> ((Number) value).longValue();
+            case "java.lang.Short" -> ((Number) value).shortValue();
+            case "java.lang.Double" -> ((Number) value).doubleValue();
+            case "java.lang.Float" -> ((Number) value).floatValue();
+            case "java.math.BigDecimal" -> new BigDecimal(value.toString());
+            case "java.math.BigInteger" -> new BigInteger(value.toString());
+            case "java.sql.Timestamp" -> java.sql.Timestamp.valueOf(value.toString());
+            case "java.sql.Date" -> java.sql.Date.valueOf(value.toString());
+            case "java.sql.Time" -> java.sql.Time.valueOf(value.toString());
+            case "java.time.LocalDateTime" -> LocalDateTime.parse(value.toString());
+            case "java.time.LocalDate" -> LocalDate.parse(value.toString());
+            case "java.time.OffsetDateTime" -> OffsetDateTime.parse(value.toString());
+            case "java.time.Instant" -> Instant.parse(value.toString());
+            case "java.util.UUID" -> UUID.fromString(value.toString());
+            case "[B" -> Base64.getDecoder().decode(value.toString());
+            default -> value;
+        };
+    }
+}
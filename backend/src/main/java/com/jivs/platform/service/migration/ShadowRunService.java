@@ -0,0 +1,344 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.domain.migration.Migration;
+import com.jivs.platform.domain.migration.MigrationDeadLetter;
+import com.jivs.platform.domain.migration.MigrationMetrics;
+import com.jivs.platform.domain.migration.MigrationPhase;
+import com.jivs.platform.domain.migration.MigrationStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shadow (dry-run) migrations.
+ *
+ * A shadow run executes the full pipeline, but every load task is redirected to an empty
+ * copy of its target table in an isolated schema of the target, so live tables are never
+ * written. While it runs, each phase's duration, batches, throughput and errors are
+ * collected; at the end each shadow table is diffed against its live table, the shadow
+ * tables and their dead letters are dropped, and the report is stored on the migration.
+ * The migration is then reset for the real run, which the planner sizes from the
+ * throughput history the rehearsal added.
+ */
+@Service
+@RequiredArgsConstructor
+public class ShadowRunService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ShadowRunService.class);
+
+    /** Load task parameter naming the live table a shadow table stands in for */
+    static final String LIVE_TABLE = "liveTable";
+
+    private static final int MAX_ERROR_SAMPLES = 5;
+    private static final int MAX_SAMPLE_KEYS = 10;
+
+    private final StagingTableManager stagingTableManager;
+    private final ChecksumReconciliationService reconciliationService;
+    private final DeadLetterStore deadLetterStore;
+    private final MigrationPlanner migrationPlanner;
+    private final AdaptiveBatchControllerRegistry batchControllers;
+
+    // Reports of shadow runs executing on this node, with the start of their current phase
+    private final Map<Long, MigrationModels.ShadowReport> active = new ConcurrentHashMap<>();
+    private final Map<Long, Long> phaseStarts = new ConcurrentHashMap<>();
+
+    /**
+     * Request that the next execution of a migration is a shadow run
+     *
+     * @param shadowSchema schema of the target to rehearse in; "jivs_shadow_{id}" if null
+     * @param keepTables   keep the shadow tables for inspection instead of dropping them
+     */
+    public MigrationModels.ShadowReport request(Migration migration, String shadowSchema, boolean keepTables) {
+        MigrationModels.ShadowReport report = new MigrationModels.ShadowReport();
+        report.setShadowSchema(shadowSchema != null && !shadowSchema.isBlank()
+            ? shadowSchema.trim() : "jivs_shadow_" + migration.getId());
+        report.setKeepTables(keepTables);
+        report.setState(MigrationModels.ShadowReport.REQUESTED);
+        migration.setShadowReport(report);
+        return report;
+    }
+
+    /**
+     * Start collecting if this execution is a shadow run: one was requested, a "shadow"
+     * parameter asks for one, or a paused rehearsal resumes
+     *
+     * @return whether the execution is a shadow run
+     */
+    public boolean begin(Migration migration) {
+        MigrationModels.ShadowReport report = migration.getShadowReport();
+        Map<String, String> parameters = migration.getParameters() != null ? migration.getParameters() : Map.of();
+        if ((report == null || !report.inProgress()) && Boolean.parseBoolean(parameters.get("shadow"))) {
+            report = request(migration, parameters.get("shadowSchema"), Boolean.parseBoolean(parameters.get("shadowKeep")));
+        }
+        if (report == null || !report.inProgress()) {
+            return false;
+        }
+
+        report.setState(MigrationModels.ShadowReport.RUNNING);
+        if (report.getStartedAtMillis() == 0) {
+            report.setStartedAtMillis(System.currentTimeMillis());
+        }
+        migration.setShadowReport(report);
+        active.put(migration.getId(), report);
+        log.info("Migration {} runs as a shadow run into schema {}", migration.getId(), report.getShadowSchema());
+        return true;
+    }
+
+    /**
+     * Whether a shadow run of the migration is executing on this node
+     */
+    public boolean isActive(Migration migration) {
+        return active.containsKey(migration.getId());
+    }
+
+    /**
+     * Point every load task of a freshly generated plan at a shadow copy of its table
+     */
+    public void redirect(Migration migration, MigrationModels.MigrationPlan plan) {
+        MigrationModels.ShadowReport report = active.get(migration.getId());
+        if (report == null || plan.getLoadTasks() == null) {
+            return;
+        }
+
+        Map<String, String> shadowTables = new HashMap<>();
+        for (MigrationModels.LoadTask task : plan.getLoadTasks()) {
+            String liveTable = task.getTargetTable();
+            String shadowTable = shadowTables.computeIfAbsent(liveTable, table ->
+                stagingTableManager.prepareShadow(migration.getTargetSystem(), table, report.getShadowSchema()));
+
+            Map<String, Object> parameters = task.getParameters() != null ? new HashMap<>(task.getParameters()) : new HashMap<>();
+            parameters.putIfAbsent("sourceTable", liveTable);
+            parameters.put(LIVE_TABLE, liveTable);
+            task.setParameters(parameters);
+            task.setTargetTable(shadowTable);
+        }
+        report.setPlannedPhases(plan.getPhaseEstimates() != null ? plan.getPhaseEstimates() : new ArrayList<>());
+        log.info("Redirected {} load tasks of migration {} to {} shadow tables",
+            plan.getLoadTasks().size(), migration.getId(), shadowTables.size());
+    }
+
+    /**
+     * Time phases of a shadow run; a resumed phase adds to its earlier duration
+     */
+    public void phaseStarted(Migration migration, MigrationPhase phase) {
+        if (active.containsKey(migration.getId())) {
+            phaseStarts.put(migration.getId(), System.currentTimeMillis());
+        }
+    }
+
+    public void phaseEnded(Migration migration, MigrationPhase phase) {
+        MigrationModels.ShadowReport report = active.get(migration.getId());
+        Long started = phaseStarts.remove(migration.getId());
+        if (report == null || started == null) {
+            return;
+        }
+        MigrationModels.ShadowPhaseStats stats = report.phase(phase.name());
+        stats.setDurationMs(stats.getDurationMs() + System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Add the batch outcomes of a phase run
+     *
+     * @param concurrency batches run at once, or 0 when distributed over replicas
+     */
+    public void recordBatches(Migration migration, MigrationPhase phase,
+                              List<MigrationModels.BatchOutcome> results, int concurrency) {
+        MigrationModels.ShadowReport report = active.get(migration.getId());
+        if (report == null) {
+            return;
+        }
+        MigrationModels.ShadowPhaseStats stats = report.phase(phase.name());
+        stats.setConcurrency(concurrency);
+        for (MigrationModels.BatchOutcome outcome : results) {
+            stats.setBatches(stats.getBatches() + 1);
+            if (outcome.isSuccess()) {
+                stats.setRecords(stats.getRecords() + outcome.getRecords());
+            } else {
+                stats.setFailedBatches(stats.getFailedBatches() + 1);
+                if (outcome.getErrorMessage() != null && stats.getErrorSamples().size() < MAX_ERROR_SAMPLES) {
+                    stats.getErrorSamples().add(outcome.getTaskId() + ": " + outcome.getErrorMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Complete the report once the shadow run stopped, and reset the migration for the real
+     * run. A paused rehearsal keeps its shadow tables and statistics and continues on resume.
+     */
+    public void finish(Migration migration) {
+        MigrationModels.ShadowReport report = active.remove(migration.getId());
+        phaseStarts.remove(migration.getId());
+        if (report == null) {
+            return;
+        }
+        if (migration.getStatus() == MigrationStatus.PAUSED) {
+            migration.setShadowReport(report);
+            return;
+        }
+
+        report.setOutcome(migration.getStatus() != null ? migration.getStatus().name() : null);
+        report.setErrorMessage(migration.getErrorMessage());
+        report.setCompletedAtMillis(System.currentTimeMillis());
+        Integer totalRecords = migration.getMetrics() != null ? migration.getMetrics().getTotalRecords() : null;
+        report.setTotalRecords(totalRecords != null ? totalRecords : 0);
+
+        summarizePhases(report);
+
+        MigrationModels.MigrationPlan plan = migration.getPlan();
+        Map<String, String> shadowTables = shadowTables(plan);
+        report.setTables(diffTables(migration, plan, shadowTables));
+
+        deadLetterStore.discard(migration.getId(), shadowTables.values());
+        if (!report.isKeepTables()) {
+            for (String shadowTable : shadowTables.values()) {
+                try {
+                    stagingTableManager.dropShadow(migration.getTargetSystem(), shadowTable);
+                } catch (Exception e) {
+                    log.warn("Could not drop shadow table {} of migration {}", shadowTable, migration.getId(), e);
+                }
+            }
+        }
+
+        // Throughput history now includes the rehearsal
+        int batches = plan != null && plan.getLoadTasks() != null ? plan.getLoadTasks().size() : 0;
+        report.setRecommendedPhases(migrationPlanner.reestimatePhases(migration, report.getTotalRecords(), batches));
+        report.setState(MigrationModels.ShadowReport.REPORTED);
+        migration.setShadowReport(report);
+
+        // The real run starts over and replans against the live tables
+        MigrationMetrics metrics = new MigrationMetrics();
+        metrics.setTotalRecords(totalRecords != null ? totalRecords : 0);
+        migration.setMetrics(metrics);
+        migration.setCheckpoint(null);
+        migration.setPlan(null);
+        migration.setStatus(MigrationStatus.INITIALIZED);
+        migration.setPhase(MigrationPhase.PLANNING);
+        migration.setErrorMessage(null);
+        migration.setStartTime(null);
+        migration.setCompletionTime(null);
+
+        log.info("Shadow run of migration {} {}: bottleneck {} ({}% of runtime), {} tables diffed",
+            migration.getId(), report.getOutcome(), report.getBottleneckPhase(),
+            Math.round(report.getBottleneckShare() * 100), report.getTables().size());
+    }
+
+    /**
+     * Rates and runtime shares of the phases, and the phase that took the largest share
+     */
+    static void summarizePhases(MigrationModels.ShadowReport report) {
+        long total = report.getPhases().stream().mapToLong(MigrationModels.ShadowPhaseStats::getDurationMs).sum();
+        MigrationModels.ShadowPhaseStats bottleneck = null;
+        for (MigrationModels.ShadowPhaseStats stats : report.getPhases()) {
+            stats.setRecordsPerSecond(stats.getDurationMs() > 0 ? stats.getRecords() * 1000.0 / stats.getDurationMs() : 0);
+            stats.setShareOfRuntime(total > 0 ? (double) stats.getDurationMs() / total : 0);
+            if (bottleneck == null || stats.getDurationMs() > bottleneck.getDurationMs()) {
+                bottleneck = stats;
+            }
+        }
+        report.setBottleneckPhase(bottleneck != null ? bottleneck.getPhase() : null);
+        report.setBottleneckShare(bottleneck != null ? bottleneck.getShareOfRuntime() : 0);
+    }
+
+    private List<MigrationModels.ShadowTableDiff> diffTables(Migration migration, MigrationModels.MigrationPlan plan,
+                                                              Map<String, String> shadowTables) {
+        List<MigrationModels.ShadowTableDiff> diffs = new ArrayList<>();
+        if (shadowTables.isEmpty()) {
+            return diffs;
+        }
+        DataSource target = reconciliationService.dataSourceFor(migration.getTargetSystem()).orElse(null);
+        Map<String, MigrationModels.TableReconciliation> verified = new HashMap<>();
+        if (migration.getVerificationResult() != null) {
+            migration.getVerificationResult().getReconciliations()
+                .forEach(reconciliation -> verified.put(reconciliation.getTargetTable(), reconciliation));
+        }
+        Map<String, List<MigrationDeadLetter>> deadLetters = new HashMap<>();
+        for (MigrationDeadLetter segment : deadLetterStore.segments(migration.getId())) {
+            deadLetters.computeIfAbsent(segment.getTargetTable(), table -> new ArrayList<>()).add(segment);
+        }
+
+        for (Map.Entry<String, String> entry : shadowTables.entrySet()) {
+            String liveTable = entry.getKey();
+            String shadowTable = entry.getValue();
+            MigrationModels.ShadowTableDiff diff = new MigrationModels.ShadowTableDiff();
+            diff.setLiveTable(liveTable);
+            diff.setShadowTable(shadowTable);
+
+            if (target == null) {
+                diff.setErrorMessage("No data source registered for " + migration.getTargetSystem());
+            } else {
+                // The shadow table holds what the live table would become
+                MigrationModels.TableReconciliation reconciliation = reconciliationService.reconcile(
+                    target, shadowTable, target, liveTable, keyColumn(plan, shadowTable));
+                diff.setShadowRows(reconciliation.getSourceRows());
+                diff.setLiveRows(reconciliation.getTargetRows());
+                diff.setRowsToInsert(reconciliation.getMissingInTarget());
+                diff.setRowsToUpdate(reconciliation.getChangedRows());
+                diff.setLiveOnlyRows(reconciliation.getExtraInTarget());
+                diff.setSampleInsertKeys(limit(reconciliation.getSampleMissingKeys()));
+                diff.setSampleUpdateKeys(limit(reconciliation.getSampleChangedKeys()));
+                diff.setErrorMessage(reconciliation.getErrorMessage());
+            }
+
+            MigrationModels.TableReconciliation sourceCheck = verified.get(shadowTable);
+            diff.setSourceMatched(sourceCheck != null ? sourceCheck.isMatched() : null);
+
+            List<MigrationDeadLetter> segments = deadLetters.getOrDefault(shadowTable, List.of());
+            diff.setDeadLetteredRecords(segments.stream().mapToLong(MigrationDeadLetter::getRecordCount).sum());
+            diff.setTopRejectReason(topReason(segments));
+
+            AdaptiveBatchController controller = batchControllers.forTarget(migration.getTargetSystem(), shadowTable);
+            diff.setTunedBatchSize(controller.getBatchSize());
+            diff.setTunedConcurrency(controller.getConcurrency());
+            diffs.add(diff);
+        }
+        return diffs;
+    }
+
+    /**
+     * Shadow table of each live table of a redirected plan
+     */
+    private static Map<String, String> shadowTables(MigrationModels.MigrationPlan plan) {
+        Map<String, String> tables = new LinkedHashMap<>();
+        if (plan == null || plan.getLoadTasks() == null) {
+            return tables;
+        }
+        for (MigrationModels.LoadTask task : plan.getLoadTasks()) {
+            Object liveTable = task.getParameters() != null ? task.getParameters().get(LIVE_TABLE) : null;
+            if (liveTable != null) {
+                tables.putIfAbsent(liveTable.toString(), task.getTargetTable());
+            }
+        }
+        return tables;
+    }
+
+    private static String keyColumn(MigrationModels.MigrationPlan plan, String shadowTable) {
+        for (MigrationModels.LoadTask task : plan.getLoadTasks()) {
+            if (shadowTable.equals(task.getTargetTable()) && task.getParameters() != null
+                    && task.getParameters().get("keyColumn") != null) {
+                return task.getParameters().get("keyColumn").toString();
+            }
+        }
+        return null;
+    }
+
+    private static String topReason(List<MigrationDeadLetter> segments) {
+        Map<String, Long> counts = new HashMap<>();
+        for (MigrationDeadLetter segment : segments) {
+            if (segment.getReason() != null) {
+                counts.merge(segment.getReason(), (long) segment.getRecordCount(), Long::sum);
+            }
+        }
+        return counts.entrySet().stream()
+            .max(Map.Entry.comparingByValue())
+            .map(Map.Entry::getKey)
+            .orElse(null);
+    }
+
+    private static List<String> limit(List<String> keys) {
+        return keys == null ? new ArrayList<>() : new ArrayList<>(keys.subList(0, Math.min(MAX_SAMPLE_KEYS, keys.size())));
+    }
+}
@@ -0,0 +1,1180 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.security.SqlInjectionValidator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * Staging tables for the {@link LoadService.LoadStrategy#STAGED} load strategy.
+ *
+ * Each live table gets an index-free, minimally logged staging copy that batches load
+ * into. Once they have, the live table's current rows are copied into the staging table
+ * and its primary key, indexes, foreign keys and grants are rebuilt there while the live
+ * table stays writable; change capture triggers record the keys written to it meanwhile.
+ * At cutover the live table is write-locked, just those rows are caught up, its triggers
+ * are recreated, and the two tables are swapped by rename, so the lock is held for the
+ * writes made since the copy rather than for the whole table. Where changes cannot be
+ * captured (no primary key, or a database without trigger support here) the copy and
+ * rebuild happen under the lock instead. TRUNCATE is not captured. The old live table is
+ * kept as a backup until cleanup, so both rollback paths are O(1):
+ * <ul>
+ *   <li>before cutover, drop the staging table - the live table was never touched</li>
+ *   <li>after cutover, rename the backup back into place</li>
+ * </ul>
+ *
+ * PostgreSQL and MySQL copy the full column definition (defaults, CHECK constraints,
+ * identity and generated columns); elsewhere the copy has only the columns, so tables with
+ * more than that are rejected. Tables referenced by foreign keys are rejected too: on most
+ * databases such references follow the renamed table to the backup instead of the new
+ * live table.
+ */
+@Service
+@RequiredArgsConstructor
+public class StagingTableManager {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(StagingTableManager.class);
+
+    private final Map<String, DataSource> targetDataSources;
+    private final SqlInjectionValidator sqlInjectionValidator;
+
+    /**
+     * Name of the staging table batches of a migration load into
+     */
+    public static String stagingTableName(String liveTable, Long migrationId) {
+        return liveTable + "__stg_" + migrationId;
+    }
+
+    static String backupTableName(String liveTable, Long migrationId) {
+        return liveTable + "__old_" + migrationId;
+    }
+
+    /**
+     * Keys of the rows written to the live table since its rows were copied to staging
+     */
+    static String deltaTableName(String stagingTable) {
+        return stagingTable + "_dlt";
+    }
+
+    /**
+     * Name of the change capture triggers, and their function, on the live table
+     */
+    private static String captureName(String stagingTable) {
+        return stagingTable + "_cdc";
+    }
+
+    /**
+     * Name of a live table's copy in a shadow schema
+     */
+    public static String shadowTableName(String liveTable, String shadowSchema) {
+        return shadowSchema + "." + liveTable.substring(liveTable.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Create the empty staging table of a live table. The live table's rows are added at
+     * cutover. Idempotent: a resumed load keeps the rows already staged.
+     */
+    public MigrationModels.StagedTable prepare(String targetSystem, String liveTable, Long migrationId) {
+        validate(liveTable);
+        MigrationModels.StagedTable staged = new MigrationModels.StagedTable();
+        staged.setTargetSystem(targetSystem);
+        staged.setLiveTable(liveTable);
+        staged.setStagingTable(stagingTableName(liveTable, migrationId));
+        staged.setBackupTable(backupTableName(liveTable, migrationId));
+        staged.setState(MigrationModels.StagedTable.STAGING);
+
+        jdbc(targetSystem).execute((ConnectionCallback<Void>) con -> {
+            if (resolve(con, staged.getStagingTable()) != null) {
+                log.info("Reusing staging table {} for {}", staged.getStagingTable(), liveTable);
+                return null;
+            }
+
+            TableRef live = resolve(con, liveTable);
+            if (live == null) {
+                throw new IllegalArgumentException("Table not found: " + liveTable);
+            }
+            List<String> referencing = referencingTables(con.getMetaData(), live);
+            if (!referencing.isEmpty()) {
+                throw new IllegalStateException("Table " + liveTable + " is referenced by foreign keys from "
+                    + referencing + " and cannot be swapped; use a direct load strategy");
+            }
+
+            Dialect dialect = Dialect.of(con.getMetaData().getDatabaseProductName());
+            if (!dialect.copiesDefinition()) {
+                Set<String> uncopied = uncopiedFeatures(con, dialect, live);
+                if (!uncopied.isEmpty()) {
+                    throw new IllegalStateException("Table " + liveTable + " has " + String.join(", ", uncopied)
+                        + ", which staging tables on " + con.getMetaData().getDatabaseProductName()
+                        + " do not copy; use a direct load strategy");
+                }
+            }
+            try (Statement statement = con.createStatement()) {
+                statement.execute(dialect.createStagingSql(liveTable, staged.getStagingTable()));
+            }
+            log.info("Created staging table {} for {}", staged.getStagingTable(), liveTable);
+            return null;
+        });
+
+        return staged;
+    }
+
+    /**
+     * Create an empty copy of a live table, with its primary key and indexes, in a shadow
+     * schema of the same target, creating the schema if needed. Foreign keys are not copied.
+     * Idempotent: a resumed rehearsal keeps the rows already loaded.
+     *
+     * @return the shadow table name
+     */
+    public String prepareShadow(String targetSystem, String liveTable, String shadowSchema) {
+        validate(liveTable);
+        sqlInjectionValidator.sanitizeIdentifier(shadowSchema);
+        String shadowTable = shadowTableName(liveTable, shadowSchema);
+
+        jdbc(targetSystem).execute((ConnectionCallback<Void>) con -> {
+            if (resolve(con, shadowTable) != null) {
+                log.info("Reusing shadow table {} for {}", shadowTable, liveTable);
+                return null;
+            }
+
+            TableRef live = resolve(con, liveTable);
+            if (live == null) {
+                throw new IllegalArgumentException("Table not found: " + liveTable);
+            }
+
+            DatabaseMetaData md = con.getMetaData();
+            Dialect dialect = Dialect.of(md.getDatabaseProductName());
+            try (Statement statement = con.createStatement()) {
+                if (!schemaExists(md, shadowSchema)) {
+                    statement.execute("CREATE SCHEMA " + shadowSchema);
+                }
+                statement.execute(dialect.createShadowSql(liveTable, shadowTable));
+                // Schemas scope index names on databases where they are not per table
+                for (String ddl : indexDdl(md, live, shadowTable, index -> index)) {
+                    statement.execute(ddl);
+                }
+            }
+            log.info("Created shadow table {} for {}", shadowTable, liveTable);
+            return null;
+        });
+
+        return shadowTable;
+    }
+
+    /**
+     * Drop a shadow table once its rehearsal has been reported
+     */
+    public void dropShadow(String targetSystem, String shadowTable) {
+        validate(shadowTable);
+        jdbc(targetSystem).execute((ConnectionCallback<Void>) con -> {
+            dropIfExists(con, shadowTable);
+            return null;
+        });
+        log.info("Dropped shadow table {}", shadowTable);
+    }
+
+    /**
+     * Copy the live table's rows into the loaded staging table and build the live table's
+     * primary key, indexes, foreign keys and grants on it, without locking the live table.
+     * Where the database can capture changes, triggers first record the key of every row
+     * written to the live table from here on, so {@link #cutOver} only has to catch those
+     * up under its lock. Elsewhere, or for tables without a primary key, the copy is left
+     * to the cutover.
+     */
+    public void copyLive(MigrationModels.StagedTable staged) {
+        jdbc(staged.getTargetSystem()).execute((ConnectionCallback<Void>) con -> {
+            DatabaseMetaData md = con.getMetaData();
+            Dialect dialect = Dialect.of(md.getDatabaseProductName());
+            TableRef live = resolve(con, staged.getLiveTable());
+            if (live == null) {
+                throw new IllegalStateException("Live table " + staged.getLiveTable() + " no longer exists");
+            }
+            String stagingTable = staged.getStagingTable();
+            String deltaTable = deltaTableName(stagingTable);
+
+            List<String> keys = primaryKeyColumns(md, live);
+            List<String> capture = keys.isEmpty() ? List.of()
+                : dialect.captureSql(staged.getLiveTable(), deltaTable, captureName(stagingTable), keys);
+            if (capture.isEmpty()) {
+                log.warn("Cannot capture changes to {}; its rows are copied under the cutover lock", staged.getLiveTable());
+                return null;
+            }
+
+            // Left over from an interrupted copy, whose rows were rolled back or are replaced below
+            removeCapture(con, dialect, staged);
+            try (Statement statement = con.createStatement()) {
+                statement.execute(dialect.createDeltaSql(staged.getLiveTable(), deltaTable, keys));
+                for (String sql : capture) {
+                    statement.execute(sql);
+                }
+            }
+
+            List<String> columns = copiedColumns(md, live);
+            List<String> ddl = new ArrayList<>();
+            if (!dialect.copiesIndexes()) {
+                ddl.addAll(indexDdl(md, live, stagingTable, index -> stagedName(index, stagingTable)));
+            }
+            ddl.addAll(foreignKeyDdl(md, dialect, live, stagingTable, new LinkedHashSet<>()));
+            ddl.addAll(grantDdl(con, dialect, live, stagingTable));
+            ddl.addAll(dialect.finishStagingSql(stagingTable));
+
+            long start = System.currentTimeMillis();
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try (Statement statement = con.createStatement()) {
+                // Rows written to the live table after the capture triggers were created are caught up at cutover
+                statement.executeUpdate(dialect.copySql(staged.getLiveTable(), stagingTable, columns));
+                for (String sql : ddl) {
+                    statement.execute(sql);
+                }
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+            log.info("Copied live rows and built the table definition on {} in {} ms",
+                stagingTable, System.currentTimeMillis() - start);
+            return null;
+        });
+
+        staged.setState(MigrationModels.StagedTable.COPIED);
+    }
+
+    /**
+     * Write-lock the live table, bring the staging table up to date with it and swap it in
+     * by rename. The previous live table becomes the backup.
+     *
+     * After {@link #copyLive} captured changes, only the rows written to the live table since
+     * the copy are replaced under the lock, along with the live table's triggers. Otherwise
+     * every live row is copied and the table definition built under the lock.
+     */
+    public void cutOver(MigrationModels.StagedTable staged) {
+        if (MigrationModels.StagedTable.STAGING.equals(staged.getState())) {
+            copyLive(staged);
+        }
+        jdbc(staged.getTargetSystem()).execute((ConnectionCallback<Void>) con -> {
+            DatabaseMetaData md = con.getMetaData();
+            Dialect dialect = Dialect.of(md.getDatabaseProductName());
+            TableRef live = resolve(con, staged.getLiveTable());
+            if (live == null) {
+                throw new IllegalStateException("Live table " + staged.getLiveTable() + " no longer exists");
+            }
+            String stagingTable = staged.getStagingTable();
+            String deltaTable = deltaTableName(stagingTable);
+            boolean captured = resolve(con, deltaTable) != null;
+
+            List<String> columns = copiedColumns(md, live);
+            Set<String> referenced = new LinkedHashSet<>();
+            List<String> foreignKeys = foreignKeyDdl(md, dialect, live, stagingTable, referenced);
+            List<String> ddl = new ArrayList<>();
+            if (captured) {
+                referenced.add(deltaTable);
+                ddl.addAll(catchUpSql(dialect, staged.getLiveTable(), stagingTable, deltaTable,
+                    primaryKeyColumns(md, live), columns));
+                ddl.addAll(dialect.dropCaptureSql(staged.getLiveTable(), captureName(stagingTable)));
+            } else {
+                ddl.add(dialect.copySql(staged.getLiveTable(), stagingTable, columns));
+                if (!dialect.copiesIndexes()) {
+                    ddl.addAll(indexDdl(md, live, stagingTable, index -> stagedName(index, stagingTable)));
+                }
+                ddl.addAll(foreignKeys);
+                ddl.addAll(grantDdl(con, dialect, live, stagingTable));
+                ddl.addAll(dialect.finishStagingSql(stagingTable));
+            }
+            // Created after the rows are in, so they do not fire on the copy
+            ddl.addAll(triggerDdl(con, dialect, live, stagingTable, Dialect.unqualified(captureName(stagingTable))));
+
+            long start = System.currentTimeMillis();
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try (Statement statement = con.createStatement()) {
+                for (String sql : dialect.lockSql(staged.getLiveTable(), stagingTable, referenced)) {
+                    statement.execute(sql);
+                }
+                for (String sql : ddl) {
+                    statement.execute(sql);
+                }
+                if (dialect == Dialect.POSTGRESQL) {
+                    handOverSequences(con, statement, staged.getLiveTable(), stagingTable);
+                    advanceSequences(con, statement, stagingTable, columns);
+                }
+                rename(statement, dialect,
+                    staged.getLiveTable(), staged.getBackupTable(),
+                    stagingTable, staged.getLiveTable());
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                unlock(con, dialect, staged.getLiveTable());
+                throw e;
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+            unlock(con, dialect, staged.getBackupTable());
+            if (captured) {
+                dropIfExists(con, deltaTable);
+            }
+            log.info("Swapped {} in with the live table locked for {} ms",
+                stagingTable, System.currentTimeMillis() - start);
+            return null;
+        });
+
+        staged.setState(MigrationModels.StagedTable.SWAPPED);
+        log.info("Cut over {}: staging table is live, previous data kept in {}",
+            staged.getLiveTable(), staged.getBackupTable());
+    }
+
+    /**
+     * Undo a staged load: drop the staging table, or swap the backup back after cutover
+     */
+    public void rollback(MigrationModels.StagedTable staged) {
+        jdbc(staged.getTargetSystem()).execute((ConnectionCallback<Void>) con -> {
+            Dialect dialect = Dialect.of(con.getMetaData().getDatabaseProductName());
+            if (MigrationModels.StagedTable.SWAPPED.equals(staged.getState())) {
+                boolean autoCommit = con.getAutoCommit();
+                con.setAutoCommit(false);
+                try (Statement statement = con.createStatement()) {
+                    rename(statement, dialect,
+                        staged.getLiveTable(), staged.getStagingTable(),
+                        staged.getBackupTable(), staged.getLiveTable());
+                    if (dialect == Dialect.POSTGRESQL) {
+                        // Serial sequences went to the staging table at cutover; the restored table still uses them
+                        handOverSequences(con, statement, staged.getStagingTable(), staged.getLiveTable());
+                    }
+                    con.commit();
+                } catch (SQLException e) {
+                    con.rollback();
+                    throw e;
+                } finally {
+                    con.setAutoCommit(autoCommit);
+                }
+            } else {
+                removeCapture(con, dialect, staged);
+            }
+            dropIfExists(con, staged.getStagingTable());
+            return null;
+        });
+
+        staged.setState(MigrationModels.StagedTable.ROLLED_BACK);
+        log.info("Rolled back staged load of {}", staged.getLiveTable());
+    }
+
+    /**
+     * Drop the backup of a cut-over table once the migration no longer needs to roll back.
+     * Serial sequences were handed to the new live table at cutover, so none depend on it.
+     */
+    public void dropBackup(MigrationModels.StagedTable staged) {
+        jdbc(staged.getTargetSystem()).execute((ConnectionCallback<Void>) con -> {
+            dropIfExists(con, staged.getBackupTable());
+            return null;
+        });
+        staged.setState(MigrationModels.StagedTable.COMPLETED);
+    }
+
+    /**
+     * Rename {@code from1} to {@code to1} and {@code from2} to {@code to2}. Atomic with
+     * MySQL's multi-table RENAME TABLE and with transactional DDL (PostgreSQL, SQL Server);
+     * elsewhere readers can briefly miss the table between the two renames.
+     */
+    private void rename(Statement statement, Dialect dialect, String from1, String to1, String from2, String to2)
+            throws SQLException {
+        if (dialect == Dialect.MYSQL) {
+            statement.execute("RENAME TABLE " + from1 + " TO " + to1 + ", " + from2 + " TO " + to2);
+            return;
+        }
+        statement.execute(dialect.renameSql(from1, to1));
+        statement.execute(dialect.renameSql(from2, to2));
+    }
+
+    private void unlock(Connection con, Dialect dialect, String table) {
+        try (Statement statement = con.createStatement()) {
+            for (String sql : dialect.unlockSql(table)) {
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            log.warn("Could not release the cutover lock on {}: {}", table, e.getMessage());
+        }
+    }
+
+    /**
+     * Drop the change capture triggers and delta table of a staged table, if there are any
+     */
+    private void removeCapture(Connection con, Dialect dialect, MigrationModels.StagedTable staged)
+            throws SQLException {
+        String deltaTable = deltaTableName(staged.getStagingTable());
+        if (resolve(con, deltaTable) == null) {
+            return;
+        }
+        for (String sql : dialect.dropCaptureSql(staged.getLiveTable(), captureName(staged.getStagingTable()))) {
+            try (Statement statement = con.createStatement()) {
+                statement.execute(sql);
+            } catch (SQLException e) {
+                // Triggers the interrupted copy did not get to create
+                log.debug("Could not drop capture trigger of {}: {}", staged.getLiveTable(), e.getMessage());
+            }
+        }
+        dropIfExists(con, deltaTable);
+    }
+
+    /**
+     * Replace the staging table's copies of the rows whose keys were captured with the live
+     * table's current rows; a deleted row has none, and a key also loaded by the migration
+     * keeps the live row. Bounded by the writes made since the copy.
+     */
+    private static List<String> catchUpSql(Dialect dialect, String liveTable, String stagingTable,
+                                           String deltaTable, List<String> keys, List<String> columns) {
+        return List.of(
+            "DELETE FROM " + stagingTable + captured(stagingTable, deltaTable, keys),
+            dialect.copySql(liveTable, stagingTable, columns) + captured(liveTable, deltaTable, keys));
+    }
+
+    private static String captured(String table, String deltaTable, List<String> keys) {
+        // No aliases: MySQL only lets a locked session use a table under the name it was locked by
+        StringJoiner match = new StringJoiner(" AND ");
+        for (String key : keys) {
+            match.add(deltaTable + "." + key + " = " + table + "." + key);
+        }
+        return " WHERE EXISTS (SELECT 1 FROM " + deltaTable + " WHERE " + match + ")";
+    }
+
+    private void dropIfExists(Connection con, String table) throws SQLException {
+        if (resolve(con, table) != null) {
+            try (Statement statement = con.createStatement()) {
+                statement.execute("DROP TABLE " + table);
+            }
+        }
+    }
+
+    /**
+     * Primary key and index DDL of the live table, retargeted at a copy of it
+     */
+    private List<String> indexDdl(DatabaseMetaData md, TableRef live, String stagingTable,
+                                  java.util.function.UnaryOperator<String> indexName) throws SQLException {
+        List<String> ddl = new ArrayList<>();
+
+        String primaryKeyName = null;
+        try (ResultSet rs = md.getPrimaryKeys(live.catalog, live.schema, live.name)) {
+            while (rs.next()) {
+                primaryKeyName = rs.getString("PK_NAME");
+            }
+        }
+        List<String> primaryKeyColumns = primaryKeyColumns(md, live);
+        if (!primaryKeyColumns.isEmpty()) {
+            ddl.add("ALTER TABLE " + stagingTable + " ADD PRIMARY KEY (" + String.join(", ", primaryKeyColumns) + ")");
+        }
+
+        Map<String, SortedMap<Short, String>> indexColumns = new LinkedHashMap<>();
+        Map<String, Boolean> unique = new HashMap<>();
+        try (ResultSet rs = md.getIndexInfo(live.catalog, live.schema, live.name, false, true)) {
+            while (rs.next()) {
+                String indexName = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (indexName == null || column == null || rs.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) {
+                    continue;
+                }
+                indexColumns.computeIfAbsent(indexName, n -> new TreeMap<>()).put(rs.getShort("ORDINAL_POSITION"), column);
+                unique.put(indexName, !rs.getBoolean("NON_UNIQUE"));
+            }
+        }
+
+        for (Map.Entry<String, SortedMap<Short, String>> index : indexColumns.entrySet()) {
+            List<String> columns = new ArrayList<>(index.getValue().values());
+            boolean isUnique = unique.get(index.getKey());
+            // The primary key's own index is created with the constraint
+            if (index.getKey().equals(primaryKeyName) || (isUnique && columns.equals(primaryKeyColumns))) {
+                continue;
+            }
+            ddl.add("CREATE " + (isUnique ? "UNIQUE " : "") + "INDEX " + indexName.apply(index.getKey())
+                + " ON " + stagingTable + " (" + String.join(", ", columns) + ")");
+        }
+        return ddl;
+    }
+
+    private static List<String> primaryKeyColumns(DatabaseMetaData md, TableRef live) throws SQLException {
+        SortedMap<Short, String> primaryKey = new TreeMap<>();
+        try (ResultSet rs = md.getPrimaryKeys(live.catalog, live.schema, live.name)) {
+            while (rs.next()) {
+                primaryKey.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+            }
+        }
+        return new ArrayList<>(primaryKey.values());
+    }
+
+    /**
+     * Foreign keys of the live table, retargeted at a copy of it; the tables they reference
+     * are added to {@code referenced}. Self-references point at the copy, so they follow it
+     * into place.
+     */
+    private List<String> foreignKeyDdl(DatabaseMetaData md, Dialect dialect, TableRef live, String stagingTable,
+                                       Set<String> referenced) throws SQLException {
+        Map<String, SortedMap<Short, String[]>> keyColumns = new LinkedHashMap<>();
+        Map<String, String> parents = new HashMap<>();
+        Map<String, String> rules = new HashMap<>();
+        try (ResultSet rs = md.getImportedKeys(live.catalog, live.schema, live.name)) {
+            while (rs.next()) {
+                String parentSchema = rs.getString("PKTABLE_SCHEM") != null
+                    ? rs.getString("PKTABLE_SCHEM") : rs.getString("PKTABLE_CAT");
+                String parentName = rs.getString("PKTABLE_NAME");
+                boolean self = parentName.equals(live.name) && Objects.equals(parentSchema, schemaOf(live));
+                String key = rs.getString("FK_NAME") != null ? rs.getString("FK_NAME") : parentName;
+                keyColumns.computeIfAbsent(key, k -> new TreeMap<>()).put(rs.getShort("KEY_SEQ"),
+                    new String[]{rs.getString("FKCOLUMN_NAME"), rs.getString("PKCOLUMN_NAME")});
+                parents.put(key, self ? stagingTable : parentSchema != null ? parentSchema + "." + parentName : parentName);
+                rules.put(key, referentialAction("DELETE", rs.getShort("DELETE_RULE"))
+                    + (dialect == Dialect.ORACLE ? "" : referentialAction("UPDATE", rs.getShort("UPDATE_RULE"))));
+            }
+        }
+
+        List<String> ddl = new ArrayList<>();
+        for (Map.Entry<String, SortedMap<Short, String[]>> key : keyColumns.entrySet()) {
+            List<String> columns = new ArrayList<>();
+            List<String> referenced = new ArrayList<>();
+            key.getValue().values().forEach(pair -> {
+                columns.add(pair[0]);
+                referenced.add(pair[1]);
+            });
+            referenced.add(parents.get(key.getKey()));
+            ddl.add("ALTER TABLE " + stagingTable
+                + " ADD CONSTRAINT " + stagedName(key.getKey(), stagingTable)
+                + " FOREIGN KEY (" + String.join(", ", columns) + ") REFERENCES " + parents.get(key.getKey())
+                + " (" + String.join(", ", referenced) + ")" + rules.get(key.getKey()));
+        }
+        return ddl;
+    }
+
+    private static String referentialAction(String event, short rule) {
+        switch (rule) {
+            case DatabaseMetaData.importedKeyCascade:
+                return " ON " + event + " CASCADE";
+            case DatabaseMetaData.importedKeySetNull:
+                return " ON " + event + " SET NULL";
+            case DatabaseMetaData.importedKeySetDefault:
+                return " ON " + event + " SET DEFAULT";
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * Triggers of the live table other than the change capture ones, recreated on a copy of
+     * it. Databases that cannot copy triggers reject tables having them when the staging
+     * table is prepared.
+     */
+    private List<String> triggerDdl(Connection con, Dialect dialect, TableRef live, String stagingTable,
+                                    String captureTrigger) throws SQLException {
+        List<String> ddl = new ArrayList<>();
+        if (dialect == Dialect.POSTGRESQL) {
+            try (PreparedStatement ps = con.prepareStatement(
+                    "SELECT pg_get_triggerdef(t.oid), quote_ident(n.nspname) || '.' || quote_ident(c.relname), t.tgname"
+                    + " FROM pg_trigger t JOIN pg_class c ON c.oid = t.tgrelid"
+                    + " JOIN pg_namespace n ON n.oid = c.relnamespace"
+                    + " WHERE n.nspname = ? AND c.relname = ? AND NOT t.tgisinternal")) {
+                ps.setString(1, schemaOf(live));
+                ps.setString(2, live.name);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (rs.getString(3).startsWith(captureTrigger)) {
+                            continue;
+                        }
+                        // Trigger names are per table, only the table changes
+                        String on = " ON " + rs.getString(2) + " ";
+                        String definition = rs.getString(1);
+                        int at = definition.indexOf(on);
+                        if (at < 0) {
+                            throw new IllegalStateException("Cannot retarget trigger of " + live.name + ": " + definition);
+                        }
+                        ddl.add(definition.substring(0, at) + " ON " + stagingTable + " " + definition.substring(at + on.length()));
+                    }
+                }
+            }
+        } else if (dialect == Dialect.MYSQL) {
+            try (PreparedStatement ps = con.prepareStatement(
+                    "SELECT TRIGGER_NAME, ACTION_TIMING, EVENT_MANIPULATION, ACTION_STATEMENT"
+                    + " FROM INFORMATION_SCHEMA.TRIGGERS WHERE EVENT_OBJECT_SCHEMA = ? AND EVENT_OBJECT_TABLE = ?"
+                    + " ORDER BY ACTION_ORDER")) {
+                ps.setString(1, schemaOf(live));
+                ps.setString(2, live.name);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (rs.getString(1).startsWith(captureTrigger)) {
+                            continue;
+                        }
+                        // Trigger names are schema-wide
+                        ddl.add("CREATE TRIGGER " + stagedName(rs.getString(1), stagingTable) + " "
+                            + rs.getString(2) + " " + rs.getString(3) + " ON " + stagingTable
+                            + " FOR EACH ROW " + rs.getString(4));
+                    }
+                }
+            }
+        }
+        return ddl;
+    }
+
+    /**
+     * Privileges granted on the live table, granted again on a copy of it. MySQL grants
+     * table privileges by name, so they carry over to the swapped-in table by themselves.
+     */
+    private List<String> grantDdl(Connection con, Dialect dialect, TableRef live, String stagingTable)
+            throws SQLException {
+        List<String> ddl = new ArrayList<>();
+        if (dialect.grantsSql() == null) {
+            return ddl;
+        }
+        try (PreparedStatement ps = con.prepareStatement(dialect.grantsSql())) {
+            ps.setString(1, schemaOf(live));
+            ps.setString(2, live.name);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String grantee = rs.getString(1);
+                    ddl.add("GRANT " + rs.getString(2) + " ON " + stagingTable + " TO "
+                        + ("PUBLIC".equalsIgnoreCase(grantee) ? "PUBLIC" : "\"" + grantee.replace("\"", "\"\"") + "\""));
+                }
+            }
+        }
+        return ddl;
+    }
+
+    /**
+     * Give the serial sequences one table owns to another table's same-named columns, so
+     * dropping the first does not drop sequences the second still draws from
+     */
+    private void handOverSequences(Connection con, Statement statement, String from, String to) throws SQLException {
+        Map<String, String> sequences = new LinkedHashMap<>();
+        try (PreparedStatement ps = con.prepareStatement(
+                "SELECT quote_ident(a.attname), s.oid::regclass::text FROM pg_depend d"
+                + " JOIN pg_class s ON s.oid = d.objid AND s.relkind = 'S'"
+                + " JOIN pg_attribute a ON a.attrelid = d.refobjid AND a.attnum = d.refobjsubid"
+                + " WHERE d.classid = 'pg_class'::regclass AND d.refobjid = ?::regclass AND d.deptype = 'a'")) {
+            ps.setString(1, from);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sequences.put(rs.getString(1), rs.getString(2));
+                }
+            }
+        }
+        for (Map.Entry<String, String> sequence : sequences.entrySet()) {
+            statement.execute("ALTER SEQUENCE " + sequence.getValue() + " OWNED BY " + to + "." + sequence.getKey());
+        }
+    }
+
+    /**
+     * Move the identity and serial sequences of a table past the keys loaded into it, so the
+     * next generated key does not collide with a staged row
+     */
+    private void advanceSequences(Connection con, Statement statement, String table, List<String> columns)
+            throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("SELECT pg_get_serial_sequence(?, ?)")) {
+            for (String column : columns) {
+                ps.setString(1, table);
+                ps.setString(2, column);
+                String sequence;
+                try (ResultSet rs = ps.executeQuery()) {
+                    sequence = rs.next() ? rs.getString(1) : null;
+                }
+                if (sequence != null) {
+                    statement.execute("SELECT setval('" + sequence.replace("'", "''") + "', GREATEST(MAX(" + column
+                        + "), (SELECT last_value FROM " + sequence + "))) FROM " + table
+                        + " HAVING MAX(" + column + ") IS NOT NULL");
+                }
+            }
+        }
+    }
+
+    /**
+     * Columns copied from the live table at cutover; generated columns compute themselves
+     */
+    private static List<String> copiedColumns(DatabaseMetaData md, TableRef live) throws SQLException {
+        SortedMap<Integer, String> columns = new TreeMap<>();
+        try (ResultSet rs = md.getColumns(live.catalog, live.schema, live.name, null)) {
+            while (rs.next()) {
+                if (!"YES".equals(rs.getString("IS_GENERATEDCOLUMN"))) {
+                    columns.put(rs.getInt("ORDINAL_POSITION"), rs.getString("COLUMN_NAME"));
+                }
+            }
+        }
+        return new ArrayList<>(columns.values());
+    }
+
+    /**
+     * What a column-only copy of the live table would lose. A check the database cannot
+     * answer counts as lost.
+     */
+    private static Set<String> uncopiedFeatures(Connection con, Dialect dialect, TableRef live) throws SQLException {
+        Set<String> features = new LinkedHashSet<>();
+        try (ResultSet rs = con.getMetaData().getColumns(live.catalog, live.schema, live.name, null)) {
+            while (rs.next()) {
+                if (rs.getString("COLUMN_DEF") != null) {
+                    features.add("column defaults");
+                }
+                if ("YES".equals(rs.getString("IS_AUTOINCREMENT"))) {
+                    features.add("identity columns");
+                }
+                if ("YES".equals(rs.getString("IS_GENERATEDCOLUMN"))) {
+                    features.add("generated columns");
+                }
+            }
+        }
+        if (count(con, dialect.checkConstraintCountSql(), live) != 0) {
+            features.add("check constraints");
+        }
+        if (count(con, dialect.triggerCountSql(), live) != 0) {
+            features.add("triggers");
+        }
+        return features;
+    }
+
+    /**
+     * Count from a catalog query taking the table's schema and name, or -1 if it fails
+     */
+    private static long count(Connection con, String sql, TableRef live) {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, schemaOf(live));
+            ps.setString(2, live.name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            log.debug("Catalog query failed for {}: {}", live.name, e.getMessage());
+            return -1;
+        }
+    }
+
+    private List<String> referencingTables(DatabaseMetaData md, TableRef live) throws SQLException {
+        Set<String> tables = new LinkedHashSet<>();
+        try (ResultSet rs = md.getExportedKeys(live.catalog, live.schema, live.name)) {
+            while (rs.next()) {
+                tables.add(rs.getString("FKTABLE_NAME"));
+            }
+        }
+        return new ArrayList<>(tables);
+    }
+
+    private static String stagedName(String objectName, String stagingTable) {
+        String suffix = stagingTable.substring(stagingTable.lastIndexOf("__stg_") + 2);
+        String name = objectName + "_" + suffix;
+        // Index, constraint and trigger names are schema-wide on some databases; keep within common identifier limits
+        return name.length() <= 63 ? name : name.substring(0, 63 - suffix.length() - 1) + "_" + suffix;
+    }
+
+    /**
+     * Resolve a table name, optionally schema-qualified, in whatever case the database stores it
+     */
+    static TableRef resolve(Connection con, String table) throws SQLException {
+        String[] parts = table.split("\\.");
+        String schema = parts.length > 1 ? parts[parts.length - 2] : null;
+        String name = parts[parts.length - 1];
+
+        DatabaseMetaData md = con.getMetaData();
+        for (String candidate : List.of(name, name.toUpperCase(Locale.ROOT), name.toLowerCase(Locale.ROOT))) {
+            String schemaCandidate = schema == null ? null
+                : candidate.equals(name) ? schema
+                : candidate.equals(name.toUpperCase(Locale.ROOT)) ? schema.toUpperCase(Locale.ROOT)
+                : schema.toLowerCase(Locale.ROOT);
+            try (ResultSet rs = md.getTables(con.getCatalog(), schemaCandidate, candidate, null)) {
+                if (rs.next()) {
+                    return new TableRef(rs.getString("TABLE_CAT"), rs.getString("TABLE_SCHEM"), rs.getString("TABLE_NAME"));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Schema of a table; MySQL reports its database as the catalog
+     */
+    private static String schemaOf(TableRef table) {
+        return table.schema != null ? table.schema : table.catalog;
+    }
+
+    private static boolean schemaExists(DatabaseMetaData md, String schema) throws SQLException {
+        // MySQL reports databases as catalogs rather than schemas
+        try (ResultSet schemas = md.getSchemas(); ResultSet catalogs = md.getCatalogs()) {
+            while (schemas.next()) {
+                if (schema.equalsIgnoreCase(schemas.getString("TABLE_SCHEM"))) {
+                    return true;
+                }
+            }
+            while (catalogs.next()) {
+                if (schema.equalsIgnoreCase(catalogs.getString("TABLE_CAT"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void validate(String table) {
+        for (String part : table.split("\\.")) {
+            sqlInjectionValidator.sanitizeIdentifier(part);
+        }
+    }
+
+    private JdbcTemplate jdbc(String targetSystem) {
+        DataSource dataSource = targetDataSources.get(targetSystem);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("No data source registered for target system: " + targetSystem);
+        }
+        return new JdbcTemplate(dataSource);
+    }
+
+    static final class TableRef {
+        final String catalog;
+        final String schema;
+        final String name;
+
+        TableRef(String catalog, String schema, String name) {
+            this.catalog = catalog;
+            this.schema = schema;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Staging DDL per database: minimal logging while loading, the live table write-locked
+     * during cutover, durable before the swap
+     */
+    enum Dialect {
+        POSTGRESQL {
+            @Override
+            String createStagingSql(String live, String staging) {
+                // Defaults, CHECK and NOT NULL constraints, identity and generated columns, storage and comments
+                return "CREATE UNLOGGED TABLE " + staging + " (LIKE " + live + " INCLUDING ALL EXCLUDING INDEXES)";
+            }
+
+            @Override
+            String createShadowSql(String live, String shadow) {
+                return "CREATE TABLE " + shadow + " (LIKE " + live + " INCLUDING DEFAULTS)";
+            }
+
+            @Override
+            boolean copiesDefinition() {
+                return true;
+            }
+
+            @Override
+            String copySql(String live, String staging, List<String> columns) {
+                // Identity columns generated ALWAYS keep the live table's values
+                String list = String.join(", ", columns);
+                return "INSERT INTO " + staging + " (" + list + ") OVERRIDING SYSTEM VALUE SELECT " + list + " FROM " + live;
+            }
+
+            @Override
+            List<String> captureSql(String live, String delta, String name, List<String> keys) {
+                String insert = "INSERT INTO " + delta + " (" + columns("", keys) + ") VALUES ";
+                return List.of(
+                    "CREATE OR REPLACE FUNCTION " + name + "() RETURNS trigger LANGUAGE plpgsql AS $$ BEGIN"
+                        + " IF TG_OP <> 'INSERT' THEN " + insert + "(" + columns("OLD.", keys) + "); END IF;"
+                        + " IF TG_OP <> 'DELETE' THEN " + insert + "(" + columns("NEW.", keys) + "); END IF;"
+                        + " RETURN NULL; END $$",
+                    "CREATE TRIGGER " + unqualified(name) + " AFTER INSERT OR UPDATE OR DELETE ON " + live
+                        + " FOR EACH ROW EXECUTE FUNCTION " + name + "()");
+            }
+
+            @Override
+            List<String> dropCaptureSql(String live, String name) {
+                return List.of("DROP TRIGGER IF EXISTS " + unqualified(name) + " ON " + live,
+                    "DROP FUNCTION IF EXISTS " + name + "()");
+            }
+
+            @Override
+            List<String> lockSql(String live, String staging, Collection<String> parents) {
+                // Blocks writers, not readers, until the swap commits
+                return List.of("LOCK TABLE " + live + " IN EXCLUSIVE MODE");
+            }
+
+            @Override
+            List<String> finishStagingSql(String staging) {
+                return List.of("ALTER TABLE " + staging + " SET LOGGED", "ANALYZE " + staging);
+            }
+
+            @Override
+            String grantsSql() {
+                return "SELECT CASE WHEN a.grantee = 0 THEN 'PUBLIC' ELSE pg_get_userbyid(a.grantee) END, a.privilege_type"
+                    + " FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace, aclexplode(c.relacl) a"
+                    + " WHERE n.nspname = ? AND c.relname = ? AND a.grantee <> c.relowner";
+            }
+        },
+        MYSQL {
+            @Override
+            String createStagingSql(String live, String staging) {
+                // Columns, indexes and CHECK constraints; foreign keys and triggers are added at cutover
+                return "CREATE TABLE " + staging + " LIKE " + live;
+            }
+
+            @Override
+            boolean copiesDefinition() {
+                return true;
+            }
+
+            @Override
+            boolean copiesIndexes() {
+                return true;
+            }
+
+            @Override
+            List<String> captureSql(String live, String delta, String name, List<String> keys) {
+                // Trigger names are schema-wide, and live in the schema of their table
+                String insert = " FOR EACH ROW INSERT INTO " + delta + " (" + columns("", keys) + ") VALUES ";
+                return List.of(
+                    "CREATE TRIGGER " + name + "_i AFTER INSERT ON " + live + insert + "(" + columns("NEW.", keys) + ")",
+                    "CREATE TRIGGER " + name + "_u AFTER UPDATE ON " + live + insert
+                        + "(" + columns("OLD.", keys) + "), (" + columns("NEW.", keys) + ")",
+                    "CREATE TRIGGER " + name + "_d AFTER DELETE ON " + live + insert + "(" + columns("OLD.", keys) + ")");
+            }
+
+            @Override
+            List<String> dropCaptureSql(String live, String name) {
+                return List.of("DROP TRIGGER IF EXISTS " + name + "_i",
+                    "DROP TRIGGER IF EXISTS " + name + "_u",
+                    "DROP TRIGGER IF EXISTS " + name + "_d");
+            }
+
+            @Override
+            List<String> lockSql(String live, String staging, Collection<String> parents) {
+                StringBuilder sql = new StringBuilder("LOCK TABLES " + live + " WRITE, " + staging + " WRITE");
+                // Every table a locked session touches must be locked, including referenced ones
+                for (String parent : parents) {
+                    if (!parent.equals(staging) && !parent.equals(live)) {
+                        sql.append(", ").append(parent).append(" READ");
+                    }
+                }
+                return List.of(sql.toString());
+            }
+
+            @Override
+            List<String> unlockSql(String table) {
+                return List.of("UNLOCK TABLES");
+            }
+
+            @Override
+            String grantsSql() {
+                return null;
+            }
+        },
+        SQLSERVER {
+            @Override
+            String createStagingSql(String live, String staging) {
+                // SELECT INTO is minimally logged under the simple and bulk-logged recovery models
+                return "SELECT * INTO " + staging + " FROM " + live + " WHERE 1 = 0";
+            }
+
+            @Override
+            String createDeltaSql(String live, String delta, List<String> keys) {
+                // A union drops the identity property, so the triggers can insert keys
+                String list = String.join(", ", keys);
+                return "SELECT " + list + " INTO " + delta + " FROM " + live + " WHERE 1 = 0"
+                    + " UNION ALL SELECT " + list + " FROM " + live + " WHERE 1 = 0";
+            }
+
+            @Override
+            List<String> captureSql(String live, String delta, String name, List<String> keys) {
+                String list = columns("", keys);
+                return List.of("CREATE TRIGGER " + name + " ON " + live + " AFTER INSERT, UPDATE, DELETE AS"
+                    + " SET NOCOUNT ON; INSERT INTO " + delta + " (" + list + ")"
+                    + " SELECT " + list + " FROM inserted UNION ALL SELECT " + list + " FROM deleted");
+            }
+
+            @Override
+            List<String> dropCaptureSql(String live, String name) {
+                return List.of("DROP TRIGGER IF EXISTS " + name);
+            }
+
+            @Override
+            List<String> lockSql(String live, String staging, Collection<String> parents) {
+                // A table-level update lock blocks writers, not readers, until the swap commits
+                return List.of("SELECT TOP 0 * FROM " + live + " WITH (TABLOCK, UPDLOCK, HOLDLOCK)");
+            }
+
+            @Override
+            String triggerCountSql() {
+                return "SELECT COUNT(*) FROM sys.triggers t JOIN sys.tables o ON o.object_id = t.parent_id"
+                    + " WHERE SCHEMA_NAME(o.schema_id) = ? AND o.name = ?";
+            }
+
+            @Override
+            String renameSql(String from, String to) {
+                return "EXEC sp_rename '" + from + "', '" + unqualified(to) + "'";
+            }
+        },
+        ORACLE {
+            @Override
+            String createStagingSql(String live, String staging) {
+                return "CREATE TABLE " + staging + " NOLOGGING AS SELECT * FROM " + live + " WHERE 1 = 0";
+            }
+
+            @Override
+            String createShadowSql(String live, String shadow) {
+                return "CREATE TABLE " + shadow + " AS SELECT * FROM " + live + " WHERE 1 = 0";
+            }
+
+            @Override
+            List<String> captureSql(String live, String delta, String name, List<String> keys) {
+                String insert = "INSERT INTO " + delta + " (" + columns("", keys) + ") VALUES ";
+                return List.of("CREATE TRIGGER " + name + " AFTER INSERT OR UPDATE OR DELETE ON " + live
+                    + " FOR EACH ROW BEGIN"
+                    + " IF NOT INSERTING THEN " + insert + "(" + columns(":OLD.", keys) + "); END IF;"
+                    + " IF NOT DELETING THEN " + insert + "(" + columns(":NEW.", keys) + "); END IF;"
+                    + " END;");
+            }
+
+            @Override
+            List<String> dropCaptureSql(String live, String name) {
+                return List.of("DROP TRIGGER " + name);
+            }
+
+            @Override
+            List<String> lockSql(String live, String staging, Collection<String> parents) {
+                // DDL commits, ending any LOCK TABLE; a read-only table stays read-only
+                return List.of("ALTER TABLE " + live + " READ ONLY");
+            }
+
+            @Override
+            List<String> unlockSql(String table) {
+                return List.of("ALTER TABLE " + table + " READ WRITE");
+            }
+
+            @Override
+            List<String> finishStagingSql(String staging) {
+                return List.of("ALTER TABLE " + staging + " LOGGING");
+            }
+
+            @Override
+            String checkConstraintCountSql() {
+                return "SELECT COUNT(*) FROM all_constraints WHERE owner = ? AND table_name = ?"
+                    + " AND constraint_type = 'C' AND search_condition_vc NOT LIKE '%IS NOT NULL'";
+            }
+
+            @Override
+            String triggerCountSql() {
+                return "SELECT COUNT(*) FROM all_triggers WHERE table_owner = ? AND table_name = ?";
+            }
+
+            @Override
+            String grantsSql() {
+                return "SELECT grantee, privilege FROM all_tab_privs WHERE table_schema = ? AND table_name = ?";
+            }
+        },
+        GENERIC;
+
+        String createStagingSql(String live, String staging) {
+            return "CREATE TABLE " + staging + " AS SELECT * FROM " + live + " WHERE 1 = 0";
+        }
+
+        /**
+         * Logged like the live table, so rehearsal throughput matches the real load
+         */
+        String createShadowSql(String live, String shadow) {
+            return createStagingSql(live, shadow);
+        }
+
+        /**
+         * Whether the staging table gets the live table's full column definition rather
+         * than just its columns
+         */
+        boolean copiesDefinition() {
+            return false;
+        }
+
+        boolean copiesIndexes() {
+            return false;
+        }
+
+        String copySql(String live, String staging, List<String> columns) {
+            String list = String.join(", ", columns);
+            return "INSERT INTO " + staging + " (" + list + ") SELECT " + list + " FROM " + live;
+        }
+
+        String createDeltaSql(String live, String delta, List<String> keys) {
+            return "CREATE TABLE " + delta + " AS SELECT " + String.join(", ", keys) + " FROM " + live + " WHERE 1 = 0";
+        }
+
+        /**
+         * Triggers recording into the delta table the key of every row inserted, updated or
+         * deleted in the live table; none where the database cannot capture changes
+         */
+        List<String> captureSql(String live, String delta, String name, List<String> keys) {
+            return List.of();
+        }
+
+        List<String> dropCaptureSql(String live, String name) {
+            return List.of();
+        }
+
+        /**
+         * Statements keeping writers off the live table until the swap; none where the
+         * database has no table lock that survives DDL
+         */
+        List<String> lockSql(String live, String staging, Collection<String> parents) {
+            return List.of();
+        }
+
+        List<String> unlockSql(String table) {
+            return List.of();
+        }
+
+        List<String> finishStagingSql(String staging) {
+            return List.of();
+        }
+
+        /**
+         * Catalog queries taking a table's schema and name
+         */
+        String checkConstraintCountSql() {
+            return "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS"
+                + " WHERE CONSTRAINT_TYPE = 'CHECK' AND TABLE_SCHEMA = ? AND TABLE_NAME = ?";
+        }
+
+        String triggerCountSql() {
+            return "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TRIGGERS WHERE EVENT_OBJECT_SCHEMA = ? AND EVENT_OBJECT_TABLE = ?";
+        }
+
+        /**
+         * Grantee and privilege of each grant on a table, or null if grants follow the name
+         */
+        String grantsSql() {
+            return "SELECT GRANTEE, PRIVILEGE_TYPE FROM INFORMATION_SCHEMA.TABLE_PRIVILEGES"
+                + " WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? AND GRANTEE <> GRANTOR";
+        }
+
+        String renameSql(String from, String to) {
+            return "ALTER TABLE " + from + " RENAME TO " + unqualified(to);
+        }
+
+        static Dialect of(String productName) {
+            String product = productName != null ? productName.toLowerCase(Locale.ROOT) : "";
+            if (product.contains("postgres")) {
+                return POSTGRESQL;
+            }
+            if (product.contains("mysql") || product.contains("mariadb")) {
+                return MYSQL;
+            }
+            if (product.contains("sql server")) {
+                return SQLSERVER;
+            }
+            if (product.contains("oracle")) {
+                return ORACLE;
+            }
+            return GENERIC;
+        }
+
+        static String unqualified(String table) {
+            return table.substring(table.lastIndexOf('.') + 1);
+        }
+
+        private static String columns(String prefix, List<String> columns) {
+            StringJoiner list = new StringJoiner(", ");
+            columns.forEach(column -> list.add(prefix + column));
+            return list.toString();
+        }
+    }
+}
@@ -0,0 +1,725 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.domain.migration.ValidationRule;
+import com.jivs.platform.domain.quality.Severity;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Validation rules compiled once for a ValidationContext.
+ *
+ * Column rules (DATA_TYPE, CONSTRAINTS, COMPLETENESS, UNIQUENESS, FORMAT) are turned into
+ * typed checkers with precompiled patterns and grouped by column, so the sample data is
+ * walked in a single pass: every column is split into chunks that are evaluated in
+ * parallel, and each checker sees each value of its column once. Chunk results are merged
+ * in chunk order, so the reported errors match a sequential rule-by-rule evaluation.
+ *
+ * Uniqueness over columns larger than the in-memory key limit is checked exactly with
+ * bounded memory by {@link KeySetAnalyzer} after the scan; when the context asks for
+ * estimates only, mergeable HyperLogLog sketches are built during the scan instead.
+ *
+ * SCHEMA, REFERENTIAL and BUSINESS rules do not scan sample values and are still executed
+ * by ValidationService.
+ */
+final class ValidationPlan {
+
+    private final List<PlannedRule> rules = new ArrayList<>();
+    private final Map<String, List<ColumnCheck>> checksByColumn = new LinkedHashMap<>();
+    private final KeySetAnalyzer keySetAnalyzer;
+    private final int inMemoryKeyLimit;
+
+    private ValidationPlan(KeySetAnalyzer keySetAnalyzer, int inMemoryKeyLimit) {
+        this.keySetAnalyzer = keySetAnalyzer;
+        this.inMemoryKeyLimit = inMemoryKeyLimit;
+    }
+
+    /**
+     * Compile the context's rules. Rules that cannot be compiled (e.g. an invalid regex)
+     * carry their failure and are reported as failed rules.
+     */
+    static ValidationPlan compile(ValidationService.ValidationContext context,
+                                  KeySetAnalyzer keySetAnalyzer, int inMemoryKeyLimit) {
+        ValidationPlan plan = new ValidationPlan(keySetAnalyzer, inMemoryKeyLimit);
+        Map<String, Pattern> patterns = new HashMap<>();
+
+        List<ValidationRule> validationRules = context.getValidationRules() != null
+            ? context.getValidationRules() : Collections.emptyList();
+
+        for (ValidationRule rule : validationRules) {
+            PlannedRule planned = new PlannedRule(rule);
+            try {
+                planned.columnRule = plan.compileRule(rule, context, patterns, planned.checks);
+            } catch (RuntimeException e) {
+                planned.failure = e;
+                planned.checks.clear();
+            }
+            plan.rules.add(planned);
+            for (ColumnCheck check : planned.checks) {
+                if (check.scanned()) {
+                    plan.checksByColumn.computeIfAbsent(check.field, f -> new ArrayList<>()).add(check);
+                }
+            }
+        }
+
+        return plan;
+    }
+
+    List<PlannedRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Walk the sample data once, feeding every checker of each column, and merge the
+     * per-chunk results
+     */
+    ScanResult scan(Map<String, List<Object>> sampleData, int chunkSize) {
+        ScanResult result = new ScanResult(sampleData);
+        if (sampleData == null || checksByColumn.isEmpty()) {
+            return result;
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        Map<ColumnCheck, Partial[]> partials = new IdentityHashMap<>();
+
+        for (Map.Entry<String, List<ColumnCheck>> entry : checksByColumn.entrySet()) {
+            List<Object> values = sampleData.get(entry.getKey());
+            if (values == null) {
+                continue;
+            }
+            if (!(values instanceof RandomAccess)) {
+                values = new ArrayList<>(values);
+            }
+
+            int size = values.size();
+            int chunkCount = Math.max(1, (size + chunkSize - 1) / chunkSize);
+            for (ColumnCheck check : entry.getValue()) {
+                partials.put(check, new Partial[chunkCount]);
+            }
+            for (int c = 0; c < chunkCount; c++) {
+                int from = c * chunkSize;
+                chunks.add(new Chunk(entry.getValue(), values, c, from, Math.min(size, from + chunkSize)));
+            }
+        }
+
+        Stream<Chunk> stream = chunks.size() > 1 ? chunks.parallelStream() : chunks.stream();
+        stream.forEach(chunk -> {
+            List<ColumnCheck> checks = chunk.checks;
+            Partial[] local = new Partial[checks.size()];
+            for (int i = 0; i < local.length; i++) {
+                local[i] = checks.get(i).newPartial();
+            }
+
+            List<Object> values = chunk.values;
+            for (int index = chunk.from; index < chunk.to; index++) {
+                Object value = values.get(index);
+                for (Partial partial : local) {
+                    partial.accept(index, value);
+                }
+            }
+
+            // Each chunk writes its own slot, so no synchronization is needed
+            for (int i = 0; i < local.length; i++) {
+                partials.get(checks.get(i))[chunk.index] = local[i];
+            }
+        });
+
+        partials.forEach((check, chunkPartials) -> {
+            Partial merged = chunkPartials[0];
+            for (int c = 1; c < chunkPartials.length; c++) {
+                merged.merge(chunkPartials[c]);
+            }
+            result.merged.put(check, merged);
+        });
+
+        return result;
+    }
+
+    private boolean compileRule(ValidationRule rule, ValidationService.ValidationContext context,
+                                Map<String, Pattern> patterns, List<ColumnCheck> checks) {
+        Map<String, List<Object>> sampleData = context.getSampleData() != null
+            ? context.getSampleData() : Collections.emptyMap();
+        Map<String, ValidationService.FieldSchema> targetSchema = context.getTargetSchema() != null
+            ? context.getTargetSchema() : Collections.emptyMap();
+
+        switch (rule.getRuleType()) {
+            case "DATA_TYPE":
+                for (String field : sampleData.keySet()) {
+                    ValidationService.FieldSchema schema = targetSchema.get(field);
+                    Predicate<Object> checker = schema != null ? typeChecker(schema.getDataType()) : null;
+                    if (checker != null) {
+                        checks.add(new DataTypeCheck(field, schema.getDataType(), checker));
+                    }
+                }
+                return true;
+
+            case "CONSTRAINTS":
+                for (String field : sampleData.keySet()) {
+                    ValidationService.FieldSchema schema = targetSchema.get(field);
+                    if (schema == null || schema.getConstraints() == null) {
+                        continue;
+                    }
+                    for (ValidationService.FieldConstraint constraint : schema.getConstraints()) {
+                        ColumnCheck check = constraintCheck(field, constraint, patterns);
+                        if (check != null) {
+                            checks.add(check);
+                        }
+                    }
+                }
+                return true;
+
+            case "COMPLETENESS":
+                double threshold = rule.getCompletenessThreshold() != null ? rule.getCompletenessThreshold() : 0.95;
+                for (String field : sampleData.keySet()) {
+                    checks.add(new CompletenessCheck(field, threshold));
+                }
+                return true;
+
+            case "UNIQUENESS":
+                if (context.getUniqueFields() != null) {
+                    for (String field : context.getUniqueFields()) {
+                        List<Object> values = sampleData.get(field);
+                        if (values == null) {
+                            continue;
+                        }
+                        if (context.isEstimateCardinality()) {
+                            checks.add(new CardinalityEstimateCheck(field));
+                        } else if (values.size() > inMemoryKeyLimit) {
+                            checks.add(new BoundedUniquenessCheck(field, keySetAnalyzer));
+                        } else {
+                            checks.add(new UniquenessCheck(field));
+                        }
+                    }
+                }
+                return true;
+
+            case "FORMAT":
+                if (context.getFormatPatterns() != null) {
+                    for (Map.Entry<String, String> entry : context.getFormatPatterns().entrySet()) {
+                        if (sampleData.containsKey(entry.getKey())) {
+                            checks.add(new FormatCheck(entry.getKey(),
+                                patterns.computeIfAbsent(entry.getValue(), Pattern::compile)));
+                        }
+                    }
+                }
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private static ColumnCheck constraintCheck(String field, ValidationService.FieldConstraint constraint,
+                                               Map<String, Pattern> patterns) {
+        if (constraint.getType() == null) {
+            return null;
+        }
+
+        switch (constraint.getType()) {
+            case "NOT_NULL":
+                return new NotNullCheck(field);
+            case "MIN_VALUE":
+                return constraint.getMinValue() != null ? new RangeCheck(field, constraint.getMinValue(), true) : null;
+            case "MAX_VALUE":
+                return constraint.getMaxValue() != null ? new RangeCheck(field, constraint.getMaxValue(), false) : null;
+            case "PATTERN":
+                return constraint.getPattern() != null
+                    ? new PatternConstraintCheck(field, constraint.getPattern(),
+                        patterns.computeIfAbsent(constraint.getPattern(), Pattern::compile))
+                    : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Type test resolved once per field instead of per value; null for unknown types,
+     * which accept every value
+     */
+    static Predicate<Object> typeChecker(String expectedType) {
+        if (expectedType == null) {
+            return null;
+        }
+
+        switch (expectedType.toUpperCase()) {
+            case "STRING":
+                return v -> v instanceof String;
+            case "INTEGER":
+                return v -> v instanceof Integer;
+            case "LONG":
+                return v -> v instanceof Long || v instanceof Integer;
+            case "DOUBLE":
+                return v -> v instanceof Number;
+            case "BOOLEAN":
+                return v -> v instanceof Boolean;
+            case "DATE":
+            case "DATETIME":
+                return v -> v instanceof Date || v instanceof java.time.temporal.Temporal;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * A rule of the context in evaluation order
+     */
+    static final class PlannedRule {
+        private final ValidationRule rule;
+        private final List<ColumnCheck> checks = new ArrayList<>();
+        private boolean columnRule;
+        private RuntimeException failure;
+
+        PlannedRule(ValidationRule rule) {
+            this.rule = rule;
+        }
+
+        ValidationRule getRule() { return rule; }
+        boolean isColumnRule() { return columnRule; }
+        RuntimeException getFailure() { return failure; }
+
+        /**
+         * Report this rule's findings from a completed scan, in field order
+         */
+        void report(ScanResult scan, ValidationService.ValidationOutcome outcome) {
+            for (ColumnCheck check : checks) {
+                List<Object> values = scan.sampleData != null ? scan.sampleData.get(check.field) : null;
+                if (values == null) {
+                    continue;
+                }
+                Partial merged = scan.merged.get(check);
+                if (merged != null || !check.scanned()) {
+                    check.report(merged, values, outcome);
+                }
+            }
+        }
+    }
+
+    /**
+     * Merged checker results of one scan
+     */
+    static final class ScanResult {
+        private final Map<String, List<Object>> sampleData;
+        private final Map<ColumnCheck, Partial> merged = new IdentityHashMap<>();
+
+        private ScanResult(Map<String, List<Object>> sampleData) {
+            this.sampleData = sampleData;
+        }
+    }
+
+    private static final class Chunk {
+        final List<ColumnCheck> checks;
+        final List<Object> values;
+        final int index;
+        final int from;
+        final int to;
+
+        Chunk(List<ColumnCheck> checks, List<Object> values, int index, int from, int to) {
+            this.checks = checks;
+            this.values = values;
+            this.index = index;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Checker state for one chunk of a column
+     */
+    private interface Partial {
+        void accept(int index, Object value);
+
+        /** Merge the state of the following chunk into this one */
+        void merge(Partial next);
+    }
+
+    private abstract static class ColumnCheck {
+        final String field;
+
+        ColumnCheck(String field) {
+            this.field = field;
+        }
+
+        /**
+         * Whether the check consumes the parallel scan; other checks read the column
+         * themselves when reporting
+         */
+        boolean scanned() {
+            return true;
+        }
+
+        abstract Partial newPartial();
+
+        abstract void report(Partial merged, List<Object> values, ValidationService.ValidationOutcome outcome);
+    }
+
+    /**
+     * Remembers the first value (lowest index) failing a test
+     */
+    private static class FirstViolation implements Partial {
+        private final Predicate<Object> violates;
+        int index = -1;
+        Object value;
+
+        FirstViolation(Predicate<Object> violates) {
+            this.violates = violates;
+        }
+
+        @Override
+        public void accept(int index, Object value) {
+            if (this.index < 0 && violates.test(value)) {
+                this.index = index;
+                this.value = value;
+            }
+        }
+
+        @Override
+        public void merge(Partial next) {
+            FirstViolation other = (FirstViolation) next;
+            if (index < 0 && other.index >= 0) {
+                index = other.index;
+                value = other.value;
+            }
+        }
+
+        boolean found() {
+            return index >= 0;
+        }
+    }
+
+    private static final class DataTypeCheck extends ColumnCheck {
+        private final String dataType;
+        private final Predicate<Object> checker;
+
+        DataTypeCheck(String field, String dataType, Predicate<Object> checker) {
+            super(field);
+            this.dataType = dataType;
+            this.checker = checker;
+        }
+
+        @Override
+        Partial newPartial() {
+            return new FirstViolation(v -> v != null && !checker.test(v));
+        }
+
+        @Override
+        void report(Partial merged, List<Object> values, ValidationService.ValidationOutcome outcome) {
+            FirstViolation violation = (FirstViolation) merged;
+            if (violation.found()) {
+                outcome.addError(new ValidationService.ValidationError(
+                    field,
+                    String.format("Invalid data type. Expected: %s, Got: %s",
+                        dataType, violation.value.getClass().getSimpleName()),
+                    Severity.MAJOR
+                ));
+            }
+        }
+    }
+
+    private static final class NotNullCheck extends ColumnCheck {
+        NotNullCheck(String field) {
+            super(field);
+        }
+
+        @Override
+        Partial newPartial() {
+            return new FirstViolation(Objects::isNull);
+        }
+
+        @Override
+        void report(Partial merged, List<Object> values, ValidationService.ValidationOutcome outcome) {
+            if (((FirstViolation) merged).found()) {
+                outcome.addError(new ValidationService.ValidationError(
+                    field,
+                    "Null values found in NOT NULL field",
+                    Severity.CRITICAL
+                ));
+            }
+        }
+    }
+
+    private static final class RangeCheck extends ColumnCheck {
+        private final double bound;
+        private final boolean minimum;
+
+        RangeCheck(String field, double bound, boolean minimum) {
+            super(field);
+            this.bound = bound;
+            this.minimum = minimum;
+        }
+
+        @Override
+        Partial newPartial() {
+            return new FirstViolation(v -> v instanceof Number
+                && (minimum ? ((Number) v).doubleValue() < bound : ((Number) v).doubleValue() > bound));
+        }
+
+        @Override
+        void report(Partial merged, List<Object> values, ValidationService.ValidationOutcome outcome) {
+            FirstViolation violation = (FirstViolation) merged;
+            if (violation.found()) {
+                outcome.addError(new ValidationService.ValidationError(
+                    field,
+                    minimum
+                        ? String.format("Value below minimum: %s < %s", violation.value, bound)
+                        : String.format("Value exceeds maximum: %s > %s", violation.value, bound),
+                    Severity.MAJOR
+                ));
+            }
+        }
+    }
+
+    private static final class PatternConstraintCheck extends ColumnCheck {
+        private final String regex;
+        private final Pattern pattern;
+
+        PatternConstraintCheck(String field, String regex, Pattern pattern) {
+            super(field);
+            this.regex = regex;
+            this.pattern = pattern;
+        }
+
+        @Override
+        Partial newPartial() {
+            return new FirstViolation(v -> v != null && !pattern.matcher(v.toString()).matches());
+        }
+
+        @Override
+        void report(Partial merged, List<Object> values, ValidationService.ValidationOutcome outcome) {
+            if (((FirstViolation) merged).found()) {
+                outcome.addWarning(new ValidationService.ValidationWarning(
+                    field,
+                    String.format("Value doesn't match pattern: %s", regex)
+                ));
+            }
+        }
+    }
+
+    private static final class CompletenessCheck extends ColumnCheck {
+        private final double threshold;
+
+        CompletenessCheck(String field, double threshold) {
+            super(field);
+            this.threshold = threshold;
+        }
+
+        @Override
+        Partial newPartial() {
+            return new Counts();
+        }
+
+        @Override
+        void report(Partial merged, List<Object> values, ValidationService.ValidationOutcome outcome) {
+            Counts counts = (Counts) merged;
+            double completeness = (double) counts.matching / counts.total;
+
+            if (completeness < threshold) {
+                outcome.addWarning(new ValidationService.ValidationWarning(
+                    field,
+                    String.format("Low completeness: %.2f%% (threshold: %.2f%%)",
+                        completeness * 100, threshold * 100)
+                ));
+            }
+        }
+
+        private static final class Counts implements Partial {
+            long matching;
+            long total;
+
+            @Override
+            public void accept(int index, Object value) {
+                total++;
+                if (value != null) {
+                    matching++;
+                }
+            }
+
+            @Override
+            public void merge(Partial next) {
+                matching += ((Counts) next).matching;
+                total += ((Counts) next).total;
+            }
+        }
+    }
+
+    private static final class FormatCheck extends ColumnCheck {
+        private final Pattern pattern;
+
+        FormatCheck(String field, Pattern pattern) {
+            super(field);
+            this.pattern = pattern;
+        }
+
+        @Override
+        Partial newPartial() {
+            return new InvalidCount(pattern);
+        }
+
+        @Override
+        void report(Partial merged, List<Object> values, ValidationService.ValidationOutcome outcome) {
+            long invalidCount = ((InvalidCount) merged).invalid;
+            if (invalidCount > 0) {
+                outcome.addWarning(new ValidationService.ValidationWarning(
+                    field,
+                    String.format("Invalid format found in %d values", invalidCount)
+                ));
+            }
+        }
+
+        private static final class InvalidCount implements Partial {
+            private final Pattern pattern;
+            long invalid;
+
+            InvalidCount(Pattern pattern) {
+                this.pattern = pattern;
+            }
+
+            @Override
+            public void accept(int index, Object value) {
+                if (value != null && !pattern.matcher(value.toString()).matches()) {
+                    invalid++;
+                }
+            }
+
+            @Override
+            public void merge(Partial next) {
+                invalid += ((InvalidCount) next).invalid;
+            }
+        }
+    }
+
+    private static final class UniquenessCheck extends ColumnCheck {
+        UniquenessCheck(String field) {
+            super(field);
+        }
+
+        @Override
+        Partial newPartial() {
+            return new DistinctValues();
+        }
+
+        @Override
+        void report(Partial merged, List<Object> values, ValidationService.ValidationOutcome outcome) {
+            DistinctValues distinct = (DistinctValues) merged;
+            if (distinct.values.size() < distinct.total) {
+                outcome.addError(new ValidationService.ValidationError(
+                    field,
+                    String.format("Duplicate values found. Unique: %d, Total: %d",
+                        distinct.values.size(), distinct.total),
+                    Severity.CRITICAL
+                ));
+            }
+        }
+
+        /**
+         * Keys as KeySetAnalyzer encodes them, so small and large columns agree on what a duplicate is
+         */
+        private static final class DistinctValues implements Partial {
+            Set<String> values = new HashSet<>();
+            long total;
+
+            @Override
+            public void accept(int index, Object value) {
+                total++;
+                values.add(KeySetAnalyzer.encode(value));
+            }
+
+            @Override
+            public void merge(Partial next) {
+                DistinctValues other = (DistinctValues) next;
+                // Fold the smaller set into the larger one
+                if (other.values.size() > values.size()) {
+                    Set<String> swap = values;
+                    values = other.values;
+                    other.values = swap;
+                }
+                values.addAll(other.values);
+                total += other.total;
+            }
+        }
+    }
+
+    /**
+     * Exact uniqueness for columns above the in-memory key limit
+     */
+    private static final class BoundedUniquenessCheck extends ColumnCheck {
+        private final KeySetAnalyzer keySetAnalyzer;
+
+        BoundedUniquenessCheck(String field, KeySetAnalyzer keySetAnalyzer) {
+            super(field);
+            this.keySetAnalyzer = keySetAnalyzer;
+        }
+
+        @Override
+        boolean scanned() {
+            return false;
+        }
+
+        @Override
+        Partial newPartial() {
+            throw new UnsupportedOperationException("Bounded uniqueness reads the column when reporting");
+        }
+
+        @Override
+        void report(Partial merged, List<Object> values, ValidationService.ValidationOutcome outcome) {
+            long duplicates = keySetAnalyzer.countDuplicates(values, values.size());
+            if (duplicates > 0) {
+                outcome.addError(new ValidationService.ValidationError(
+                    field,
+                    String.format("Duplicate values found. Unique: %d, Total: %d",
+                        values.size() - duplicates, values.size()),
+                    Severity.CRITICAL
+                ));
+            }
+        }
+    }
+
+    /**
+     * Estimated distinct count for fast previews; reports a warning, not an error,
+     * because the estimate is approximate
+     */
+    private static final class CardinalityEstimateCheck extends ColumnCheck {
+        CardinalityEstimateCheck(String field) {
+            super(field);
+        }
+
+        @Override
+        Partial newPartial() {
+            return new Sketch();
+        }
+
+        @Override
+        void report(Partial merged, List<Object> values, ValidationService.ValidationOutcome outcome) {
+            Sketch sketch = (Sketch) merged;
+            long estimate = sketch.hll.estimate();
+            double error = sketch.hll.standardError();
+
+            // Only flag when the estimate is below the total beyond three standard errors
+            if (estimate < sketch.total * (1 - 3 * error)) {
+                outcome.addWarning(new ValidationService.ValidationWarning(
+                    field,
+                    String.format("Duplicate values likely. Estimated unique: %d (±%.1f%%), Total: %d",
+                        estimate, error * 100, sketch.total)
+                ));
+            }
+        }
+
+        private static final class Sketch implements Partial {
+            final HyperLogLog hll = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+            long total;
+
+            @Override
+            public void accept(int index, Object value) {
+                total++;
+                hll.add(KeySetAnalyzer.encode(value));
+            }
+
+            @Override
+            public void merge(Partial next) {
+                hll.merge(((Sketch) next).hll);
+                total += ((Sketch) next).total;
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.jivs.platform.service.migration;
 import com.jivs.platform.domain.migration.ValidationRule;
 import com.jivs.platform.domain.quality.Severity;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -17,8 +18,26 @@ public class ValidationService {
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ValidationService.class);
 
+    @Value("${jivs.migration.validation.chunk-size:10000}")
+    private int chunkSize = 10000;
+
+    // Key sets above this size are checked with Bloom filters and external sort instead of a HashSet
+    @Value("${jivs.migration.validation.in-memory-key-limit:1000000}")
+    private int inMemoryKeyLimit = 1000000;
+
+    @Value("${jivs.migration.validation.sort-buffer-keys:500000}")
+    private int sortBufferKeys = 500000;
+
+    @Value("${jivs.migration.validation.bloom-false-positive-rate:0.01}")
+    private double bloomFalsePositiveRate = 0.01;
+
+    @Value("${jivs.migration.validation.max-reported-references:100}")
+    private int maxReportedReferences = 100;
+
     /**
-     * Validate migration data
+     * Validate migration data.
+     * Rules are compiled into a ValidationPlan and all column rules are evaluated in one
+     * parallel pass over the sample data; results are reported in rule order.
      */
     public ValidationResult validateMigrationData(ValidationContext context) {
         log.info("Validating migration data for migration: {}", context.getMigrationId());
@@ -30,10 +49,25 @@ public class ValidationService {
         List<ValidationError> errors = new ArrayList<>();
         List<ValidationWarning> warnings = new ArrayList<>();
 
-        // Execute validation rules
-        for (ValidationRule rule : context.getValidationRules()) {
+        // Compile rules and scan the sample data once for all column rules
+        ValidationPlan plan = ValidationPlan.compile(context, keySetAnalyzer(), inMemoryKeyLimit);
+        ValidationPlan.ScanResult scan = plan.scan(context.getSampleData(), chunkSize);
+
+        // Report validation rules
+        for (ValidationPlan.PlannedRule planned : plan.getRules()) {
+            ValidationRule rule = planned.getRule();
             try {
-                ValidationOutcome outcome = executeRule(rule, context);
+                if (planned.getFailure() != null) {
+                    throw planned.getFailure();
+                }
+
+                ValidationOutcome outcome;
+                if (planned.isColumnRule()) {
+                    outcome = new ValidationOutcome();
+                    planned.report(scan, outcome);
+                } else {
+                    outcome = executeRule(rule, context);
+                }
 
                 if (outcome.hasErrors()) {
                     errors.addAll(outcome.getErrors());
@@ -58,7 +92,7 @@ public class ValidationService {
         result.setWarningCount(warnings.size());
 
         // Calculate validation score
-        double score = calculateValidationScore(errors, warnings, context.getValidationRules().size());
+        double score = calculateValidationScore(errors, warnings, plan.getRules().size());
         result.setScore(score);
 
         // Determine if passed
@@ -79,7 +113,7 @@ public class ValidationService {
     }
 
     /**
-     * Execute a single validation rule
+     * Execute a rule that does not scan sample values (column rules are compiled into the plan)
      */
     private ValidationOutcome executeRule(ValidationRule rule, ValidationContext context) {
         ValidationOutcome outcome = new ValidationOutcome();
@@ -88,27 +122,12 @@ public class ValidationService {
             case "SCHEMA":
                 validateSchema(rule, context, outcome);
                 break;
-            case "DATA_TYPE":
-                validateDataTypes(rule, context, outcome);
-                break;
-            case "CONSTRAINTS":
-                validateConstraints(rule, context, outcome);
-                break;
             case "REFERENTIAL":
                 validateReferentialIntegrity(rule, context, outcome);
                 break;
             case "BUSINESS":
                 validateBusinessRules(rule, context, outcome);
                 break;
-            case "COMPLETENESS":
-                validateCompleteness(rule, context, outcome);
-                break;
-            case "UNIQUENESS":
-                validateUniqueness(rule, context, outcome);
-                break;
-            case "FORMAT":
-                validateFormat(rule, context, outcome);
-                break;
             default:
                 log.warn("Unknown validation rule type: {}", rule.getRuleType());
         }
@@ -163,123 +182,6 @@ public class ValidationService {
         }
     }
 
-    /**
-     * Validate data types
-     */
-    private void validateDataTypes(ValidationRule rule, ValidationContext context, ValidationOutcome outcome) {
-        Map<String, List<Object>> sampleData = context.getSampleData();
-
-        for (Map.Entry<String, List<Object>> entry : sampleData.entrySet()) {
-            String field = entry.getKey();
-            List<Object> values = entry.getValue();
-
-            FieldSchema schema = context.getTargetSchema().get(field);
-            if (schema != null) {
-                for (Object value : values) {
-                    if (!isValidDataType(value, schema.getDataType())) {
-                        outcome.addError(new ValidationError(
-                            field,
-                            String.format("Invalid data type. Expected: %s, Got: %s",
-                                schema.getDataType(), value.getClass().getSimpleName()),
-                            Severity.MAJOR
-                        ));
-                        break; // Report once per field
-                    }
-                }
-            }
-        }
-    }
-
-    /**
-     * Validate constraints
-     */
-    private void validateConstraints(ValidationRule rule, ValidationContext context, ValidationOutcome outcome) {
-        Map<String, List<Object>> sampleData = context.getSampleData();
-
-        for (Map.Entry<String, List<Object>> entry : sampleData.entrySet()) {
-            String field = entry.getKey();
-            List<Object> values = entry.getValue();
-
-            FieldSchema schema = context.getTargetSchema().get(field);
-            if (schema != null && schema.getConstraints() != null) {
-                for (FieldConstraint constraint : schema.getConstraints()) {
-                    validateConstraint(field, values, constraint, outcome);
-                }
-            }
-        }
-    }
-
-    /**
-     * Validate single constraint
-     */
-    private void validateConstraint(
-            String field,
-            List<Object> values,
-            FieldConstraint constraint,
-            ValidationOutcome outcome) {
-
-        switch (constraint.getType()) {
-            case "NOT_NULL":
-                if (values.stream().anyMatch(Objects::isNull)) {
-                    outcome.addError(new ValidationError(
-                        field,
-                        "Null values found in NOT NULL field",
-                        Severity.CRITICAL
-                    ));
-                }
-                break;
-
-            case "MIN_VALUE":
-                Double min = constraint.getMinValue();
-                if (min != null) {
-                    for (Object value : values) {
-                        if (value instanceof Number &&
-                            ((Number) value).doubleValue() < min) {
-                            outcome.addError(new ValidationError(
-                                field,
-                                String.format("Value below minimum: %s < %s", value, min),
-                                Severity.MAJOR
-                            ));
-                            break;
-                        }
-                    }
-                }
-                break;
-
-            case "MAX_VALUE":
-                Double max = constraint.getMaxValue();
-                if (max != null) {
-                    for (Object value : values) {
-                        if (value instanceof Number &&
-                            ((Number) value).doubleValue() > max) {
-                            outcome.addError(new ValidationError(
-                                field,
-                                String.format("Value exceeds maximum: %s > %s", value, max),
-                                Severity.MAJOR
-                            ));
-                            break;
-                        }
-                    }
-                }
-                break;
-
-            case "PATTERN":
-                String pattern = constraint.getPattern();
-                if (pattern != null) {
-                    for (Object value : values) {
-                        if (value != null && !value.toString().matches(pattern)) {
-                            outcome.addWarning(new ValidationWarning(
-                                field,
-                                String.format("Value doesn't match pattern: %s", pattern)
-                            ));
-                            break;
-                        }
-                    }
-                }
-                break;
-        }
-    }
-
     /**
      * Validate referential integrity
      */
@@ -295,14 +197,14 @@ public class ValidationService {
             ReferenceInfo ref = entry.getValue();
 
             // Check if all referenced values exist
-            Set<Object> missingReferences = findMissingReferences(ref);
-
-            if (!missingReferences.isEmpty()) {
-                outcome.addError(new ValidationError(
-                    field,
-                    String.format("Missing references: %s", missingReferences),
-                    Severity.CRITICAL
-                ));
+            KeySetAnalyzer.MissingKeys missingReferences = findMissingReferences(ref);
+
+            if (missingReferences.getCount() > 0) {
+                String message = missingReferences.getCount() > missingReferences.getSample().size()
+                    ? String.format("Missing references: %s (%d in total)",
+                        missingReferences.getSample(), missingReferences.getCount())
+                    : String.format("Missing references: %s", missingReferences.getSample());
+                outcome.addError(new ValidationError(field, message, Severity.CRITICAL));
             }
         }
     }
@@ -338,93 +240,6 @@ public class ValidationService {
         }
     }
 
-    /**
-     * Validate data completeness
-     */
-    private void validateCompleteness(
-            ValidationRule rule,
-            ValidationContext context,
-            ValidationOutcome outcome) {
-
-        Map<String, List<Object>> sampleData = context.getSampleData();
-        double threshold = rule.getCompletenessThreshold() != null ? rule.getCompletenessThreshold() : 0.95;
-
-        for (Map.Entry<String, List<Object>> entry : sampleData.entrySet()) {
-            String field = entry.getKey();
-            List<Object> values = entry.getValue();
-
-            long nonNullCount = values.stream().filter(Objects::nonNull).count();
-            double completeness = (double) nonNullCount / values.size();
-
-            if (completeness < threshold) {
-                outcome.addWarning(new ValidationWarning(
-                    field,
-                    String.format("Low completeness: %.2f%% (threshold: %.2f%%)",
-                        completeness * 100, threshold * 100)
-                ));
-            }
-        }
-    }
-
-    /**
-     * Validate uniqueness constraints
-     */
-    private void validateUniqueness(
-            ValidationRule rule,
-            ValidationContext context,
-            ValidationOutcome outcome) {
-
-        Map<String, List<Object>> sampleData = context.getSampleData();
-        Set<String> uniqueFields = context.getUniqueFields();
-
-        for (String field : uniqueFields) {
-            List<Object> values = sampleData.get(field);
-            if (values != null) {
-                Set<Object> uniqueValues = new HashSet<>(values);
-
-                if (uniqueValues.size() < values.size()) {
-                    outcome.addError(new ValidationError(
-                        field,
-                        String.format("Duplicate values found. Unique: %d, Total: %d",
-                            uniqueValues.size(), values.size()),
-                        Severity.CRITICAL
-                    ));
-                }
-            }
-        }
-    }
-
-    /**
-     * Validate data format
-     */
-    private void validateFormat(
-            ValidationRule rule,
-            ValidationContext context,
-            ValidationOutcome outcome) {
-
-        Map<String, String> formatPatterns = context.getFormatPatterns();
-
-        for (Map.Entry<String, String> entry : formatPatterns.entrySet()) {
-            String field = entry.getKey();
-            String pattern = entry.getValue();
-
-            List<Object> values = context.getSampleData().get(field);
-            if (values != null) {
-                long invalidCount = values.stream()
-                    .filter(Objects::nonNull)
-                    .filter(v -> !v.toString().matches(pattern))
-                    .count();
-
-                if (invalidCount > 0) {
-                    outcome.addWarning(new ValidationWarning(
-                        field,
-                        String.format("Invalid format found in %d values", invalidCount)
-                    ));
-                }
-            }
-        }
-    }
-
     // Helper methods
     private boolean isTypeCompatible(String sourceType, String targetType) {
         // Check if types are compatible for conversion
@@ -443,35 +258,37 @@ public class ValidationService {
         return compatible != null && compatible.contains(targetType);
     }
 
-    private boolean isValidDataType(Object value, String expectedType) {
-        if (value == null) {
-            return true; // Null is valid for all types unless NOT NULL constraint
+    /**
+     * Probe child values against the parent keys. Small key sets use a HashSet; larger ones
+     * a Bloom filter of the parent keys with exact external-sort resolution of candidates.
+     * Both compare {@link KeySetAnalyzer#encode encoded} keys, so the result does not depend
+     * on the size of the key sets or the classes the drivers returned.
+     */
+    private KeySetAnalyzer.MissingKeys findMissingReferences(ReferenceInfo ref) {
+        List<Object> childValues = ref.getSourceValues() != null ? ref.getSourceValues() : Collections.emptyList();
+        List<Object> parentKeys = ref.getTargetValues() != null ? ref.getTargetValues() : Collections.emptyList();
+
+        if (parentKeys.size() > inMemoryKeyLimit || childValues.size() > inMemoryKeyLimit) {
+            return keySetAnalyzer().findMissing(childValues, parentKeys, parentKeys.size(), maxReportedReferences);
         }
 
-        switch (expectedType.toUpperCase()) {
-            case "STRING":
-                return value instanceof String;
-            case "INTEGER":
-                return value instanceof Integer;
-            case "LONG":
-                return value instanceof Long || value instanceof Integer;
-            case "DOUBLE":
-                return value instanceof Double || value instanceof Float || value instanceof Number;
-            case "BOOLEAN":
-                return value instanceof Boolean;
-            case "DATE":
-            case "DATETIME":
-                return value instanceof Date || value instanceof java.time.temporal.Temporal;
-            default:
-                return true; // Unknown type, assume valid
+        Set<String> parents = new HashSet<>();
+        parentKeys.forEach(parent -> parents.add(KeySetAnalyzer.encode(parent)));
+        Set<String> missing = new LinkedHashSet<>();
+        for (Object child : childValues) {
+            String key = KeySetAnalyzer.encode(child);
+            if (!parents.contains(key)) {
+                missing.add(key);
+            }
         }
+
+        KeySetAnalyzer.MissingKeys result = new KeySetAnalyzer.MissingKeys();
+        missing.forEach(key -> result.add(KeySetAnalyzer.decode(key), maxReportedReferences));
+        return result;
     }
 
-    private Set<Object> findMissingReferences(ReferenceInfo ref) {
-        Set<Object> sourceValues = new HashSet<>(ref.getSourceValues());
-        Set<Object> targetValues = new HashSet<>(ref.getTargetValues());
-        sourceValues.removeAll(targetValues);
-        return sourceValues;
+    private KeySetAnalyzer keySetAnalyzer() {
+        return new KeySetAnalyzer(sortBufferKeys, bloomFalsePositiveRate);
     }
 
     private boolean evaluateBusinessRule(BusinessRule rule, Map<String, List<Object>> data) {
@@ -549,6 +366,7 @@ public class ValidationService {
     private List<BusinessRule> businessRules;
     private Set<String> uniqueFields;
     private Map<String, String> formatPatterns;
+    private boolean estimateCardinality;
 
     // Getters and setters
     public Long getMigrationId() { return migrationId; }
@@ -562,12 +380,22 @@ public class ValidationService {
         this.validationRules = validationRules;
     }
     public Map<String, FieldSchema> getSourceSchema() { return sourceSchema; }
+    public void setSourceSchema(Map<String, FieldSchema> sourceSchema) { this.sourceSchema = sourceSchema; }
     public Map<String, FieldSchema> getTargetSchema() { return targetSchema; }
+    public void setTargetSchema(Map<String, FieldSchema> targetSchema) { this.targetSchema = targetSchema; }
     public Map<String, List<Object>> getSampleData() { return sampleData; }
+    public void setSampleData(Map<String, List<Object>> sampleData) { this.sampleData = sampleData; }
     public Map<String, ReferenceInfo> getReferences() { return references; }
+    public void setReferences(Map<String, ReferenceInfo> references) { this.references = references; }
     public List<BusinessRule> getBusinessRules() { return businessRules; }
+    public void setBusinessRules(List<BusinessRule> businessRules) { this.businessRules = businessRules; }
     public Set<String> getUniqueFields() { return uniqueFields; }
+    public void setUniqueFields(Set<String> uniqueFields) { this.uniqueFields = uniqueFields; }
     public Map<String, String> getFormatPatterns() { return formatPatterns; }
+    public void setFormatPatterns(Map<String, String> formatPatterns) { this.formatPatterns = formatPatterns; }
+    // Preview mode: uniqueness is estimated with HyperLogLog instead of checked exactly
+    public boolean isEstimateCardinality() { return estimateCardinality; }
+    public void setEstimateCardinality(boolean estimateCardinality) { this.estimateCardinality = estimateCardinality; }
     }
 
     public static class ValidationResult {
@@ -658,10 +486,15 @@ public class ValidationService {
 
     // Getters and setters
     public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
     public String getDataType() { return dataType; }
+    public void setDataType(String dataType) { this.dataType = dataType; }
     public boolean isRequired() { return required; }
+    public void setRequired(boolean required) { this.required = required; }
     public Integer getMaxLength() { return maxLength; }
+    public void setMaxLength(Integer maxLength) { this.maxLength = maxLength; }
     public List<FieldConstraint> getConstraints() { return constraints; }
+    public void setConstraints(List<FieldConstraint> constraints) { this.constraints = constraints; }
     }
 
     static class FieldConstraint {
@@ -672,9 +505,13 @@ public class ValidationService {
 
     // Getters and setters
     public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
     public Double getMinValue() { return minValue; }
+    public void setMinValue(Double minValue) { this.minValue = minValue; }
     public Double getMaxValue() { return maxValue; }
+    public void setMaxValue(Double maxValue) { this.maxValue = maxValue; }
     public String getPattern() { return pattern; }
+    public void setPattern(String pattern) { this.pattern = pattern; }
     }
 
     static class ReferenceInfo {
@@ -686,7 +523,9 @@ public class ValidationService {
 
     // Getters and setters
     public List<Object> getSourceValues() { return sourceValues; }
+    public void setSourceValues(List<Object> sourceValues) { this.sourceValues = sourceValues; }
     public List<Object> getTargetValues() { return targetValues; }
+    public void setTargetValues(List<Object> targetValues) { this.targetValues = targetValues; }
     }
 
     static class BusinessRule {
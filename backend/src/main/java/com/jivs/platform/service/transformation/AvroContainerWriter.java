@@ -0,0 +1,152 @@
+package com.jivs.platform.service.transformation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an Avro object container file: a header holding the schema, then blocks of binary
+ * encoded records, each compressed on its own with the file's codec.
+ *
+ * Records are encoded straight from the batch's column arrays into the current block, which is
+ * flushed once it holds blockRecords records, so memory stays bounded however many batches
+ * are streamed through.
+ */
+public final class AvroContainerWriter implements ColumnarFileWriter {
+
+    private static final byte[] MAGIC = {'O', 'b', 'j', 1};
+    private static final int MAX_BLOCK_BYTES = 1 << 20;
+
+    private final OutputStream out;
+    private final RecordSchema schema;
+    private final Codec codec;
+    private final int blockRecords;
+    private final byte[] sync = new byte[16];
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+    private long blockCount;
+
+    public AvroContainerWriter(OutputStream out, RecordSchema schema, String recordName, Codec codec,
+                               int blockRecords) throws IOException {
+        this.out = out;
+        this.schema = schema;
+        this.codec = codec;
+        this.blockRecords = Math.max(1, blockRecords);
+        new SecureRandom().nextBytes(sync);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        header.write(MAGIC);
+        writeLong(header, 2);
+        writeBytes(header, "avro.schema".getBytes(StandardCharsets.UTF_8));
+        writeBytes(header, schema.toAvroSchema(recordName).getBytes(StandardCharsets.UTF_8));
+        writeBytes(header, "avro.codec".getBytes(StandardCharsets.UTF_8));
+        writeBytes(header, (codec == Codec.DEFLATE ? "deflate" : "null").getBytes(StandardCharsets.UTF_8));
+        writeLong(header, 0);
+        header.write(sync);
+        header.writeTo(out);
+    }
+
+    @Override
+    public void write(ColumnBatch batch) throws IOException {
+        List<RecordSchema.Field> fields = schema.getFields();
+        Object[][] columns = new Object[fields.size()][];
+        for (int f = 0; f < columns.length; f++) {
+            columns[f] = batch.getColumn(fields.get(f).name());
+        }
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            for (int f = 0; f < columns.length; f++) {
+                Object value = columns[f] != null ? RecordSchema.convert(fields.get(f), columns[f][row]) : null;
+                // Every field is the union [null, type]
+                if (value == null) {
+                    writeLong(block, 0);
+                } else {
+                    writeLong(block, 1);
+                    writeValue(fields.get(f).type(), value);
+                }
+            }
+            blockCount++;
+            if (blockCount >= blockRecords || block.size() >= MAX_BLOCK_BYTES) {
+                flushBlock();
+            }
+        }
+    }
+
+    @Override
+    public RecordSchema getSchema() {
+        return schema;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBlock();
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeValue(RecordSchema.FieldType type, Object value) throws IOException {
+        switch (type) {
+            case BOOLEAN -> block.write((Boolean) value ? 1 : 0);
+            case INT, DATE -> writeLong(block, (Integer) value);
+            case LONG, TIMESTAMP -> writeLong(block, (Long) value);
+            case FLOAT -> writeLittleEndian(block, Float.floatToIntBits((Float) value), 4);
+            case DOUBLE -> writeLittleEndian(block, Double.doubleToLongBits((Double) value), 8);
+            case DECIMAL, STRING, BYTES -> writeBytes(block, (byte[]) value);
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockCount == 0) {
+            return;
+        }
+        byte[] data = block.toByteArray();
+        if (codec == Codec.DEFLATE) {
+            // Avro's deflate codec is raw deflate, without the zlib header and checksum
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2);
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try (DeflaterOutputStream stream = new DeflaterOutputStream(compressed, deflater)) {
+                stream.write(data);
+            } finally {
+                deflater.end();
+            }
+            data = compressed.toByteArray();
+        }
+        ByteArrayOutputStream header = new ByteArrayOutputStream(20);
+        writeLong(header, blockCount);
+        writeLong(header, data.length);
+        header.writeTo(out);
+        out.write(data);
+        out.write(sync);
+        block.reset();
+        blockCount = 0;
+    }
+
+    /**
+     * Zig-zag variable-length encoding Avro uses for ints and longs
+     */
+    static void writeLong(OutputStream out, long value) throws IOException {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            out.write((int) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        out.write((int) zigZag);
+    }
+
+    private static void writeBytes(OutputStream out, byte[] bytes) throws IOException {
+        writeLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeLittleEndian(OutputStream out, long bits, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            out.write((int) (bits >>> (8 * i)));
+        }
+    }
+}
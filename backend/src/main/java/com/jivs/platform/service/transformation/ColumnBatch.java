@@ -0,0 +1,233 @@
+package com.jivs.platform.service.transformation;
+
+import java.util.*;
+
+/**
+ * A batch of records held as one array of values per column.
+ *
+ * Transforming a batch shares the input's column arrays with the result and copies a column
+ * only when a rule first writes to it, so columns no rule touches pass through without
+ * copying. Arrays handed to {@link #setColumn} are never written to.
+ *
+ * A cell of a field its record did not have, or of a new column no rule wrote a value to in
+ * that row, is absent: its column holds a null there, but {@link #toRows} leaves the field
+ * out, as transforming the record on its own would. Expressions reading such a field fail
+ * rather than see a null.
+ */
+public final class ColumnBatch {
+
+    private final int rowCount;
+    private final Map<String, Object[]> columns = new LinkedHashMap<>();
+    // Columns whose arrays this batch allocated and may write in place
+    private final Set<String> owned = new HashSet<>();
+    // Rows whose null cell of a column is absent rather than null; columns without one have none
+    private final Map<String, BitSet> absent = new HashMap<>();
+
+    public ColumnBatch(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Pivot records into columns, in the order the columns are first seen
+     */
+    public static ColumnBatch of(List<Map<String, Object>> rows) {
+        ColumnBatch batch = new ColumnBatch(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            for (Map.Entry<String, Object> entry : rows.get(i).entrySet()) {
+                batch.set(entry.getKey(), i, entry.getValue());
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Records with every column of the batch except their absent cells
+     */
+    public List<Map<String, Object>> toRows() {
+        List<Map<String, Object>> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(row(i));
+        }
+        return rows;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public List<String> getColumnNames() {
+        return new ArrayList<>(columns.keySet());
+    }
+
+    /**
+     * Values of a column, or null when the batch has no such column; callers must not modify the array
+     */
+    public Object[] getColumn(String name) {
+        return columns.get(name);
+    }
+
+    /**
+     * Add or replace a column with values the batch reads but never writes
+     */
+    public ColumnBatch setColumn(String name, Object[] values) {
+        if (values.length != rowCount) {
+            throw new IllegalArgumentException("Column " + name + " has " + values.length + " values for " + rowCount + " rows");
+        }
+        columns.put(name, values);
+        owned.remove(name);
+        absent.remove(name);
+        return this;
+    }
+
+    /**
+     * A batch with the same columns that copies a column before its first write
+     */
+    ColumnBatch share() {
+        ColumnBatch shared = new ColumnBatch(rowCount);
+        shared.columns.putAll(columns);
+        absent.forEach((name, rows) -> shared.absent.put(name, (BitSet) rows.clone()));
+        return shared;
+    }
+
+    boolean hasColumn(String name) {
+        return columns.containsKey(name);
+    }
+
+    /**
+     * Array of a column that may be written in place, copied or created as needed; a created
+     * column is absent in every row until a non-null value is written to it
+     */
+    Object[] writable(String name) {
+        Object[] values = columns.get(name);
+        if (values == null) {
+            values = new Object[rowCount];
+            BitSet rows = new BitSet(rowCount);
+            rows.set(0, rowCount);
+            absent.put(name, rows);
+        } else if (owned.contains(name)) {
+            return values;
+        } else {
+            values = values.clone();
+        }
+        columns.put(name, values);
+        owned.add(name);
+        return values;
+    }
+
+    /**
+     * Replace a column with an array the batch allocated
+     */
+    void replace(String name, Object[] values) {
+        columns.put(name, values);
+        owned.add(name);
+        absent.remove(name);
+    }
+
+    void rename(String from, String to) {
+        Object[] values = columns.remove(from);
+        columns.put(to, values);
+        if (owned.remove(from)) {
+            owned.add(to);
+        } else {
+            owned.remove(to);
+        }
+        BitSet rows = absent.remove(from);
+        if (rows != null) {
+            absent.put(to, rows);
+        } else {
+            absent.remove(to);
+        }
+    }
+
+    void drop(String name) {
+        columns.remove(name);
+        owned.remove(name);
+        absent.remove(name);
+    }
+
+    /**
+     * Take over columns from a batch shared from this one, as that batch left them
+     */
+    void merge(ColumnBatch shared, Collection<String> names) {
+        for (String name : names) {
+            Object[] values = shared.columns.get(name);
+            if (values == null) {
+                drop(name);
+            } else if (values != columns.get(name)) {
+                columns.put(name, values);
+                if (shared.owned.contains(name)) {
+                    owned.add(name);
+                } else {
+                    owned.remove(name);
+                }
+                BitSet rows = shared.absent.get(name);
+                if (rows != null) {
+                    absent.put(name, rows);
+                } else {
+                    absent.remove(name);
+                }
+            }
+        }
+    }
+
+    /**
+     * One record as a map, without its absent cells, for rules that work a record at a time
+     */
+    Map<String, Object> row(int index) {
+        Map<String, Object> row = new HashMap<>(Math.max(16, columns.size() * 2));
+        for (Map.Entry<String, Object[]> column : columns.entrySet()) {
+            Object value = column.getValue()[index];
+            if (value != null || !isAbsent(column.getKey(), index)) {
+                row.put(column.getKey(), value);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Write back a record read with {@link #row}, copying only the columns it changed
+     */
+    void writeRow(int index, Map<String, Object> row) {
+        for (Map.Entry<String, Object[]> column : columns.entrySet()) {
+            String name = column.getKey();
+            Object value = row.get(name);
+            if (column.getValue()[index] != value) {
+                writable(name)[index] = value;
+            }
+            if (value == null) {
+                markAbsent(name, index, !row.containsKey(name));
+            }
+        }
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            if (!columns.containsKey(entry.getKey())) {
+                set(entry.getKey(), index, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Write a cell as present, even when its value is null
+     */
+    private void set(String name, int index, Object value) {
+        writable(name)[index] = value;
+        if (value == null) {
+            markAbsent(name, index, false);
+        }
+    }
+
+    private boolean isAbsent(String name, int index) {
+        BitSet rows = absent.get(name);
+        return rows != null && rows.get(index);
+    }
+
+    private void markAbsent(String name, int index, boolean isAbsent) {
+        BitSet rows = absent.get(name);
+        if (rows != null) {
+            rows.set(index, isAbsent);
+        } else if (isAbsent) {
+            rows = new BitSet(rowCount);
+            rows.set(index);
+            absent.put(name, rows);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.jivs.platform.service.transformation;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streams column batches of one schema into a binary file; closing writes the trailer and
+ * closes the underlying stream
+ */
+public interface ColumnarFileWriter extends Closeable {
+
+    /**
+     * Append every row of a batch; columns the schema does not know are ignored
+     */
+    void write(ColumnBatch batch) throws IOException;
+
+    RecordSchema getSchema();
+
+    enum Codec {
+        UNCOMPRESSED, DEFLATE;
+
+        /**
+         * Codec by its Avro or Parquet name: null, none or uncompressed, and deflate or gzip
+         */
+        public static Codec of(String name) {
+            switch (name != null ? name.toLowerCase() : "") {
+                case "deflate":
+                case "gzip":
+                    return DEFLATE;
+                case "":
+                case "null":
+                case "none":
+                case "uncompressed":
+                    return UNCOMPRESSED;
+                default:
+                    throw new IllegalArgumentException("Unsupported compression codec: " + name);
+            }
+        }
+    }
+}
@@ -0,0 +1,740 @@
+package com.jivs.platform.service.transformation;
+
+import com.jivs.platform.domain.transformation.TransformationRule;
+import org.springframework.context.expression.MapAccessor;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A rule set compiled once and applied to many records.
+ *
+ * Rules are sorted by priority, expressions parsed, value and enrichment mappings read,
+ * patterns compiled and dotted field paths split when the plan is built, so applying it
+ * to a record only does the work the rules describe. Plans are immutable and may be
+ * applied from several threads at once.
+ *
+ * Batches are transformed level by level of the rules' field dependencies (see
+ * {@link RuleAnalyzer}); column rules of one level touch disjoint fields, so on large
+ * batches they run at the same time.
+ *
+ * Results of rules flagged deterministic are kept in the plan's {@link TransformationMemo}
+ * by input value, so every record the plan transforms after the first with that value
+ * skips the rule.
+ */
+public final class CompiledTransformationPlan {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CompiledTransformationPlan.class);
+
+    // Contexts carry no rule or record state, only accessors and their caches, so every plan on a thread shares one
+    private static final ThreadLocal<EvaluationContext> EVALUATION_CONTEXTS =
+        ThreadLocal.withInitial(CompiledTransformationPlan::newEvaluationContext);
+
+    // Below this many records forking costs more than running a level's column rules in turn
+    private static final int PARALLEL_MIN_ROWS = 1024;
+
+    private final List<Step> steps;
+    private final List<List<Step>> levels;
+    private final List<Segment> segments;
+    // Null when records are already in the target format
+    private final UnaryOperator<Map<String, Object>> formatter;
+    private final TransformationMemo memo;
+
+    CompiledTransformationPlan(List<Step> steps, UnaryOperator<Map<String, Object>> formatter) {
+        this(steps, formatter, new TransformationMemo(0));
+    }
+
+    CompiledTransformationPlan(List<Step> steps, UnaryOperator<Map<String, Object>> formatter, TransformationMemo memo) {
+        this.steps = List.copyOf(steps);
+        this.levels = level(this.steps);
+        this.segments = segment(levels);
+        this.formatter = formatter;
+        this.memo = memo;
+    }
+
+    /**
+     * Apply the rules to a copy of a record and convert it to the plan's target format.
+     * A rule that fails is logged and skipped, as the remaining rules still apply.
+     */
+    public Map<String, Object> apply(Map<String, Object> sourceData) {
+        Map<String, Object> data = new HashMap<>(sourceData);
+        EvaluationContext context = EVALUATION_CONTEXTS.get();
+        for (Step step : steps) {
+            try {
+                step.apply(data, context);
+            } catch (Exception e) {
+                log.error("Failed to apply rule: {}", step.name(), e);
+            }
+        }
+        return formatter != null ? formatter.apply(data) : data;
+    }
+
+    /**
+     * Apply the rules to a batch of records column by column and convert it to the plan's
+     * target format. The input batch is left as it was; the result shares every column no
+     * rule wrote to. Rules that need whole records see each record once per run of such rules.
+     */
+    public ColumnBatch apply(ColumnBatch input) {
+        ColumnBatch batch = input.share();
+        EvaluationContext context = EVALUATION_CONTEXTS.get();
+        for (Segment segment : segments) {
+            if (segment.columnar()) {
+                if (segment.steps().size() > 1 && batch.getRowCount() >= PARALLEL_MIN_ROWS) {
+                    applyConcurrently(segment.steps(), batch);
+                } else {
+                    segment.steps().forEach(step -> applyColumns(step, batch));
+                }
+                continue;
+            }
+            for (int i = 0; i < batch.getRowCount(); i++) {
+                Map<String, Object> data = batch.row(i);
+                for (Step step : segment.steps()) {
+                    try {
+                        step.apply(data, context);
+                    } catch (Exception e) {
+                        log.error("Failed to apply rule: {}", step.name(), e);
+                    }
+                }
+                batch.writeRow(i, data);
+            }
+        }
+        if (formatter == null) {
+            return batch;
+        }
+        List<Map<String, Object>> rows = batch.toRows();
+        rows.replaceAll(formatter);
+        return ColumnBatch.of(rows);
+    }
+
+    /**
+     * Number of rules the plan applies, after dropping overwritten rules and fusing adjacent ones
+     */
+    public int size() {
+        return steps.size();
+    }
+
+    /**
+     * Results of the plan's deterministic rules, with their hit rates
+     */
+    public TransformationMemo getMemo() {
+        return memo;
+    }
+
+    /**
+     * Names of the plan's rules by dependency level; the rules of a level are independent of each other
+     */
+    public List<List<String>> independentGroups() {
+        return levels.stream().map(level -> level.stream().map(Step::name).toList()).toList();
+    }
+
+    private static void applyColumns(Step step, ColumnBatch batch) {
+        try {
+            step.applyColumns(batch);
+        } catch (Exception e) {
+            log.error("Failed to apply rule: {}", step.name(), e);
+        }
+    }
+
+    /**
+     * Run independent column rules at the same time, each on its own view of the batch, and
+     * take the fields each wrote back from its view. Inside a fork-join worker the rules are
+     * forked to its pool, otherwise to the common pool.
+     */
+    private static void applyConcurrently(List<Step> group, ColumnBatch batch) {
+        List<ColumnBatch> views = new ArrayList<>(group.size());
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(group.size());
+        for (Step step : group) {
+            ColumnBatch view = batch.share();
+            views.add(view);
+            tasks.add(ForkJoinTask.adapt(() -> applyColumns(step, view)));
+        }
+        ForkJoinTask.invokeAll(tasks);
+        for (int i = 0; i < group.size(); i++) {
+            batch.merge(views.get(i), RuleAnalyzer.access(group.get(i)).writes());
+        }
+    }
+
+    /**
+     * Records are maps, so expressions may read fields as properties ({@code amount > 100})
+     * as well as by index ({@code ['amount'] > 100}); both forms compile to bytecode.
+     */
+    static EvaluationContext newEvaluationContext() {
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        context.addPropertyAccessor(new MapAccessor());
+        return context;
+    }
+
+    /**
+     * Steps grouped by dependency level, in list order within a level
+     */
+    private static List<List<Step>> level(List<Step> steps) {
+        int[] stepLevels = RuleAnalyzer.levels(steps);
+        List<List<Step>> levels = new ArrayList<>();
+        for (int i = 0; i < steps.size(); i++) {
+            while (levels.size() <= stepLevels[i]) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(stepLevels[i]).add(steps.get(i));
+        }
+        return levels.stream().map(List::copyOf).toList();
+    }
+
+    /**
+     * Each level's column steps, then its steps that need whole records; steps that need
+     * whole records in consecutive levels share a group, so a batch is pivoted once per group
+     */
+    private static List<Segment> segment(List<List<Step>> levels) {
+        List<Segment> segments = new ArrayList<>();
+        List<Step> rowSteps = new ArrayList<>();
+        for (List<Step> level : levels) {
+            List<Step> columnSteps = level.stream().filter(Step::columnar).toList();
+            if (!columnSteps.isEmpty()) {
+                if (!rowSteps.isEmpty()) {
+                    segments.add(new Segment(List.copyOf(rowSteps), false));
+                    rowSteps.clear();
+                }
+                segments.add(new Segment(columnSteps, true));
+            }
+            level.stream().filter(step -> !step.columnar()).forEach(rowSteps::add);
+        }
+        if (!rowSteps.isEmpty()) {
+            segments.add(new Segment(List.copyOf(rowSteps), false));
+        }
+        return segments;
+    }
+
+    private record Segment(List<Step> steps, boolean columnar) {
+    }
+
+    // ---------------------------------------------------------------------
+    // Steps, one per rule type
+    // ---------------------------------------------------------------------
+
+    interface Step {
+        String name();
+
+        void apply(Map<String, Object> data, EvaluationContext context) throws Exception;
+
+        /**
+         * Whether the step can run on whole columns rather than a record at a time
+         */
+        default boolean columnar() {
+            return false;
+        }
+
+        default void applyColumns(ColumnBatch batch) {
+            throw new UnsupportedOperationException(name() + " works a record at a time");
+        }
+    }
+
+    record FieldMappingStep(String name, FieldPath source, FieldPath target) implements Step {
+        @Override
+        public void apply(Map<String, Object> data, EvaluationContext context) {
+            Object value = source.get(data);
+            if (value != null) {
+                target.set(data, value);
+                if (!source.equals(target)) {
+                    source.remove(data);
+                }
+            }
+        }
+
+        @Override
+        public boolean columnar() {
+            return source.isColumn() && target.isColumn();
+        }
+
+        /**
+         * Renames the column, or merges it into an existing target column
+         */
+        @Override
+        public void applyColumns(ColumnBatch batch) {
+            Object[] values = batch.getColumn(source.path);
+            if (values == null || source.equals(target)) {
+                return;
+            }
+            if (!batch.hasColumn(target.path)) {
+                batch.rename(source.path, target.path);
+                return;
+            }
+            Object[] targetValues = batch.writable(target.path);
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    targetValues[i] = values[i];
+                }
+            }
+            batch.drop(source.path);
+        }
+    }
+
+    record ValueMappingStep(String name, FieldPath field, Map<String, Object> mappings) implements Step {
+        @Override
+        public void apply(Map<String, Object> data, EvaluationContext context) {
+            Object currentValue = field.get(data);
+            if (currentValue != null) {
+                String key = currentValue.toString();
+                if (mappings.containsKey(key)) {
+                    field.set(data, copyValue(mappings.get(key)));
+                }
+            }
+        }
+
+        @Override
+        public boolean columnar() {
+            return field.isColumn();
+        }
+
+        /**
+         * Dictionary lookup over the column; the column is copied only if a value changes
+         */
+        @Override
+        public void applyColumns(ColumnBatch batch) {
+            Object[] values = batch.getColumn(field.path);
+            if (values == null) {
+                return;
+            }
+            Object[] mapped = null;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    continue;
+                }
+                String key = values[i].toString();
+                if (mappings.containsKey(key)) {
+                    if (mapped == null) {
+                        mapped = batch.writable(field.path);
+                    }
+                    mapped[i] = copyValue(mappings.get(key));
+                }
+            }
+        }
+    }
+
+    record ExpressionStep(String name, String source, Expression expression, FieldPath target) implements Step {
+        @Override
+        public void apply(Map<String, Object> data, EvaluationContext context) {
+            try {
+                target.set(data, expression.getValue(context, data));
+            } catch (Exception e) {
+                log.error("Failed to evaluate expression: {}", source, e);
+            }
+        }
+    }
+
+    record ScriptStep(String name, ScriptEnginePool.Script script, FieldPath target) implements Step {
+        @Override
+        public void apply(Map<String, Object> data, EvaluationContext context) {
+            try {
+                Object result = script.eval(data);
+                if (result != null) {
+                    target.set(data, result);
+                }
+            } catch (Exception e) {
+                log.error("Failed to execute script", e);
+            }
+        }
+    }
+
+    record RegexStep(String name, FieldPath source, Pattern pattern, String replacement, FieldPath target) implements Step {
+        @Override
+        public void apply(Map<String, Object> data, EvaluationContext context) {
+            Object value = source.get(data);
+            if (value == null) {
+                return;
+            }
+            Matcher m = pattern.matcher(value.toString());
+            if (replacement != null) {
+                target.set(data, m.replaceAll(replacement));
+            } else if (m.find()) {
+                // Extract matched groups
+                List<String> groups = new ArrayList<>();
+                for (int i = 1; i <= m.groupCount(); i++) {
+                    groups.add(m.group(i));
+                }
+                target.set(data, groups);
+            }
+        }
+
+        @Override
+        public boolean columnar() {
+            return source.isColumn() && target.isColumn();
+        }
+
+        /**
+         * Runs one matcher down the source column
+         */
+        @Override
+        public void applyColumns(ColumnBatch batch) {
+            Object[] values = batch.getColumn(source.path);
+            if (values == null) {
+                return;
+            }
+            Object[] results = batch.writable(target.path);
+            Matcher m = pattern.matcher("");
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    continue;
+                }
+                m.reset(values[i].toString());
+                if (replacement != null) {
+                    results[i] = m.replaceAll(replacement);
+                } else if (m.find()) {
+                    List<String> groups = new ArrayList<>();
+                    for (int g = 1; g <= m.groupCount(); g++) {
+                        groups.add(m.group(g));
+                    }
+                    results[i] = groups;
+                }
+            }
+        }
+    }
+
+    record ConditionalStep(String name, Expression condition, Expression transformation, FieldPath target) implements Step {
+        @Override
+        public void apply(Map<String, Object> data, EvaluationContext context) {
+            try {
+                if (Boolean.TRUE.equals(condition.getValue(context, data, Boolean.class))) {
+                    target.set(data, transformation.getValue(context, data));
+                }
+            } catch (Exception e) {
+                log.error("Failed to evaluate conditional rule", e);
+            }
+        }
+    }
+
+    record AggregationStep(String name, FieldPath source, Aggregation aggregation, FieldPath target) implements Step {
+        @Override
+        public void apply(Map<String, Object> data, EvaluationContext context) {
+            if (source.get(data) instanceof Collection<?> collection) {
+                Object result = aggregation.apply(collection);
+                if (result != null) {
+                    target.set(data, result);
+                }
+            }
+        }
+    }
+
+    record EnrichmentStep(String name, List<FieldPath> fields, List<Object> values) implements Step {
+        @Override
+        public void apply(Map<String, Object> data, EvaluationContext context) {
+            for (int i = 0; i < fields.size(); i++) {
+                fields.get(i).set(data, copyValue(values.get(i)));
+            }
+        }
+
+        @Override
+        public boolean columnar() {
+            return fields.stream().allMatch(FieldPath::isColumn);
+        }
+
+        /**
+         * Fills constant columns
+         */
+        @Override
+        public void applyColumns(ColumnBatch batch) {
+            for (int f = 0; f < fields.size(); f++) {
+                Object[] column = new Object[batch.getRowCount()];
+                for (int i = 0; i < column.length; i++) {
+                    column[i] = copyValue(values.get(f));
+                }
+                batch.replace(fields.get(f).path, column);
+            }
+        }
+    }
+
+    record LookupStep(String name, FieldPath key, ReferenceDataCache.ReferenceTable table,
+                      List<FieldPath> targets) implements Step {
+        @Override
+        public void apply(Map<String, Object> data, EvaluationContext context) {
+            Object value = key.get(data);
+            Object[] row = value != null ? table.lookup(value) : null;
+            if (row != null) {
+                for (int i = 0; i < targets.size(); i++) {
+                    targets.get(i).set(data, row[i]);
+                }
+            }
+        }
+
+        @Override
+        public boolean columnar() {
+            return key.isColumn() && targets.stream().allMatch(FieldPath::isColumn);
+        }
+
+        /**
+         * Looks up the whole key column at once, so the batch's misses are fetched together
+         */
+        @Override
+        public void applyColumns(ColumnBatch batch) {
+            Object[] keys = batch.getColumn(key.path);
+            if (keys == null) {
+                return;
+            }
+            Object[][] rows = table.lookupAll(keys);
+            for (int t = 0; t < targets.size(); t++) {
+                Object[] values = null;
+                for (int i = 0; i < rows.length; i++) {
+                    if (rows[i] != null) {
+                        if (values == null) {
+                            values = batch.writable(targets.get(t).path);
+                        }
+                        values[i] = rows[i][t];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A deterministic step that reads one field, run once per distinct value of the field.
+     * On a miss the step runs on a record holding only that field, and what it left in the
+     * target field (or that it left the field alone) is the result kept for the value.
+     */
+    record MemoizedStep(Step step, String input, FieldPath target, TransformationMemo.RuleMemo memo) implements Step {
+        @Override
+        public String name() {
+            return step.name();
+        }
+
+        @Override
+        public void apply(Map<String, Object> data, EvaluationContext context) throws Exception {
+            Object value = data.get(input);
+            if (!TransformationMemo.isKey(value)) {
+                step.apply(data, context);
+                return;
+            }
+            Object result = memo.get(value, () -> compute(value, context));
+            if (result != TransformationMemo.ABSENT) {
+                target.set(data, copyValue(result));
+            }
+        }
+
+        @Override
+        public boolean columnar() {
+            return step.columnar();
+        }
+
+        @Override
+        public void applyColumns(ColumnBatch batch) {
+            Object[] values = batch.getColumn(input);
+            if (values == null) {
+                return;
+            }
+            Object[] results = batch.writable(target.path);
+            EvaluationContext context = EVALUATION_CONTEXTS.get();
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                if (value == null) {
+                    continue;
+                }
+                Object result = TransformationMemo.isKey(value)
+                    ? memo.get(value, () -> compute(value, context)) : compute(value, context);
+                if (result != TransformationMemo.ABSENT) {
+                    results[i] = copyValue(result);
+                }
+            }
+        }
+
+        private Object compute(Object value, EvaluationContext context) {
+            Map<String, Object> data = new HashMap<>(4);
+            data.put(input, value);
+            try {
+                step.apply(data, context);
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to apply rule: " + step.name(), e);
+            }
+            return data.containsKey(target.path) ? data.get(target.path) : TransformationMemo.ABSENT;
+        }
+    }
+
+    record NoOpStep(String name) implements Step {
+        @Override
+        public void apply(Map<String, Object> data, EvaluationContext context) {
+        }
+
+        @Override
+        public boolean columnar() {
+            return true;
+        }
+
+        @Override
+        public void applyColumns(ColumnBatch batch) {
+        }
+    }
+
+    enum Aggregation {
+        SUM {
+            Object apply(Collection<?> values) {
+                return values.stream().filter(v -> v instanceof Number).mapToDouble(v -> ((Number) v).doubleValue()).sum();
+            }
+        },
+        AVG {
+            Object apply(Collection<?> values) {
+                return values.stream().filter(v -> v instanceof Number).mapToDouble(v -> ((Number) v).doubleValue())
+                    .average().orElse(0.0);
+            }
+        },
+        COUNT {
+            Object apply(Collection<?> values) {
+                return values.size();
+            }
+        },
+        MIN {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Object apply(Collection<?> values) {
+                return Collections.min((Collection) values);
+            }
+        },
+        MAX {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Object apply(Collection<?> values) {
+                return Collections.max((Collection) values);
+            }
+        },
+        CONCAT {
+            Object apply(Collection<?> values) {
+                return values.stream().map(Object::toString).reduce("", (a, b) -> a.isEmpty() ? b : a + ", " + b);
+            }
+        },
+        NONE {
+            Object apply(Collection<?> values) {
+                return null;
+            }
+        };
+
+        abstract Object apply(Collection<?> values);
+
+        static Aggregation of(String type) {
+            try {
+                return type != null ? valueOf(type.toUpperCase(Locale.ROOT)) : NONE;
+            } catch (IllegalArgumentException e) {
+                return NONE;
+            }
+        }
+    }
+
+    /**
+     * A dotted field path split once; each segment names a key of a nested map
+     */
+    static final class FieldPath {
+        private static final FieldPath NONE = new FieldPath("", new String[0]);
+
+        private final String path;
+        private final String[] parts;
+
+        private FieldPath(String path, String[] parts) {
+            this.path = path;
+            this.parts = parts;
+        }
+
+        /**
+         * Compiled path; a rule that names no field gets one that reads null and ignores writes
+         */
+        static FieldPath of(String path) {
+            return path == null || path.isEmpty() ? NONE : new FieldPath(path, path.split("\\."));
+        }
+
+        /**
+         * Whether the path names a top-level field, which a column batch holds as a column
+         */
+        boolean isColumn() {
+            return parts.length == 1;
+        }
+
+        /**
+         * Top-level field the path starts at, or null when it names no field
+         */
+        String root() {
+            return parts.length > 0 ? parts[0] : null;
+        }
+
+        Object get(Map<String, Object> data) {
+            if (parts.length == 0) {
+                return null;
+            }
+            Object current = data;
+            for (String part : parts) {
+                if (current instanceof Map<?, ?> map) {
+                    current = map.get(part);
+                } else {
+                    return null;
+                }
+            }
+            return current;
+        }
+
+        @SuppressWarnings("unchecked")
+        void set(Map<String, Object> data, Object value) {
+            if (parts.length == 0) {
+                return;
+            }
+            Map<String, Object> current = data;
+            for (int i = 0; i < parts.length - 1; i++) {
+                current = (Map<String, Object>) current.computeIfAbsent(parts[i], key -> new HashMap<String, Object>());
+            }
+            current.put(parts[parts.length - 1], value);
+        }
+
+        @SuppressWarnings("unchecked")
+        void remove(Map<String, Object> data) {
+            if (parts.length == 0) {
+                return;
+            }
+            Map<String, Object> current = data;
+            for (int i = 0; i < parts.length - 1; i++) {
+                if (current.get(parts[i]) instanceof Map<?, ?> next) {
+                    current = (Map<String, Object>) next;
+                } else {
+                    return;
+                }
+            }
+            current.remove(parts[parts.length - 1]);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof FieldPath that && path.equals(that.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return path;
+        }
+    }
+
+    /**
+     * Records must not share containers parsed once from a rule definition
+     */
+    @SuppressWarnings("unchecked")
+    static Object copyValue(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            map.forEach((key, nested) -> copy.put(String.valueOf(key), copyValue(nested)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(nested -> copy.add(copyValue(nested)));
+            return copy;
+        }
+        return value;
+    }
+
+    /**
+     * Rules in the order they apply: ascending priority, ties in list order
+     */
+    static List<TransformationRule> ordered(List<TransformationRule> rules) {
+        List<TransformationRule> sorted = new ArrayList<>(rules);
+        sorted.sort(Comparator.comparingInt(TransformationRule::getPriority));
+        return sorted;
+    }
+}
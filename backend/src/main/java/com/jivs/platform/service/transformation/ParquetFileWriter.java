@@ -0,0 +1,372 @@
+package com.jivs.platform.service.transformation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a Parquet file of flat, optional columns.
+ *
+ * Each batch becomes one row group with a single PLAIN encoded data page per column, its
+ * definition levels run-length encoded, compressed with the file's codec. Column chunks are
+ * streamed out as they are encoded; only their metadata is kept until close writes the
+ * footer, so a file can hold any number of batches.
+ */
+public final class ParquetFileWriter implements ColumnarFileWriter {
+
+    private static final byte[] MAGIC = {'P', 'A', 'R', '1'};
+
+    // Thrift enum values from parquet.thrift
+    private static final int BOOLEAN = 0, INT32 = 1, INT64 = 2, FLOAT = 4, DOUBLE = 5, BYTE_ARRAY = 6;
+    private static final int OPTIONAL = 1;
+    private static final int UTF8 = 0, DECIMAL = 5, DATE = 6, TIMESTAMP_MICROS = 10;
+    private static final int PLAIN = 0, RLE = 3;
+    private static final int DATA_PAGE = 0;
+    private static final int UNCOMPRESSED = 0, GZIP = 2;
+
+    private final OutputStream out;
+    private final RecordSchema schema;
+    private final Codec codec;
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+    private long position;
+
+    public ParquetFileWriter(OutputStream out, RecordSchema schema, Codec codec) throws IOException {
+        this.out = out;
+        this.schema = schema;
+        this.codec = codec;
+        emit(MAGIC);
+    }
+
+    @Override
+    public void write(ColumnBatch batch) throws IOException {
+        int rows = batch.getRowCount();
+        if (rows == 0) {
+            return;
+        }
+        RowGroup rowGroup = new RowGroup(rows);
+        for (RecordSchema.Field field : schema.getFields()) {
+            rowGroup.columns.add(writeColumn(field, batch.getColumn(field.name()), rows));
+        }
+        rowGroups.add(rowGroup);
+    }
+
+    @Override
+    public RecordSchema getSchema() {
+        return schema;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            ThriftWriter footer = new ThriftWriter();
+            writeFileMetaData(footer);
+            byte[] metadata = footer.finish();
+            emit(metadata);
+            emit(new byte[] {(byte) metadata.length, (byte) (metadata.length >>> 8),
+                (byte) (metadata.length >>> 16), (byte) (metadata.length >>> 24)});
+            emit(MAGIC);
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private ColumnChunk writeColumn(RecordSchema.Field field, Object[] values, int rows) throws IOException {
+        // Convert first, so the levels mark exactly the values the page holds
+        Object[] converted = new Object[rows];
+        for (int i = 0; values != null && i < rows; i++) {
+            converted[i] = RecordSchema.convert(field, values[i]);
+        }
+        ByteArrayOutputStream page = new ByteArrayOutputStream();
+        writeDefinitionLevels(page, converted, rows);
+
+        // Booleans are bit-packed, everything else is written value after value
+        int bits = 0;
+        int bitCount = 0;
+        for (Object value : converted) {
+            if (value == null) {
+                continue;
+            }
+            switch (field.type()) {
+                case BOOLEAN -> {
+                    bits |= ((Boolean) value ? 1 : 0) << bitCount;
+                    if (++bitCount == 8) {
+                        page.write(bits);
+                        bits = 0;
+                        bitCount = 0;
+                    }
+                }
+                case INT, DATE -> writeLittleEndian(page, (Integer) value, 4);
+                case LONG, TIMESTAMP -> writeLittleEndian(page, (Long) value, 8);
+                case FLOAT -> writeLittleEndian(page, Float.floatToIntBits((Float) value), 4);
+                case DOUBLE -> writeLittleEndian(page, Double.doubleToLongBits((Double) value), 8);
+                case DECIMAL, STRING, BYTES -> {
+                    byte[] bytes = (byte[]) value;
+                    writeLittleEndian(page, bytes.length, 4);
+                    page.write(bytes);
+                }
+            }
+        }
+        if (bitCount > 0) {
+            page.write(bits);
+        }
+
+        byte[] uncompressed = page.toByteArray();
+        byte[] compressed = uncompressed;
+        if (codec == Codec.DEFLATE) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(uncompressed.length / 2);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                gzip.write(uncompressed);
+            }
+            compressed = buffer.toByteArray();
+        }
+
+        ThriftWriter header = new ThriftWriter();
+        header.i32(1, DATA_PAGE);
+        header.i32(2, uncompressed.length);
+        header.i32(3, compressed.length);
+        header.beginStruct(5);
+        header.i32(1, rows);
+        header.i32(2, PLAIN);
+        header.i32(3, RLE);
+        header.i32(4, RLE);
+        header.endStruct();
+        byte[] headerBytes = header.finish();
+
+        ColumnChunk chunk = new ColumnChunk(field, rows, position,
+            headerBytes.length + uncompressed.length, headerBytes.length + compressed.length);
+        emit(headerBytes);
+        emit(compressed);
+        return chunk;
+    }
+
+    /**
+     * Definition levels of an optional column (1 when present, 0 when null) as RLE runs of
+     * bit width 1, prefixed with their length as data page v1 requires
+     */
+    private static void writeDefinitionLevels(ByteArrayOutputStream page, Object[] values, int rows) throws IOException {
+        ByteArrayOutputStream levels = new ByteArrayOutputStream();
+        int i = 0;
+        while (i < rows) {
+            boolean present = values[i] != null;
+            int run = 1;
+            while (i + run < rows && (values[i + run] != null) == present) {
+                run++;
+            }
+            writeVarint(levels, (long) run << 1);
+            levels.write(present ? 1 : 0);
+            i += run;
+        }
+        writeLittleEndian(page, levels.size(), 4);
+        levels.writeTo(page);
+    }
+
+    private void writeFileMetaData(ThriftWriter meta) throws IOException {
+        long rows = rowGroups.stream().mapToLong(group -> group.rows).sum();
+        List<RecordSchema.Field> fields = schema.getFields();
+        meta.i32(1, 1);
+        meta.beginList(2, ThriftWriter.STRUCT, fields.size() + 1);
+        meta.beginElement();
+        meta.string(4, "record");
+        meta.i32(5, fields.size());
+        meta.endElement();
+        for (RecordSchema.Field field : fields) {
+            writeSchemaElement(meta, field);
+        }
+        meta.i64(3, rows);
+        meta.beginList(4, ThriftWriter.STRUCT, rowGroups.size());
+        for (RowGroup group : rowGroups) {
+            meta.beginElement();
+            meta.beginList(1, ThriftWriter.STRUCT, group.columns.size());
+            long totalBytes = 0;
+            for (ColumnChunk chunk : group.columns) {
+                writeColumnChunk(meta, chunk);
+                totalBytes += chunk.uncompressedSize;
+            }
+            meta.i64(2, totalBytes);
+            meta.i64(3, group.rows);
+            meta.endElement();
+        }
+        meta.string(6, "jivs-platform");
+    }
+
+    private static void writeSchemaElement(ThriftWriter meta, RecordSchema.Field field) throws IOException {
+        meta.beginElement();
+        meta.i32(1, physicalType(field.type()));
+        meta.i32(3, OPTIONAL);
+        meta.string(4, field.name());
+        switch (field.type()) {
+            case STRING -> meta.i32(6, UTF8);
+            case DATE -> meta.i32(6, DATE);
+            case TIMESTAMP -> meta.i32(6, TIMESTAMP_MICROS);
+            case DECIMAL -> {
+                meta.i32(6, DECIMAL);
+                meta.i32(7, field.scale());
+                meta.i32(8, Math.max(38, field.scale()));
+            }
+            default -> {
+            }
+        }
+        meta.endElement();
+    }
+
+    private void writeColumnChunk(ThriftWriter meta, ColumnChunk chunk) throws IOException {
+        meta.beginElement();
+        meta.i64(2, chunk.offset);
+        meta.beginStruct(3);
+        meta.i32(1, physicalType(chunk.field.type()));
+        meta.beginList(2, ThriftWriter.I32, 2);
+        meta.listI32(PLAIN);
+        meta.listI32(RLE);
+        meta.beginList(3, ThriftWriter.BINARY, 1);
+        meta.listString(chunk.field.name());
+        meta.i32(4, codec == Codec.DEFLATE ? GZIP : UNCOMPRESSED);
+        meta.i64(5, chunk.values);
+        meta.i64(6, chunk.uncompressedSize);
+        meta.i64(7, chunk.compressedSize);
+        meta.i64(9, chunk.offset);
+        meta.endStruct();
+        meta.endElement();
+    }
+
+    private static int physicalType(RecordSchema.FieldType type) {
+        return switch (type) {
+            case BOOLEAN -> BOOLEAN;
+            case INT, DATE -> INT32;
+            case LONG, TIMESTAMP -> INT64;
+            case FLOAT -> FLOAT;
+            case DOUBLE -> DOUBLE;
+            case DECIMAL, STRING, BYTES -> BYTE_ARRAY;
+        };
+    }
+
+    private void emit(byte[] bytes) throws IOException {
+        out.write(bytes);
+        position += bytes.length;
+    }
+
+    private static void writeLittleEndian(OutputStream out, long bits, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            out.write((int) (bits >>> (8 * i)));
+        }
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static final class RowGroup {
+        private final long rows;
+        private final List<ColumnChunk> columns = new ArrayList<>();
+
+        private RowGroup(long rows) {
+            this.rows = rows;
+        }
+    }
+
+    private record ColumnChunk(RecordSchema.Field field, long values, long offset, long uncompressedSize,
+                               long compressedSize) {
+    }
+
+    /**
+     * The subset of Thrift's compact protocol the Parquet page headers and footer need.
+     * Fields carry their id as a delta from the previous field of the same struct.
+     */
+    static final class ThriftWriter {
+        static final int I32 = 5, I64 = 6, BINARY = 8, LIST = 9, STRUCT = 12;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final Deque<Integer> enclosing = new ArrayDeque<>();
+        private int lastFieldId;
+
+        void i32(int id, int value) throws IOException {
+            fieldHeader(id, I32);
+            zigZag(value);
+        }
+
+        void i64(int id, long value) throws IOException {
+            fieldHeader(id, I64);
+            zigZag(value);
+        }
+
+        void string(int id, String value) throws IOException {
+            fieldHeader(id, BINARY);
+            listString(value);
+        }
+
+        void beginStruct(int id) throws IOException {
+            fieldHeader(id, STRUCT);
+            beginElement();
+        }
+
+        void endStruct() {
+            endElement();
+        }
+
+        /**
+         * Start a list field; its elements follow, structs between beginElement and endElement
+         */
+        void beginList(int id, int elementType, int size) throws IOException {
+            fieldHeader(id, LIST);
+            if (size < 15) {
+                bytes.write(size << 4 | elementType);
+            } else {
+                bytes.write(0xF0 | elementType);
+                writeVarint(bytes, size);
+            }
+        }
+
+        void beginElement() {
+            enclosing.push(lastFieldId);
+            lastFieldId = 0;
+        }
+
+        void endElement() {
+            bytes.write(0);
+            lastFieldId = enclosing.pop();
+        }
+
+        void listI32(int value) throws IOException {
+            zigZag(value);
+        }
+
+        void listString(String value) throws IOException {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes, utf8.length);
+            bytes.write(utf8);
+        }
+
+        /**
+         * End the top-level struct
+         */
+        byte[] finish() {
+            bytes.write(0);
+            return bytes.toByteArray();
+        }
+
+        private void fieldHeader(int id, int type) throws IOException {
+            int delta = id - lastFieldId;
+            if (delta > 0 && delta <= 15) {
+                bytes.write(delta << 4 | type);
+            } else {
+                bytes.write(type);
+                zigZag(id);
+            }
+            lastFieldId = id;
+        }
+
+        private void zigZag(long value) throws IOException {
+            writeVarint(bytes, (value << 1) ^ (value >> 63));
+        }
+    }
+}
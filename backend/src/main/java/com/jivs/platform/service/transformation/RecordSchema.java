@@ -0,0 +1,296 @@
+package com.jivs.platform.service.transformation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Flat schema of a batch of transformed records, inferred from a sample of its rows.
+ *
+ * Each column gets the narrowest type that holds every sampled value: integers widen to
+ * longs, then decimals or doubles, and columns whose values disagree fall back to strings.
+ * Nested maps and lists are written as JSON strings. Records are schemaless, so every field
+ * is nullable.
+ */
+public final class RecordSchema {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    public enum FieldType {
+        BOOLEAN, INT, LONG, FLOAT, DOUBLE, DECIMAL, STRING, BYTES, DATE, TIMESTAMP
+    }
+
+    /**
+     * One column; scale is only meaningful for decimals
+     */
+    public record Field(String name, FieldType type, int scale) {
+    }
+
+    private final List<Field> fields;
+
+    public RecordSchema(List<Field> fields) {
+        this.fields = List.copyOf(fields);
+    }
+
+    /**
+     * Infer the schema of a batch from at most sampleSize rows spread evenly across it
+     */
+    public static RecordSchema infer(ColumnBatch batch, int sampleSize) {
+        int rows = batch.getRowCount();
+        int stride = Math.max(1, rows / Math.max(1, sampleSize));
+        List<Field> fields = new ArrayList<>();
+        for (String name : batch.getColumnNames()) {
+            Object[] values = batch.getColumn(name);
+            FieldType type = null;
+            int scale = 0;
+            for (int i = 0; i < rows; i += stride) {
+                if (values[i] != null) {
+                    type = widen(type, typeOf(values[i]));
+                    if (values[i] instanceof BigDecimal decimal) {
+                        scale = Math.max(scale, decimal.scale());
+                    }
+                }
+            }
+            fields.add(new Field(name, type != null ? type : FieldType.STRING, scale));
+        }
+        return new RecordSchema(fields);
+    }
+
+    public List<Field> getFields() {
+        return fields;
+    }
+
+    /**
+     * Avro record schema as JSON, with field names made valid Avro names
+     */
+    public String toAvroSchema(String recordName) {
+        StringBuilder schema = new StringBuilder("{\"type\":\"record\",\"name\":\"")
+            .append(avroName(recordName, new HashSet<>())).append("\",\"fields\":[");
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            schema.append(i > 0 ? "," : "").append("{\"name\":\"").append(avroName(field.name(), used))
+                .append("\",\"type\":[\"null\",").append(avroType(field)).append("],\"default\":null}");
+        }
+        return schema.append("]}").toString();
+    }
+
+    /**
+     * Parquet message type in the textual form parquet tools print
+     */
+    public String toParquetSchema() {
+        StringBuilder schema = new StringBuilder("message record {\n");
+        for (Field field : fields) {
+            String type = switch (field.type()) {
+                case BOOLEAN -> "boolean";
+                case INT -> "int32";
+                case LONG -> "int64";
+                case FLOAT -> "float";
+                case DOUBLE -> "double";
+                case DECIMAL, STRING, BYTES -> "binary";
+                case DATE -> "int32";
+                case TIMESTAMP -> "int64";
+            };
+            String annotation = switch (field.type()) {
+                case DECIMAL -> " (DECIMAL(" + precision(field) + "," + field.scale() + "))";
+                case STRING -> " (STRING)";
+                case DATE -> " (DATE)";
+                case TIMESTAMP -> " (TIMESTAMP(MICROS,true))";
+                default -> "";
+            };
+            schema.append("  optional ").append(type).append(' ').append(field.name()).append(annotation).append(";\n");
+        }
+        return schema.append('}').toString();
+    }
+
+    /**
+     * Value in the representation its field type is written in: Boolean, Integer (also days
+     * for dates), Long (also epoch microseconds for timestamps), Float, Double, unscaled bytes
+     * for decimals, UTF-8 bytes for strings, or raw bytes
+     *
+     * @throws IllegalArgumentException when the value does not fit a type inferred from other rows
+     */
+    static Object convert(Field field, Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return switch (field.type()) {
+                case BOOLEAN -> (Boolean) value;
+                case INT -> Math.toIntExact(((Number) integral(value)).longValue());
+                case LONG -> ((Number) integral(value)).longValue();
+                case FLOAT -> ((Number) value).floatValue();
+                case DOUBLE -> ((Number) value).doubleValue();
+                case DECIMAL -> decimal(value).setScale(field.scale(), RoundingMode.HALF_UP).unscaledValue().toByteArray();
+                case STRING -> text(value).getBytes(StandardCharsets.UTF_8);
+                case BYTES -> (byte[]) value;
+                case DATE -> (int) localDate(value).toEpochDay();
+                case TIMESTAMP -> ChronoUnit.MICROS.between(Instant.EPOCH, instant(value));
+            };
+        } catch (ClassCastException | ArithmeticException e) {
+            throw new IllegalArgumentException("Value " + value + " of column " + field.name()
+                + " does not fit its inferred type " + field.type(), e);
+        }
+    }
+
+    private static FieldType typeOf(Object value) {
+        if (value instanceof Boolean) {
+            return FieldType.BOOLEAN;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return FieldType.INT;
+        }
+        if (value instanceof Long || value instanceof BigInteger big && big.bitLength() < 64) {
+            return FieldType.LONG;
+        }
+        if (value instanceof Float) {
+            return FieldType.FLOAT;
+        }
+        if (value instanceof Double) {
+            return FieldType.DOUBLE;
+        }
+        if (value instanceof BigDecimal || value instanceof BigInteger) {
+            return FieldType.DECIMAL;
+        }
+        if (value instanceof byte[]) {
+            return FieldType.BYTES;
+        }
+        if (value instanceof LocalDate || value instanceof java.sql.Date) {
+            return FieldType.DATE;
+        }
+        if (value instanceof Instant || value instanceof Date || value instanceof LocalDateTime
+            || value instanceof OffsetDateTime || value instanceof ZonedDateTime) {
+            return FieldType.TIMESTAMP;
+        }
+        return FieldType.STRING;
+    }
+
+    private static FieldType widen(FieldType current, FieldType next) {
+        if (current == null || current == next) {
+            return next;
+        }
+        if (isNumeric(current) && isNumeric(next)) {
+            boolean floating = current == FieldType.FLOAT || current == FieldType.DOUBLE
+                || next == FieldType.FLOAT || next == FieldType.DOUBLE;
+            if (floating) {
+                return FieldType.DOUBLE;
+            }
+            return current == FieldType.DECIMAL || next == FieldType.DECIMAL ? FieldType.DECIMAL : FieldType.LONG;
+        }
+        if (EnumSet.of(current, next).equals(EnumSet.of(FieldType.DATE, FieldType.TIMESTAMP))) {
+            return FieldType.TIMESTAMP;
+        }
+        return FieldType.STRING;
+    }
+
+    private static boolean isNumeric(FieldType type) {
+        return type == FieldType.INT || type == FieldType.LONG || type == FieldType.FLOAT
+            || type == FieldType.DOUBLE || type == FieldType.DECIMAL;
+    }
+
+    private static int precision(Field field) {
+        return Math.max(38, field.scale());
+    }
+
+    private static String avroType(Field field) {
+        return switch (field.type()) {
+            case BOOLEAN -> "\"boolean\"";
+            case INT -> "\"int\"";
+            case LONG -> "\"long\"";
+            case FLOAT -> "\"float\"";
+            case DOUBLE -> "\"double\"";
+            case DECIMAL -> "{\"type\":\"bytes\",\"logicalType\":\"decimal\",\"precision\":" + precision(field)
+                + ",\"scale\":" + field.scale() + "}";
+            case STRING -> "\"string\"";
+            case BYTES -> "\"bytes\"";
+            case DATE -> "{\"type\":\"int\",\"logicalType\":\"date\"}";
+            case TIMESTAMP -> "{\"type\":\"long\",\"logicalType\":\"timestamp-micros\"}";
+        };
+    }
+
+    /**
+     * Avro names are [A-Za-z_][A-Za-z0-9_]*; other characters become underscores and clashes get a suffix
+     */
+    private static String avroName(String name, Set<String> used) {
+        StringBuilder valid = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean allowed = c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (i > 0 && c >= '0' && c <= '9');
+            valid.append(allowed ? c : '_');
+        }
+        if (valid.isEmpty() || (name.charAt(0) >= '0' && name.charAt(0) <= '9')) {
+            valid.insert(0, '_');
+        }
+        String candidate = valid.toString();
+        for (int suffix = 2; !used.add(candidate); suffix++) {
+            candidate = valid + "_" + suffix;
+        }
+        return candidate;
+    }
+
+    private static Object integral(Object value) {
+        if (value instanceof BigInteger big) {
+            return big.longValueExact();
+        }
+        if (value instanceof Float || value instanceof Double || value instanceof BigDecimal) {
+            throw new ClassCastException(value.getClass().getName());
+        }
+        return value;
+    }
+
+    private static BigDecimal decimal(Object value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (value instanceof BigInteger big) {
+            return new BigDecimal(big);
+        }
+        return BigDecimal.valueOf(((Number) integral(value)).longValue());
+    }
+
+    private static String text(Object value) {
+        if (value instanceof Map || value instanceof Collection) {
+            try {
+                return JSON.writeValueAsString(value);
+            } catch (Exception e) {
+                return value.toString();
+            }
+        }
+        return value.toString();
+    }
+
+    private static LocalDate localDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    private static Instant instant(Object value) {
+        if (value instanceof LocalDate date) {
+            return date.atStartOfDay(ZoneOffset.UTC).toInstant();
+        }
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate().atStartOfDay(ZoneOffset.UTC).toInstant();
+        }
+        if (value instanceof java.sql.Timestamp timestamp) {
+            return timestamp.toInstant();
+        }
+        if (value instanceof Date date) {
+            return date.toInstant();
+        }
+        if (value instanceof LocalDateTime dateTime) {
+            return dateTime.toInstant(ZoneOffset.UTC);
+        }
+        if (value instanceof OffsetDateTime dateTime) {
+            return dateTime.toInstant();
+        }
+        if (value instanceof ZonedDateTime dateTime) {
+            return dateTime.toInstant();
+        }
+        return (Instant) value;
+    }
+}
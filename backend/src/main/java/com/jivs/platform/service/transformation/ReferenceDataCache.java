@@ -0,0 +1,386 @@
+package com.jivs.platform.service.transformation;
+
+import com.jivs.platform.security.SqlInjectionValidator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reference data for LOOKUP rules, such as country codes or customer masters.
+ *
+ * A table small enough is loaded whole, with numeric keys held in a primitive long map,
+ * and reloaded once its TTL lapses. Larger tables are looked up on demand: a batch fetches
+ * all its missing keys with a few IN queries, and fetched rows (and keys found missing) are
+ * kept in a bounded LRU until their TTL lapses. Either way enrichment does not cost a query
+ * per record.
+ *
+ * Keys are matched by value: integral numbers and their canonical decimal strings are the
+ * same key, so a VARCHAR "42" in a record finds the row keyed by BIGINT 42. Fetched keys are
+ * bound as the key column's type, read from the result metadata, so the database compares
+ * like with like instead of casting (or failing to cast) the column.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataCache {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    private final Map<String, DataSource> dataSources;
+    private final SqlInjectionValidator sqlInjectionValidator;
+    private final Map<List<Object>, ReferenceTable> tables = new ConcurrentHashMap<>();
+
+    @Value("${jivs.transformation.reference.preload-max-rows:50000}")
+    private long preloadMaxRows = 50000;
+
+    @Value("${jivs.transformation.reference.max-entries:100000}")
+    private int maxEntries = 100000;
+
+    @Value("${jivs.transformation.reference.ttl-ms:300000}")
+    private long ttlMillis = 300000;
+
+    @Value("${jivs.transformation.reference.fetch-chunk-size:500}")
+    private int fetchChunkSize = 500;
+
+    /**
+     * Cached view of the given columns of a reference table, keyed by one of its columns
+     */
+    public ReferenceTable table(String dataSource, String table, String keyColumn, List<String> columns) {
+        if (!dataSources.containsKey(dataSource)) {
+            throw new IllegalArgumentException("No data source registered for reference data: " + dataSource);
+        }
+        for (String part : table.split("\\.")) {
+            sqlInjectionValidator.sanitizeIdentifier(part);
+        }
+        sqlInjectionValidator.sanitizeIdentifier(keyColumn);
+        sqlInjectionValidator.sanitizeColumns(columns);
+        return tables.computeIfAbsent(List.of(dataSource, table, keyColumn, List.copyOf(columns)),
+            key -> new ReferenceTable(dataSource, table, keyColumn, List.copyOf(columns)));
+    }
+
+    /**
+     * Drop every cached table so the next lookup reads the database again
+     */
+    public void invalidateAll() {
+        tables.clear();
+    }
+
+    /**
+     * Key as it is matched: integral numbers and canonical integer strings as Long, anything else as its string
+     */
+    static Object normalize(Object key) {
+        if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return ((Number) key).longValue();
+        }
+        if (key instanceof BigInteger big && big.bitLength() < 64) {
+            return big.longValue();
+        }
+        if (key instanceof BigDecimal decimal) {
+            try {
+                return decimal.toBigIntegerExact().longValueExact();
+            } catch (ArithmeticException e) {
+                return decimal.stripTrailingZeros().toPlainString();
+            }
+        }
+        String text = key.toString();
+        if (isCanonicalLong(text)) {
+            return Long.parseLong(text);
+        }
+        return text;
+    }
+
+    /**
+     * Key as bound against a key column of the given JDBC type, or null when no row can have it,
+     * such as "A1" against a numeric column
+     */
+    static Object bindable(Object key, int sqlType) {
+        Object normalized = normalize(key);
+        switch (sqlType) {
+            case Types.BIGINT, Types.INTEGER, Types.SMALLINT, Types.TINYINT:
+                return normalized instanceof Long ? normalized : null;
+            case Types.NUMERIC, Types.DECIMAL:
+                if (normalized instanceof Long id) {
+                    return BigDecimal.valueOf(id);
+                }
+                try {
+                    return new BigDecimal((String) normalized);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR, Types.NCHAR, Types.NVARCHAR, Types.LONGNVARCHAR:
+                return normalized.toString();
+            default:
+                return key;
+        }
+    }
+
+    private static boolean isCanonicalLong(String text) {
+        int start = text.startsWith("-") ? 1 : 0;
+        int digits = text.length() - start;
+        if (digits == 0 || digits > 18 || (text.charAt(start) == '0' && digits > 1) || text.equals("-0")) {
+            return false;
+        }
+        for (int i = start; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * One reference table; lookups return the requested columns of a row in request order,
+     * or null when no row has the key. Safe for concurrent use.
+     */
+    public final class ReferenceTable {
+        private final String dataSource;
+        private final String table;
+        private final String keyColumn;
+        private final List<String> columns;
+        private final Map<Object, Cached> recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Cached> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        // Whole table when it is small enough to preload, else null; re-checked once the TTL lapses
+        private volatile Snapshot snapshot;
+        private volatile long checkedAt;
+        private volatile int keyType = Types.OTHER;
+
+        private ReferenceTable(String dataSource, String table, String keyColumn, List<String> columns) {
+            this.dataSource = dataSource;
+            this.table = table;
+            this.keyColumn = keyColumn;
+            this.columns = columns;
+        }
+
+        public Object[] lookup(Object key) {
+            return lookupAll(new Object[] {key})[0];
+        }
+
+        /**
+         * Rows for a column of keys, fetching every missing key of the batch together
+         */
+        public Object[][] lookupAll(Object[] keys) {
+            Object[][] rows = new Object[keys.length][];
+            Snapshot current = snapshot();
+            if (current != null) {
+                for (int i = 0; i < keys.length; i++) {
+                    rows[i] = keys[i] != null ? current.get(normalize(keys[i])) : null;
+                }
+                return rows;
+            }
+
+            Object[] normalized = new Object[keys.length];
+            Map<Object, Object> misses = new LinkedHashMap<>();
+            long now = System.currentTimeMillis();
+            synchronized (recent) {
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] == null) {
+                        continue;
+                    }
+                    normalized[i] = normalize(keys[i]);
+                    Cached cached = recent.get(normalized[i]);
+                    if (cached != null && now - cached.fetchedAt < ttlMillis) {
+                        rows[i] = cached.row;
+                    } else {
+                        misses.putIfAbsent(normalized[i], keys[i]);
+                    }
+                }
+            }
+            if (misses.isEmpty()) {
+                return rows;
+            }
+
+            Map<Object, Object[]> fetched = fetch(misses.values());
+            synchronized (recent) {
+                for (Object key : misses.keySet()) {
+                    recent.put(key, new Cached(fetched.get(key), now));
+                }
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (rows[i] == null && normalized[i] != null) {
+                    rows[i] = fetched.get(normalized[i]);
+                }
+            }
+            return rows;
+        }
+
+        private Snapshot snapshot() {
+            long now = System.currentTimeMillis();
+            if (now - checkedAt < ttlMillis) {
+                return snapshot;
+            }
+            synchronized (this) {
+                if (now - checkedAt >= ttlMillis) {
+                    JdbcTemplate jdbc = new JdbcTemplate(dataSources.get(dataSource));
+                    // Size and key type in one round trip
+                    Long rowCount = jdbc.execute((ConnectionCallback<Long>) con -> {
+                        try (Statement stmt = con.createStatement()) {
+                            try (ResultSet rs = stmt.executeQuery(
+                                    "SELECT " + keyColumn + " FROM " + table + " WHERE 1 = 0")) {
+                                keyType = rs.getMetaData().getColumnType(1);
+                            }
+                            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                                return rs.next() ? rs.getLong(1) : null;
+                            }
+                        }
+                    });
+                    if (rowCount != null && rowCount <= preloadMaxRows) {
+                        snapshot = load(jdbc, rowCount.intValue());
+                        log.info("Preloaded {} rows of reference table {}", rowCount, table);
+                    } else {
+                        snapshot = null;
+                    }
+                    checkedAt = now;
+                }
+                return snapshot;
+            }
+        }
+
+        private Snapshot load(JdbcTemplate jdbc, int rowCount) {
+            Snapshot loaded = new Snapshot(rowCount);
+            jdbc.query("SELECT " + keyColumn + ", " + String.join(", ", columns) + " FROM " + table, rs -> {
+                Object key = rs.getObject(1);
+                if (key != null) {
+                    loaded.put(normalize(key), row(rs));
+                }
+            });
+            return loaded;
+        }
+
+        private Map<Object, Object[]> fetch(Collection<Object> keys) {
+            JdbcTemplate jdbc = new JdbcTemplate(dataSources.get(dataSource));
+            Map<Object, Object[]> fetched = new HashMap<>();
+            int type = keyType;
+            List<Object> pending = new ArrayList<>(keys.size());
+            for (Object key : keys) {
+                Object bound = bindable(key, type);
+                if (bound != null) {
+                    pending.add(bound);
+                }
+            }
+            int chunkSize = Math.max(1, fetchChunkSize);
+            for (int from = 0; from < pending.size(); from += chunkSize) {
+                List<Object> chunk = pending.subList(from, Math.min(from + chunkSize, pending.size()));
+                String sql = "SELECT " + keyColumn + ", " + String.join(", ", columns) + " FROM " + table
+                    + " WHERE " + keyColumn + " IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+                jdbc.query(sql, rs -> {
+                    fetched.put(normalize(rs.getObject(1)), row(rs));
+                }, chunk.toArray());
+            }
+            log.debug("Fetched {} of {} missing keys from reference table {}", fetched.size(), keys.size(), table);
+            return fetched;
+        }
+
+        private Object[] row(ResultSet rs) throws SQLException {
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(i + 2);
+            }
+            return row;
+        }
+    }
+
+    private record Cached(Object[] row, long fetchedAt) {
+    }
+
+    /**
+     * A whole preloaded table: integral keys in a primitive map, any others by string
+     */
+    private static final class Snapshot {
+        private final LongObjectMap integral;
+        private final Map<String, Object[]> other = new HashMap<>();
+
+        private Snapshot(int expectedRows) {
+            this.integral = new LongObjectMap(expectedRows);
+        }
+
+        void put(Object key, Object[] row) {
+            if (key instanceof Long id) {
+                integral.put(id, row);
+            } else {
+                other.put((String) key, row);
+            }
+        }
+
+        Object[] get(Object key) {
+            return key instanceof Long id ? integral.get(id) : other.get((String) key);
+        }
+    }
+
+    /**
+     * Open-addressing map from long keys to rows, without boxing keys or allocating entries
+     */
+    static final class LongObjectMap {
+        private long[] keys;
+        private Object[][] values;
+        private int size;
+
+        LongObjectMap(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+            keys = new long[capacity];
+            values = new Object[capacity][];
+        }
+
+        Object[] get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = slot(key, mask); values[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return null;
+        }
+
+        void put(long key, Object[] value) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (values[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (values[slot] == null) {
+                size++;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Object[][] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Object[oldKeys.length * 2][];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
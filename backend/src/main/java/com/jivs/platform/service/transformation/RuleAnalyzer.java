@@ -0,0 +1,277 @@
+package com.jivs.platform.service.transformation;
+
+import com.jivs.platform.service.transformation.CompiledTransformationPlan.*;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.ast.CompoundExpression;
+import org.springframework.expression.spel.ast.Indexer;
+import org.springframework.expression.spel.ast.MethodReference;
+import org.springframework.expression.spel.ast.Projection;
+import org.springframework.expression.spel.ast.PropertyOrFieldReference;
+import org.springframework.expression.spel.ast.Selection;
+import org.springframework.expression.spel.ast.StringLiteral;
+import org.springframework.expression.spel.ast.VariableReference;
+import org.springframework.expression.spel.standard.SpelExpression;
+
+import java.util.*;
+
+/**
+ * Read/write analysis of compiled rules over the top-level fields of a record.
+ *
+ * Two rules depend on each other when one writes a field the other reads or writes; every
+ * other pair may run in either order, or at the same time, with the same result. Rules whose
+ * reads cannot be known (scripts, expressions that call methods on the record) depend on
+ * every rule that writes anything. From these dependencies the analyzer drops rules whose
+ * writes are always overwritten before anything reads them, fuses adjacent rules that can be
+ * applied as one, reports rules that overwrite each other's results, and levels the rules so
+ * each level holds rules independent of one another.
+ */
+final class RuleAnalyzer {
+
+    private RuleAnalyzer() {
+    }
+
+    /**
+     * Top-level fields a step reads and writes; all flags stand for every field. Overwritten
+     * fields are written whatever their previous value and the record hold, without being read.
+     */
+    record Access(Set<String> reads, boolean readsAll, Set<String> writes, boolean writesAll, Set<String> overwrites) {
+
+        static final Access ALL = new Access(Set.of(), true, Set.of(), true, Set.of());
+
+        boolean dependsOn(Access earlier) {
+            return intersects(earlier.writes, earlier.writesAll, reads, readsAll)
+                || intersects(earlier.writes, earlier.writesAll, writes, writesAll)
+                || intersects(earlier.reads, earlier.readsAll, writes, writesAll);
+        }
+
+        boolean reads(String field) {
+            return readsAll || reads.contains(field);
+        }
+
+        private static boolean intersects(Set<String> a, boolean allA, Set<String> b, boolean allB) {
+            if (allA) {
+                return allB || !b.isEmpty();
+            }
+            if (allB) {
+                return !a.isEmpty();
+            }
+            return !Collections.disjoint(a, b);
+        }
+    }
+
+    /**
+     * Rule at index first writes field and rule at index second writes it again without reading it
+     */
+    record Conflict(int first, int second, String field) {
+    }
+
+    static Access access(Step step) {
+        if (step instanceof MemoizedStep s) {
+            return access(s.step());
+        }
+        if (step instanceof FieldMappingStep s) {
+            // Moves the value, so the source is written too; a mapping onto itself changes nothing
+            return s.source().equals(s.target()) ? access(Set.of(), Set.of(), Set.of())
+                : access(fields(s.source()), fields(s.source(), s.target()), Set.of());
+        }
+        if (step instanceof ValueMappingStep s) {
+            return access(fields(s.field()), fields(s.field()), Set.of());
+        }
+        if (step instanceof ExpressionStep s) {
+            return expressionAccess(fields(s.target()), s.expression());
+        }
+        if (step instanceof ConditionalStep s) {
+            return expressionAccess(fields(s.target()), s.condition(), s.transformation());
+        }
+        if (step instanceof RegexStep s) {
+            return access(fields(s.source()), fields(s.target()), Set.of());
+        }
+        if (step instanceof AggregationStep s) {
+            return access(fields(s.source()), fields(s.target()), Set.of());
+        }
+        if (step instanceof EnrichmentStep s) {
+            Set<String> overwrites = new HashSet<>();
+            s.fields().stream().filter(FieldPath::isColumn).forEach(field -> overwrites.add(field.root()));
+            return access(Set.of(), fields(s.fields().toArray(FieldPath[]::new)), overwrites);
+        }
+        if (step instanceof LookupStep s) {
+            return access(fields(s.key()), fields(s.targets().toArray(FieldPath[]::new)), Set.of());
+        }
+        if (step instanceof NoOpStep) {
+            return access(Set.of(), Set.of(), Set.of());
+        }
+        // Scripts see and may change the whole record
+        return Access.ALL;
+    }
+
+    /**
+     * Drop steps whose writes are all overwritten before any later step reads them, then fuse
+     * adjacent steps that apply as one
+     */
+    static List<Step> optimize(List<Step> steps) {
+        List<Step> live = new ArrayList<>(steps);
+        // Backwards, so a step only a dropped step read from is dropped in the same pass
+        for (int i = live.size() - 1; i >= 0; i--) {
+            if (isDead(live, i)) {
+                live.remove(i);
+            }
+        }
+
+        List<Step> fused = new ArrayList<>(live.size());
+        for (Step step : live) {
+            Step previous = fused.isEmpty() ? null : fused.get(fused.size() - 1);
+            Step combined = previous != null ? fuse(previous, step) : null;
+            if (combined != null) {
+                fused.set(fused.size() - 1, combined);
+            } else {
+                fused.add(step);
+            }
+        }
+        return fused;
+    }
+
+    /**
+     * Pairs of steps where the later one writes a field the earlier one wrote, without reading it:
+     * for records both apply to, the earlier result is lost
+     */
+    static List<Conflict> conflicts(List<Step> steps) {
+        List<Access> accesses = steps.stream().map(RuleAnalyzer::access).toList();
+        List<Conflict> conflicts = new ArrayList<>();
+        for (int j = 0; j < steps.size(); j++) {
+            Access later = accesses.get(j);
+            if (later.writesAll()) {
+                continue;
+            }
+            for (int i = 0; i < j; i++) {
+                Access earlier = accesses.get(i);
+                for (String field : later.writes()) {
+                    if (earlier.writes().contains(field) && !later.reads(field)) {
+                        conflicts.add(new Conflict(i, j, field));
+                    }
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Level of each step: one more than the highest level of the earlier steps it depends on.
+     * Steps of a level are independent of each other, and running the levels in order, the
+     * steps of a level in any order, gives the same result as running the steps in list order.
+     */
+    static int[] levels(List<Step> steps) {
+        List<Access> accesses = steps.stream().map(RuleAnalyzer::access).toList();
+        int[] levels = new int[steps.size()];
+        for (int j = 0; j < steps.size(); j++) {
+            for (int i = 0; i < j; i++) {
+                if (accesses.get(j).dependsOn(accesses.get(i))) {
+                    levels[j] = Math.max(levels[j], levels[i] + 1);
+                }
+            }
+        }
+        return levels;
+    }
+
+    private static boolean isDead(List<Step> steps, int index) {
+        Access access = access(steps.get(index));
+        if (access.writesAll()) {
+            return false;
+        }
+        for (String field : access.writes()) {
+            boolean overwritten = false;
+            for (int k = index + 1; k < steps.size() && !overwritten; k++) {
+                Access later = access(steps.get(k));
+                if (later.reads(field)) {
+                    return false;
+                }
+                overwritten = later.overwrites().contains(field);
+            }
+            if (!overwritten) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * One step doing the work of two adjacent steps, or null when they do not combine
+     */
+    private static Step fuse(Step first, Step second) {
+        String name = first.name() + "+" + second.name();
+        if (first instanceof ValueMappingStep a && second instanceof ValueMappingStep b && a.field().equals(b.field())) {
+            // A value the first mapping produces is looked up in the second, as if applied in turn
+            Map<String, Object> composed = new LinkedHashMap<>(b.mappings());
+            a.mappings().forEach((key, value) -> composed.put(key,
+                value != null && b.mappings().containsKey(value.toString()) ? b.mappings().get(value.toString()) : value));
+            return new ValueMappingStep(name, a.field(), composed);
+        }
+        if (first instanceof EnrichmentStep a && second instanceof EnrichmentStep b) {
+            List<FieldPath> fields = new ArrayList<>(a.fields());
+            List<Object> values = new ArrayList<>(a.values());
+            fields.addAll(b.fields());
+            values.addAll(b.values());
+            return new EnrichmentStep(name, fields, values);
+        }
+        return null;
+    }
+
+    private static Access access(Set<String> reads, Set<String> writes, Set<String> overwrites) {
+        return new Access(reads, false, writes, false, overwrites);
+    }
+
+    private static Access expressionAccess(Set<String> writes, Expression... expressions) {
+        Set<String> reads = new HashSet<>();
+        for (Expression expression : expressions) {
+            if (!(expression instanceof SpelExpression spel) || !collectReads(spel.getAST(), true, reads)) {
+                return new Access(Set.of(), true, writes, false, Set.of());
+            }
+        }
+        return access(reads, writes, Set.of());
+    }
+
+    /**
+     * Add the record fields an expression node reads; false when it may read any of them
+     *
+     * @param onRecord whether the node is evaluated against the record rather than a value read from it
+     */
+    private static boolean collectReads(SpelNode node, boolean onRecord, Set<String> reads) {
+        if (node instanceof VariableReference) {
+            // #this, #root and variables reach the record itself
+            return false;
+        }
+        if (onRecord && (node instanceof MethodReference || node instanceof Projection || node instanceof Selection)) {
+            return false;
+        }
+        if (node instanceof PropertyOrFieldReference property) {
+            if (onRecord) {
+                reads.add(property.getName());
+            }
+        } else if (node instanceof Indexer && onRecord) {
+            if (!(node.getChild(0) instanceof StringLiteral literal)) {
+                return false;
+            }
+            reads.add(String.valueOf(literal.getLiteralValue().getValue()));
+            return true;
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            // In a.b.c only a is read from the record; arguments and indexes are evaluated against the record
+            boolean childOnRecord = node instanceof CompoundExpression ? onRecord && i == 0
+                : node instanceof MethodReference || node instanceof Indexer || onRecord;
+            if (!collectReads(node.getChild(i), childOnRecord, reads)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> fields(FieldPath... paths) {
+        Set<String> fields = new HashSet<>();
+        for (FieldPath path : paths) {
+            if (path.root() != null) {
+                fields.add(path.root());
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,255 @@
+package com.jivs.platform.service.transformation;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.script.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pools of script engines for SCRIPT rules.
+ *
+ * Each script type has its own pool of engines. An engine is used by one thread at a time
+ * and evaluates every script with fresh bindings, so records never see each other's data.
+ * Scripts are compiled through {@link Compilable} once per engine and evaluated from then on
+ * without parsing. Each evaluation has a deadline; an engine that overruns it is abandoned
+ * rather than returned to its pool, since it may still be running. An abandoned engine
+ * keeps its slot until its thread really exits, so scripts that ignore interrupts cannot
+ * grow a pool past its size; once every slot is held by one, evaluations fail fast.
+ */
+@Component
+public class ScriptEnginePool {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ScriptEnginePool.class);
+
+    // Lifecycle of one evaluation, shared by the caller and the evaluating thread
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+    private static final int ABANDONED = 3;
+
+    private final ScriptEngineManager scriptEngineManager;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("transformation-script-", 0).factory());
+
+    @Value("${jivs.transformation.script.pool-size:8}")
+    private int poolSize = 8;
+
+    @Value("${jivs.transformation.script.timeout-ms:5000}")
+    private long timeoutMillis = 5000;
+
+    public ScriptEnginePool() {
+        this(new ScriptEngineManager());
+    }
+
+    ScriptEnginePool(ScriptEngineManager scriptEngineManager) {
+        this.scriptEngineManager = scriptEngineManager;
+    }
+
+    /**
+     * Compile a script for a script type, checking its syntax on one pooled engine
+     *
+     * @return the compiled script, or null when no engine is installed for the type
+     */
+    public Script compile(String scriptType, String source) throws ScriptException {
+        Lane lane = lanes.computeIfAbsent(scriptType, Lane::new);
+        PooledEngine engine = lane.borrow();
+        if (engine == null) {
+            return null;
+        }
+        try {
+            engine.compiled(source);
+        } finally {
+            lane.release(engine);
+        }
+        return new Script(lane, source);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A script bound to its script type's pool
+     */
+    public final class Script {
+        private final Lane lane;
+        private final String source;
+
+        private Script(Lane lane, String source) {
+            this.lane = lane;
+            this.source = source;
+        }
+
+        /**
+         * Evaluate with {@code data} bound to the record; the script's {@code result} variable is returned
+         */
+        public Object eval(Map<String, Object> data) throws ScriptException, TimeoutException {
+            PooledEngine engine = lane.borrow();
+            if (engine == null) {
+                throw new ScriptException("No script engine for " + lane.scriptType);
+            }
+            if (timeoutMillis <= 0) {
+                try {
+                    return engine.eval(source, data);
+                } finally {
+                    lane.release(engine);
+                }
+            }
+
+            AtomicInteger state = new AtomicInteger(PENDING);
+            Future<Object> evaluation = executor.submit(() -> {
+                if (!state.compareAndSet(PENDING, RUNNING)) {
+                    return null;
+                }
+                try {
+                    return engine.eval(source, data);
+                } finally {
+                    if (!state.compareAndSet(RUNNING, DONE)) {
+                        lane.discard(engine);
+                    }
+                }
+            });
+            try {
+                Object result = evaluation.get(timeoutMillis, TimeUnit.MILLISECONDS);
+                lane.release(engine);
+                return result;
+            } catch (TimeoutException e) {
+                abandon(evaluation, state, engine);
+                throw new TimeoutException("Script did not complete within " + timeoutMillis + " ms");
+            } catch (ExecutionException e) {
+                lane.release(engine);
+                if (e.getCause() instanceof ScriptException scriptException) {
+                    throw scriptException;
+                }
+                throw new ScriptException(e.getCause() instanceof Exception cause ? cause : e);
+            } catch (InterruptedException e) {
+                abandon(evaluation, state, engine);
+                Thread.currentThread().interrupt();
+                throw new ScriptException(e);
+            }
+        }
+
+        /**
+         * Stop waiting for an evaluation. An engine still running keeps its slot until its
+         * thread exits; one that never started or has just finished goes back to the pool.
+         */
+        private void abandon(Future<Object> evaluation, AtomicInteger state, PooledEngine engine) {
+            evaluation.cancel(true);
+            if (state.compareAndSet(PENDING, ABANDONED)) {
+                lane.release(engine);
+            } else if (state.compareAndSet(RUNNING, ABANDONED)) {
+                lane.abandon(engine);
+            } else {
+                lane.release(engine);
+            }
+        }
+    }
+
+    /**
+     * Engines of one script type: at most {@code poolSize} exist at once, idle ones are reused
+     */
+    private final class Lane {
+        private final String scriptType;
+        private final Semaphore permits = new Semaphore(poolSize);
+        private final BlockingQueue<PooledEngine> idle = new LinkedBlockingQueue<>();
+        private final AtomicInteger abandoned = new AtomicInteger();
+
+        private Lane(String scriptType) {
+            this.scriptType = scriptType;
+        }
+
+        /**
+         * Idle or new engine, or null when no engine is installed for the script type
+         */
+        PooledEngine borrow() throws ScriptException {
+            try {
+                if (!permits.tryAcquire(Math.max(timeoutMillis, 1), TimeUnit.MILLISECONDS)) {
+                    throw new ScriptException("No " + scriptType + " engine became free within " + timeoutMillis
+                        + " ms (" + abandoned.get() + " abandoned engines still running)");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ScriptException(e);
+            }
+            PooledEngine engine = idle.poll();
+            if (engine != null) {
+                return engine;
+            }
+            ScriptEngine created = scriptEngineManager.getEngineByName(scriptType);
+            if (created == null) {
+                permits.release();
+                return null;
+            }
+            return new PooledEngine(created);
+        }
+
+        void release(PooledEngine engine) {
+            idle.offer(engine);
+            permits.release();
+        }
+
+        /**
+         * Give up on an engine whose script overran its deadline; its slot stays taken
+         */
+        void abandon(PooledEngine engine) {
+            int running = abandoned.incrementAndGet();
+            log.warn("Abandoning a {} engine whose script overran its {} ms deadline ({} of {} slots held by abandoned engines)",
+                scriptType, timeoutMillis, running, poolSize);
+        }
+
+        /**
+         * Free the slot of an abandoned engine once its script has finally stopped
+         */
+        void discard(PooledEngine engine) {
+            abandoned.decrementAndGet();
+            permits.release();
+            log.info("An abandoned {} engine stopped; its slot is free again", scriptType);
+        }
+    }
+
+    /**
+     * An engine with the scripts it has compiled; only touched by the thread that borrowed it
+     */
+    private static final class PooledEngine {
+        private final ScriptEngine engine;
+        private final Map<String, CompiledScript> compiledScripts = new HashMap<>();
+
+        private PooledEngine(ScriptEngine engine) {
+            this.engine = engine;
+        }
+
+        /**
+         * Script compiled on this engine, or null when the engine cannot compile
+         */
+        CompiledScript compiled(String source) throws ScriptException {
+            if (!(engine instanceof Compilable compilable)) {
+                return null;
+            }
+            CompiledScript compiled = compiledScripts.get(source);
+            if (compiled == null) {
+                compiled = compilable.compile(source);
+                compiledScripts.put(source, compiled);
+            }
+            return compiled;
+        }
+
+        Object eval(String source, Map<String, Object> data) throws ScriptException {
+            Bindings bindings = engine.createBindings();
+            bindings.put("data", data);
+            CompiledScript compiled = compiled(source);
+            if (compiled != null) {
+                compiled.eval(bindings);
+            } else {
+                engine.eval(source, bindings);
+            }
+            return bindings.get("result");
+        }
+    }
+}
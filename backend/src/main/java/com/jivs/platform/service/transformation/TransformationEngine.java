@@ -2,21 +2,29 @@ package com.jivs.platform.service.transformation;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jivs.platform.domain.transformation.TransformationRule;
+import com.jivs.platform.service.transformation.CompiledTransformationPlan.FieldPath;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.stereotype.Component;
 
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.*;
+import javax.xml.transform.stax.StAXSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.*;
-import java.util.regex.Matcher;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 
 /**
@@ -28,9 +36,28 @@ public class TransformationEngine {
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(TransformationEngine.class);
 
+    // Rule parameter marking a rule whose result depends only on its input, so it may be memoized
+    static final String DETERMINISTIC_PARAMETER = "deterministic";
+
     private final ObjectMapper objectMapper;
-    private final ExpressionParser expressionParser = new SpelExpressionParser();
-    private final ScriptEngineManager scriptEngineManager = new ScriptEngineManager();
+    private final ScriptEnginePool scriptEnginePool;
+    private final ReferenceDataCache referenceDataCache;
+    // MIXED compiles expressions to bytecode once their types are known, and falls back to interpreting when they change
+    private final ExpressionParser expressionParser = new SpelExpressionParser(
+        new SpelParserConfiguration(SpelCompilerMode.MIXED, TransformationEngine.class.getClassLoader()));
+    private final Map<String, Expression> expressionCache = new ConcurrentHashMap<>();
+    // Factories are not thread-safe, so compiling is serialized; compiled Templates are
+    private final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+    private final Map<String, Templates> templatesCache = new ConcurrentHashMap<>();
+
+    @Value("${jivs.transformation.expression-cache-size:1000}")
+    private int expressionCacheSize = 1000;
+
+    @Value("${jivs.transformation.xslt-cache-size:100}")
+    private int xsltCacheSize = 100;
+
+    @Value("${jivs.transformation.memo.max-entries:100000}")
+    private int memoMaxEntries = 100000;
 
     /**
      * Transform data based on rules and target format
@@ -42,300 +69,198 @@ public class TransformationEngine {
 
         log.debug("Transforming data with {} rules to format: {}", rules.size(), targetFormat);
 
-        // Apply transformation rules
-        Map<String, Object> transformedData = applyRules(sourceData, rules);
-
-        // Convert to target format
-        transformedData = convertToTargetFormat(transformedData, targetFormat);
-
-        return transformedData;
+        return compile(rules, targetFormat).apply(sourceData);
     }
 
     /**
-     * Apply transformation rules to data
+     * Transform a batch of records held as columns
      */
-    private Map<String, Object> applyRules(
-            Map<String, Object> sourceData,
-            List<TransformationRule> rules) {
-
-        Map<String, Object> result = new HashMap<>(sourceData);
+    public ColumnBatch transform(ColumnBatch batch, List<TransformationRule> rules, String targetFormat) {
+        log.debug("Transforming {} records with {} rules to format: {}", batch.getRowCount(), rules.size(), targetFormat);
 
-        // Sort rules by priority
-        List<TransformationRule> sortedRules = new ArrayList<>(rules);
-        sortedRules.sort(Comparator.comparingInt(TransformationRule::getPriority));
-
-        for (TransformationRule rule : sortedRules) {
-            try {
-                result = applyRule(result, rule);
-            } catch (Exception e) {
-                log.error("Failed to apply rule: {}", rule.getName(), e);
-                // Continue with other rules
-            }
-        }
-
-        return result;
-    }
-
-    /**
-     * Apply a single transformation rule
-     */
-    private Map<String, Object> applyRule(
-            Map<String, Object> data,
-            TransformationRule rule) {
-
-        Map<String, Object> result = new HashMap<>(data);
-
-        switch (rule.getRuleType()) {
-            case "FIELD_MAPPING":
-                return applyFieldMapping(result, rule);
-            case "VALUE_MAPPING":
-                return applyValueMapping(result, rule);
-            case "EXPRESSION":
-                return applyExpression(result, rule);
-            case "SCRIPT":
-                return applyScript(result, rule);
-            case "REGEX":
-                return applyRegex(result, rule);
-            case "CONDITIONAL":
-                return applyConditional(result, rule);
-            case "AGGREGATION":
-                return applyAggregation(result, rule);
-            case "ENRICHMENT":
-                return applyEnrichment(result, rule);
-            default:
-                log.warn("Unknown rule type: {}", rule.getRuleType());
-                return result;
-        }
+        return compile(rules, targetFormat).apply(batch);
     }
 
     /**
-     * Apply field mapping rule
+     * Compile rules and target format into a plan that can be applied to many records.
+     * Each plan memoizes its deterministic rules on its own, so a job keeps one plan for all its batches.
      */
-    private Map<String, Object> applyFieldMapping(
-            Map<String, Object> data,
-            TransformationRule rule) {
-
-        String sourceField = rule.getSourceField();
-        String targetField = rule.getTargetField();
-
-        Object value = getNestedValue(data, sourceField);
-        if (value != null) {
-            setNestedValue(data, targetField, value);
-            if (!sourceField.equals(targetField)) {
-                removeNestedValue(data, sourceField);
-            }
+    public CompiledTransformationPlan compile(List<TransformationRule> rules, String targetFormat) {
+        TransformationMemo memo = new TransformationMemo(memoMaxEntries);
+        List<CompiledTransformationPlan.Step> steps = new ArrayList<>(rules.size());
+        for (TransformationRule rule : CompiledTransformationPlan.ordered(rules)) {
+            steps.add(memoize(rule, compileRule(rule), memo));
         }
-
-        return data;
+        CompiledTransformationPlan plan = new CompiledTransformationPlan(RuleAnalyzer.optimize(steps),
+            formatter(targetFormat), memo);
+        log.debug("Compiled {} rules into {} steps in {} dependency levels", rules.size(), plan.size(),
+            plan.independentGroups().size());
+        return plan;
     }
 
     /**
-     * Apply value mapping rule
+     * Pairs of rules where the later one, in priority order, overwrites a field the earlier one
+     * wrote without reading it, so the earlier result is lost wherever both apply
      */
-    private Map<String, Object> applyValueMapping(
-            Map<String, Object> data,
-            TransformationRule rule) {
-
-        String field = rule.getSourceField();
-        Map<String, Object> mappings = parseValueMappings(rule.getRuleDefinition());
-
-        Object currentValue = getNestedValue(data, field);
-        if (currentValue != null && mappings.containsKey(currentValue.toString())) {
-            setNestedValue(data, field, mappings.get(currentValue.toString()));
+    public List<RuleConflict> findConflicts(List<TransformationRule> rules) {
+        List<TransformationRule> ordered = CompiledTransformationPlan.ordered(rules);
+        List<CompiledTransformationPlan.Step> steps = new ArrayList<>(ordered.size());
+        for (TransformationRule rule : ordered) {
+            steps.add(compileRule(rule));
         }
-
-        return data;
+        return RuleAnalyzer.conflicts(steps).stream()
+            .map(conflict -> new RuleConflict(ordered.get(conflict.first()), ordered.get(conflict.second()), conflict.field()))
+            .toList();
     }
 
     /**
-     * Apply expression-based transformation
+     * Compile a single transformation rule; a rule that cannot be compiled is logged once and skipped
      */
-    private Map<String, Object> applyExpression(
-            Map<String, Object> data,
-            TransformationRule rule) {
-
-        String expression = rule.getRuleDefinition();
-        StandardEvaluationContext context = new StandardEvaluationContext(data);
+    private CompiledTransformationPlan.Step compileRule(TransformationRule rule) {
+        String name = rule.getName();
+        String ruleType = rule.getRuleType() != null ? rule.getRuleType() : "";
+        FieldPath source = FieldPath.of(rule.getSourceField());
+        FieldPath target = FieldPath.of(rule.getTargetField());
 
         try {
-            Object result = expressionParser.parseExpression(expression).getValue(context);
-            setNestedValue(data, rule.getTargetField(), result);
+            switch (ruleType) {
+                case "FIELD_MAPPING":
+                    return new CompiledTransformationPlan.FieldMappingStep(name, source, target);
+                case "VALUE_MAPPING":
+                    return new CompiledTransformationPlan.ValueMappingStep(name, source,
+                        parseValueMappings(rule.getRuleDefinition()));
+                case "EXPRESSION":
+                    return new CompiledTransformationPlan.ExpressionStep(name, rule.getRuleDefinition(),
+                        expression(rule.getRuleDefinition()), target);
+                case "SCRIPT":
+                    String scriptType = rule.getScriptType() != null ? rule.getScriptType() : "javascript";
+                    ScriptEnginePool.Script script = scriptEnginePool.compile(scriptType, rule.getRuleDefinition());
+                    if (script == null) {
+                        log.warn("No script engine for {}, skipping rule: {}", scriptType, name);
+                        return new CompiledTransformationPlan.NoOpStep(name);
+                    }
+                    return new CompiledTransformationPlan.ScriptStep(name, script, target);
+                case "REGEX":
+                    if (rule.getRegexPattern() == null) {
+                        return new CompiledTransformationPlan.NoOpStep(name);
+                    }
+                    return new CompiledTransformationPlan.RegexStep(name, source,
+                        Pattern.compile(rule.getRegexPattern()), rule.getRegexReplacement(), target);
+                case "CONDITIONAL":
+                    return new CompiledTransformationPlan.ConditionalStep(name,
+                        expression(rule.getCondition()), expression(rule.getRuleDefinition()), target);
+                case "AGGREGATION":
+                    return new CompiledTransformationPlan.AggregationStep(name, source,
+                        CompiledTransformationPlan.Aggregation.of(rule.getAggregationType()), target);
+                case "ENRICHMENT":
+                    Map<String, Object> enrichmentData = parseEnrichmentData(rule.getRuleDefinition());
+                    List<FieldPath> fields = new ArrayList<>(enrichmentData.size());
+                    List<Object> values = new ArrayList<>(enrichmentData.size());
+                    for (Map.Entry<String, Object> entry : enrichmentData.entrySet()) {
+                        fields.add(FieldPath.of(entry.getKey()));
+                        values.add(entry.getValue());
+                    }
+                    return new CompiledTransformationPlan.EnrichmentStep(name, fields, values);
+                case "LOOKUP":
+                    return compileLookup(rule, source);
+                default:
+                    log.warn("Unknown rule type: {}", rule.getRuleType());
+                    return new CompiledTransformationPlan.NoOpStep(name);
+            }
         } catch (Exception e) {
-            log.error("Failed to evaluate expression: {}", expression, e);
+            log.error("Failed to compile rule: {}", name, e);
+            return new CompiledTransformationPlan.NoOpStep(name);
         }
-
-        return data;
     }
 
     /**
-     * Apply script-based transformation
+     * Memoize a rule flagged deterministic ({@code deterministic=true} among its parameters)
+     * when it computes one top-level field from one other, so its result depends on nothing
+     * but that field's value
      */
-    private Map<String, Object> applyScript(
-            Map<String, Object> data,
-            TransformationRule rule) {
-
-        String scriptType = rule.getScriptType() != null ? rule.getScriptType() : "javascript";
-        ScriptEngine engine = scriptEngineManager.getEngineByName(scriptType);
-
-        if (engine != null) {
-            try {
-                engine.put("data", data);
-                engine.eval(rule.getRuleDefinition());
-                Object result = engine.get("result");
-                if (result != null) {
-                    setNestedValue(data, rule.getTargetField(), result);
-                }
-            } catch (Exception e) {
-                log.error("Failed to execute script", e);
-            }
+    private CompiledTransformationPlan.Step memoize(TransformationRule rule, CompiledTransformationPlan.Step step,
+                                                    TransformationMemo memo) {
+        if (rule.getParameters() == null || !Boolean.parseBoolean(rule.getParameters().get(DETERMINISTIC_PARAMETER))) {
+            return step;
         }
-
-        return data;
-    }
-
-    /**
-     * Apply regex-based transformation
-     */
-    private Map<String, Object> applyRegex(
-            Map<String, Object> data,
-            TransformationRule rule) {
-
-        String field = rule.getSourceField();
-        String pattern = rule.getRegexPattern();
-        String replacement = rule.getRegexReplacement();
-
-        Object value = getNestedValue(data, field);
-        if (value != null && pattern != null) {
-            Pattern p = Pattern.compile(pattern);
-            Matcher m = p.matcher(value.toString());
-
-            if (replacement != null) {
-                String result = m.replaceAll(replacement);
-                setNestedValue(data, rule.getTargetField(), result);
-            } else if (m.find()) {
-                // Extract matched groups
-                List<String> groups = new ArrayList<>();
-                for (int i = 1; i <= m.groupCount(); i++) {
-                    groups.add(m.group(i));
-                }
-                setNestedValue(data, rule.getTargetField(), groups);
-            }
+        FieldPath target = null;
+        if (step instanceof CompiledTransformationPlan.ExpressionStep s) {
+            target = s.target();
+        } else if (step instanceof CompiledTransformationPlan.ConditionalStep s) {
+            target = s.target();
+        } else if (step instanceof CompiledTransformationPlan.RegexStep s) {
+            target = s.target();
         }
-
-        return data;
+        RuleAnalyzer.Access access = RuleAnalyzer.access(step);
+        if (target == null || !target.isColumn() || access.readsAll() || access.reads().size() != 1) {
+            log.warn("Rule {} is flagged deterministic but does not compute one field from one other, not memoizing it",
+                rule.getName());
+            return step;
+        }
+        return new CompiledTransformationPlan.MemoizedStep(step, access.reads().iterator().next(), target,
+            memo.forRule(rule.getName(), ruleVersion(rule)));
     }
 
     /**
-     * Apply conditional transformation
+     * Version of what a rule computes; editing any part of its definition gives a new version
      */
-    private Map<String, Object> applyConditional(
-            Map<String, Object> data,
-            TransformationRule rule) {
-
-        String condition = rule.getCondition();
-        StandardEvaluationContext context = new StandardEvaluationContext(data);
-
-        try {
-            Boolean conditionMet = expressionParser
-                .parseExpression(condition)
-                .getValue(context, Boolean.class);
-
-            if (Boolean.TRUE.equals(conditionMet)) {
-                // Apply transformation if condition is met
-                String transformation = rule.getRuleDefinition();
-                Object result = expressionParser
-                    .parseExpression(transformation)
-                    .getValue(context);
-                setNestedValue(data, rule.getTargetField(), result);
-            }
-        } catch (Exception e) {
-            log.error("Failed to evaluate conditional rule", e);
-        }
-
-        return data;
+    static String ruleVersion(TransformationRule rule) {
+        return rule.getName() + "@" + Integer.toHexString(Objects.hash(rule.getRuleType(), rule.getSourceField(),
+            rule.getTargetField(), rule.getRuleDefinition(), rule.getScriptType(), rule.getRegexPattern(),
+            rule.getRegexReplacement(), rule.getCondition()));
     }
 
     /**
-     * Apply aggregation transformation
+     * Compile a reference-data lookup. The source field holds the key; the definition names
+     * the table and maps its columns to target fields, e.g.
+     * {"dataSource": "referenceDataSource", "table": "ref_country", "keyColumn": "iso_code",
+     *  "fields": {"name": "country_name", "region": "country_region"}}
      */
-    private Map<String, Object> applyAggregation(
-            Map<String, Object> data,
-            TransformationRule rule) {
-
-        String aggregationType = rule.getAggregationType();
-        String field = rule.getSourceField();
-
-        Object value = getNestedValue(data, field);
-        if (value instanceof Collection) {
-            Collection<?> collection = (Collection<?>) value;
-            Object result = null;
-
-            switch (aggregationType.toUpperCase()) {
-                case "SUM":
-                    result = calculateSum(collection);
-                    break;
-                case "AVG":
-                    result = calculateAverage(collection);
-                    break;
-                case "COUNT":
-                    result = collection.size();
-                    break;
-                case "MIN":
-                    result = Collections.min((Collection) collection);
-                    break;
-                case "MAX":
-                    result = Collections.max((Collection) collection);
-                    break;
-                case "CONCAT":
-                    result = concatenate(collection);
-                    break;
-            }
-
-            if (result != null) {
-                setNestedValue(data, rule.getTargetField(), result);
-            }
+    @SuppressWarnings("unchecked")
+    private CompiledTransformationPlan.Step compileLookup(TransformationRule rule, FieldPath key) throws Exception {
+        Map<String, Object> definition = objectMapper.readValue(rule.getRuleDefinition(), Map.class);
+        Map<String, String> fields = (Map<String, String>) definition.getOrDefault("fields", Map.of());
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("Lookup rule maps no fields: " + rule.getName());
         }
-
-        return data;
+        ReferenceDataCache.ReferenceTable table = referenceDataCache.table(
+            (String) definition.getOrDefault("dataSource", "dataSource"),
+            (String) definition.get("table"),
+            (String) definition.get("keyColumn"),
+            new ArrayList<>(fields.keySet()));
+        List<FieldPath> targets = fields.values().stream().map(FieldPath::of).toList();
+        return new CompiledTransformationPlan.LookupStep(rule.getName(), key, table, targets);
     }
 
     /**
-     * Apply data enrichment
+     * Parsed expression, shared by every rule and plan with the same text. The text is the
+     * cache key, so an edited rule parses again while its previous version ages out.
      */
-    private Map<String, Object> applyEnrichment(
-            Map<String, Object> data,
-            TransformationRule rule) {
-
-        // Add enrichment data based on rule definition
-        Map<String, Object> enrichmentData = parseEnrichmentData(rule.getRuleDefinition());
-
-        for (Map.Entry<String, Object> entry : enrichmentData.entrySet()) {
-            setNestedValue(data, entry.getKey(), entry.getValue());
+    Expression expression(String text) {
+        Expression expression = expressionCache.get(text);
+        if (expression == null) {
+            expression = expressionParser.parseExpression(text);
+            if (expressionCache.size() >= expressionCacheSize) {
+                expressionCache.clear();
+            }
+            expressionCache.put(text, expression);
         }
-
-        return data;
+        return expression;
     }
 
     /**
-     * Convert data to target format
+     * Resolve the conversion to the target format, or null when records need none
      */
-    private Map<String, Object> convertToTargetFormat(
-            Map<String, Object> data,
-            String targetFormat) {
-
-        switch (targetFormat.toUpperCase()) {
-            case "JSON":
-                return data; // Already in map format
+    private UnaryOperator<Map<String, Object>> formatter(String targetFormat) {
+        switch (targetFormat != null ? targetFormat.toUpperCase() : "") {
             case "XML":
-                return wrapForXml(data);
+                return this::wrapForXml;
             case "CSV":
-                return wrapForCsv(data);
-            case "AVRO":
-                return wrapForAvro(data);
-            case "PARQUET":
-                return wrapForParquet(data);
+                return this::wrapForCsv;
             default:
-                return data;
+                // JSON is already in map format; AVRO and PARQUET batches are written as files
+                // by TransformationOutputWriter
+                return null;
         }
     }
 
@@ -344,15 +269,9 @@ public class TransformationEngine {
      */
     public String transformXml(String xmlInput, String xsltTemplate) {
         try {
-            TransformerFactory factory = TransformerFactory.newInstance();
-            Source xslt = new StreamSource(new StringReader(xsltTemplate));
-            Transformer transformer = factory.newTransformer(xslt);
-
-            Source xml = new StreamSource(new StringReader(xmlInput));
+            Transformer transformer = templates(xsltTemplate).newTransformer();
             StringWriter writer = new StringWriter();
-            Result result = new StreamResult(writer);
-
-            transformer.transform(xml, result);
+            transformer.transform(new StreamSource(new StringReader(xmlInput)), new StreamResult(writer));
             return writer.toString();
         } catch (Exception e) {
             log.error("XML transformation failed", e);
@@ -361,67 +280,122 @@ public class TransformationEngine {
     }
 
     /**
-     * Helper methods for nested value operations
+     * Transform an XML document from a stream to a stream, without holding either as a String.
+     * XSLT still builds a tree of the whole input; documents larger than the heap go through
+     * {@link #transformXmlRecords}.
      */
-    private Object getNestedValue(Map<String, Object> data, String path) {
-        if (path == null || path.isEmpty()) {
-            return null;
+    public void transformXml(InputStream xmlInput, OutputStream output, String xsltTemplate) {
+        try {
+            templates(xsltTemplate).newTransformer().transform(new StreamSource(xmlInput), new StreamResult(output));
+        } catch (Exception e) {
+            log.error("XML transformation failed", e);
+            throw new RuntimeException("XML transformation failed", e);
         }
+    }
 
-        String[] parts = path.split("\\.");
-        Object current = data;
-
-        for (String part : parts) {
-            if (current instanceof Map) {
-                current = ((Map<?, ?>) current).get(part);
-            } else {
-                return null;
+    /**
+     * Transform each recordElement element of a document as a document of its own, reading
+     * the input with StAX so only one record is in memory at a time. The outputs are written
+     * in order inside a copy of the input's root element, with its namespace declarations and
+     * attributes; content outside records is dropped.
+     *
+     * @return number of records transformed
+     */
+    public long transformXmlRecords(InputStream xmlInput, OutputStream output, String xsltTemplate, String recordElement) {
+        XMLStreamReader reader = null;
+        try {
+            XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+            inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            reader = inputFactory.createXMLStreamReader(xmlInput);
+            Transformer transformer = templates(xsltTemplate).newTransformer();
+            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+
+            long records = 0;
+            String root = null;
+            int event = reader.getEventType();
+            while (true) {
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (root == null) {
+                        root = qualifiedName(reader.getPrefix(), reader.getLocalName());
+                        writer.write(startTag(reader, root));
+                    } else if (reader.getLocalName().equals(recordElement)) {
+                        // Transforming the subtree leaves the reader on the event after its end element
+                        transformer.transform(new StAXSource(reader), new StreamResult(writer));
+                        records++;
+                        event = reader.getEventType();
+                        continue;
+                    }
+                }
+                if (!reader.hasNext()) {
+                    break;
+                }
+                event = reader.next();
+            }
+            if (root != null) {
+                writer.write("</" + root + ">");
+            }
+            writer.flush();
+            log.debug("Transformed {} {} records", records, recordElement);
+            return records;
+        } catch (Exception e) {
+            log.error("XML transformation failed", e);
+            throw new RuntimeException("XML transformation failed", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (Exception e) {
+                    log.debug("Failed to close XML reader", e);
+                }
             }
         }
-
-        return current;
     }
 
-    @SuppressWarnings("unchecked")
-    private void setNestedValue(Map<String, Object> data, String path, Object value) {
-        if (path == null || path.isEmpty()) {
-            return;
-        }
-
-        String[] parts = path.split("\\.");
-        Map<String, Object> current = data;
-
-        for (int i = 0; i < parts.length - 1; i++) {
-            String part = parts[i];
-            if (!current.containsKey(part)) {
-                current.put(part, new HashMap<String, Object>());
+    /**
+     * Compiled stylesheet, shared by every call with the same stylesheet text. Templates are
+     * thread-safe and keyed by a hash of the text, so an edited stylesheet compiles again.
+     */
+    Templates templates(String xsltTemplate) throws Exception {
+        String key = HexFormat.of().formatHex(
+            MessageDigest.getInstance("SHA-256").digest(xsltTemplate.getBytes(StandardCharsets.UTF_8)));
+        Templates templates = templatesCache.get(key);
+        if (templates == null) {
+            synchronized (transformerFactory) {
+                templates = transformerFactory.newTemplates(new StreamSource(new StringReader(xsltTemplate)));
             }
-            current = (Map<String, Object>) current.get(part);
+            if (templatesCache.size() >= xsltCacheSize) {
+                templatesCache.clear();
+            }
+            templatesCache.put(key, templates);
         }
-
-        current.put(parts[parts.length - 1], value);
+        return templates;
     }
 
-    @SuppressWarnings("unchecked")
-    private void removeNestedValue(Map<String, Object> data, String path) {
-        if (path == null || path.isEmpty()) {
-            return;
+    private static String startTag(XMLStreamReader reader, String name) {
+        StringBuilder tag = new StringBuilder("<").append(name);
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String prefix = reader.getNamespacePrefix(i);
+            tag.append(prefix == null || prefix.isEmpty() ? " xmlns" : " xmlns:" + prefix)
+                .append("=\"").append(escapeAttribute(reader.getNamespaceURI(i))).append('"');
         }
-
-        String[] parts = path.split("\\.");
-        Map<String, Object> current = data;
-
-        for (int i = 0; i < parts.length - 1; i++) {
-            String part = parts[i];
-            Object next = current.get(part);
-            if (next instanceof Map) {
-                current = (Map<String, Object>) next;
-            } else {
-                return;
-            }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            tag.append(' ').append(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)))
+                .append("=\"").append(escapeAttribute(reader.getAttributeValue(i))).append('"');
         }
+        return tag.append('>').toString();
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
 
-        current.remove(parts[parts.length - 1]);
+    private static String escapeAttribute(String value) {
+        // Whitespace as references, or the reader would normalise it to spaces
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;")
+            .replace("\t", "&#9;").replace("\n", "&#10;").replace("\r", "&#13;");
     }
 
     /**
@@ -450,36 +424,6 @@ public class TransformationEngine {
         }
     }
 
-    /**
-     * Calculate sum of numeric collection
-     */
-    private Double calculateSum(Collection<?> collection) {
-        return collection.stream()
-            .filter(v -> v instanceof Number)
-            .mapToDouble(v -> ((Number) v).doubleValue())
-            .sum();
-    }
-
-    /**
-     * Calculate average of numeric collection
-     */
-    private Double calculateAverage(Collection<?> collection) {
-        return collection.stream()
-            .filter(v -> v instanceof Number)
-            .mapToDouble(v -> ((Number) v).doubleValue())
-            .average()
-            .orElse(0.0);
-    }
-
-    /**
-     * Concatenate collection elements
-     */
-    private String concatenate(Collection<?> collection) {
-        return collection.stream()
-            .map(Object::toString)
-            .reduce("", (a, b) -> a.isEmpty() ? b : a + ", " + b);
-    }
-
     /**
      * Wrap data for XML format
      */
@@ -499,24 +443,6 @@ public class TransformationEngine {
         return flattened;
     }
 
-    /**
-     * Wrap data for Avro format
-     */
-    private Map<String, Object> wrapForAvro(Map<String, Object> data) {
-        // Add Avro-specific metadata
-        data.put("_avro_schema", generateAvroSchema(data));
-        return data;
-    }
-
-    /**
-     * Wrap data for Parquet format
-     */
-    private Map<String, Object> wrapForParquet(Map<String, Object> data) {
-        // Add Parquet-specific metadata
-        data.put("_parquet_schema", generateParquetSchema(data));
-        return data;
-    }
-
     /**
      * Flatten nested map structure
      */
@@ -533,13 +459,9 @@ public class TransformationEngine {
         }
     }
 
-    private String generateAvroSchema(Map<String, Object> data) {
-        // Generate Avro schema based on data structure
-        return "{}"; // Simplified
-    }
-
-    private String generateParquetSchema(Map<String, Object> data) {
-        // Generate Parquet schema based on data structure
-        return "{}"; // Simplified
+    /**
+     * Two rules writing the same field, the second without reading the first's result
+     */
+    public record RuleConflict(TransformationRule first, TransformationRule second, String field) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,195 @@
+package com.jivs.platform.service.transformation;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Results of deterministic rules for the input values a job has already seen, keyed by
+ * (rule version, input value), so repetitive columns such as status codes or country names
+ * are hashed, normalized or matched once per distinct value.
+ *
+ * One memo belongs to one compiled plan. TransformationService.processJobBatch keeps a job's
+ * plan across its batches, so the memo lasts for the job; processBatch compiles a plan per
+ * call, so there it lasts for one batch. Chunks transformed on several threads share it.
+ * Once it holds its maximum number of results the least recently used one is evicted.
+ * Results are kept frozen, and only if they are immutable values or lists and maps of them,
+ * so no record can change what another one gets.
+ */
+public final class TransformationMemo {
+
+    /**
+     * Result of a rule that left its target field alone
+     */
+    static final Object ABSENT = new Object();
+    // Result of a rule that set its target field to null, as a miss is a null lookup
+    private static final Object NULL = new Object();
+    // Results that could be changed after they are kept are computed every time
+    private static final Object MUTABLE = new Object();
+
+    private final int maxEntries;
+    private final Map<String, RuleMemo> rules = new ConcurrentHashMap<>();
+    private final Map<Key, Object> results = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+            if (size() <= maxEntries) {
+                return false;
+            }
+            rules.get(eldest.getKey().version()).entries.decrementAndGet();
+            return true;
+        }
+    };
+
+    public TransformationMemo(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Memo of one rule; rules of the same version share their results
+     */
+    RuleMemo forRule(String name, String version) {
+        return rules.computeIfAbsent(version, key -> new RuleMemo(name, version));
+    }
+
+    /**
+     * Whether a value is immutable and compared by value, so it can key a result
+     */
+    static boolean isKey(Object value) {
+        return value instanceof String || value instanceof Boolean || value instanceof Character
+            || value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+            || value instanceof Double || value instanceof Float
+            || value instanceof BigDecimal || value instanceof BigInteger
+            || value instanceof Temporal || value instanceof Enum<?>;
+    }
+
+    /**
+     * Lookups, hits and cached results over every memoized rule
+     */
+    public Stats stats() {
+        long hits = 0;
+        long misses = 0;
+        for (RuleMemo rule : rules.values()) {
+            hits += rule.hits.sum();
+            misses += rule.misses.sum();
+        }
+        synchronized (results) {
+            return new Stats(hits, misses, results.size());
+        }
+    }
+
+    /**
+     * Stats of each memoized rule by rule name
+     */
+    public Map<String, Stats> ruleStats() {
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        rules.values().forEach(rule -> stats.put(rule.name, rule.stats()));
+        return stats;
+    }
+
+    /**
+     * Lookups answered from the memo, lookups that computed the result, and results held
+     */
+    public record Stats(long hits, long misses, int entries) {
+
+        public long lookups() {
+            return hits + misses;
+        }
+
+        public double hitRate() {
+            return lookups() > 0 ? (double) hits / lookups() : 0.0;
+        }
+    }
+
+    /**
+     * An unmodifiable copy of a result, or MUTABLE if it holds values that could still change
+     */
+    private static Object freeze(Object value) {
+        if (value == null || value == ABSENT || isKey(value)) {
+            return value;
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                Object nested = freeze(entry.getValue());
+                if (nested == MUTABLE || !isKey(entry.getKey())) {
+                    return MUTABLE;
+                }
+                copy.put(entry.getKey(), nested);
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object element : list) {
+                Object nested = freeze(element);
+                if (nested == MUTABLE) {
+                    return MUTABLE;
+                }
+                copy.add(nested);
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        return MUTABLE;
+    }
+
+    private record Key(String version, Object input) {
+    }
+
+    /**
+     * Results of one rule, with its hit and miss counts
+     */
+    final class RuleMemo {
+        private final String name;
+        private final String version;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final AtomicInteger entries = new AtomicInteger();
+
+        private RuleMemo(String name, String version) {
+            this.name = name;
+            this.version = version;
+        }
+
+        /**
+         * Result for an input value, computed on a miss. A hit returns the frozen result;
+         * callers copy lists and maps before handing them to a record. Results are computed
+         * outside the lock; threads missing the same value at once each compute it and one
+         * result is kept.
+         */
+        Object get(Object input, Supplier<Object> compute) {
+            Key key = new Key(version, input);
+            Object result;
+            synchronized (results) {
+                result = results.get(key);
+            }
+            if (result != null) {
+                hits.increment();
+                return result != NULL ? result : null;
+            }
+            misses.increment();
+            result = compute.get();
+            Object frozen = freeze(result);
+            if (maxEntries > 0 && frozen != MUTABLE) {
+                synchronized (results) {
+                    if (results.putIfAbsent(key, frozen != null ? frozen : NULL) == null) {
+                        entries.incrementAndGet();
+                    }
+                }
+            }
+            return result;
+        }
+
+        Stats stats() {
+            return new Stats(hits.sum(), misses.sum(), entries.get());
+        }
+    }
+}
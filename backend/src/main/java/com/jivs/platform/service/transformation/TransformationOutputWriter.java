@@ -0,0 +1,101 @@
+package com.jivs.platform.service.transformation;
+
+import com.jivs.platform.service.storage.StorageOptions;
+import com.jivs.platform.service.storage.StorageResult;
+import com.jivs.platform.service.storage.StorageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes transformed column batches as compressed Avro or Parquet files, to a stream, a local
+ * file or the storage service, instead of handing downstream JSON maps
+ */
+@Component
+@RequiredArgsConstructor
+public class TransformationOutputWriter {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(TransformationOutputWriter.class);
+
+    private final StorageService storageService;
+
+    @Value("${jivs.transformation.output.codec:deflate}")
+    private String codec = "deflate";
+
+    @Value("${jivs.transformation.output.schema-sample-size:1000}")
+    private int schemaSampleSize = 1000;
+
+    @Value("${jivs.transformation.output.avro-block-records:10000}")
+    private int avroBlockRecords = 10000;
+
+    /**
+     * Schema inferred from a sample of the batch's rows
+     */
+    public RecordSchema inferSchema(ColumnBatch batch) {
+        return RecordSchema.infer(batch, schemaSampleSize);
+    }
+
+    /**
+     * Open a writer that streams batches of one schema to out with the configured codec
+     *
+     * @param format AVRO or PARQUET
+     */
+    public ColumnarFileWriter open(String format, RecordSchema schema, OutputStream out) throws IOException {
+        ColumnarFileWriter.Codec fileCodec = ColumnarFileWriter.Codec.of(codec);
+        switch (format != null ? format.toUpperCase() : "") {
+            case "AVRO":
+                return new AvroContainerWriter(out, schema, "TransformedRecord", fileCodec, avroBlockRecords);
+            case "PARQUET":
+                return new ParquetFileWriter(out, schema, fileCodec);
+            default:
+                throw new IllegalArgumentException("Unsupported columnar format: " + format);
+        }
+    }
+
+    /**
+     * Whether batches in this target format are written as files rather than handed on as maps
+     */
+    public static boolean isColumnar(String format) {
+        return "AVRO".equalsIgnoreCase(format) || "PARQUET".equalsIgnoreCase(format);
+    }
+
+    /**
+     * One batch as the bytes of a complete file
+     */
+    public byte[] toBytes(ColumnBatch batch, String format) throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        try (ColumnarFileWriter writer = open(format, inferSchema(batch), file)) {
+            writer.write(batch);
+        }
+        return file.toByteArray();
+    }
+
+    /**
+     * Write one batch to a local file
+     */
+    public void write(ColumnBatch batch, String format, Path file) throws IOException {
+        try (ColumnarFileWriter writer = open(format, inferSchema(batch), new BufferedOutputStream(Files.newOutputStream(file)))) {
+            writer.write(batch);
+        }
+        log.info("Wrote {} records as {} to {} ({} bytes)", batch.getRowCount(), format, file, Files.size(file));
+    }
+
+    /**
+     * Write one batch to the storage service. The file is already compressed, so the
+     * service is not asked to compress it again.
+     */
+    public StorageResult store(ColumnBatch batch, String format, String filename, StorageOptions options) throws IOException {
+        byte[] file = toBytes(batch, format);
+        options.setCompress(false);
+        options.setContentType("PARQUET".equalsIgnoreCase(format) ? "application/vnd.apache.parquet" : "application/avro");
+        log.info("Storing {} records as {} in {} ({} bytes)", batch.getRowCount(), format, filename, file.length);
+        return storageService.storeFile(filename, file, options);
+    }
+}
@@ -7,13 +7,19 @@ import com.jivs.platform.repository.TransformationRuleRepository;
 import com.jivs.platform.repository.TransformationJobRepository;
 import com.jivs.platform.service.extraction.ExtractionService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -29,6 +35,14 @@ public class TransformationService {
     private final TransformationRuleRepository ruleRepository;
     private final TransformationJobRepository jobRepository;
     private final TransformationEngine transformationEngine;
+    private final ParallelTransformationExecutor parallelExecutor;
+    private final TransformationOutputWriter outputWriter;
+
+    // Plans of running jobs, so every batch of a job shares one memo
+    private final Map<String, JobPlan> jobPlans = new ConcurrentHashMap<>();
+
+    @Value("${jivs.transformation.job-plan-idle-ms:600000}")
+    private long jobPlanIdleMillis = 600_000;
 
     /**
      * Create a new transformation rule
@@ -99,11 +113,19 @@ public class TransformationService {
         );
     }
 
+    /**
+     * Active transformation rules of a migration, in execution order
+     */
+    public List<TransformationRule> getMigrationRules(Long migrationId) {
+        return ruleRepository.findByMigrationIdAndActiveOrderByExecutionOrder(migrationId, true);
+    }
+
     /**
      * Validate transformation rules
      */
     public ValidationResult validateRules(List<TransformationRule> rules) {
         ValidationResult result = new ValidationResult();
+        List<TransformationEngine.RuleConflict> ruleConflicts = transformationEngine.findConflicts(rules);
 
         for (TransformationRule rule : rules) {
             // Check rule syntax
@@ -112,7 +134,7 @@ public class TransformationService {
             }
 
             // Check for conflicts
-            List<TransformationRule> conflicts = findConflictingRules(rule, rules);
+            List<TransformationRule> conflicts = findConflictingRules(rule, ruleConflicts);
             if (!conflicts.isEmpty()) {
                 result.addWarning("Rule conflicts detected for: " + rule.getName());
             }
@@ -253,36 +275,128 @@ public class TransformationService {
             List<Map<String, Object>> records,
             List<TransformationRule> rules,
             String targetFormat) {
+        return processBatch(records, rules, targetFormat, true);
+    }
+
+    /**
+     * Batch transformation processing; large batches are split across cores
+     *
+     * @param preserveOrder return transformed records in input order; when false, split
+     *                      batches return them in the order their chunks complete
+     */
+    @Async
+    public CompletableFuture<BatchTransformationResult> processBatch(
+            List<Map<String, Object>> records,
+            List<TransformationRule> rules,
+            String targetFormat,
+            boolean preserveOrder) {
+        // Sort, parse and compile the rules once for the whole batch
+        return CompletableFuture.completedFuture(
+            transformBatch(transformationEngine.compile(rules, targetFormat), records, targetFormat, preserveOrder));
+    }
+
+    /**
+     * Batch transformation of one batch of a job. The job's batches share one compiled plan,
+     * and so one memo, until {@link #releaseJob(String)} or until it sits idle on this node;
+     * editing a rule recompiles it. Memo stats of the result cover the job so far.
+     */
+    @Async
+    public CompletableFuture<BatchTransformationResult> processJobBatch(
+            String jobId,
+            List<Map<String, Object>> records,
+            List<TransformationRule> rules,
+            String targetFormat) {
+        String version = targetFormat + ":" + rules.stream()
+            .map(TransformationEngine::ruleVersion)
+            .collect(Collectors.joining(","));
+        JobPlan jobPlan = jobPlans.compute(jobId, (id, current) -> current != null && current.version().equals(version)
+            ? current
+            : new JobPlan(version, transformationEngine.compile(rules, targetFormat), new AtomicLong()));
+        jobPlan.lastUsed().set(System.currentTimeMillis());
+        return CompletableFuture.completedFuture(transformBatch(jobPlan.plan(), records, targetFormat, true));
+    }
+
+    /**
+     * Drop the plan and memo of a finished job
+     */
+    public void releaseJob(String jobId) {
+        jobPlans.remove(jobId);
+    }
+
+    /**
+     * Drop the plans of jobs that ran no batch here for a while. Only the coordinating node
+     * releases a finished job; the other nodes that ran some of its batches let it expire.
+     */
+    @Scheduled(fixedDelayString = "${jivs.transformation.job-plan-sweep-ms:60000}")
+    public void releaseIdleJobs() {
+        releaseIdleJobs(System.currentTimeMillis());
+    }
+
+    void releaseIdleJobs(long now) {
+        jobPlans.values().removeIf(jobPlan -> now - jobPlan.lastUsed().get() > jobPlanIdleMillis);
+    }
 
+    private BatchTransformationResult transformBatch(CompiledTransformationPlan plan,
+                                                     List<Map<String, Object>> records,
+                                                     String targetFormat,
+                                                     boolean preserveOrder) {
         log.info("Processing batch transformation with {} records", records.size());
         BatchTransformationResult result = new BatchTransformationResult();
 
-        List<Map<String, Object>> transformedRecords = new ArrayList<>();
+        List<Map<String, Object>> transformedRecords = new ArrayList<>(records.size());
         List<TransformationError> errors = new ArrayList<>();
+        ColumnBatch transformed = null;
 
-        for (int i = 0; i < records.size(); i++) {
-            try {
-                Map<String, Object> transformed = transformationEngine.transform(
-                    records.get(i),
-                    rules,
-                    targetFormat
-                );
-                transformedRecords.add(transformed);
-                result.incrementSuccessCount();
-            } catch (Exception e) {
-                errors.add(new TransformationError(i, e.getMessage()));
-                result.incrementErrorCount();
+        try {
+            if (parallelExecutor.shouldSplit(records.size())) {
+                ParallelTransformationExecutor.Result parallel =
+                    parallelExecutor.transform(plan, records, preserveOrder);
+                transformedRecords.addAll(parallel.getRecords());
+                result.setWorkers(parallel.getWorkers());
+            } else {
+                transformed = plan.apply(ColumnBatch.of(records));
+                transformedRecords.addAll(transformed.toRows());
+            }
+            result.setSuccessCount(records.size());
+        } catch (Exception e) {
+            // Retry record by record so only the records that fail are reported
+            log.warn("Columnar batch transformation failed, transforming records one at a time", e);
+            for (int i = 0; i < records.size(); i++) {
+                try {
+                    transformedRecords.add(plan.apply(records.get(i)));
+                    result.incrementSuccessCount();
+                } catch (Exception recordError) {
+                    errors.add(new TransformationError(i, recordError.getMessage()));
+                    result.incrementErrorCount();
+                }
             }
         }
 
         result.setTransformedRecords(transformedRecords);
         result.setErrors(errors);
         result.setTotalRecords(records.size());
+        result.setMemoStats(plan.getMemo().stats());
+
+        if (TransformationOutputWriter.isColumnar(targetFormat)) {
+            try {
+                result.setOutputFile(outputWriter.toBytes(
+                    transformed != null ? transformed : ColumnBatch.of(transformedRecords), targetFormat));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write batch as " + targetFormat, e);
+            }
+        }
 
         log.info("Batch transformation completed: {} success, {} errors",
             result.getSuccessCount(), result.getErrorCount());
+        if (result.getMemoStats().lookups() > 0) {
+            log.info("Deterministic rules: {} of {} evaluations answered from memo, {} results cached (hit rate {})",
+                result.getMemoStats().hits(), result.getMemoStats().lookups(), result.getMemoStats().entries(),
+                String.format("%.1f%%", result.getMemoStats().hitRate() * 100));
+            plan.getMemo().ruleStats().forEach((rule, stats) ->
+                log.debug("Memoized rule {}: {} hits, {} misses", rule, stats.hits(), stats.misses()));
+        }
 
-        return CompletableFuture.completedFuture(result);
+        return result;
     }
 
     private boolean isValidRuleSyntax(TransformationRule rule) {
@@ -290,14 +404,21 @@ public class TransformationService {
         return rule.getRuleDefinition() != null && !rule.getRuleDefinition().isEmpty();
     }
 
+    /**
+     * Rules that overwrite a field this rule wrote, or whose field this rule overwrites
+     */
     private List<TransformationRule> findConflictingRules(
             TransformationRule rule,
-            List<TransformationRule> allRules) {
-        return allRules.stream()
-            .filter(r -> !r.getId().equals(rule.getId()))
-            .filter(r -> r.getSourceField().equals(rule.getSourceField()))
-            .filter(r -> r.getTargetField().equals(rule.getTargetField()))
-            .collect(Collectors.toList());
+            List<TransformationEngine.RuleConflict> conflicts) {
+        Set<TransformationRule> conflicting = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (TransformationEngine.RuleConflict conflict : conflicts) {
+            if (conflict.first() == rule) {
+                conflicting.add(conflict.second());
+            } else if (conflict.second() == rule) {
+                conflicting.add(conflict.first());
+            }
+        }
+        return new ArrayList<>(conflicting);
     }
 
     private boolean areDepencenciesMet(TransformationRule rule) {
@@ -338,6 +459,67 @@ public class TransformationService {
         // Calculate number of records successfully transformed
         return result.size();
     }
+
+    /**
+     * Batch transformation result
+     */
+    public static class BatchTransformationResult {
+        private int totalRecords;
+        private int successCount;
+        private int errorCount;
+        private List<Map<String, Object>> transformedRecords;
+        private List<TransformationError> errors;
+        private List<ParallelTransformationExecutor.WorkerThroughput> workers = List.of();
+        private TransformationMemo.Stats memoStats = new TransformationMemo.Stats(0, 0, 0);
+        // The transformed records as one Avro or Parquet file, when that is the target format
+        private byte[] outputFile;
+
+        public void incrementSuccessCount() { successCount++; }
+        public void incrementErrorCount() { errorCount++; }
+
+        // Getters and setters
+        public int getTotalRecords() { return totalRecords; }
+        public void setTotalRecords(int totalRecords) { this.totalRecords = totalRecords; }
+        public int getSuccessCount() { return successCount; }
+        public void setSuccessCount(int successCount) { this.successCount = successCount; }
+        public int getErrorCount() { return errorCount; }
+        public List<Map<String, Object>> getTransformedRecords() { return transformedRecords; }
+        public void setTransformedRecords(List<Map<String, Object>> records) {
+            this.transformedRecords = records;
+        }
+        public List<TransformationError> getErrors() { return errors; }
+        public void setErrors(List<TransformationError> errors) { this.errors = errors; }
+        public List<ParallelTransformationExecutor.WorkerThroughput> getWorkers() { return workers; }
+        public void setWorkers(List<ParallelTransformationExecutor.WorkerThroughput> workers) {
+            this.workers = workers;
+        }
+        public TransformationMemo.Stats getMemoStats() { return memoStats; }
+        public void setMemoStats(TransformationMemo.Stats memoStats) { this.memoStats = memoStats; }
+        public byte[] getOutputFile() { return outputFile; }
+        public void setOutputFile(byte[] outputFile) { this.outputFile = outputFile; }
+    }
+
+    /**
+     * Transformation error
+     */
+    public static class TransformationError {
+        private int recordIndex;
+        private String errorMessage;
+
+        public TransformationError(int recordIndex, String errorMessage) {
+            this.recordIndex = recordIndex;
+            this.errorMessage = errorMessage;
+        }
+
+        public int getRecordIndex() { return recordIndex; }
+        public String getErrorMessage() { return errorMessage; }
+    }
+
+    /**
+     * Compiled plan of a job, the rule versions it was compiled from and when a batch last used it
+     */
+    private record JobPlan(String version, CompiledTransformationPlan plan, AtomicLong lastUsed) {
+    }
 }
 
 /**
@@ -373,40 +555,3 @@ class ValidationResult {
     public List<String> getErrors() { return errors; }
     public List<String> getWarnings() { return warnings; }
 }
-
-/**
- * Batch transformation result
- */
-class BatchTransformationResult {
-    private int totalRecords;
-    private int successCount;
-    private int errorCount;
-    private List<Map<String, Object>> transformedRecords;
-    private List<TransformationError> errors;
-
-    public void incrementSuccessCount() { successCount++; }
-    public void incrementErrorCount() { errorCount++; }
-
-    // Getters and setters
-    public int getTotalRecords() { return totalRecords; }
-    public void setTotalRecords(int totalRecords) { this.totalRecords = totalRecords; }
-    public int getSuccessCount() { return successCount; }
-    public int getErrorCount() { return errorCount; }
-    public void setTransformedRecords(List<Map<String, Object>> records) {
-        this.transformedRecords = records;
-    }
-    public void setErrors(List<TransformationError> errors) { this.errors = errors; }
-}
-
-/**
- * Transformation error
- */
-class TransformationError {
-    private int recordIndex;
-    private String errorMessage;
-
-    public TransformationError(int recordIndex, String errorMessage) {
-        this.recordIndex = recordIndex;
-        this.errorMessage = errorMessage;
-    }
-}
\ No newline at end of file
@@ -0,0 +1,12 @@
+-- ================================================================
+-- JiVS Migration Module - Durable Execution Checkpoints
+-- ================================================================
+-- Version: V114
+-- Purpose: Persist per-phase batch checkpoints so paused or crashed
+--          migrations resume from the last committed batch
+-- ================================================================
+
+ALTER TABLE migration_projects
+    ADD COLUMN IF NOT EXISTS checkpoint_state JSONB;
+
+COMMENT ON COLUMN migration_projects.checkpoint_state IS 'Execution checkpoint: completed phases, committed batches and watermark per phase';
@@ -0,0 +1,28 @@
+-- ================================================================
+-- JiVS Migration Module - Throughput History
+-- ================================================================
+-- Version: V115
+-- Purpose: Record observed per-phase throughput of every migration run
+--          so the planner sizes tasks, parallelism and ETAs from data
+-- ================================================================
+
+CREATE TABLE IF NOT EXISTS migration_throughput_history (
+    id              BIGSERIAL PRIMARY KEY,
+    migration_id    BIGINT,
+    source_system   VARCHAR(100) NOT NULL,
+    target_system   VARCHAR(100) NOT NULL,
+    phase           VARCHAR(20)  NOT NULL,
+    records         BIGINT       NOT NULL,
+    batches         INTEGER      NOT NULL,
+    duration_ms     BIGINT       NOT NULL,
+    concurrency     INTEGER      NOT NULL,
+    recorded_at     TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_throughput_source_phase
+    ON migration_throughput_history (source_system, phase, recorded_at DESC);
+CREATE INDEX IF NOT EXISTS idx_throughput_target_phase
+    ON migration_throughput_history (target_system, phase, recorded_at DESC);
+
+COMMENT ON TABLE migration_throughput_history IS 'Observed records/second per phase run, used by the migration planner';
+COMMENT ON COLUMN migration_throughput_history.concurrency IS 'Batches allowed to run at once during the sample';
@@ -0,0 +1,30 @@
+-- ================================================================
+-- JiVS Migration Module - Dead-Letter Segments
+-- ================================================================
+-- Version: V116
+-- Purpose: Keep records the target rejected during loading, with the
+--          reason, so they can be replayed without rerunning the migration
+-- ================================================================
+
+CREATE TABLE IF NOT EXISTS migration_dead_letters (
+    id              BIGSERIAL PRIMARY KEY,
+    migration_id    BIGINT       NOT NULL,
+    batch_id        VARCHAR(255) NOT NULL,
+    target_system   VARCHAR(100) NOT NULL,
+    target_table    VARCHAR(255) NOT NULL,
+    key_columns     VARCHAR(1000),
+    record_count    INTEGER      NOT NULL,
+    reason          VARCHAR(1000),
+    payload         BYTEA        NOT NULL,
+    status          VARCHAR(20)  NOT NULL DEFAULT 'PENDING',
+    replay_count    INTEGER      NOT NULL DEFAULT 0,
+    created_at      TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    replayed_at     TIMESTAMP,
+    CONSTRAINT uq_dead_letters_batch UNIQUE (migration_id, batch_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_dead_letters_migration_status
+    ON migration_dead_letters (migration_id, status);
+
+COMMENT ON TABLE migration_dead_letters IS 'Rejected load records per batch, replayable after fixes';
+COMMENT ON COLUMN migration_dead_letters.payload IS 'GZIP-compressed JSON: column names, typed rows and per-row reasons';
@@ -0,0 +1,12 @@
+-- ================================================================
+-- JiVS Migration Module - Shadow Run Reports
+-- ================================================================
+-- Version: V117
+-- Purpose: Keep the report of a rehearsal run into an isolated schema
+--          so the real run can be sized from it
+-- ================================================================
+
+ALTER TABLE migration_projects
+    ADD COLUMN IF NOT EXISTS shadow_report JSONB;
+
+COMMENT ON COLUMN migration_projects.shadow_report IS 'Shadow run: state, per-phase throughput and errors, bottleneck and diff against the live tables';
@@ -0,0 +1,20 @@
+-- ================================================================
+-- JiVS Migration Module - Batch Data
+-- ================================================================
+-- Version: V118
+-- Purpose: Hand the rows of each batch from extraction to transformation
+--          and from transformation to loading, across nodes and restarts
+-- ================================================================
+
+CREATE TABLE IF NOT EXISTS migration_batch_data (
+    id              BIGSERIAL PRIMARY KEY,
+    migration_id    BIGINT       NOT NULL,
+    batch_id        VARCHAR(255) NOT NULL,
+    record_count    INTEGER      NOT NULL,
+    payload         BYTEA        NOT NULL,
+    created_at      TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uq_batch_data_batch UNIQUE (migration_id, batch_id)
+);
+
+COMMENT ON TABLE migration_batch_data IS 'Rows of extracted and transformed batches, dropped when the migration cleans up';
+COMMENT ON COLUMN migration_batch_data.payload IS 'GZIP-compressed JSON: column names and typed rows';
@@ -0,0 +1,20 @@
+-- ================================================================
+-- JiVS Migration Module - Load Chunk Progress
+-- ================================================================
+-- Version: V119
+-- Purpose: Keep the chunks each load batch committed in a row of its own,
+--          so workers on any node record them without rewriting the
+--          migration's checkpoint
+-- ================================================================
+
+CREATE TABLE IF NOT EXISTS migration_load_progress (
+    id              BIGSERIAL PRIMARY KEY,
+    migration_id    BIGINT       NOT NULL,
+    batch_id        VARCHAR(255) NOT NULL,
+    progress        TEXT         NOT NULL,
+    updated_at      TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uq_load_progress_batch UNIQUE (migration_id, batch_id)
+);
+
+COMMENT ON TABLE migration_load_progress IS 'Committed chunks of load batches that have not committed yet, dropped when the batch commits';
+COMMENT ON COLUMN migration_load_progress.progress IS 'JSON: offset, loaded and rejected records of the committed chunks';
@@ -0,0 +1,585 @@
+package com.jivs.platform.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.jivs.platform.domain.migration.Migration;
+import com.jivs.platform.domain.migration.MigrationBatchData;
+import com.jivs.platform.domain.migration.MigrationPhase;
+import com.jivs.platform.domain.migration.MigrationStatus;
+import com.jivs.platform.domain.migration.MigrationThroughputSample;
+import com.jivs.platform.domain.transformation.TransformationRule;
+import com.jivs.platform.event.MigrationEventPublisher;
+import com.jivs.platform.repository.MigrationBatchDataRepository;
+import com.jivs.platform.repository.MigrationDeadLetterRepository;
+import com.jivs.platform.repository.MigrationLoadProgressRepository;
+import com.jivs.platform.repository.MigrationRepository;
+import com.jivs.platform.repository.MigrationThroughputRepository;
+import com.jivs.platform.repository.TransformationJobRepository;
+import com.jivs.platform.repository.TransformationRuleRepository;
+import com.jivs.platform.security.SqlInjectionValidator;
+import com.jivs.platform.service.extraction.ExtractionService;
+import com.jivs.platform.service.migration.AdaptiveBatchControllerRegistry;
+import com.jivs.platform.service.migration.ChecksumReconciliationService;
+import com.jivs.platform.service.migration.DeadLetterStore;
+import com.jivs.platform.service.migration.DistributedBatchQueue;
+import com.jivs.platform.service.migration.IndexDeferralManager;
+import com.jivs.platform.service.migration.LoadService;
+import com.jivs.platform.service.migration.MigrationBatchStore;
+import com.jivs.platform.service.migration.MigrationCheckpointService;
+import com.jivs.platform.service.migration.MigrationMetricsAccumulator;
+import com.jivs.platform.service.migration.MigrationOrchestrator;
+import com.jivs.platform.service.migration.MigrationPlanner;
+import com.jivs.platform.service.migration.MigrationTaskScopes;
+import com.jivs.platform.service.migration.ShadowRunService;
+import com.jivs.platform.service.migration.StagingTableManager;
+import com.jivs.platform.service.migration.ValidationService;
+import com.jivs.platform.service.quality.DataQualityService;
+import com.jivs.platform.service.storage.StorageService;
+import com.jivs.platform.service.transformation.ParallelTransformationExecutor;
+import com.jivs.platform.service.transformation.ReferenceDataCache;
+import com.jivs.platform.service.transformation.ScriptEnginePool;
+import com.jivs.platform.service.transformation.TransformationEngine;
+import com.jivs.platform.service.transformation.TransformationOutputWriter;
+import com.jivs.platform.service.transformation.TransformationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.Data;
+import org.h2.jdbcx.JdbcDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Reproducible end-to-end throughput benchmark of the migration pipeline.
+ *
+ * Generates a synthetic source table of configurable width and row count in embedded H2,
+ * then for each {@link LoadService.LoadStrategy} runs a whole migration of it through
+ * {@link MigrationOrchestrator#executeMigration}: planning, keyset extraction, transformation,
+ * validation, loading into embedded H2 or a local database given by
+ * {@code jivs.benchmark.target.url}, checksum verification and cleanup. Only the platform's
+ * own JPA repositories are replaced, by in-memory stand-ins. Reports rows/sec, phase times,
+ * load batch latency percentiles, GC activity and bytes allocated per row, and compares them
+ * with a baseline result file.
+ */
+public class MigrationBenchmarkHarness implements AutoCloseable {
+
+    static final String TABLE = "bench_rows";
+    static final String SOURCE_SYSTEM = "bench-source";
+
+    private final Config config;
+    private final JdbcTemplate source;
+    private final JdbcTemplate target;
+    private final MigrationTaskScopes taskScopes = new MigrationTaskScopes();
+    private final MigrationOrchestrator orchestrator;
+    private final List<String> columns;
+    private final List<TransformationRule> rules;
+
+    private final Map<Long, Migration> migrations = new ConcurrentHashMap<>();
+    private final AtomicLong migrationIds = new AtomicLong();
+    private final Queue<MigrationThroughputSample> phaseSamples = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> loadBatchNanos = new ConcurrentLinkedQueue<>();
+    private final AtomicLong rowsLoaded = new AtomicLong();
+    private final AtomicReference<String> loadError = new AtomicReference<>();
+
+    public MigrationBenchmarkHarness(Config config) {
+        this.config = config;
+        DataSource sourceDataSource = h2("bench_source_" + UUID.randomUUID());
+        this.source = new JdbcTemplate(sourceDataSource);
+        DataSource targetDataSource = config.getTargetUrl() != null
+            ? new DriverManagerDataSource(config.getTargetUrl(), config.getTargetUser(), config.getTargetPassword())
+            : h2("bench_target_" + UUID.randomUUID());
+        this.target = new JdbcTemplate(targetDataSource);
+
+        this.columns = new ArrayList<>(List.of("id"));
+        for (int i = 1; i <= config.getColumns(); i++) {
+            columns.add("c" + i);
+        }
+        this.rules = rules();
+        this.orchestrator = orchestrator(Map.of(SOURCE_SYSTEM, sourceDataSource, config.getTargetSystem(), targetDataSource));
+        generateSource();
+    }
+
+    /**
+     * Run every configured strategy: warm-up iterations first, then measured ones
+     */
+    public Report run() {
+        Report report = new Report();
+        report.setLabel(config.getLabel());
+        report.setJavaVersion(System.getProperty("java.version"));
+        report.setTargetSystem(config.getTargetSystem());
+        report.setRows(config.getRows());
+        report.setColumns(config.getColumns());
+        report.setBatchSize(config.getBatchSize());
+        report.setRecordedAt(LocalDateTime.now().toString());
+
+        for (LoadService.LoadStrategy strategy : config.getStrategies()) {
+            for (int i = 0; i < config.getWarmups(); i++) {
+                runOnce(strategy);
+            }
+            List<Iteration> iterations = new ArrayList<>();
+            for (int i = 0; i < config.getIterations(); i++) {
+                iterations.add(runOnce(strategy));
+            }
+            report.getResults().add(summarize(strategy, iterations));
+        }
+        return report;
+    }
+
+    /**
+     * One migration of the source table into a freshly created target table
+     */
+    Iteration runOnce(LoadService.LoadStrategy strategy) {
+        createTarget();
+        Migration migration = migration(strategy);
+        phaseSamples.clear();
+        loadBatchNanos.clear();
+        rowsLoaded.set(0);
+        loadError.set(null);
+
+        Iteration iteration = new Iteration();
+        System.gc();
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long allocated = allocatedBytes();
+        long started = System.nanoTime();
+
+        Migration finished = orchestrator.executeMigration(migration.getId()).join();
+
+        iteration.elapsedNanos = System.nanoTime() - started;
+        iteration.allocatedBytes = allocated >= 0 ? allocatedBytes() - allocated : -1;
+        iteration.gcCount = gcCount() - gcCount;
+        iteration.gcMillis = gcMillis() - gcMillis;
+        migrations.remove(migration.getId());
+
+        iteration.setError(finished.getStatus() == MigrationStatus.COMPLETED
+            ? loadError.get()
+            : finished.getStatus() + ": " + finished.getErrorMessage());
+        iteration.rows = rowsLoaded.get();
+        iteration.batchNanos = new ArrayList<>(loadBatchNanos);
+        for (MigrationThroughputSample sample : phaseSamples) {
+            long nanos = sample.getDurationMs() * 1_000_000;
+            switch (MigrationPhase.valueOf(sample.getPhase())) {
+                case EXTRACTION -> iteration.extractNanos += nanos;
+                case TRANSFORMATION -> iteration.transformNanos += nanos;
+                case LOADING -> iteration.loadNanos += nanos;
+                default -> {
+                }
+            }
+        }
+        iteration.targetRows = target.queryForObject("SELECT COUNT(*) FROM " + TABLE, Long.class);
+        return iteration;
+    }
+
+    static StrategyResult summarize(LoadService.LoadStrategy strategy, List<Iteration> iterations) {
+        StrategyResult result = new StrategyResult();
+        result.setStrategy(strategy.name());
+        result.setIterations(iterations.size());
+        iterations.stream().map(Iteration::getError).filter(Objects::nonNull).findFirst().ifPresent(result::setError);
+
+        // The median iteration resists a single noisy run
+        List<Iteration> byRate = new ArrayList<>(iterations);
+        byRate.sort(Comparator.comparingDouble(Iteration::rowsPerSecond));
+        Iteration median = byRate.get(byRate.size() / 2);
+        result.setRows(median.rows);
+        result.setTargetRows(median.targetRows);
+        result.setRowsPerSecond(median.rowsPerSecond());
+        result.setExtractMillis(median.extractNanos / 1_000_000);
+        result.setTransformMillis(median.transformNanos / 1_000_000);
+        result.setLoadMillis(median.loadNanos / 1_000_000);
+
+        long[] latencies = iterations.stream().flatMap(i -> i.batchNanos.stream()).mapToLong(Long::longValue).sorted().toArray();
+        result.setBatches(latencies.length / Math.max(1, iterations.size()));
+        result.setP50BatchMillis(percentile(latencies, 0.50) / 1e6);
+        result.setP99BatchMillis(percentile(latencies, 0.99) / 1e6);
+
+        result.setGcCount(iterations.stream().mapToLong(i -> i.gcCount).sum() / iterations.size());
+        result.setGcMillis(iterations.stream().mapToLong(i -> i.gcMillis).sum() / iterations.size());
+        result.setAllocatedBytesPerRow(median.allocatedBytes >= 0 && median.rows > 0
+            ? (double) median.allocatedBytes / median.rows : -1);
+        return result;
+    }
+
+    static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Regressions of a report against a baseline: throughput below, or allocation per row
+     * above, the baseline by more than the tolerance
+     */
+    public static List<String> compare(Report baseline, Report current, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (StrategyResult now : current.getResults()) {
+            StrategyResult before = baseline.getResults().stream()
+                .filter(r -> r.getStrategy().equals(now.getStrategy()) && r.getError() == null)
+                .findFirst().orElse(null);
+            if (before == null || now.getError() != null) {
+                continue;
+            }
+            if (now.getRowsPerSecond() < before.getRowsPerSecond() * (1 - tolerance)) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.0f rows/s, baseline %.0f rows/s",
+                    now.getStrategy(), now.getRowsPerSecond(), before.getRowsPerSecond()));
+            }
+            if (now.getAllocatedBytesPerRow() >= 0 && before.getAllocatedBytesPerRow() > 0
+                    && now.getAllocatedBytesPerRow() > before.getAllocatedBytesPerRow() * (1 + tolerance)) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.0f bytes allocated per row, baseline %.0f",
+                    now.getStrategy(), now.getAllocatedBytesPerRow(), before.getAllocatedBytesPerRow()));
+            }
+        }
+        return regressions;
+    }
+
+    public static void write(Report report, File file) throws IOException {
+        file.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+    }
+
+    public static Report read(File file) throws IOException {
+        return new ObjectMapper().readValue(file, Report.class);
+    }
+
+    @Override
+    public void close() {
+        taskScopes.shutdown();
+    }
+
+    private Migration migration(LoadService.LoadStrategy strategy) {
+        Migration migration = new Migration();
+        migration.setId(migrationIds.incrementAndGet());
+        migration.setName("benchmark " + strategy);
+        migration.setSourceSystem(SOURCE_SYSTEM);
+        migration.setTargetSystem(config.getTargetSystem());
+        migration.setStatus(MigrationStatus.INITIALIZED);
+        migration.setPhase(MigrationPhase.PLANNING);
+        migration.setBatchSize(config.getBatchSize());
+        migration.setParallelism(config.getParallelism());
+        migration.setParameters(new HashMap<>(Map.of("tables", TABLE, "loadStrategy", strategy.name())));
+        migrations.put(migration.getId(), migration);
+        return migration;
+    }
+
+    /**
+     * The orchestrator with the services it ships with. Repositories keep their rows in
+     * memory; stub-only mocks, so batch payloads are not retained as recorded invocations.
+     */
+    private MigrationOrchestrator orchestrator(Map<String, DataSource> dataSources) {
+        SqlInjectionValidator validator = new SqlInjectionValidator();
+        PlatformTransactionManager transactionManager = stub(PlatformTransactionManager.class);
+        AdaptiveBatchControllerRegistry batchControllers = new AdaptiveBatchControllerRegistry(new SimpleMeterRegistry());
+
+        MigrationRepository migrationRepository = stub(MigrationRepository.class);
+        when(migrationRepository.findById(anyLong()))
+            .thenAnswer(invocation -> Optional.ofNullable(migrations.get(invocation.<Long>getArgument(0))));
+        when(migrationRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        MigrationThroughputRepository throughputRepository = stub(MigrationThroughputRepository.class);
+        when(throughputRepository.save(any())).thenAnswer(invocation -> {
+            phaseSamples.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+
+        Map<String, MigrationBatchData> batches = new ConcurrentHashMap<>();
+        MigrationBatchDataRepository batchDataRepository = stub(MigrationBatchDataRepository.class);
+        when(batchDataRepository.save(any())).thenAnswer(invocation -> {
+            MigrationBatchData data = invocation.getArgument(0);
+            batches.put(data.getMigrationId() + "/" + data.getBatchId(), data);
+            return data;
+        });
+        when(batchDataRepository.findByMigrationIdAndBatchId(anyLong(), anyString()))
+            .thenAnswer(invocation -> Optional.ofNullable(batches.get(invocation.getArgument(0) + "/" + invocation.getArgument(1))));
+        when(batchDataRepository.deleteByMigrationId(anyLong())).thenAnswer(invocation -> {
+            String prefix = invocation.getArgument(0) + "/";
+            int before = batches.size();
+            batches.keySet().removeIf(key -> key.startsWith(prefix));
+            return before - batches.size();
+        });
+
+        MigrationLoadProgressRepository progressRepository = stub(MigrationLoadProgressRepository.class);
+        when(progressRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransformationRuleRepository ruleRepository = stub(TransformationRuleRepository.class);
+        when(ruleRepository.findByMigrationIdAndActiveOrderByExecutionOrder(anyLong(), eq(true))).thenReturn(rules);
+
+        // Times every load batch of the run, whichever strategy and phase thread runs it
+        LoadService loadService = new LoadService(dataSources, batchControllers, taskScopes) {
+            @Override
+            public LoadResult loadBatch(LoadContext context) {
+                long started = System.nanoTime();
+                LoadResult result = super.loadBatch(context);
+                loadBatchNanos.add(System.nanoTime() - started);
+                rowsLoaded.addAndGet(result.getRecordsLoaded());
+                if (!result.isSuccess()) {
+                    loadError.compareAndSet(null, result.getErrorMessage());
+                }
+                return result;
+            }
+        };
+
+        MigrationPlanner planner = new MigrationPlanner(dataSources, throughputRepository, validator, transactionManager);
+        // Batches of exactly the configured size, whatever the row width
+        ReflectionTestUtils.setField(planner, "minBatchRows", config.getBatchSize());
+        ReflectionTestUtils.setField(planner, "maxBatchRows", config.getBatchSize());
+
+        StagingTableManager stagingTableManager = new StagingTableManager(dataSources, validator);
+        ChecksumReconciliationService reconciliationService = new ChecksumReconciliationService(dataSources, validator, taskScopes);
+        DeadLetterStore deadLetterStore = new DeadLetterStore(stub(MigrationDeadLetterRepository.class),
+            migrationRepository, loadService, dataSources, validator);
+        TransformationService transformationService = new TransformationService(ruleRepository,
+            stub(TransformationJobRepository.class), new TransformationEngine(new ObjectMapper(), new ScriptEnginePool(),
+                new ReferenceDataCache(Map.of(), validator)),
+            new ParallelTransformationExecutor(), stub(TransformationOutputWriter.class));
+
+        return new MigrationOrchestrator(
+            migrationRepository,
+            stub(ExtractionService.class),
+            transformationService,
+            stub(DataQualityService.class),
+            new ValidationService(),
+            loadService,
+            stub(StorageService.class),
+            new MigrationCheckpointService(migrationRepository, progressRepository, transactionManager),
+            reconciliationService,
+            // Disabled, so every batch runs locally on the phase's virtual threads
+            stub(DistributedBatchQueue.class),
+            taskScopes,
+            stagingTableManager,
+            new IndexDeferralManager(dataSources, validator, taskScopes),
+            planner,
+            new MigrationMetricsAccumulator(migrationRepository, stub(MigrationEventPublisher.class), transactionManager),
+            deadLetterStore,
+            new ShadowRunService(stagingTableManager, reconciliationService, deadLetterStore, planner, batchControllers),
+            new MigrationBatchStore(batchDataRepository, dataSources, validator),
+            transactionManager);
+    }
+
+    private static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+
+    /**
+     * Deterministic rows cycling through text, decimal, timestamp and integer columns
+     */
+    private void generateSource() {
+        source.execute("CREATE TABLE " + TABLE + " (" + columnDdl() + ")");
+        String insert = "INSERT INTO " + TABLE + " VALUES (" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        Random random = new Random(config.getSeed());
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= config.getRows(); id++) {
+            Object[] row = new Object[columns.size()];
+            row[0] = id;
+            for (int c = 1; c < columns.size(); c++) {
+                row[c] = switch (c % 4) {
+                    case 1 -> "value " + Long.toString(random.nextLong() & Long.MAX_VALUE, 36) + "  ";
+                    case 2 -> BigDecimal.valueOf(random.nextInt(10_000_000), 2);
+                    case 3 -> new Timestamp(1_700_000_000_000L + random.nextInt(1_000_000_000));
+                    default -> random.nextInt();
+                };
+            }
+            rows.add(row);
+            if (rows.size() == 10_000) {
+                source.batchUpdate(insert, rows);
+                rows.clear();
+            }
+        }
+        if (!rows.isEmpty()) {
+            source.batchUpdate(insert, rows);
+        }
+    }
+
+    private void createTarget() {
+        target.execute("DROP TABLE IF EXISTS " + TABLE);
+        target.execute("CREATE TABLE " + TABLE + " (" + columnDdl() + ")");
+    }
+
+    private String columnDdl() {
+        StringJoiner ddl = new StringJoiner(", ");
+        ddl.add("id BIGINT PRIMARY KEY");
+        for (int c = 1; c < columns.size(); c++) {
+            ddl.add(columns.get(c) + switch (c % 4) {
+                case 1 -> " VARCHAR(64)";
+                case 2 -> " DECIMAL(12, 2)";
+                case 3 -> " TIMESTAMP";
+                default -> " INTEGER";
+            });
+        }
+        return ddl.toString();
+    }
+
+    /**
+     * A typical cleanse: trim and upper-case the first text column, then map it to itself.
+     * Extracted rows carry the column labels H2 reports, in upper case.
+     */
+    private static List<TransformationRule> rules() {
+        TransformationRule trim = rule("trim-c1", "REGEX", 1);
+        trim.setRegexPattern("\\s+$");
+        trim.setRegexReplacement("");
+        TransformationRule upper = rule("upper-c1", "EXPRESSION", 2);
+        upper.setRuleDefinition("['C1'] != null ? ['C1'].toUpperCase() : null");
+        TransformationRule mapping = rule("map-c1", "FIELD_MAPPING", 3);
+        return List.of(trim, upper, mapping);
+    }
+
+    private static TransformationRule rule(String name, String ruleType, int priority) {
+        TransformationRule rule = new TransformationRule();
+        rule.setName(name);
+        rule.setRuleType(ruleType);
+        rule.setSourceField("C1");
+        rule.setTargetField("C1");
+        rule.setPriority(priority);
+        return rule;
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(c -> c > 0).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(t -> t > 0).sum();
+    }
+
+    /**
+     * Bytes allocated by all threads so far, including carriers of virtual threads, or -1
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            try {
+                return threads.getTotalThreadAllocatedBytes();
+            } catch (UnsupportedOperationException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Benchmark settings, overridable with {@code jivs.benchmark.*} system properties
+     */
+    @Data
+    public static class Config {
+        private int rows = 50_000;
+        private int columns = 12;
+        private int batchSize = 1000;
+        private int parallelism = 4;
+        private int warmups = 1;
+        private int iterations = 3;
+        private long seed = 42;
+        private List<LoadService.LoadStrategy> strategies = List.of(LoadService.LoadStrategy.values());
+        private String targetSystem = "h2";
+        private String targetUrl;
+        private String targetUser;
+        private String targetPassword;
+        private String label = "local";
+
+        public static Config fromSystemProperties() {
+            Config config = new Config();
+            config.setRows(Integer.getInteger("jivs.benchmark.rows", config.getRows()));
+            config.setColumns(Integer.getInteger("jivs.benchmark.columns", config.getColumns()));
+            config.setBatchSize(Integer.getInteger("jivs.benchmark.batch-size", config.getBatchSize()));
+            config.setParallelism(Integer.getInteger("jivs.benchmark.parallelism", config.getParallelism()));
+            config.setWarmups(Integer.getInteger("jivs.benchmark.warmups", config.getWarmups()));
+            config.setIterations(Integer.getInteger("jivs.benchmark.iterations", config.getIterations()));
+            String strategies = System.getProperty("jivs.benchmark.strategies");
+            if (strategies != null && !strategies.isBlank()) {
+                config.setStrategies(Arrays.stream(strategies.split(","))
+                    .map(s -> LoadService.LoadStrategy.valueOf(s.trim().toUpperCase(Locale.ROOT)))
+                    .toList());
+            }
+            // A local PostgreSQL named "postgresql" exercises COPY and ON CONFLICT
+            config.setTargetSystem(System.getProperty("jivs.benchmark.target.system", config.getTargetSystem()));
+            config.setTargetUrl(System.getProperty("jivs.benchmark.target.url"));
+            config.setTargetUser(System.getProperty("jivs.benchmark.target.user"));
+            config.setTargetPassword(System.getProperty("jivs.benchmark.target.password"));
+            config.setLabel(System.getProperty("jivs.benchmark.label",
+                Objects.requireNonNullElse(System.getenv("GIT_COMMIT"), config.getLabel())));
+            return config;
+        }
+    }
+
+    /**
+     * Results of one benchmark run, written as JSON so runs can be compared across commits
+     */
+    @Data
+    public static class Report {
+        private String label;
+        private String javaVersion;
+        private String targetSystem;
+        private String recordedAt;
+        private int rows;
+        private int columns;
+        private int batchSize;
+        private List<StrategyResult> results = new ArrayList<>();
+    }
+
+    @Data
+    public static class StrategyResult {
+        private String strategy;
+        private int iterations;
+        private long rows;
+        private long targetRows;
+        private int batches;
+        private double rowsPerSecond;
+        private long extractMillis;
+        private long transformMillis;
+        private long loadMillis;
+        private double p50BatchMillis;
+        private double p99BatchMillis;
+        private long gcCount;
+        private long gcMillis;
+        private double allocatedBytesPerRow;
+        private String error;
+    }
+
+    @Data
+    static class Iteration {
+        private long rows;
+        private long targetRows;
+        private long elapsedNanos;
+        private long extractNanos;
+        private long transformNanos;
+        private long loadNanos;
+        private long allocatedBytes;
+        private long gcCount;
+        private long gcMillis;
+        private List<Long> batchNanos = new ArrayList<>();
+        private String error;
+
+        double rowsPerSecond() {
+            return elapsedNanos > 0 ? rows * 1e9 / elapsedNanos : 0;
+        }
+    }
+}
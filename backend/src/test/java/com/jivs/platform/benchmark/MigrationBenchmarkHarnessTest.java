@@ -0,0 +1,81 @@
+package com.jivs.platform.benchmark;
+
+import com.jivs.platform.service.migration.LoadService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Keeps the benchmark harness honest at a size small enough for every build
+ */
+class MigrationBenchmarkHarnessTest {
+
+    @Test
+    @DisplayName("Every load strategy migrates all rows through the orchestrator's phases")
+    void testSmallRun() {
+        MigrationBenchmarkHarness.Config config = new MigrationBenchmarkHarness.Config();
+        config.setRows(1200);
+        config.setColumns(6);
+        config.setBatchSize(500);
+        config.setWarmups(0);
+        config.setIterations(1);
+
+        MigrationBenchmarkHarness.Report report;
+        try (MigrationBenchmarkHarness harness = new MigrationBenchmarkHarness(config)) {
+            report = harness.run();
+        }
+
+        assertEquals(LoadService.LoadStrategy.values().length, report.getResults().size());
+        for (MigrationBenchmarkHarness.StrategyResult result : report.getResults()) {
+            if (result.getStrategy().equals("UPSERT")) {
+                // Upserts need a dialect; embedded H2 is registered under a generic name
+                assertNotNull(result.getError());
+                continue;
+            }
+            assertNull(result.getError(), result.getStrategy());
+            assertEquals(1200, result.getRows(), result.getStrategy());
+            assertEquals(1200, result.getTargetRows(), result.getStrategy());
+            assertEquals(3, result.getBatches());
+            assertTrue(result.getRowsPerSecond() > 0);
+            assertTrue(result.getP99BatchMillis() >= result.getP50BatchMillis());
+        }
+    }
+
+    @Test
+    @DisplayName("Percentiles use the nearest rank")
+    void testPercentile() {
+        long[] latencies = new long[100];
+        for (int i = 0; i < 100; i++) {
+            latencies[i] = i + 1;
+        }
+
+        assertEquals(50, MigrationBenchmarkHarness.percentile(latencies, 0.50));
+        assertEquals(99, MigrationBenchmarkHarness.percentile(latencies, 0.99));
+        assertEquals(0, MigrationBenchmarkHarness.percentile(new long[0], 0.99));
+    }
+
+    @Test
+    @DisplayName("Throughput drops and allocation growth beyond the tolerance are regressions")
+    void testCompare() {
+        MigrationBenchmarkHarness.Report baseline = report(10_000, 500);
+
+        assertTrue(MigrationBenchmarkHarness.compare(baseline, report(9_000, 550), 0.15).isEmpty());
+        List<String> regressions = MigrationBenchmarkHarness.compare(baseline, report(8_000, 700), 0.15);
+        assertEquals(2, regressions.size());
+        assertTrue(regressions.get(0).startsWith("BATCH: 8000 rows/s"));
+    }
+
+    private static MigrationBenchmarkHarness.Report report(double rowsPerSecond, double bytesPerRow) {
+        MigrationBenchmarkHarness.StrategyResult result = new MigrationBenchmarkHarness.StrategyResult();
+        result.setStrategy("BATCH");
+        result.setRowsPerSecond(rowsPerSecond);
+        result.setAllocatedBytesPerRow(bytesPerRow);
+        MigrationBenchmarkHarness.Report report = new MigrationBenchmarkHarness.Report();
+        report.setResults(new ArrayList<>(List.of(result)));
+        return report;
+    }
+}
@@ -0,0 +1,62 @@
+package com.jivs.platform.benchmark;
+
+import com.jivs.platform.service.migration.LoadService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end migration throughput benchmark. Excluded from the default build; run with
+ * {@code mvn test -Pbenchmark}, optionally with {@code -Djivs.benchmark.baseline=<report.json>}
+ * to fail on regressions against an earlier commit's report.
+ */
+@Tag("benchmark")
+class MigrationThroughputBenchmarkTest {
+
+    @Test
+    @DisplayName("Pipeline throughput per load strategy, compared with the baseline")
+    void benchmarkLoadStrategies() throws Exception {
+        MigrationBenchmarkHarness.Config config = MigrationBenchmarkHarness.Config.fromSystemProperties();
+        MigrationBenchmarkHarness.Report report;
+        try (MigrationBenchmarkHarness harness = new MigrationBenchmarkHarness(config)) {
+            report = harness.run();
+        }
+
+        File output = new File(System.getProperty("jivs.benchmark.output", "target/benchmarks"),
+            "migration-throughput-" + config.getLabel() + ".json");
+        MigrationBenchmarkHarness.write(report, output);
+
+        System.out.printf(Locale.ROOT, "%nMigration throughput (%s, %d rows x %d columns, batches of %d) -> %s%n",
+            report.getLabel(), report.getRows(), report.getColumns(), report.getBatchSize(), output);
+        System.out.printf(Locale.ROOT, "%-10s %12s %10s %10s %8s %8s %12s  %s%n",
+            "strategy", "rows/s", "p50 ms", "p99 ms", "GCs", "GC ms", "bytes/row", "error");
+        for (MigrationBenchmarkHarness.StrategyResult result : report.getResults()) {
+            System.out.printf(Locale.ROOT, "%-10s %12.0f %10.2f %10.2f %8d %8d %12.0f  %s%n",
+                result.getStrategy(), result.getRowsPerSecond(), result.getP50BatchMillis(), result.getP99BatchMillis(),
+                result.getGcCount(), result.getGcMillis(), result.getAllocatedBytesPerRow(),
+                result.getError() != null ? result.getError() : "");
+        }
+
+        for (MigrationBenchmarkHarness.StrategyResult result : report.getResults()) {
+            if (result.getError() == null) {
+                assertEquals(config.getRows(), result.getTargetRows(), result.getStrategy() + " lost rows");
+            }
+        }
+        assertTrue(report.getResults().stream().anyMatch(r -> r.getError() == null
+            && r.getStrategy().equals(LoadService.LoadStrategy.BATCH.name())), "The BATCH strategy must run");
+
+        String baseline = System.getProperty("jivs.benchmark.baseline");
+        if (baseline != null && !baseline.isBlank()) {
+            double tolerance = Double.parseDouble(System.getProperty("jivs.benchmark.tolerance", "0.15"));
+            List<String> regressions = MigrationBenchmarkHarness.compare(
+                MigrationBenchmarkHarness.read(new File(baseline)), report, tolerance);
+            assertTrue(regressions.isEmpty(), "Regressions against " + baseline + ": " + regressions);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.jivs.platform.repository;
+
+import com.jivs.platform.domain.migration.Migration;
+import com.jivs.platform.domain.migration.MigrationStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the targeted state updates of migrations
+ */
+@DataJpaTest
+class MigrationRepositoryTest {
+
+    @Autowired
+    private MigrationRepository migrationRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    @DisplayName("Flushed progress counters are read back when the migration is reloaded")
+    void testMetricsSurviveReload() {
+        Migration migration = migrationRepository.save(migration("MIG-METRICS"));
+        entityManager.flush();
+        entityManager.clear();
+
+        int updated = migrationRepository.updateMetrics(migration.getId(), 500, 400, 300, 400, 300, 7);
+        entityManager.clear();
+
+        Migration reloaded = migrationRepository.findById(migration.getId()).orElseThrow();
+        assertEquals(1, updated);
+        assertEquals(500, reloaded.getMetrics().getExtractedRecords());
+        assertEquals(400, reloaded.getMetrics().getTransformedRecords());
+        assertEquals(300, reloaded.getMetrics().getLoadedRecords());
+        assertEquals(400, reloaded.getMetrics().getProcessedRecords());
+        assertEquals(300, reloaded.getMetrics().getSuccessfulRecords());
+        assertEquals(7, reloaded.getMetrics().getFailedRecords());
+    }
+
+    @Test
+    @DisplayName("Counters set on the entity are saved with it")
+    void testMetricsSavedWithEntity() {
+        Migration migration = migration("MIG-SAVE");
+        migration.getMetrics().setTotalRecords(1000);
+        migration.getMetrics().setValidationScore(97.5);
+        Long id = migrationRepository.save(migration).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        Migration reloaded = migrationRepository.findById(id).orElseThrow();
+        assertEquals(1000, reloaded.getMetrics().getTotalRecords());
+        assertEquals(97.5, reloaded.getMetrics().getValidationScore());
+    }
+
+    @Test
+    @DisplayName("A status update is read back without saving the entity")
+    void testUpdateStatus() {
+        Migration migration = migrationRepository.save(migration("MIG-STATUS"));
+        entityManager.flush();
+        entityManager.clear();
+
+        int updated = migrationRepository.updateStatus(migration.getId(), MigrationStatus.IN_PROGRESS);
+        entityManager.clear();
+
+        assertEquals(1, updated);
+        assertEquals(MigrationStatus.IN_PROGRESS, migrationRepository.findStatusById(migration.getId()).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Run parameters are read back when the migration is reloaded")
+    void testParametersSurviveReload() {
+        Migration migration = migration("MIG-PARAMS");
+        migration.getParameters().put("loadStrategy", "STAGED");
+        migration.getParameters().put("tables", "customers,orders");
+        Long id = migrationRepository.save(migration).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        Migration reloaded = migrationRepository.findById(id).orElseThrow();
+        assertEquals("STAGED", reloaded.getParameters().get("loadStrategy"));
+        assertEquals("customers,orders", reloaded.getParameters().get("tables"));
+    }
+
+    private static Migration migration(String code) {
+        Migration migration = new Migration();
+        migration.setProjectCode(code);
+        migration.setName("Migration " + code);
+        migration.setSourceSystem("legacy");
+        migration.setTargetSystem("target");
+        migration.setProjectType("DATA_MIGRATION");
+        migration.setStatus(MigrationStatus.INITIALIZED);
+        return migration;
+    }
+}
@@ -0,0 +1,78 @@
+package com.jivs.platform.service.migration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AdaptiveBatchController AIMD decisions
+ */
+@DisplayName("AdaptiveBatchController Tests")
+class AdaptiveBatchControllerTest {
+
+    private AdaptiveBatchController newController() {
+        return new AdaptiveBatchController(100, 5000, 1000, 1, 8, 2, 500);
+    }
+
+    @Test
+    @DisplayName("Should grow batch size additively while batches are fast")
+    void shouldIncreaseOnHealthyBatches() {
+        AdaptiveBatchController controller = newController();
+
+        controller.record(1000, 100, true);
+        controller.record(1100, 105, true);
+
+        assertEquals(1200, controller.getBatchSize());
+        assertEquals(2, controller.getIncreases());
+    }
+
+    @Test
+    @DisplayName("Should halve batch size and concurrency on failure")
+    void shouldDecreaseMultiplicativelyOnFailure() {
+        AdaptiveBatchController controller = newController();
+
+        controller.record(1000, 100, false);
+
+        assertEquals(500, controller.getBatchSize());
+        assertEquals(1, controller.getConcurrency());
+        assertTrue(controller.getErrorRate() > 0);
+    }
+
+    @Test
+    @DisplayName("Should shrink batch size when commit latency exceeds target")
+    void shouldDecreaseOnSlowCommits() {
+        AdaptiveBatchController controller = newController();
+
+        controller.record(1000, 2000, true);
+
+        assertEquals(700, controller.getBatchSize());
+    }
+
+    @Test
+    @DisplayName("Should stay within configured bounds")
+    void shouldRespectBounds() {
+        AdaptiveBatchController controller = newController();
+
+        for (int i = 0; i < 20; i++) {
+            controller.record(controller.getBatchSize(), 10_000, false);
+        }
+        assertEquals(100, controller.getBatchSize());
+        assertEquals(1, controller.getConcurrency());
+
+        for (int i = 0; i < 500; i++) {
+            controller.record(controller.getBatchSize(), 10, true);
+        }
+        assertEquals(5000, controller.getBatchSize());
+        assertEquals(8, controller.getConcurrency());
+    }
+
+    @Test
+    @DisplayName("Should reject invalid bounds")
+    void shouldRejectInvalidBounds() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new AdaptiveBatchController(500, 100, 200, 1, 4, 2, 500));
+        assertThrows(IllegalArgumentException.class,
+            () -> new AdaptiveBatchController(100, 500, 200, 0, 4, 2, 500));
+    }
+}
@@ -0,0 +1,175 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.security.SqlInjectionValidator;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ChecksumReconciliationService against two in-memory H2 databases
+ * (client-side hashing path)
+ */
+class ChecksumReconciliationServiceTest {
+
+    private ChecksumReconciliationService service;
+    private JdbcDataSource source;
+    private JdbcDataSource target;
+    private JdbcTemplate sourceJdbc;
+    private JdbcTemplate targetJdbc;
+
+    @BeforeEach
+    void setUp() {
+        service = new ChecksumReconciliationService(Map.of(), new SqlInjectionValidator(), new MigrationTaskScopes());
+        // Small tree so mismatches are drilled through several levels
+        ReflectionTestUtils.setField(service, "rootChunks", 4);
+        ReflectionTestUtils.setField(service, "fanout", 4);
+        ReflectionTestUtils.setField(service, "leafRows", 5);
+
+        source = dataSource();
+        target = dataSource();
+        sourceJdbc = new JdbcTemplate(source);
+        targetJdbc = new JdbcTemplate(target);
+
+        for (JdbcTemplate jdbc : List.of(sourceJdbc, targetJdbc)) {
+            jdbc.execute("CREATE TABLE customers (id BIGINT PRIMARY KEY, name VARCHAR(50), balance DECIMAL(10,2))");
+            for (int i = 1; i <= 200; i++) {
+                jdbc.update("INSERT INTO customers VALUES (?, ?, ?)", i, "customer-" + i, new BigDecimal(i + ".50"));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Identical tables reconcile without drilling down")
+    void testIdenticalTables() {
+        MigrationModels.TableReconciliation result =
+            service.reconcile(source, "customers", target, "customers", null);
+
+        assertNull(result.getErrorMessage());
+        assertTrue(result.isMatched());
+        assertEquals("ID", result.getKeyColumn());
+        assertEquals("CLIENT", result.getHashMode());
+        assertEquals(200, result.getSourceRows());
+        assertEquals(200, result.getTargetRows());
+        assertEquals(0, result.getMismatchedChunks());
+    }
+
+    @Test
+    @DisplayName("Missing, extra and changed rows are found by key")
+    void testDetectsDifferences() {
+        targetJdbc.update("DELETE FROM customers WHERE id = 17");
+        targetJdbc.update("UPDATE customers SET balance = 0 WHERE id = 150");
+        targetJdbc.update("INSERT INTO customers VALUES (201, 'extra', 1.00)");
+
+        MigrationModels.TableReconciliation result =
+            service.reconcile(source, "customers", target, "customers", "id");
+
+        assertFalse(result.isMatched());
+        assertEquals(1, result.getMissingInTarget());
+        assertEquals(1, result.getExtraInTarget());
+        assertEquals(1, result.getChangedRows());
+        assertEquals(List.of("17"), result.getSampleMissingKeys());
+        assertEquals(List.of("201"), result.getSampleExtraKeys());
+        assertEquals(List.of("150"), result.getSampleChangedKeys());
+        assertTrue(result.getMismatchedChunks() > 0);
+    }
+
+    @Test
+    @DisplayName("Equal values with different scale hash the same")
+    void testNormalizesNumericScale() {
+        assertEquals(
+            ChecksumReconciliationService.rowHash(Arrays.asList(new BigDecimal("1.50"), null, "a")),
+            ChecksumReconciliationService.rowHash(Arrays.asList(new BigDecimal("1.5"), null, "a")));
+        assertNotEquals(
+            ChecksumReconciliationService.rowHash(Arrays.asList("a", null)),
+            ChecksumReconciliationService.rowHash(Arrays.asList("a", "")));
+    }
+
+    @Test
+    @DisplayName("Non-integral keys are reconciled through key-hash buckets")
+    void testNonIntegralKeys() {
+        for (JdbcTemplate jdbc : List.of(sourceJdbc, targetJdbc)) {
+            jdbc.execute("CREATE TABLE codes (code VARCHAR(20) PRIMARY KEY, label VARCHAR(50))");
+            for (int i = 0; i < 50; i++) {
+                jdbc.update("INSERT INTO codes VALUES (?, ?)", "C" + i, "label " + i);
+            }
+        }
+        targetJdbc.update("UPDATE codes SET label = 'changed' WHERE code = 'C7'");
+
+        MigrationModels.TableReconciliation result =
+            service.reconcile(source, "codes", target, "codes", null);
+
+        assertFalse(result.isMatched());
+        assertEquals(1, result.getChangedRows());
+        assertEquals(List.of("C7"), result.getSampleChangedKeys());
+    }
+
+    @Test
+    @DisplayName("Non-integral keys missing from an empty target are counted without holding their rows")
+    void testNonIntegralKeysEmptyTarget() {
+        sourceJdbc.execute("CREATE TABLE codes (code VARCHAR(20) PRIMARY KEY, label VARCHAR(50))");
+        targetJdbc.execute("CREATE TABLE codes (code VARCHAR(20) PRIMARY KEY, label VARCHAR(50))");
+        for (int i = 0; i < 50; i++) {
+            sourceJdbc.update("INSERT INTO codes VALUES (?, ?)", "C" + i, "label " + i);
+        }
+        ReflectionTestUtils.setField(service, "maxReportedKeys", 10);
+
+        MigrationModels.TableReconciliation result =
+            service.reconcile(source, "codes", target, "codes", null);
+
+        assertFalse(result.isMatched());
+        assertEquals(50, result.getMissingInTarget());
+        assertEquals(0, result.getExtraInTarget());
+        assertEquals(10, result.getSampleMissingKeys().size());
+    }
+
+    @Test
+    @DisplayName("Pushed-down values are normalized per column type instead of cast to text")
+    void testPushdownNormalizesByType() {
+        assertEquals("trim_scale(\"amount\"::numeric)::text",
+            ChecksumReconciliationService.Dialect.POSTGRESQL.valueExpression("\"amount\"", Types.NUMERIC));
+        assertEquals("\"code\"::text",
+            ChecksumReconciliationService.Dialect.POSTGRESQL.valueExpression("\"code\"", Types.VARCHAR));
+        assertTrue(ChecksumReconciliationService.Dialect.MYSQL.valueExpression("`amount`", Types.DECIMAL)
+            .contains("TRIM(TRAILING '0' FROM CAST(`amount` AS CHAR))"));
+        assertEquals(
+            ChecksumReconciliationService.rowHash(List.of(java.sql.Timestamp.valueOf("2024-01-01 10:00:00"))),
+            ChecksumReconciliationService.rowHash(List.of(java.time.LocalDateTime.of(2024, 1, 1, 10, 0))));
+    }
+
+    @Test
+    @DisplayName("Source foreign keys are checked for orphans in an unconstrained target")
+    void testReferentialIntegrityFromSourceKeys() {
+        sourceJdbc.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, customer_id BIGINT, "
+            + "CONSTRAINT fk_orders_customer FOREIGN KEY (customer_id) REFERENCES customers(id))");
+        targetJdbc.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, customer_id BIGINT)");
+        targetJdbc.update("INSERT INTO orders VALUES (1, 5)");
+        targetJdbc.update("INSERT INTO orders VALUES (2, 999)");
+        targetJdbc.update("INSERT INTO orders VALUES (3, NULL)");
+
+        List<MigrationModels.ReferentialCheck> checks =
+            service.checkReferentialIntegrity(source, "orders", target, "orders");
+
+        assertEquals(1, checks.size());
+        assertEquals("CUSTOMERS", checks.get(0).getParentTable());
+        assertEquals(1, checks.get(0).getOrphanedRows());
+        assertFalse(checks.get(0).isPassed());
+    }
+
+    private static JdbcDataSource dataSource() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+}
@@ -0,0 +1,203 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.domain.migration.Migration;
+import com.jivs.platform.domain.migration.MigrationDeadLetter;
+import com.jivs.platform.domain.migration.MigrationMetrics;
+import com.jivs.platform.domain.migration.MigrationStatus;
+import com.jivs.platform.repository.MigrationDeadLetterRepository;
+import com.jivs.platform.repository.MigrationRepository;
+import com.jivs.platform.security.SqlInjectionValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for isolating rejected records during loads and replaying them from the dead-letter store
+ */
+class DeadLetterStoreTest {
+
+    private MigrationTaskScopes taskScopes;
+    private LoadService loadService;
+    private MigrationDeadLetterRepository deadLetterRepository;
+    private MigrationRepository migrationRepository;
+    private DeadLetterStore store;
+    private Migration migration;
+    private JdbcTemplate jdbc;
+    private JdbcDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE customers (id BIGINT PRIMARY KEY, name VARCHAR(10) NOT NULL)");
+
+        taskScopes = new MigrationTaskScopes();
+        loadService = new LoadService(Map.of("target", dataSource),
+            new AdaptiveBatchControllerRegistry(new SimpleMeterRegistry()), taskScopes);
+
+        migration = new Migration();
+        migration.setId(3L);
+        migration.setStatus(MigrationStatus.COMPLETED);
+        migration.setMetrics(new MigrationMetrics());
+        migrationRepository = mock(MigrationRepository.class);
+        when(migrationRepository.findById(3L)).thenReturn(Optional.of(migration));
+
+        deadLetterRepository = mock(MigrationDeadLetterRepository.class);
+        when(deadLetterRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        store = new DeadLetterStore(deadLetterRepository, migrationRepository, loadService,
+            Map.of("target", dataSource), new SqlInjectionValidator());
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskScopes.shutdown();
+    }
+
+    @Test
+    @DisplayName("A chunk with bad rows is bisected so only those rows are rejected")
+    void testLoadIsolatesRejectedRecords() {
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (long i = 1; i <= 100; i++) {
+            data.add(record(i, i == 17 || i == 60 ? null : "C" + i));
+        }
+
+        LoadService.LoadResult result = loadService.loadBatch(context(data));
+
+        assertTrue(result.isSuccess());
+        assertEquals(98, result.getRecordsLoaded());
+        assertEquals(2, result.getFailedRecords());
+        assertEquals(List.of(17L, 60L), result.getRejectedRecords().stream()
+            .map(r -> r.getRecord().get("id")).toList());
+        assertNotNull(result.getRejectedRecords().get(0).getReason());
+        assertEquals(98, jdbc.queryForObject("SELECT COUNT(*) FROM customers", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Fail-fast loads still abort on the first bad chunk")
+    void testFailFastAborts() {
+        LoadService.LoadContext context = context(List.of(record(1, "A"), record(2, null)));
+        context.setFailFast(true);
+
+        LoadService.LoadResult result = loadService.loadBatch(context);
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getRejectedRecords().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Segments round-trip column types through compression")
+    void testEncodeDecode() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("id", 7L);
+        first.put("amount", new BigDecimal("12.50"));
+        first.put("placed_at", Timestamp.valueOf("2024-03-01 10:15:30.5"));
+        first.put("due", LocalDate.of(2024, 4, 1));
+        first.put("blob", new byte[] {1, 2, 3});
+        first.put("note", null);
+        Map<String, Object> second = new LinkedHashMap<>(first);
+        second.put("id", 8L);
+        second.put("note", "second");
+
+        List<LoadService.RejectedRecord> decoded = DeadLetterStore.decode(DeadLetterStore.encode(List.of(
+            new LoadService.RejectedRecord(first, "too long"),
+            new LoadService.RejectedRecord(second, "null name"))));
+
+        assertEquals(2, decoded.size());
+        Map<String, Object> record = decoded.get(0).getRecord();
+        assertEquals(7L, record.get("id"));
+        assertEquals(new BigDecimal("12.50"), record.get("amount"));
+        assertEquals(Timestamp.valueOf("2024-03-01 10:15:30.5"), record.get("placed_at"));
+        assertEquals(LocalDate.of(2024, 4, 1), record.get("due"));
+        assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) record.get("blob"));
+        assertNull(record.get("note"));
+        assertEquals("second", decoded.get(1).getRecord().get("note"));
+        assertEquals("null name", decoded.get(1).getReason());
+    }
+
+    @Test
+    @DisplayName("Replay loads only dead letters, skips keys already loaded and keeps records rejected again")
+    void testReplay() {
+        jdbc.update("INSERT INTO customers VALUES (1, 'Acme')");
+        migration.getMetrics().setFailedRecords(3);
+        migration.getMetrics().setLoadedRecords(1);
+
+        MigrationModels.LoadTask task = new MigrationModels.LoadTask();
+        task.setId("load-customers-0");
+        task.setTargetTable("customers");
+        task.setParameters(Map.of("keyColumn", "ID"));
+        MigrationDeadLetter segment = store.capture(3L, "target", task, List.of(
+            new LoadService.RejectedRecord(record(1, "Acme"), "loaded by an earlier attempt"),
+            new LoadService.RejectedRecord(record(2, null), "NULL not allowed"),
+            new LoadService.RejectedRecord(record(3, "Much too long"), "value too long")));
+        verify(deadLetterRepository).deleteByBatch(3L, "load-customers-0");
+        when(deadLetterRepository.findByMigrationIdAndStatusOrderByIdAsc(3L, MigrationDeadLetter.PENDING))
+            .thenReturn(List.of(segment));
+
+        // Fix one of the two causes
+        jdbc.execute("ALTER TABLE customers ALTER COLUMN name SET NULL");
+        MigrationModels.DeadLetterReplayResult first = store.replay(3L, null);
+
+        assertEquals(1, first.getReplayedRecords());
+        assertEquals(1, first.getDuplicateRecords());
+        assertEquals(1, first.getRejectedRecords());
+        assertEquals(MigrationDeadLetter.PENDING, segment.getStatus());
+        assertEquals(1, segment.getRecordCount());
+        assertEquals(3L, store.read(segment).get(0).getRecord().get("id"));
+        assertEquals(2, migration.getMetrics().getLoadedRecords());
+        assertEquals(1, migration.getMetrics().getFailedRecords());
+        verify(migrationRepository).updateMetrics(eq(3L), any(), any(), eq(2), any(), any(), eq(1));
+        verify(migrationRepository, never()).save(any());
+
+        jdbc.execute("ALTER TABLE customers ALTER COLUMN name VARCHAR(100)");
+        MigrationModels.DeadLetterReplayResult second = store.replay(3L, "customers");
+
+        assertEquals(1, second.getReplayedRecords());
+        assertEquals(MigrationDeadLetter.REPLAYED, segment.getStatus());
+        assertEquals(2, segment.getReplayCount());
+        assertEquals(0, migration.getMetrics().getFailedRecords());
+        assertEquals(3, jdbc.queryForObject("SELECT COUNT(*) FROM customers", Integer.class));
+    }
+
+    @Test
+    @DisplayName("A running migration cannot be replayed")
+    void testReplayRejectedWhileRunning() {
+        migration.setStatus(MigrationStatus.IN_PROGRESS);
+
+        assertThrows(IllegalStateException.class, () -> store.replay(3L, null));
+    }
+
+    private LoadService.LoadContext context(List<Map<String, Object>> data) {
+        LoadService.LoadContext context = new LoadService.LoadContext();
+        context.setMigrationId(3L);
+        context.setBatchId("load-customers-0");
+        context.setTargetSystem("target");
+        context.setTargetTable("customers");
+        context.setColumns(List.of("id", "name"));
+        context.setData(data);
+        context.setStrategy(LoadService.LoadStrategy.BATCH);
+        return context;
+    }
+
+    private static Map<String, Object> record(long id, String name) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("id", id);
+        record.put("name", name);
+        return record;
+    }
+}
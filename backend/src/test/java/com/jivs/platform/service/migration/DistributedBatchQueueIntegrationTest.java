@@ -0,0 +1,102 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.domain.migration.MigrationPhase;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for distributed batch execution over Redisson work queues
+ *
+ * - Every published batch gets exactly one outcome
+ * - A batch whose lease expired is redelivered and the first result wins
+ */
+@SpringBootTest(properties = {
+    "jivs.migration.distributed.enabled=true",
+    "jivs.migration.distributed.workers=4",
+    "jivs.migration.distributed.lease-ms=600",
+    "jivs.migration.distributed.heartbeat-ms=200",
+    "jivs.migration.distributed.poll-interval-ms=50",
+    "jivs.migration.distributed.max-attempts=3"
+})
+@ActiveProfiles("test")
+class DistributedBatchQueueIntegrationTest {
+
+    @Autowired
+    private DistributedBatchQueue batchQueue;
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    @Test
+    void execute_AllBatchesRunOnceAndReportOutcomes() {
+        Map<String, AtomicInteger> runs = new ConcurrentHashMap<>();
+        batchQueue.registerHandler(MigrationPhase.CLEANUP, MigrationModels.LoadTask.class, (migrationId, task) -> {
+            runs.computeIfAbsent(task.getId(), id -> new AtomicInteger()).incrementAndGet();
+            return new MigrationModels.BatchOutcome(task.getId(), true, task.getBatchSize(), null);
+        });
+
+        Map<String, MigrationModels.LoadTask> tasks = tasks(25);
+        List<String> committed = Collections.synchronizedList(new ArrayList<>());
+
+        List<MigrationModels.BatchOutcome> outcomes = batchQueue.execute(9001L, MigrationPhase.CLEANUP, tasks,
+            outcome -> committed.add(outcome.getTaskId()));
+
+        assertThat(outcomes).hasSize(25).allMatch(MigrationModels.BatchOutcome::isSuccess);
+        assertThat(outcomes).extracting(MigrationModels.BatchOutcome::getRecords).containsOnly(100L);
+        assertThat(committed).containsExactlyInAnyOrderElementsOf(tasks.keySet());
+        assertThat(runs.values()).allMatch(count -> count.get() == 1);
+        assertThat(redissonClient.getKeys().getKeysByPattern("jivs:migration:{9001}:*")).isEmpty();
+    }
+
+    @Test
+    void execute_BatchWithExpiredLeaseIsRedelivered() {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch redelivered = new CountDownLatch(1);
+        batchQueue.registerHandler(MigrationPhase.CLEANUP, MigrationModels.LoadTask.class, (migrationId, task) -> {
+            if (!task.getId().equals("task-0")) {
+                return new MigrationModels.BatchOutcome(task.getId(), true, 1, null);
+            }
+            if (attempts.incrementAndGet() == 1) {
+                // Simulate a stalled worker: its lease runs out while the batch is still running
+                redissonClient.<String, Long>getMap("jivs:migration:{9002}:CLEANUP:leases").put("task-0", 0L);
+                try {
+                    redelivered.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return MigrationModels.BatchOutcome.failed(task.getId(), "stalled worker");
+            }
+            redelivered.countDown();
+            return new MigrationModels.BatchOutcome(task.getId(), true, 1, null);
+        });
+
+        List<MigrationModels.BatchOutcome> outcomes = batchQueue.execute(9002L, MigrationPhase.CLEANUP, tasks(3),
+            outcome -> { });
+
+        assertThat(outcomes).hasSize(3).allMatch(MigrationModels.BatchOutcome::isSuccess);
+        assertThat(attempts.get()).isEqualTo(2);
+    }
+
+    private static Map<String, MigrationModels.LoadTask> tasks(int count) {
+        Map<String, MigrationModels.LoadTask> tasks = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            MigrationModels.LoadTask task = new MigrationModels.LoadTask();
+            task.setId("task-" + i);
+            task.setTargetTable("customers");
+            task.setBatchSize(100);
+            tasks.put(task.getId(), task);
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,146 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.security.SqlInjectionValidator;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for deferring and rebuilding indexes and foreign keys around bulk loads against H2
+ */
+class IndexDeferralManagerTest {
+
+    private IndexDeferralManager manager;
+    private MigrationTaskScopes taskScopes;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        taskScopes = new MigrationTaskScopes();
+        manager = new IndexDeferralManager(Map.of("target", dataSource), new SqlInjectionValidator(), taskScopes);
+
+        jdbc.execute("CREATE TABLE customers (id BIGINT PRIMARY KEY, name VARCHAR(100))");
+        jdbc.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, customer_id BIGINT, status VARCHAR(10), "
+            + "reference VARCHAR(20), placed_at TIMESTAMP)");
+        jdbc.execute("CREATE INDEX idx_orders_customer ON orders (customer_id)");
+        jdbc.execute("CREATE INDEX idx_orders_status_placed ON orders (status, placed_at)");
+        jdbc.execute("CREATE UNIQUE INDEX idx_orders_reference ON orders (reference)");
+        jdbc.execute("ALTER TABLE orders ADD CONSTRAINT fk_orders_customer FOREIGN KEY (customer_id) "
+            + "REFERENCES customers (id) ON DELETE CASCADE");
+        jdbc.update("INSERT INTO customers VALUES (1, 'Acme')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskScopes.shutdown();
+    }
+
+    @Test
+    @DisplayName("Secondary indexes and foreign keys are set aside and rebuilt with progress")
+    void testDeferAndRebuild() {
+        MigrationModels.DeferredIndexes deferred = manager.snapshot("target", "orders");
+        assertEquals(3, deferred.getDefinitions().size(), "two secondary indexes and one foreign key");
+        assertTrue(deferred.getDefinitions().stream().noneMatch(d -> d.getName().equalsIgnoreCase("idx_orders_reference")),
+            "unique indexes stay in place");
+
+        manager.defer(deferred);
+
+        assertEquals(MigrationModels.DeferredIndexes.DEFERRED, deferred.getState());
+        assertFalse(indexExists("IDX_ORDERS_CUSTOMER"));
+        assertFalse(indexExists("IDX_ORDERS_STATUS_PLACED"));
+        assertTrue(indexExists("IDX_ORDERS_REFERENCE"));
+        assertFalse(constraintExists("FK_ORDERS_CUSTOMER"));
+
+        for (int i = 1; i <= 50; i++) {
+            jdbc.update("INSERT INTO orders VALUES (?, 1, 'NEW', ?, CURRENT_TIMESTAMP)", i, "REF-" + i);
+        }
+
+        List<Long> progress = new CopyOnWriteArrayList<>();
+        manager.rebuild(deferred, 7L, d -> progress.add(d.rebuiltCount()));
+
+        assertEquals(MigrationModels.DeferredIndexes.REBUILT, deferred.getState());
+        assertEquals(3, progress.size());
+        assertTrue(progress.contains(3L));
+        assertTrue(indexExists("IDX_ORDERS_CUSTOMER"));
+        assertTrue(indexExists("IDX_ORDERS_STATUS_PLACED"));
+        assertTrue(constraintExists("FK_ORDERS_CUSTOMER"));
+        assertThrows(Exception.class, () ->
+            jdbc.update("INSERT INTO orders VALUES (99, 2, 'NEW', 'REF-99', CURRENT_TIMESTAMP)"));
+
+        // ON DELETE CASCADE survived the rebuild
+        jdbc.update("DELETE FROM customers WHERE id = 1");
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM orders", Integer.class));
+    }
+
+    @Test
+    @DisplayName("A failed rebuild reports the offending definition and keeps the rest")
+    void testRebuildFailure() {
+        MigrationModels.DeferredIndexes deferred = manager.snapshot("target", "orders");
+        manager.defer(deferred);
+        jdbc.update("INSERT INTO orders VALUES (1, 42, 'NEW', 'REF-1', CURRENT_TIMESTAMP)");
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+            () -> manager.rebuild(deferred, 7L, d -> { }));
+
+        assertTrue(error.getMessage().toUpperCase().contains("FK_ORDERS_CUSTOMER"));
+        assertEquals(MigrationModels.DeferredIndexes.FAILED, deferred.getState());
+        assertEquals(2, deferred.rebuiltCount());
+        assertTrue(indexExists("IDX_ORDERS_CUSTOMER"));
+    }
+
+    @Test
+    @DisplayName("Restore brings back the original definitions after a failed load")
+    void testRestore() {
+        MigrationModels.DeferredIndexes deferred = manager.snapshot("target", "orders");
+        manager.defer(deferred);
+
+        manager.restore(deferred);
+
+        assertEquals(MigrationModels.DeferredIndexes.RESTORED, deferred.getState());
+        assertTrue(indexExists("IDX_ORDERS_CUSTOMER"));
+        assertTrue(indexExists("IDX_ORDERS_STATUS_PLACED"));
+        assertTrue(constraintExists("FK_ORDERS_CUSTOMER"));
+    }
+
+    @Test
+    @DisplayName("Deferring again after a crash skips definitions already set aside")
+    void testDeferIsRepeatable() {
+        MigrationModels.DeferredIndexes deferred = manager.snapshot("target", "orders");
+        manager.defer(deferred);
+
+        assertDoesNotThrow(() -> manager.defer(deferred));
+        manager.rebuild(deferred, 7L, d -> { });
+        assertEquals(MigrationModels.DeferredIndexes.REBUILT, deferred.getState());
+    }
+
+    @Test
+    @DisplayName("Deferral is off unless enabled by parameter or configuration")
+    void testEnabled() {
+        assertFalse(manager.isEnabled(Map.of()));
+        assertTrue(manager.isEnabled(Map.of("deferIndexes", "true")));
+        assertFalse(manager.isEnabled(null));
+    }
+
+    private boolean indexExists(String name) {
+        return jdbc.queryForObject(
+            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = ?", Integer.class, name) > 0;
+    }
+
+    private boolean constraintExists(String name) {
+        return jdbc.queryForObject(
+            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS WHERE CONSTRAINT_NAME = ?", Integer.class, name) > 0;
+    }
+}
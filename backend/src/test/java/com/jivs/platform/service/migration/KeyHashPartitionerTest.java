@@ -0,0 +1,76 @@
+package com.jivs.platform.service.migration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for KeyHashPartitioner
+ *
+ * Verifies that parallel load partitions are disjoint by key, so workers
+ * never compete for the same target rows.
+ */
+@DisplayName("KeyHashPartitioner Tests")
+class KeyHashPartitionerTest {
+
+    @Test
+    @DisplayName("Should route every record with the same key to the same partition")
+    void shouldRouteSameKeyToSamePartition() {
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            data.add(record(i % 100, "row-" + i));
+        }
+
+        List<List<Map<String, Object>>> partitions =
+            KeyHashPartitioner.partition(data, List.of("id"), 8);
+
+        assertEquals(8, partitions.size());
+        assertEquals(1000, partitions.stream().mapToInt(List::size).sum());
+
+        Map<Object, Integer> owner = new HashMap<>();
+        for (int p = 0; p < partitions.size(); p++) {
+            for (Map<String, Object> record : partitions.get(p)) {
+                Integer previous = owner.putIfAbsent(record.get("id"), p);
+                assertTrue(previous == null || previous == p,
+                    "Key " + record.get("id") + " found in more than one partition");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should fall back to contiguous ranges without partition columns")
+    void shouldSplitByRangeWithoutColumns() {
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            data.add(record(i, "row-" + i));
+        }
+
+        List<List<Map<String, Object>>> partitions =
+            KeyHashPartitioner.partition(data, Collections.emptyList(), 3);
+
+        assertEquals(3, partitions.size());
+        assertEquals(3, partitions.get(0).size());
+        assertEquals(3, partitions.get(1).size());
+        assertEquals(4, partitions.get(2).size());
+    }
+
+    @Test
+    @DisplayName("Should never create more partitions than records")
+    void shouldCapPartitionsAtRecordCount() {
+        List<Map<String, Object>> data = List.of(record(1, "a"), record(2, "b"));
+
+        assertEquals(2, KeyHashPartitioner.partition(data, List.of("id"), 16).size());
+        assertEquals(2, KeyHashPartitioner.partition(data, null, 16).size());
+        assertTrue(KeyHashPartitioner.partition(Collections.emptyList(), List.of("id"), 4).isEmpty());
+    }
+
+    private Map<String, Object> record(Object id, String name) {
+        Map<String, Object> record = new HashMap<>();
+        record.put("id", id);
+        record.put("name", name);
+        return record;
+    }
+}
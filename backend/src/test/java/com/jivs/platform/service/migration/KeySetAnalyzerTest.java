@@ -0,0 +1,121 @@
+package com.jivs.platform.service.migration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for KeySetAnalyzer, ExternalKeySorter and HyperLogLog
+ */
+class KeySetAnalyzerTest {
+
+    // Tiny sort buffer so every check spills and merges several runs
+    private final KeySetAnalyzer analyzer = new KeySetAnalyzer(64, 0.01);
+
+    @Test
+    @DisplayName("Duplicate count matches a HashSet across spilled runs")
+    void testCountDuplicatesIsExact() {
+        Random random = new Random(42);
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            values.add((long) random.nextInt(15000));
+        }
+        values.add(null);
+        values.add(null);
+
+        long expected = values.size() - new HashSet<>(values).size();
+
+        assertEquals(expected, analyzer.countDuplicates(values, values.size()));
+    }
+
+    @Test
+    @DisplayName("Unique keys report no duplicates")
+    void testNoDuplicates() {
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            values.add("key-" + i);
+        }
+
+        assertEquals(0, analyzer.countDuplicates(values, values.size()));
+    }
+
+    @Test
+    @DisplayName("Equal numbers and dates of different classes are one key, text and numbers are not")
+    void testKeysNormalised() {
+        List<Object> values = List.of(1, 1L, new java.math.BigDecimal("1.00"), "1",
+            2.5f, 2.5, java.sql.Timestamp.valueOf("2024-03-01 10:15:00"), java.time.LocalDateTime.of(2024, 3, 1, 10, 15),
+            java.sql.Date.valueOf("2024-03-01"), java.time.LocalDate.of(2024, 3, 1), true, "true");
+
+        assertEquals(5, analyzer.countDuplicates(values, values.size()));
+        assertEquals(KeySetAnalyzer.encode(0L), KeySetAnalyzer.encode(new java.math.BigDecimal("0.000")));
+        assertNotEquals(KeySetAnalyzer.encode(1), KeySetAnalyzer.encode(1.1));
+    }
+
+    @Test
+    @DisplayName("Missing references are exact and distinct")
+    void testFindMissing() {
+        List<Object> parents = new ArrayList<>();
+        for (long i = 0; i < 5000; i++) {
+            parents.add(i);
+        }
+        List<Object> children = new ArrayList<>();
+        for (long i = 0; i < 8000; i++) {
+            children.add(i % 5003);
+        }
+
+        KeySetAnalyzer.MissingKeys missing = analyzer.findMissing(children, parents, parents.size(), 10);
+
+        assertEquals(3, missing.getCount());
+        assertEquals(List.of("5000", "5001", "5002"), missing.getSample());
+    }
+
+    @Test
+    @DisplayName("External sorter groups equal keys in ascending order")
+    void testExternalSorterGroups() {
+        List<String> groups = new ArrayList<>();
+        try (ExternalKeySorter sorter = new ExternalKeySorter(3)) {
+            for (String key : List.of("d", "a", "c", "a", "b", "d", "a")) {
+                sorter.add(key);
+            }
+            assertTrue(sorter.runCount() > 1);
+            sorter.forEachGroup((key, count) -> groups.add(key + count));
+        }
+
+        assertEquals(List.of("a3", "b1", "c1", "d2"), groups);
+    }
+
+    @Test
+    @DisplayName("External sorter merges more runs than its fan-in in several passes")
+    void testExternalSorterMergePasses() {
+        List<String> groups = new ArrayList<>();
+        try (ExternalKeySorter sorter = new ExternalKeySorter(2, 3)) {
+            for (int i = 0; i < 40; i++) {
+                sorter.add("k" + (char) ('a' + (i * 7) % 20));
+            }
+            assertEquals(20, sorter.runCount());
+            sorter.forEachGroup((key, count) -> groups.add(key + count));
+            assertTrue(sorter.runCount() <= 3);
+        }
+
+        assertEquals(20, groups.size());
+        assertEquals("ka2", groups.get(0));
+        assertEquals("kt2", groups.get(19));
+        assertEquals(groups.stream().sorted().toList(), groups);
+    }
+
+    @Test
+    @DisplayName("HyperLogLog estimate is within a few standard errors")
+    void testHyperLogLogEstimate() {
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            values.add("value-" + (i % 50000));
+        }
+
+        HyperLogLog sketch = KeySetAnalyzer.sketch(values);
+
+        assertEquals(50000, sketch.estimate(), 50000 * 4 * sketch.standardError());
+    }
+}
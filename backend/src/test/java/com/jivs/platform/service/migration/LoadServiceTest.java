@@ -0,0 +1,328 @@
+package com.jivs.platform.service.migration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for loading batches into target tables
+ */
+class LoadServiceTest {
+
+    private MigrationTaskScopes taskScopes;
+    private JdbcDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private LoadService loadService;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE customers (id BIGINT PRIMARY KEY, name VARCHAR(10) NOT NULL)");
+
+        taskScopes = new MigrationTaskScopes();
+        loadService = new LoadService(Map.of("target", dataSource),
+            new AdaptiveBatchControllerRegistry(new SimpleMeterRegistry()), taskScopes);
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskScopes.shutdown();
+    }
+
+    @Test
+    @DisplayName("Staged loads fill the staging table through batched inserts, keeping rejects and chunk progress")
+    void testStagedLoad() {
+        String staging = StagingTableManager.stagingTableName("customers", 3L);
+        jdbc.execute("CREATE TABLE " + staging + " (id BIGINT PRIMARY KEY, name VARCHAR(10) NOT NULL)");
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (long i = 1; i <= 50; i++) {
+            data.add(record(i, i == 20 ? null : "C" + i));
+        }
+        Map<String, MigrationModels.LoadedChunks> committed = new HashMap<>();
+        LoadService.LoadContext context = context(data, LoadService.LoadStrategy.STAGED);
+        context.setChunkProgress(progress(committed));
+
+        LoadService.LoadResult result = loadService.loadBatch(context);
+
+        assertTrue(result.isSuccess());
+        assertEquals(49, result.getRecordsLoaded());
+        assertEquals(List.of(20L), result.getRejectedRecords().stream().map(r -> r.getRecord().get("id")).toList());
+        assertEquals(49, jdbc.queryForObject("SELECT COUNT(*) FROM " + staging, Integer.class));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM customers", Integer.class));
+        assertEquals(50, committed.get("load-customers-0").getOffset());
+    }
+
+    @Test
+    @DisplayName("A fail-fast staged load without its staging table fails instead of reporting success")
+    void testStagedLoadWithoutStagingTable() {
+        LoadService.LoadContext context = context(List.of(record(1, "A")), LoadService.LoadStrategy.STAGED);
+        context.setFailFast(true);
+
+        LoadService.LoadResult result = loadService.loadBatch(context);
+
+        assertFalse(result.isSuccess());
+        assertNotNull(result.getErrorMessage());
+    }
+
+    @Test
+    @DisplayName("A retried batch resumes after the chunks an earlier attempt committed")
+    void testRetryResumesAfterCommittedChunks() {
+        LoadService chunked = chunkedLoadService(dataSource);
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (long i = 1; i <= 250; i++) {
+            data.add(record(i, i == 150 ? null : "C" + i));
+        }
+        Map<String, MigrationModels.LoadedChunks> committed = new HashMap<>();
+
+        // The first chunk commits, the second fails the whole attempt
+        LoadService.LoadContext first = context(data, LoadService.LoadStrategy.BATCH);
+        first.setChunkProgress(progress(committed));
+        first.setFailFast(true);
+        assertFalse(chunked.loadBatch(first).isSuccess());
+        assertEquals(100, committed.get("load-customers-0").getOffset());
+        assertEquals(100, jdbc.queryForObject("SELECT COUNT(*) FROM customers", Integer.class));
+
+        data.get(149).put("name", "C150");
+        LoadService.LoadContext retry = context(data, LoadService.LoadStrategy.BATCH);
+        retry.setChunkProgress(progress(committed));
+        LoadService.LoadResult result = chunked.loadBatch(retry);
+
+        assertTrue(result.isSuccess());
+        assertEquals(250, result.getRecordsLoaded());
+        assertTrue(result.getRejectedRecords().isEmpty());
+        assertEquals(250, jdbc.queryForObject("SELECT COUNT(*) FROM customers", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Records rejected by the committed chunks of an earlier attempt are still reported")
+    void testRetryKeepsEarlierRejects() {
+        LoadService chunked = chunkedLoadService(dataSource);
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (long i = 1; i <= 150; i++) {
+            data.add(record(i, i == 30 ? null : "C" + i));
+        }
+        Map<String, MigrationModels.LoadedChunks> committed = new HashMap<>();
+        // Only the first chunk is recorded, as if the attempt died after it
+        LoadService.LoadContext first = context(data, LoadService.LoadStrategy.BATCH);
+        first.setChunkProgress(progress(committed, 1));
+        chunked.loadBatch(first);
+        jdbc.update("DELETE FROM customers WHERE id > 100");
+
+        LoadService.LoadContext retry = context(data, LoadService.LoadStrategy.BATCH);
+        retry.setChunkProgress(progress(committed));
+        LoadService.LoadResult result = chunked.loadBatch(retry);
+
+        assertEquals(149, result.getRecordsLoaded());
+        assertEquals(1, result.getFailedRecords());
+        assertEquals(List.of(30L), result.getRejectedRecords().stream().map(r -> r.getRecord().get("id")).toList());
+        assertEquals(149, jdbc.queryForObject("SELECT COUNT(*) FROM customers", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Each chunk commits on its own, even inside a caller's transaction on the target")
+    void testChunksCommitInsideCallerTransaction() {
+        LoadService chunked = chunkedLoadService(dataSource);
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (long i = 1; i <= 250; i++) {
+            data.add(record(i, i == 150 ? null : "C" + i));
+        }
+        LoadService.LoadContext context = context(data, LoadService.LoadStrategy.BATCH);
+        context.setFailFast(true);
+
+        TransactionTemplate caller = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        LoadService.LoadResult result = caller.execute(status -> {
+            LoadService.LoadResult loaded = chunked.loadBatch(context);
+            status.setRollbackOnly();
+            return loaded;
+        });
+
+        assertFalse(result.isSuccess());
+        // Rolling back the caller's transaction leaves the committed chunk in place
+        assertEquals(100, jdbc.queryForObject("SELECT COUNT(*) FROM customers", Integer.class));
+    }
+
+    @Test
+    @DisplayName("A chunk picked as a deadlock victim is retried and commits once")
+    void testDeadlockRetried() {
+        AtomicInteger deadlocks = new AtomicInteger(2);
+        LoadService deadlocking = chunkedLoadService(deadlocking(deadlocks));
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (long i = 1; i <= 10; i++) {
+            data.add(record(i, "C" + i));
+        }
+
+        LoadService.LoadResult result = deadlocking.loadBatch(context(data, LoadService.LoadStrategy.BATCH));
+
+        assertTrue(result.isSuccess());
+        assertEquals(10, result.getRecordsLoaded());
+        assertTrue(deadlocks.get() < 0);
+        assertEquals(10, jdbc.queryForObject("SELECT COUNT(*) FROM customers", Integer.class));
+    }
+
+    @Test
+    @DisplayName("A chunk that stays a deadlock victim fails the batch instead of rejecting its records")
+    void testDeadlockRetriesExhausted() {
+        LoadService deadlocking = chunkedLoadService(deadlocking(new AtomicInteger(100)));
+
+        LoadService.LoadResult result = deadlocking.loadBatch(
+            context(List.of(record(1, "A"), record(2, "B")), LoadService.LoadStrategy.BATCH));
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getRejectedRecords().isEmpty());
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM customers", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Parallel loads route records by key hash and a retry keeps the first attempt's split")
+    void testKeyHashPartitions() {
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (long i = 1; i <= 100; i++) {
+            data.add(record(i, "C" + i));
+        }
+        Map<String, MigrationModels.LoadedChunks> committed = new HashMap<>();
+        LoadService.LoadContext context = context(data, LoadService.LoadStrategy.PARALLEL);
+        context.setParallelism(4);
+        context.setChunkProgress(progress(committed));
+
+        LoadService.LoadResult result = loadService.loadBatch(context);
+
+        assertTrue(result.isSuccess());
+        assertEquals(100, result.getRecordsLoaded());
+        assertEquals(4, committed.get("load-customers-0").getPartitions());
+        List<List<Map<String, Object>>> expected = KeyHashPartitioner.partition(data, List.of("id"), 4);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(expected.get(i).size(), committed.get("load-customers-0_" + i).getOffset());
+        }
+
+        LoadService.LoadContext retry = context(data, LoadService.LoadStrategy.PARALLEL);
+        retry.setParallelism(2);
+        retry.setChunkProgress(progress(committed));
+        LoadService.LoadResult retried = loadService.loadBatch(retry);
+
+        // Every partition resumes at its end, so nothing is written twice
+        assertTrue(retried.isSuccess());
+        assertEquals(100, retried.getRecordsLoaded());
+        assertEquals(100, jdbc.queryForObject("SELECT COUNT(*) FROM customers", Integer.class));
+    }
+
+    /**
+     * Chunk progress kept in a map, as the checkpoint keeps it between attempts
+     */
+    static LoadService.ChunkProgress progress(Map<String, MigrationModels.LoadedChunks> committed) {
+        return progress(committed, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Chunk progress that keeps only the first {@code recordLimit} records of each batch, as
+     * if the attempt died after them
+     */
+    static LoadService.ChunkProgress progress(Map<String, MigrationModels.LoadedChunks> committed, int recordLimit) {
+        Map<String, Integer> recorded = new HashMap<>();
+        return new LoadService.ChunkProgress() {
+            @Override
+            public MigrationModels.LoadedChunks committed(String batchId) {
+                return committed.get(batchId);
+            }
+
+            @Override
+            public void record(String batchId, MigrationModels.LoadedChunks chunks) {
+                if (recorded.merge(batchId, 1, Integer::sum) <= recordLimit) {
+                    committed.put(batchId, chunks);
+                }
+            }
+        };
+    }
+
+    /**
+     * Load service whose chunks hold 100 records
+     */
+    private LoadService chunkedLoadService(DataSource target) {
+        AdaptiveBatchControllerRegistry registry = new AdaptiveBatchControllerRegistry(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(registry, "initialBatchSize", 100);
+        LoadService service = new LoadService(Map.of("target", target), registry, taskScopes);
+        ReflectionTestUtils.setField(service, "deadlockBackoffMs", 1L);
+        return service;
+    }
+
+    /**
+     * The test database, except that batch executions fail as deadlock victims while
+     * {@code deadlocks} is positive
+     */
+    private DataSource deadlocking(AtomicInteger deadlocks) {
+        return intercept(DataSource.class, dataSource, (target, method, args) -> {
+            Object connection = method.invoke(target, args);
+            if (!(connection instanceof Connection)) {
+                return connection;
+            }
+            return intercept(Connection.class, (Connection) connection, (con, conMethod, conArgs) -> {
+                Object statement = conMethod.invoke(con, conArgs);
+                if (!(statement instanceof PreparedStatement)) {
+                    return statement;
+                }
+                return intercept(PreparedStatement.class, (PreparedStatement) statement, (ps, psMethod, psArgs) -> {
+                    if (psMethod.getName().equals("executeBatch") && deadlocks.getAndDecrement() > 0) {
+                        throw new SQLException("Deadlock found when trying to get lock", "40001");
+                    }
+                    return psMethod.invoke(ps, psArgs);
+                });
+            });
+        });
+    }
+
+    private interface Interceptor<T> {
+        Object invoke(T target, Method method, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T intercept(Class<T> type, T target, Interceptor<T> interceptor) {
+        return (T) Proxy.newProxyInstance(LoadServiceTest.class.getClassLoader(), new Class<?>[] {type},
+            (proxy, method, args) -> {
+                try {
+                    return interceptor.invoke(target, method, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+
+    private static LoadService.LoadContext context(List<Map<String, Object>> data, LoadService.LoadStrategy strategy) {
+        LoadService.LoadContext context = new LoadService.LoadContext();
+        context.setMigrationId(3L);
+        context.setBatchId("load-customers-0");
+        context.setTargetSystem("target");
+        context.setTargetTable("customers");
+        context.setColumns(List.of("id", "name"));
+        context.setKeyColumns(List.of("id"));
+        context.setData(data);
+        context.setStrategy(strategy);
+        return context;
+    }
+
+    private static Map<String, Object> record(long id, String name) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("id", id);
+        record.put("name", name);
+        return record;
+    }
+}
@@ -0,0 +1,174 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.domain.migration.Migration;
+import com.jivs.platform.domain.migration.MigrationBatchData;
+import com.jivs.platform.repository.MigrationBatchDataRepository;
+import com.jivs.platform.security.SqlInjectionValidator;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for handing the rows of a batch from one migration phase to the next
+ */
+class MigrationBatchStoreTest {
+
+    private MigrationBatchDataRepository repository;
+    private MigrationBatchStore store;
+    private JdbcDataSource dataSource;
+    private Migration migration;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE customers (id BIGINT PRIMARY KEY, name VARCHAR(20))");
+        // Inserted out of key order, so only the ORDER BY keeps pages stable
+        for (int id : new int[]{5, 1, 4, 2, 3}) {
+            jdbc.update("INSERT INTO customers VALUES (?, ?)", id, "customer" + id);
+        }
+
+        repository = mock(MigrationBatchDataRepository.class);
+        when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        store = new MigrationBatchStore(repository, Map.of("source", dataSource), new SqlInjectionValidator());
+
+        migration = new Migration();
+        migration.setId(9L);
+        migration.setSourceSystem("source");
+    }
+
+    @Test
+    @DisplayName("Extraction pages of a table follow its key and cover every row once")
+    void testReadSourcePages() {
+        List<Object> ids = new ArrayList<>();
+        for (int offset = 0; offset < 5; offset += 2) {
+            ids.addAll(store.readSource(migration, extraction(offset, 2)).stream().map(r -> r.get("ID")).toList());
+        }
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids);
+        assertEquals("customer3", store.readSource(migration, extraction(2, 1)).get(0).get("NAME"));
+    }
+
+    @Test
+    @DisplayName("Key ranges page a table through its key, reading rows added after planning")
+    void testKeyRangePages() {
+        List<MigrationModels.ExtractionTask> tasks = List.of(extraction(0, 2), extraction(2, 2), extraction(4, 2));
+        store.assignKeyRanges(migration, tasks);
+
+        assertEquals(List.of(2L), tasks.get(0).getParameters().get("through"));
+        assertEquals(List.of(4L), tasks.get(2).getParameters().get("after"));
+        assertNull(tasks.get(2).getParameters().get("through"));
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("INSERT INTO customers VALUES (0, 'customer0')");
+        jdbc.update("INSERT INTO customers VALUES (6, 'customer6')");
+        List<List<Object>> pages = new ArrayList<>();
+        for (MigrationModels.ExtractionTask task : tasks) {
+            pages.add(store.readSource(migration, task).stream().map(r -> r.get("ID")).toList());
+        }
+
+        assertEquals(List.of(List.of(0L, 1L, 2L), List.of(3L, 4L), List.of(5L, 6L)), pages);
+    }
+
+    @Test
+    @DisplayName("Composite keys page through every key column")
+    void testCompositeKeyRangePages() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE lines (order_id BIGINT, line INT, PRIMARY KEY (order_id, line))");
+        for (int order = 1; order <= 3; order++) {
+            for (int line = 1; line <= 3; line++) {
+                jdbc.update("INSERT INTO lines VALUES (?, ?)", order, line);
+            }
+        }
+        List<MigrationModels.ExtractionTask> tasks = new ArrayList<>();
+        for (int offset = 0; offset < 9; offset += 4) {
+            MigrationModels.ExtractionTask task = extraction(offset, 4);
+            task.setSourceTable("lines");
+            task.setParameters(new HashMap<>(Map.of("table", "lines", "orderBy", "order_id,line")));
+            tasks.add(task);
+        }
+        store.assignKeyRanges(migration, tasks);
+
+        List<Integer> sizes = new ArrayList<>();
+        for (MigrationModels.ExtractionTask task : tasks) {
+            sizes.add(store.readSource(migration, task).size());
+        }
+
+        assertEquals(List.of(4, 4, 1), sizes);
+    }
+
+    @Test
+    @DisplayName("Stored rows read back with their values and types, replacing an earlier attempt")
+    void testStoreAndRead() {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("id", 7L);
+        record.put("amount", new BigDecimal("12.50"));
+        record.put("created", Timestamp.valueOf("2024-03-01 10:15:00"));
+        record.put("note", null);
+        store.store(9L, "transform-customers-0", List.of(record));
+
+        verify(repository).deleteByBatch(9L, "transform-customers-0");
+        MigrationBatchData saved = captured();
+        assertEquals(1, saved.getRecordCount());
+        when(repository.findByMigrationIdAndBatchId(9L, "transform-customers-0")).thenReturn(Optional.of(saved));
+
+        List<Map<String, Object>> read = store.read(9L, "transform-customers-0");
+        assertEquals(List.of(record), read);
+        assertEquals(new BigDecimal("12.50"), read.get(0).get("amount"));
+    }
+
+    @Test
+    @DisplayName("Columns mixing value types read back with each value's own type")
+    void testMixedTypes() {
+        Map<String, Object> small = new LinkedHashMap<>();
+        small.put("id", 1);
+        small.put("amount", 3);
+        Map<String, Object> large = new LinkedHashMap<>();
+        large.put("id", 5_000_000_000L);
+        large.put("amount", new BigDecimal("2.75"));
+        store.store(9L, "transform-customers-1", List.of(small, large));
+        when(repository.findByMigrationIdAndBatchId(9L, "transform-customers-1")).thenReturn(Optional.of(captured()));
+
+        List<Map<String, Object>> read = store.read(9L, "transform-customers-1");
+
+        assertEquals(List.of(small, large), read);
+        assertEquals(5_000_000_000L, read.get(1).get("id"));
+        assertEquals(new BigDecimal("2.75"), read.get(1).get("amount"));
+    }
+
+    @Test
+    @DisplayName("Reading a batch that was never stored fails")
+    void testMissingBatch() {
+        when(repository.findByMigrationIdAndBatchId(eq(9L), any())).thenReturn(Optional.empty());
+
+        assertThrows(IllegalStateException.class, () -> store.read(9L, "extract-customers-0"));
+    }
+
+    private MigrationBatchData captured() {
+        org.mockito.ArgumentCaptor<MigrationBatchData> captor = org.mockito.ArgumentCaptor.forClass(MigrationBatchData.class);
+        verify(repository).save(captor.capture());
+        return captor.getValue();
+    }
+
+    private static MigrationModels.ExtractionTask extraction(int offset, int batchSize) {
+        MigrationModels.ExtractionTask task = new MigrationModels.ExtractionTask();
+        task.setId("extract-customers-" + offset);
+        task.setSourceTable("customers");
+        task.setOffset(offset);
+        task.setBatchSize(batchSize);
+        task.setParameters(new HashMap<>(Map.of("table", "customers", "orderBy", "id")));
+        return task;
+    }
+}
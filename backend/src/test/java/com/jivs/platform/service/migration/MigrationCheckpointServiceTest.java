@@ -0,0 +1,165 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.domain.migration.Migration;
+import com.jivs.platform.domain.migration.MigrationLoadProgress;
+import com.jivs.platform.domain.migration.MigrationPhase;
+import com.jivs.platform.repository.MigrationLoadProgressRepository;
+import com.jivs.platform.repository.MigrationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for durable batch checkpoints, their compaction and resume after a restart
+ */
+class MigrationCheckpointServiceTest {
+
+    private MigrationRepository repository;
+    private MigrationLoadProgressRepository progressRepository;
+    private PlatformTransactionManager transactionManager;
+    private Map<String, MigrationLoadProgress> progressRows;
+    private Migration migration;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(MigrationRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        progressRows = new HashMap<>();
+        progressRepository = mock(MigrationLoadProgressRepository.class);
+        when(progressRepository.findByMigrationIdAndBatchId(eq(5L), anyString()))
+            .thenAnswer(invocation -> Optional.ofNullable(progressRows.get(invocation.<String>getArgument(1))));
+        when(progressRepository.save(any())).thenAnswer(invocation -> {
+            MigrationLoadProgress row = invocation.getArgument(0);
+            progressRows.put(row.getBatchId(), row);
+            return row;
+        });
+
+        migration = new Migration();
+        migration.setId(5L);
+    }
+
+    @Test
+    @DisplayName("A committed batch is written to the checkpoint and skipped afterwards")
+    void testCommitBatch() {
+        MigrationCheckpointService service = service();
+        service.begin(migration);
+
+        service.commitBatch(migration, MigrationPhase.EXTRACTION, 0, "extract-a-0", "100", 100);
+        service.commitBatch(migration, MigrationPhase.EXTRACTION, 1, "extract-a-1", "200", 100, 2);
+
+        assertTrue(service.isBatchCommitted(migration, MigrationPhase.EXTRACTION, 0));
+        assertTrue(service.isBatchCommitted(migration, MigrationPhase.EXTRACTION, 1));
+        assertFalse(service.isBatchCommitted(migration, MigrationPhase.EXTRACTION, 2));
+        assertEquals(2, service.committedBatchCount(migration, MigrationPhase.EXTRACTION));
+        MigrationModels.PhaseCheckpoint phase = migration.getCheckpoint().getPhases().get("EXTRACTION");
+        assertEquals(1, phase.getLastCommittedBatch());
+        assertEquals("200", phase.getWatermark());
+        assertEquals(200, phase.getRecordsCommitted());
+        assertEquals(2, phase.getFailedRecordsCommitted());
+        verify(repository, times(2)).updateCheckpointState(eq(5L), anyString());
+    }
+
+    @Test
+    @DisplayName("Batches committed behind a failed one are kept as a range, not one by one")
+    void testWatermarkCompaction() {
+        MigrationCheckpointService service = service();
+        service.begin(migration);
+
+        service.commitBatch(migration, MigrationPhase.LOADING, 0, "load-a-0", null, 10);
+        // Batch 1 fails; the rest commit past it
+        for (int i = 2; i <= 101; i++) {
+            service.commitBatch(migration, MigrationPhase.LOADING, i, "load-a-" + i, null, 10);
+        }
+
+        assertEquals(101, service.committedBatchCount(migration, MigrationPhase.LOADING));
+        assertFalse(service.isBatchCommitted(migration, MigrationPhase.LOADING, 1));
+        assertTrue(migration.getCheckpointState().contains("\"pendingBatches\":[[2,101]]"));
+        assertEquals(0, migration.getCheckpoint().getPhases().get("LOADING").getLastCommittedBatch());
+
+        service.commitBatch(migration, MigrationPhase.LOADING, 1, "load-a-1", null, 10);
+
+        assertEquals(101, migration.getCheckpoint().getPhases().get("LOADING").getLastCommittedBatch());
+        assertTrue(migration.getCheckpointState().contains("\"pendingBatches\":[]"));
+    }
+
+    @Test
+    @DisplayName("A restarted node resumes at the committed batches and chunks")
+    void testResumeAfterRestart() {
+        MigrationCheckpointService before = service();
+        before.begin(migration);
+        before.commitBatch(migration, MigrationPhase.LOADING, 0, "load-order_items-0", null, 10);
+        before.commitBatch(migration, MigrationPhase.LOADING, 2, "load-order_items-2", null, 10);
+        MigrationModels.LoadedChunks chunks = new MigrationModels.LoadedChunks();
+        chunks.setOffset(50);
+        chunks.setLoaded(49);
+        chunks.getRejected().put(20, "value too long");
+        before.chunkProgress(5L).record("load-order_items-1", chunks);
+
+        Migration restarted = new Migration();
+        restarted.setId(5L);
+        restarted.setCheckpointState(migration.getCheckpointState());
+        MigrationCheckpointService after = service();
+        after.begin(restarted);
+
+        assertTrue(after.isBatchCommitted(restarted, MigrationPhase.LOADING, 0));
+        assertFalse(after.isBatchCommitted(restarted, MigrationPhase.LOADING, 1));
+        assertTrue(after.isBatchCommitted(restarted, MigrationPhase.LOADING, 2));
+        MigrationModels.LoadedChunks resumed = after.chunkProgress(5L).committed("load-order_items-1");
+        assertEquals(50, resumed.getOffset());
+        assertEquals(49, resumed.getLoaded());
+        assertEquals("value too long", resumed.getRejected().get(20));
+
+        after.commitBatch(restarted, MigrationPhase.LOADING, 1, "load-order_items-1", null, 10);
+
+        assertEquals(2, restarted.getCheckpoint().getPhases().get("LOADING").getLastCommittedBatch());
+        // Table names may hold LIKE wildcards; only the batch and its "_<n>" partitions go
+        verify(progressRepository).deleteByBatch(5L, "load-order_items-1", "load-order!_items-1!_%");
+    }
+
+    @Test
+    @DisplayName("Checkpoints written before compaction and chunk rows still resume")
+    void testOlderCheckpoint() {
+        migration.setCheckpointState("{\"currentPhase\":\"LOADING\",\"phases\":{\"LOADING\":{"
+            + "\"committedTaskIds\":[\"load-a-0\",\"load-a-1\",\"load-a-3\"],"
+            + "\"pendingBatches\":[3],\"lastCommittedBatch\":1,\"recordsCommitted\":30}},"
+            + "\"loadedChunks\":{\"load-a-2\":{\"offset\":40,\"loaded\":40,\"rejected\":{},\"partitions\":0}}}");
+        MigrationCheckpointService service = service();
+
+        service.begin(migration);
+
+        assertTrue(service.isBatchCommitted(migration, MigrationPhase.LOADING, 1));
+        assertFalse(service.isBatchCommitted(migration, MigrationPhase.LOADING, 2));
+        assertTrue(service.isBatchCommitted(migration, MigrationPhase.LOADING, 3));
+        assertEquals(40, service.chunkProgress(5L).committed("load-a-2").getOffset());
+    }
+
+    @Test
+    @DisplayName("Recording chunk progress never writes the checkpoint")
+    void testChunkProgressLeavesCheckpoint() {
+        MigrationCheckpointService service = service();
+        MigrationModels.LoadedChunks chunks = new MigrationModels.LoadedChunks();
+        chunks.setOffset(10);
+
+        // A worker node that does not coordinate the run
+        service.chunkProgress(5L).record("load-a-0", chunks);
+        chunks.setOffset(20);
+        service.chunkProgress(5L).record("load-a-0", chunks);
+
+        assertEquals(20, service.chunkProgress(5L).committed("load-a-0").getOffset());
+        assertEquals(1, progressRows.size());
+        verify(repository, never()).updateCheckpointState(anyLong(), any());
+    }
+
+    private MigrationCheckpointService service() {
+        return new MigrationCheckpointService(repository, progressRepository, transactionManager);
+    }
+}
@@ -0,0 +1,151 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.domain.migration.Migration;
+import com.jivs.platform.domain.migration.MigrationMetrics;
+import com.jivs.platform.domain.migration.MigrationPhase;
+import com.jivs.platform.event.MigrationEventPublisher;
+import com.jivs.platform.repository.MigrationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for lock-free progress counters, their periodic flush and recovery after a crash
+ */
+class MigrationMetricsAccumulatorTest {
+
+    private MigrationRepository repository;
+    private MigrationEventPublisher publisher;
+    private MigrationMetricsAccumulator accumulator;
+    private Migration migration;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(MigrationRepository.class);
+        publisher = mock(MigrationEventPublisher.class);
+        accumulator = new MigrationMetricsAccumulator(repository, publisher, mock(PlatformTransactionManager.class));
+
+        migration = new Migration();
+        migration.setId(5L);
+        migration.setPhase(MigrationPhase.PLANNING);
+        migration.setMetrics(new MigrationMetrics());
+    }
+
+    @Test
+    @DisplayName("Concurrent workers never lose an increment")
+    void testConcurrentRecording() throws Exception {
+        accumulator.begin(migration);
+        accumulator.enterPhase(5L, MigrationPhase.LOADING);
+
+        ExecutorService workers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int worker = t;
+                futures.add(workers.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        accumulator.recordBatch(5L, MigrationPhase.LOADING, "load-" + worker + "-" + i, 3, i % 100 == 0 ? 1 : 0);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            workers.shutdown();
+        }
+
+        MigrationMetricsAccumulator.LiveMetrics metrics = accumulator.get(5L);
+        assertEquals(240_000, metrics.records(MigrationPhase.LOADING));
+        assertEquals(800, metrics.failedRecords());
+        assertEquals(240_000, metrics.processedRecords());
+    }
+
+    @Test
+    @DisplayName("A flush writes only the metrics columns and publishes progress, once per change")
+    void testFlush() {
+        accumulator.begin(migration);
+        accumulator.setTotalRecords(5L, 1000);
+        accumulator.enterPhase(5L, MigrationPhase.EXTRACTION);
+        accumulator.recordBatch(5L, MigrationPhase.EXTRACTION, "extract-a-0", 250, 0);
+
+        accumulator.flushAll();
+        accumulator.flushAll();
+
+        verify(repository, times(1)).updateMetrics(5L, 250, 0, 0, 250, 0, 0);
+        verify(repository, never()).save(any());
+        verify(publisher, times(1)).publishProgressUpdate("5", 25, 250L, 1000L, "EXTRACTION");
+
+        accumulator.recordBatch(5L, MigrationPhase.EXTRACTION, "extract-a-1", 250, 0);
+        accumulator.flushAll();
+        verify(publisher).publishProgressUpdate("5", 50, 500L, 1000L, "EXTRACTION");
+    }
+
+    @Test
+    @DisplayName("A resumed run counts from the checkpoint, not the older last flush")
+    void testRecoveryAfterCrash() {
+        // Last flush saw 100 extracted records; the checkpoint committed 300 before the crash.
+        // The flush also counted 3 failures of an attempt of batch 3, which runs again.
+        migration.getMetrics().setTotalRecords(1000);
+        migration.getMetrics().setExtractedRecords(100);
+        migration.getMetrics().setFailedRecords(10);
+        MigrationModels.MigrationCheckpoint checkpoint = new MigrationModels.MigrationCheckpoint();
+        checkpoint.phase("EXTRACTION").commitBatch(0, "100", 100);
+        checkpoint.phase("EXTRACTION").commitBatch(1, "200", 100, 7);
+        checkpoint.phase("EXTRACTION").commitBatch(2, "300", 100);
+        migration.setCheckpoint(checkpoint);
+        migration.setPhase(MigrationPhase.EXTRACTION);
+
+        accumulator.begin(migration);
+        accumulator.recordBatch(5L, MigrationPhase.EXTRACTION, "extract-a-3", 100, 0);
+        accumulator.end(migration);
+
+        assertEquals(400, migration.getMetrics().getExtractedRecords());
+        assertEquals(7, migration.getMetrics().getFailedRecords());
+        assertEquals(400, migration.getMetrics().getProcessedRecords());
+        verify(repository).updateMetrics(5L, 400, 0, 0, 400, 0, 7);
+        assertNull(accumulator.get(5L));
+    }
+
+    @Test
+    @DisplayName("A retried batch counts the failed records of its last attempt only")
+    void testRetriedBatchFailures() {
+        accumulator.begin(migration);
+        accumulator.enterPhase(5L, MigrationPhase.LOADING);
+
+        accumulator.recordBatch(5L, MigrationPhase.LOADING, "load-a-0", 0, 5);
+        accumulator.recordBatch(5L, MigrationPhase.LOADING, "load-a-0", 0, 5);
+        accumulator.recordBatch(5L, MigrationPhase.LOADING, "load-a-1", 100, 3);
+        assertEquals(8, accumulator.get(5L).failedRecords());
+
+        accumulator.recordBatch(5L, MigrationPhase.LOADING, "load-a-0", 98, 2);
+        accumulator.recordBatch(5L, MigrationPhase.TRANSFORMATION, "load-a-0", 0, 1);
+        assertEquals(6, accumulator.get(5L).failedRecords());
+
+        accumulator.recordBatch(5L, MigrationPhase.LOADING, "load-a-1", 100, 0);
+        accumulator.end(migration);
+        assertEquals(3, migration.getMetrics().getFailedRecords());
+        assertEquals(298, migration.getMetrics().getLoadedRecords());
+    }
+
+    @Test
+    @DisplayName("Batches reported after a run ended are ignored")
+    void testRecordAfterEnd() {
+        accumulator.begin(migration);
+        accumulator.end(migration);
+
+        assertDoesNotThrow(() -> accumulator.recordBatch(5L, MigrationPhase.LOADING, "load-a-0", 10, 0));
+        accumulator.flushAll();
+        verify(repository, never()).updateMetrics(anyLong(), anyInt(), anyInt(), anyInt(), anyInt(), anyInt(), anyInt());
+    }
+}
@@ -0,0 +1,225 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.domain.migration.Migration;
+import com.jivs.platform.domain.migration.MigrationPhase;
+import com.jivs.platform.domain.migration.MigrationThroughputSample;
+import com.jivs.platform.repository.MigrationThroughputRepository;
+import com.jivs.platform.security.SqlInjectionValidator;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.UnexpectedRollbackException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for catalog-driven planning, history-driven concurrency and online ETA refinement
+ */
+class MigrationPlannerTest {
+
+    private MigrationPlanner planner;
+    private MigrationThroughputRepository throughputRepository;
+    private PlatformTransactionManager transactionManager;
+    private Migration migration;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource source = dataSource();
+        JdbcDataSource target = dataSource();
+        JdbcTemplate sourceJdbc = new JdbcTemplate(source);
+        JdbcTemplate targetJdbc = new JdbcTemplate(target);
+
+        sourceJdbc.execute("CREATE TABLE customers (id BIGINT PRIMARY KEY, name VARCHAR(100))");
+        sourceJdbc.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, "
+            + "customer_id BIGINT REFERENCES customers(id), amount DECIMAL(10, 2))");
+        for (int i = 1; i <= 200; i++) {
+            sourceJdbc.update("INSERT INTO customers VALUES (?, ?)", i, "Customer " + i);
+        }
+        for (int i = 1; i <= 50; i++) {
+            sourceJdbc.update("INSERT INTO orders VALUES (?, ?, 10.00)", i, i);
+        }
+
+        // The target customers table is empty; orders already holds a row
+        targetJdbc.execute("CREATE TABLE customers (id BIGINT PRIMARY KEY, name VARCHAR(100))");
+        targetJdbc.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, customer_id BIGINT, amount DECIMAL(10, 2))");
+        targetJdbc.update("INSERT INTO orders VALUES (1, 1, 10.00)");
+
+        throughputRepository = mock(MigrationThroughputRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        planner = new MigrationPlanner(Map.of("source", source, "target", target),
+            throughputRepository, new SqlInjectionValidator(), transactionManager);
+        ReflectionTestUtils.setField(planner, "targetBatchBytes", 1000L);
+        ReflectionTestUtils.setField(planner, "minBatchRows", 10);
+        ReflectionTestUtils.setField(planner, "bulkThresholdRows", 100L);
+
+        migration = new Migration();
+        migration.setId(1L);
+        migration.setSourceSystem("source");
+        migration.setTargetSystem("target");
+        migration.setParallelism(4);
+        migration.setParameters(new HashMap<>(Map.of("tables", "orders,customers")));
+    }
+
+    @Test
+    @DisplayName("Source tables are sized from the catalog and ordered parents first")
+    void testAnalyzeSource() {
+        MigrationModels.SourceAnalysis analysis = planner.analyzeSource(migration);
+
+        assertEquals(List.of("customers", "orders"), analysis.getDependencies());
+        assertEquals(200, analysis.getTables().get("customers").getRecordCount());
+        assertEquals(50, analysis.getTables().get("orders").getRecordCount());
+        assertEquals(250, analysis.getTotalRecords());
+        assertTrue(analysis.getTotalSize() > 0);
+        assertEquals(List.of("ID"), analysis.getTables().get("customers").getPrimaryKeys());
+    }
+
+    @Test
+    @DisplayName("Tables are split into byte-sized batches with a load strategy per table")
+    void testPlan() {
+        MigrationModels.SourceAnalysis source = planner.analyzeSource(migration);
+        MigrationModels.TargetAnalysis target = planner.analyzeTarget(migration, source);
+
+        MigrationModels.MigrationPlan plan = planner.plan(migration, source, target);
+
+        int customerBatchRows = planner.batchRows(source.getTables().get("customers"));
+        int orderBatchRows = planner.batchRows(source.getTables().get("orders"));
+        int expectedBatches = (200 + customerBatchRows - 1) / customerBatchRows + (50 + orderBatchRows - 1) / orderBatchRows;
+        assertTrue(customerBatchRows < 200, "1000-byte batches split the customers table");
+        assertEquals(expectedBatches, plan.getExtractionTasks().size());
+        assertEquals(expectedBatches, plan.getLoadTasks().size());
+        assertEquals("extract-customers-0", plan.getExtractionTasks().get(0).getId());
+        assertEquals(customerBatchRows, plan.getExtractionTasks().get(1).getOffset());
+
+        // Empty target table gets batched inserts (bulk is opt-in); populated keyed table gets upserts
+        assertEquals("BATCH", plan.getLoadTasks().get(0).getLoadStrategy());
+        MigrationModels.LoadTask lastLoad = plan.getLoadTasks().get(plan.getLoadTasks().size() - 1);
+        assertEquals("orders", lastLoad.getTargetTable());
+        assertEquals("UPSERT", lastLoad.getLoadStrategy());
+        assertEquals("ID", lastLoad.getParameters().get("keyColumn"));
+
+        // No history: the requested parallelism and default per-worker rates
+        MigrationModels.PhaseEstimate extraction = plan.getPhaseEstimates().get(0);
+        assertEquals("EXTRACTION", extraction.getPhase());
+        assertEquals(4, extraction.getConcurrency());
+        assertEquals(20000, extraction.getRecordsPerSecond(), 0.001);
+        assertEquals(4, planner.concurrencyFor(migration, plan, MigrationPhase.LOADING));
+
+        MigrationModels.ResourceEstimation resources = planner.estimateResources(migration, source, plan);
+        assertTrue(resources.getEstimatedMemory() > 0);
+        assertEquals("defaults", resources.getRecommendations().get("basis"));
+        assertEquals(5, resources.getRecommendations().get("sourceConnections"));
+    }
+
+    @Test
+    @DisplayName("Concurrency is the smallest level within 5% of the best observed throughput")
+    void testChooseConcurrency() {
+        List<MigrationThroughputSample> samples = List.of(
+            sample(4, 4000), sample(8, 7800), sample(16, 8000));
+
+        assertEquals(8, MigrationPlanner.chooseConcurrency(samples, 4, 16));
+        assertEquals(7800, MigrationPlanner.predictRate(samples, 8, 1000), 0.001);
+        assertEquals(11700, MigrationPlanner.predictRate(samples, 12, 1000), 0.001);
+    }
+
+    @Test
+    @DisplayName("When the highest level tried is the best, the next plan probes further")
+    void testConcurrencyProbesUpward() {
+        List<MigrationThroughputSample> samples = List.of(sample(4, 4000));
+
+        assertEquals(6, MigrationPlanner.chooseConcurrency(samples, 4, 16));
+        assertEquals(6000, MigrationPlanner.predictRate(samples, 6, 1000), 0.001);
+        assertEquals(5, MigrationPlanner.chooseConcurrency(samples, 4, 5));
+        assertEquals(4, MigrationPlanner.chooseConcurrency(List.of(), 4, 16));
+    }
+
+    @Test
+    @DisplayName("Remaining time shifts from the prediction to the observed rate as the phase progresses")
+    void testRemainingSecondsBlendsObservedRate() {
+        MigrationModels.PhaseEstimate estimate = new MigrationModels.PhaseEstimate();
+        estimate.setRecords(1000);
+        estimate.setDurationSeconds(100);
+
+        long now = System.currentTimeMillis();
+        MigrationModels.PhaseCheckpoint early = new MigrationModels.PhaseCheckpoint();
+        early.startRun(now - 10_000);
+        early.setRecordsCommitted(50);
+        // 5% done: a quarter observed (190 s), three quarters predicted (95 s)
+        assertEquals(118.75, planner.remainingSeconds(estimate, early, now), 0.01);
+
+        MigrationModels.PhaseCheckpoint halfway = new MigrationModels.PhaseCheckpoint();
+        halfway.startRun(now - 10_000);
+        halfway.setRecordsCommitted(500);
+        // Past 20% the observed rate alone decides: 10 s for the second half
+        assertEquals(10, planner.remainingSeconds(estimate, halfway, now), 0.01);
+    }
+
+    @Test
+    @DisplayName("Staged swaps are chosen automatically only when enabled")
+    void testStagedOptIn() {
+        ReflectionTestUtils.setField(planner, "stagedThresholdRows", 100L);
+        MigrationModels.TableInfo source = tableInfo(500);
+        MigrationModels.TableInfo target = tableInfo(50);
+
+        assertEquals(LoadService.LoadStrategy.UPSERT, planner.chooseLoadStrategy(source, target));
+
+        ReflectionTestUtils.setField(planner, "autoStaged", true);
+        assertEquals(LoadService.LoadStrategy.STAGED, planner.chooseLoadStrategy(source, target));
+    }
+
+    @Test
+    @DisplayName("Bulk loads are chosen automatically only when enabled")
+    void testBulkOptIn() {
+        MigrationModels.TableInfo source = tableInfo(500);
+        MigrationModels.TableInfo target = tableInfo(0);
+
+        assertEquals(LoadService.LoadStrategy.BATCH, planner.chooseLoadStrategy(source, target));
+
+        ReflectionTestUtils.setField(planner, "autoBulk", true);
+        assertEquals(LoadService.LoadStrategy.BULK, planner.chooseLoadStrategy(source, target));
+    }
+
+    @Test
+    @DisplayName("A throughput sample that fails to commit does not fail the run")
+    void testRecordThroughputFailureContained() {
+        doThrow(new UnexpectedRollbackException("Transaction rolled back")).when(transactionManager).commit(any());
+
+        assertDoesNotThrow(() -> planner.recordThroughput(migration, MigrationPhase.LOADING, 1000, 10, 2000, 4));
+        verify(throughputRepository).save(any());
+    }
+
+    private static MigrationModels.TableInfo tableInfo(int rows) {
+        MigrationModels.TableInfo info = new MigrationModels.TableInfo();
+        info.setRecordCount(rows);
+        info.setPrimaryKeys(List.of("ID"));
+        info.setReferencedBy(List.of());
+        return info;
+    }
+
+    private static MigrationThroughputSample sample(int concurrency, long recordsPerSecond) {
+        return MigrationThroughputSample.builder()
+            .id((long) concurrency)
+            .phase("EXTRACTION")
+            .records(recordsPerSecond * 10)
+            .durationMs(10_000)
+            .concurrency(concurrency)
+            .batches(10)
+            .build();
+    }
+
+    private static JdbcDataSource dataSource() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+}
@@ -0,0 +1,172 @@
+package com.jivs.platform.service.migration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for structured virtual-thread execution of migration subtasks
+ */
+class MigrationTaskScopesTest {
+
+    private MigrationTaskScopes taskScopes;
+
+    @BeforeEach
+    void setUp() {
+        taskScopes = new MigrationTaskScopes();
+        ReflectionTestUtils.setField(taskScopes, "maxConcurrentTasks", 10000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskScopes.shutdown();
+    }
+
+    @Test
+    @DisplayName("Thousands of blocking subtasks run concurrently on virtual threads")
+    void testManyBlockingSubtasks() {
+        long start = System.nanoTime();
+        List<MigrationTaskScopes.Subtask<Integer>> subtasks = new ArrayList<>();
+
+        try (MigrationTaskScopes.PhaseScope scope = taskScopes.open(1L, "EXTRACTION")) {
+            for (int i = 0; i < 5000; i++) {
+                int value = i;
+                subtasks.add(scope.fork(() -> {
+                    Thread.sleep(200);
+                    return value;
+                }));
+            }
+            scope.join();
+        }
+
+        // Sequentially on a pool of 10 this would take well over a minute
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 20);
+        for (int i = 0; i < subtasks.size(); i++) {
+            assertEquals(MigrationTaskScopes.Subtask.State.SUCCESS, subtasks.get(i).state());
+            assertEquals(i, subtasks.get(i).get());
+        }
+    }
+
+    @Test
+    @DisplayName("A subtask past its deadline is interrupted and reported as timed out")
+    void testDeadline() {
+        ReflectionTestUtils.setField(taskScopes, "taskTimeoutMillis", 100L);
+
+        try (MigrationTaskScopes.PhaseScope scope = taskScopes.open(1L, "LOADING")) {
+            MigrationTaskScopes.Subtask<String> slow = scope.fork(() -> {
+                Thread.sleep(10_000);
+                return "late";
+            });
+            MigrationTaskScopes.Subtask<String> fast = scope.fork(() -> "done");
+            MigrationTaskScopes.Subtask<String> failing = scope.fork(() -> {
+                throw new IllegalStateException("boom");
+            });
+
+            scope.join();
+
+            assertEquals(MigrationTaskScopes.Subtask.State.TIMED_OUT, slow.state());
+            assertEquals("done", fast.get());
+            assertEquals(MigrationTaskScopes.Subtask.State.FAILED, failing.state());
+            assertThrows(IllegalStateException.class, failing::resultOrThrow);
+        }
+    }
+
+    @Test
+    @DisplayName("Completion callbacks see how each subtask ended, and the join waits for them")
+    void testWhenDone() {
+        ReflectionTestUtils.setField(taskScopes, "taskTimeoutMillis", 100L);
+        Map<String, MigrationTaskScopes.Subtask.State> states = new ConcurrentHashMap<>();
+
+        try (MigrationTaskScopes.PhaseScope scope = taskScopes.open(1L, "LOADING")) {
+            MigrationTaskScopes.Subtask<String> slow = scope.fork(() -> {
+                Thread.sleep(10_000);
+                return "late";
+            });
+            slow.whenDone(() -> states.put("slow", slow.state()));
+            MigrationTaskScopes.Subtask<String> fast = scope.fork(() -> "done");
+            fast.whenDone(() -> states.put("fast", fast.state()));
+
+            scope.join();
+        }
+
+        assertEquals(MigrationTaskScopes.Subtask.State.TIMED_OUT, states.get("slow"));
+        assertEquals(MigrationTaskScopes.Subtask.State.SUCCESS, states.get("fast"));
+    }
+
+    @Test
+    @DisplayName("A subtask cancelled before it gets to run still runs its completion callback")
+    void testWhenDoneAfterCancel() throws InterruptedException {
+        ReflectionTestUtils.setField(taskScopes, "maxConcurrentTasks", 1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger released = new AtomicInteger();
+
+        try (MigrationTaskScopes.PhaseScope scope = taskScopes.open(9L, "LOADING")) {
+            scope.fork(() -> {
+                started.countDown();
+                Thread.sleep(10_000);
+                return null;
+            }).whenDone(released::incrementAndGet);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // Waits for the only permit, so its work never starts
+            scope.fork(() -> "never").whenDone(released::incrementAndGet);
+
+            taskScopes.cancel(9L);
+
+            assertEquals(2, released.get());
+            assertThrows(MigrationModels.MigrationCancelledException.class, scope::join);
+        }
+    }
+
+    @Test
+    @DisplayName("Cancelling a migration interrupts its in-flight subtasks and fails the join")
+    void testCancelPropagates() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(3);
+        AtomicInteger interrupted = new AtomicInteger();
+
+        try (MigrationTaskScopes.PhaseScope scope = taskScopes.open(7L, "TRANSFORMATION");
+             MigrationTaskScopes.PhaseScope other = taskScopes.open(8L, "TRANSFORMATION")) {
+            for (int i = 0; i < 3; i++) {
+                scope.fork(() -> {
+                    started.countDown();
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        interrupted.incrementAndGet();
+                        throw e;
+                    }
+                    return null;
+                });
+            }
+            MigrationTaskScopes.Subtask<String> unrelated = other.fork(() -> "kept");
+
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertEquals(1, taskScopes.cancel(7L));
+
+            assertThrows(MigrationModels.MigrationCancelledException.class, scope::join);
+            assertThrows(MigrationModels.MigrationCancelledException.class, () -> scope.fork(() -> "late"));
+
+            other.join();
+            assertEquals("kept", unrelated.get());
+        }
+
+        // Cancelled futures complete at once; the interrupted threads unwind shortly after
+        long deadline = System.currentTimeMillis() + 5000;
+        while (interrupted.get() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, interrupted.get());
+        assertEquals(0, taskScopes.cancel(7L));
+    }
+}
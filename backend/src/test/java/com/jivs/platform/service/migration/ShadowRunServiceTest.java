@@ -0,0 +1,190 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.domain.migration.Migration;
+import com.jivs.platform.domain.migration.MigrationDeadLetter;
+import com.jivs.platform.domain.migration.MigrationMetrics;
+import com.jivs.platform.domain.migration.MigrationPhase;
+import com.jivs.platform.domain.migration.MigrationStatus;
+import com.jivs.platform.security.SqlInjectionValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for rehearsing a migration into a shadow schema and reporting on it
+ */
+class ShadowRunServiceTest {
+
+    private MigrationTaskScopes taskScopes;
+    private DeadLetterStore deadLetterStore;
+    private MigrationPlanner planner;
+    private ShadowRunService service;
+    private Migration migration;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE customers (id BIGINT PRIMARY KEY, name VARCHAR(100))");
+        jdbc.update("INSERT INTO customers VALUES (1, 'Acme'), (2, 'Globex'), (3, 'Initech')");
+
+        Map<String, javax.sql.DataSource> dataSources = Map.of("target", dataSource);
+        SqlInjectionValidator validator = new SqlInjectionValidator();
+        taskScopes = new MigrationTaskScopes();
+        deadLetterStore = mock(DeadLetterStore.class);
+        planner = mock(MigrationPlanner.class);
+        service = new ShadowRunService(new StagingTableManager(dataSources, validator),
+            new ChecksumReconciliationService(dataSources, validator, taskScopes),
+            deadLetterStore, planner, new AdaptiveBatchControllerRegistry(new SimpleMeterRegistry()));
+
+        migration = new Migration();
+        migration.setId(9L);
+        migration.setTargetSystem("target");
+        migration.setMetrics(new MigrationMetrics());
+        migration.setParameters(new HashMap<>(Map.of("shadow", "true")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskScopes.shutdown();
+    }
+
+    @Test
+    @DisplayName("Load tasks are redirected to empty copies of their tables in the shadow schema")
+    void testRedirect() {
+        assertTrue(service.begin(migration));
+        MigrationModels.MigrationPlan plan = plan();
+
+        service.redirect(migration, plan);
+
+        MigrationModels.LoadTask task = plan.getLoadTasks().get(0);
+        assertEquals("jivs_shadow_9.customers", task.getTargetTable());
+        assertEquals("customers", task.getParameters().get("liveTable"));
+        assertEquals("customers", task.getParameters().get("sourceTable"));
+        assertEquals(task.getTargetTable(), plan.getLoadTasks().get(1).getTargetTable());
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM jivs_shadow_9.customers", Integer.class));
+        assertEquals(3, jdbc.queryForObject("SELECT COUNT(*) FROM customers", Integer.class));
+        assertEquals(MigrationModels.ShadowReport.RUNNING, migration.getShadowReport().getState());
+    }
+
+    @Test
+    @DisplayName("Without a request or parameter the execution is a real run")
+    void testRealRun() {
+        migration.setParameters(new HashMap<>());
+
+        assertFalse(service.begin(migration));
+        assertFalse(service.isActive(migration));
+        assertNull(migration.getShadowReport());
+    }
+
+    @Test
+    @DisplayName("The report diffs shadow against live, names the bottleneck and resets the migration")
+    void testFinish() {
+        service.begin(migration);
+        MigrationModels.MigrationPlan plan = plan();
+        service.redirect(migration, plan);
+        migration.setPlan(plan);
+        migration.getMetrics().setTotalRecords(3);
+
+        // What the rehearsal loaded: one unchanged, one changed and one new row
+        jdbc.update("INSERT INTO jivs_shadow_9.customers VALUES (2, 'Globex'), (3, 'Initech Corp'), (4, 'Umbrella')");
+        MigrationModels.BatchOutcome failed = MigrationModels.BatchOutcome.failed("load-customers-1", "deadlock");
+        service.phaseStarted(migration, MigrationPhase.LOADING);
+        service.recordBatches(migration, MigrationPhase.LOADING, List.of(
+            new MigrationModels.BatchOutcome("load-customers-0", true, 3, null), failed), 4);
+        service.phaseEnded(migration, MigrationPhase.LOADING);
+
+        MigrationDeadLetter segment = MigrationDeadLetter.builder()
+            .targetTable("jivs_shadow_9.customers").recordCount(2).reason("value too long").build();
+        when(deadLetterStore.segments(9L)).thenReturn(List.of(segment));
+        MigrationModels.PhaseEstimate estimate = new MigrationModels.PhaseEstimate();
+        estimate.setPhase("LOADING");
+        when(planner.reestimatePhases(migration, 3, 2)).thenReturn(List.of(estimate));
+        migration.setStatus(MigrationStatus.COMPLETED);
+
+        service.finish(migration);
+
+        MigrationModels.ShadowReport report = migration.getShadowReport();
+        assertEquals(MigrationModels.ShadowReport.REPORTED, report.getState());
+        assertEquals("COMPLETED", report.getOutcome());
+        assertEquals("LOADING", report.getBottleneckPhase());
+
+        MigrationModels.ShadowPhaseStats loading = report.getPhases().stream()
+            .filter(stats -> stats.getPhase().equals("LOADING")).findFirst().orElseThrow();
+        assertEquals(3, loading.getRecords());
+        assertEquals(2, loading.getBatches());
+        assertEquals(1, loading.getFailedBatches());
+        assertEquals(4, loading.getConcurrency());
+        assertEquals(List.of("load-customers-1: deadlock"), loading.getErrorSamples());
+
+        MigrationModels.ShadowTableDiff diff = report.getTables().get(0);
+        assertEquals("customers", diff.getLiveTable());
+        assertEquals(3, diff.getShadowRows());
+        assertEquals(3, diff.getLiveRows());
+        assertEquals(1, diff.getRowsToInsert());
+        assertEquals(1, diff.getRowsToUpdate());
+        assertEquals(1, diff.getLiveOnlyRows());
+        assertEquals(2, diff.getDeadLetteredRecords());
+        assertEquals("value too long", diff.getTopRejectReason());
+        assertTrue(diff.getTunedBatchSize() > 0);
+        assertEquals(1, report.getRecommendedPhases().size());
+
+        verify(deadLetterStore).discard(eq(9L), argThat(tables -> tables.contains("jivs_shadow_9.customers")));
+        assertEquals(0, jdbc.queryForObject(
+            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'JIVS_SHADOW_9'", Integer.class));
+        assertEquals(3, jdbc.queryForObject("SELECT COUNT(*) FROM customers", Integer.class));
+
+        // Ready for the real run
+        assertEquals(MigrationStatus.INITIALIZED, migration.getStatus());
+        assertEquals(MigrationPhase.PLANNING, migration.getPhase());
+        assertNull(migration.getPlan());
+        assertNull(migration.getCheckpoint());
+        assertFalse(service.isActive(migration));
+        migration.setParameters(new HashMap<>());
+        assertFalse(service.begin(migration));
+    }
+
+    @Test
+    @DisplayName("A paused rehearsal keeps its shadow tables and resumes as a shadow run")
+    void testPauseKeepsShadowRun() {
+        service.begin(migration);
+        MigrationModels.MigrationPlan plan = plan();
+        service.redirect(migration, plan);
+        migration.setPlan(plan);
+        migration.setStatus(MigrationStatus.PAUSED);
+        migration.setParameters(new HashMap<>());
+
+        service.finish(migration);
+
+        assertEquals(MigrationModels.ShadowReport.RUNNING, migration.getShadowReport().getState());
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM jivs_shadow_9.customers", Integer.class));
+        assertTrue(service.begin(migration));
+        verify(deadLetterStore, never()).discard(anyLong(), any());
+    }
+
+    private static MigrationModels.MigrationPlan plan() {
+        MigrationModels.MigrationPlan plan = new MigrationModels.MigrationPlan();
+        List<MigrationModels.LoadTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            MigrationModels.LoadTask task = new MigrationModels.LoadTask();
+            task.setId("load-customers-" + i);
+            task.setTargetTable("customers");
+            task.setParameters(new HashMap<>(Map.of("keyColumn", "ID")));
+            tasks.add(task);
+        }
+        plan.setLoadTasks(tasks);
+        return plan;
+    }
+}
@@ -0,0 +1,198 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.security.SqlInjectionValidator;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for staged loads with swap-in cutover against an in-memory H2 database
+ */
+class StagingTableManagerTest {
+
+    private static final long MIGRATION_ID = 42L;
+
+    private StagingTableManager manager;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        manager = new StagingTableManager(Map.of("target", dataSource), new SqlInjectionValidator());
+
+        jdbc.execute("CREATE TABLE customers (id BIGINT PRIMARY KEY, email VARCHAR(100), region VARCHAR(10))");
+        jdbc.execute("CREATE UNIQUE INDEX idx_customers_email ON customers (email)");
+        jdbc.execute("CREATE INDEX idx_customers_region ON customers (region)");
+        for (int i = 1; i <= 10; i++) {
+            jdbc.update("INSERT INTO customers VALUES (?, ?, ?)", i, "user" + i + "@example.com", "EU");
+        }
+    }
+
+    @Test
+    @DisplayName("Loads go to an index-free staging copy and are swapped in with the live rows and indexes")
+    void testStageAndCutOver() {
+        MigrationModels.StagedTable staged = manager.prepare("target", "customers", MIGRATION_ID);
+
+        assertEquals("customers__stg_42", staged.getStagingTable());
+        assertEquals(0, count("customers__stg_42"));
+        assertEquals(0, indexCount("CUSTOMERS__STG_42"));
+
+        for (int i = 11; i <= 30; i++) {
+            jdbc.update("INSERT INTO customers__stg_42 VALUES (?, ?, ?)", i, "user" + i + "@example.com", "US");
+        }
+        // Live table is untouched while loading
+        assertEquals(10, count("customers"));
+
+        manager.cutOver(staged);
+
+        assertEquals(MigrationModels.StagedTable.SWAPPED, staged.getState());
+        assertEquals(30, count("customers"));
+        assertEquals(10, count("customers__old_42"));
+        assertTrue(indexCount("CUSTOMERS") >= 3);
+        assertThrows(Exception.class, () ->
+            jdbc.update("INSERT INTO customers VALUES (1, 'dup@example.com', 'EU')"));
+        assertThrows(Exception.class, () ->
+            jdbc.update("INSERT INTO customers VALUES (99, 'user2@example.com', 'EU')"));
+
+        manager.dropBackup(staged);
+        assertEquals(MigrationModels.StagedTable.COMPLETED, staged.getState());
+        assertFalse(tableExists("CUSTOMERS__OLD_42"));
+    }
+
+    @Test
+    @DisplayName("Writes to the live table while batches load are kept at cutover")
+    void testLiveWritesKept() {
+        MigrationModels.StagedTable staged = manager.prepare("target", "customers", MIGRATION_ID);
+        jdbc.update("INSERT INTO customers__stg_42 VALUES (11, 'new@example.com', 'US')");
+        jdbc.update("INSERT INTO customers VALUES (12, 'live@example.com', 'EU')");
+        jdbc.update("UPDATE customers SET region = 'APAC' WHERE id = 1");
+        jdbc.update("DELETE FROM customers WHERE id = 2");
+
+        manager.cutOver(staged);
+
+        assertEquals(11, count("customers"));
+        assertEquals("APAC", jdbc.queryForObject("SELECT region FROM customers WHERE id = 1", String.class));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM customers WHERE id = 2", Integer.class));
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM customers WHERE id = 12", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Writes to the live table between copying its rows and cutover are kept")
+    void testWritesAfterCopyKept() {
+        MigrationModels.StagedTable staged = manager.prepare("target", "customers", MIGRATION_ID);
+        jdbc.update("INSERT INTO customers__stg_42 VALUES (11, 'new@example.com', 'US')");
+
+        manager.copyLive(staged);
+        assertEquals(MigrationModels.StagedTable.COPIED, staged.getState());
+        jdbc.update("INSERT INTO customers VALUES (12, 'live@example.com', 'EU')");
+        jdbc.update("UPDATE customers SET region = 'APAC' WHERE id = 1");
+        jdbc.update("DELETE FROM customers WHERE id = 2");
+        manager.cutOver(staged);
+
+        assertEquals(11, count("customers"));
+        assertEquals("APAC", jdbc.queryForObject("SELECT region FROM customers WHERE id = 1", String.class));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM customers WHERE id = 2", Integer.class));
+        assertFalse(tableExists("CUSTOMERS__STG_42_DLT"));
+    }
+
+    @Test
+    @DisplayName("Foreign keys of the live table are rebuilt on the swapped-in table")
+    void testForeignKeysCopied() {
+        jdbc.execute("CREATE TABLE regions (code VARCHAR(10) PRIMARY KEY)");
+        jdbc.execute("INSERT INTO regions VALUES ('EU'), ('US')");
+        jdbc.execute("ALTER TABLE customers ADD CONSTRAINT fk_customers_region FOREIGN KEY (region) REFERENCES regions (code)");
+        MigrationModels.StagedTable staged = manager.prepare("target", "customers", MIGRATION_ID);
+        jdbc.update("INSERT INTO customers__stg_42 VALUES (11, 'new@example.com', 'US')");
+
+        manager.cutOver(staged);
+
+        assertEquals(11, count("customers"));
+        assertThrows(Exception.class, () ->
+            jdbc.update("INSERT INTO customers VALUES (99, 'other@example.com', 'MARS')"));
+    }
+
+    @Test
+    @DisplayName("Tables a column-only copy would lose constraints or defaults of are rejected")
+    void testUncopiedDefinitionRejected() {
+        jdbc.execute("CREATE TABLE accounts (id BIGINT PRIMARY KEY, balance DECIMAL(10, 2) DEFAULT 0 CHECK (balance >= 0))");
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+            () -> manager.prepare("target", "accounts", MIGRATION_ID));
+        assertTrue(error.getMessage().contains("column defaults"));
+        assertTrue(error.getMessage().contains("check constraints"));
+        assertFalse(tableExists("ACCOUNTS__STG_42"));
+    }
+
+    @Test
+    @DisplayName("Rollback before cutover drops the staging table")
+    void testRollbackBeforeCutOver() {
+        MigrationModels.StagedTable staged = manager.prepare("target", "customers", MIGRATION_ID);
+        jdbc.update("INSERT INTO customers__stg_42 VALUES (11, 'new@example.com', 'US')");
+
+        manager.rollback(staged);
+
+        assertEquals(MigrationModels.StagedTable.ROLLED_BACK, staged.getState());
+        assertFalse(tableExists("CUSTOMERS__STG_42"));
+        assertEquals(10, count("customers"));
+    }
+
+    @Test
+    @DisplayName("Rollback after cutover swaps the previous table back")
+    void testRollbackAfterCutOver() {
+        MigrationModels.StagedTable staged = manager.prepare("target", "customers", MIGRATION_ID);
+        jdbc.update("INSERT INTO customers__stg_42 VALUES (11, 'new@example.com', 'US')");
+        manager.cutOver(staged);
+        assertEquals(11, count("customers"));
+
+        manager.rollback(staged);
+
+        assertEquals(10, count("customers"));
+        assertFalse(tableExists("CUSTOMERS__STG_42"));
+        assertFalse(tableExists("CUSTOMERS__OLD_42"));
+    }
+
+    @Test
+    @DisplayName("Preparing again reuses the staging table and keeps staged rows")
+    void testPrepareIsIdempotent() {
+        manager.prepare("target", "customers", MIGRATION_ID);
+        jdbc.update("INSERT INTO customers__stg_42 VALUES (11, 'new@example.com', 'US')");
+
+        manager.prepare("target", "customers", MIGRATION_ID);
+
+        assertEquals(1, count("customers__stg_42"));
+    }
+
+    @Test
+    @DisplayName("Tables referenced by foreign keys are rejected")
+    void testReferencedTableRejected() {
+        jdbc.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, customer_id BIGINT REFERENCES customers(id))");
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+            () -> manager.prepare("target", "customers", MIGRATION_ID));
+        assertTrue(error.getMessage().contains("ORDERS"));
+        assertFalse(tableExists("CUSTOMERS__STG_42"));
+    }
+
+    private int count(String table) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private int indexCount(String table) {
+        return jdbc.queryForObject(
+            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME = ?", Integer.class, table);
+    }
+
+    private boolean tableExists(String table) {
+        return jdbc.queryForObject(
+            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = ?", Integer.class, table) > 0;
+    }
+}
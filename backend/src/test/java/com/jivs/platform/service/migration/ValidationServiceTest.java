@@ -0,0 +1,194 @@
+package com.jivs.platform.service.migration;
+
+import com.jivs.platform.domain.migration.ValidationRule;
+import com.jivs.platform.domain.quality.Severity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the compiled, single-pass ValidationService evaluation
+ */
+class ValidationServiceTest {
+
+    private static final int ROWS = 5000;
+
+    private ValidationService service;
+    private ValidationService.ValidationContext context;
+
+    @BeforeEach
+    void setUp() {
+        service = new ValidationService();
+        // Small chunks so every column is split across several parallel chunks
+        ReflectionTestUtils.setField(service, "chunkSize", 128);
+
+        List<Object> ids = new ArrayList<>();
+        List<Object> emails = new ArrayList<>();
+        List<Object> amounts = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            ids.add(i % 1000 == 999 ? (Object) 0 : (Object) i);
+            emails.add(i % 500 == 0 ? "invalid" : "user" + i + "@example.com");
+            amounts.add(i == 4321 ? (Object) (-5.0) : (Object) (double) i);
+        }
+        amounts.set(3000, -1.0);
+
+        Map<String, List<Object>> sampleData = new LinkedHashMap<>();
+        sampleData.put("id", ids);
+        sampleData.put("email", emails);
+        sampleData.put("amount", amounts);
+
+        ValidationService.FieldConstraint minAmount = new ValidationService.FieldConstraint();
+        minAmount.setType("MIN_VALUE");
+        minAmount.setMinValue(0.0);
+
+        ValidationService.FieldSchema amountSchema = new ValidationService.FieldSchema();
+        amountSchema.setDataType("DOUBLE");
+        amountSchema.setConstraints(List.of(minAmount));
+
+        ValidationService.FieldSchema idSchema = new ValidationService.FieldSchema();
+        idSchema.setDataType("STRING");
+
+        Map<String, ValidationService.FieldSchema> targetSchema = new HashMap<>();
+        targetSchema.put("amount", amountSchema);
+        targetSchema.put("id", idSchema);
+
+        context = new ValidationService.ValidationContext();
+        context.setMigrationId(1L);
+        context.setSampleData(sampleData);
+        context.setTargetSchema(targetSchema);
+        context.setUniqueFields(Set.of("id"));
+        context.setFormatPatterns(Map.of("email", "^[^@]+@[^@]+\\.com$"));
+    }
+
+    @Test
+    @DisplayName("Column rules are merged across chunks in rule and field order")
+    void testColumnRules() {
+        context.setValidationRules(List.of(
+            rule("types", "DATA_TYPE"),
+            rule("constraints", "CONSTRAINTS"),
+            rule("unique", "UNIQUENESS"),
+            rule("format", "FORMAT")
+        ));
+
+        ValidationService.ValidationResult result = service.validateMigrationData(context);
+
+        assertEquals(3, result.getErrorCount());
+
+        ValidationService.ValidationError typeError = result.getErrors().get(0);
+        assertEquals("id", typeError.getField());
+        assertEquals("Invalid data type. Expected: STRING, Got: Integer", typeError.getMessage());
+
+        // First violating value by position, not by chunk completion order
+        ValidationService.ValidationError minError = result.getErrors().get(1);
+        assertEquals("Value below minimum: -1.0 < 0.0", minError.getMessage());
+
+        ValidationService.ValidationError duplicateError = result.getErrors().get(2);
+        assertEquals(Severity.CRITICAL, duplicateError.getSeverity());
+        assertEquals("Duplicate values found. Unique: 4995, Total: 5000", duplicateError.getMessage());
+
+        assertEquals(1, result.getWarningCount());
+        assertEquals("Invalid format found in 10 values", result.getWarnings().get(0).getMessage());
+        assertFalse(result.isPassed());
+    }
+
+    @Test
+    @DisplayName("Completeness counts nulls across all chunks")
+    void testCompleteness() {
+        List<Object> sparse = new ArrayList<>(Collections.nCopies(ROWS, (Object) "x"));
+        for (int i = 0; i < ROWS; i += 10) {
+            sparse.set(i, null);
+        }
+        context.setSampleData(Map.of("sparse", sparse));
+        context.setValidationRules(List.of(rule("complete", "COMPLETENESS")));
+
+        ValidationService.ValidationResult result = service.validateMigrationData(context);
+
+        assertEquals(1, result.getWarningCount());
+        assertEquals("Low completeness: 90.00% (threshold: 95.00%)", result.getWarnings().get(0).getMessage());
+        assertTrue(result.isPassed());
+    }
+
+    @Test
+    @DisplayName("A rule that fails to compile is reported without stopping other rules")
+    void testInvalidPatternFailsOnlyItsRule() {
+        context.setFormatPatterns(Map.of("email", "(unclosed"));
+        context.setValidationRules(List.of(rule("format", "FORMAT"), rule("unique", "UNIQUENESS")));
+
+        ValidationService.ValidationResult result = service.validateMigrationData(context);
+
+        assertEquals(2, result.getErrorCount());
+        assertEquals("format", result.getErrors().get(0).getField());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("Rule execution failed"));
+        assertEquals("id", result.getErrors().get(1).getField());
+    }
+
+    @Test
+    @DisplayName("Uniqueness above the in-memory limit is exact with bounded memory")
+    void testBoundedUniqueness() {
+        ReflectionTestUtils.setField(service, "inMemoryKeyLimit", 100);
+        ReflectionTestUtils.setField(service, "sortBufferKeys", 256);
+        context.setValidationRules(List.of(rule("unique", "UNIQUENESS")));
+
+        ValidationService.ValidationResult result = service.validateMigrationData(context);
+
+        assertEquals(1, result.getErrorCount());
+        assertEquals("Duplicate values found. Unique: 4995, Total: 5000", result.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    @DisplayName("Missing references match keys by value on both the in-memory and the sorted path")
+    void testReferencesByValue() {
+        ValidationService.ReferenceInfo reference = new ValidationService.ReferenceInfo();
+        List<Object> children = new ArrayList<>();
+        List<Object> parents = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            // Drivers return the child column as Integer and the parent key as Long
+            children.add(i);
+            parents.add((long) i);
+        }
+        children.add(new java.math.BigDecimal("500"));
+        reference.setSourceValues(children);
+        reference.setTargetValues(parents);
+        context.setReferences(Map.of("customer_id", reference));
+        context.setValidationRules(List.of(rule("references", "REFERENTIAL")));
+
+        for (int limit : new int[]{1000, 100}) {
+            ReflectionTestUtils.setField(service, "inMemoryKeyLimit", limit);
+
+            ValidationService.ValidationResult result = service.validateMigrationData(context);
+
+            assertEquals(1, result.getErrorCount());
+            assertEquals("Missing references: [500]", result.getErrors().get(0).getMessage());
+        }
+    }
+
+    @Test
+    @DisplayName("Estimate mode only warns about likely duplicates")
+    void testEstimatedUniqueness() {
+        List<Object> repeated = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            repeated.add(i % 2500);
+        }
+        context.setSampleData(Map.of("id", repeated));
+        context.setEstimateCardinality(true);
+        context.setValidationRules(List.of(rule("unique", "UNIQUENESS")));
+
+        ValidationService.ValidationResult result = service.validateMigrationData(context);
+
+        assertEquals(0, result.getErrorCount());
+        assertEquals(1, result.getWarningCount());
+        assertTrue(result.getWarnings().get(0).getMessage().startsWith("Duplicate values likely"));
+    }
+
+    private static ValidationRule rule(String name, String type) {
+        ValidationRule rule = new ValidationRule();
+        rule.setName(name);
+        rule.setRuleType(type);
+        return rule;
+    }
+}
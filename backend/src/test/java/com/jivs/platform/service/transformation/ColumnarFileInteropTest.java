@@ -0,0 +1,140 @@
+package com.jivs.platform.service.transformation;
+
+import org.apache.avro.Conversions;
+import org.apache.avro.data.TimeConversions;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.SeekableByteArrayInput;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads the files of the Avro and Parquet writers with the Apache reference libraries, so
+ * they are checked against the formats rather than against the tests' own decoders
+ */
+class ColumnarFileInteropTest {
+
+    private static final List<Map<String, Object>> RECORDS = records(50);
+
+    @Test
+    @DisplayName("Apache Avro reads every record and logical type of the container")
+    void testAvroReader() throws Exception {
+        ColumnBatch batch = ColumnBatch.of(RECORDS);
+        RecordSchema schema = RecordSchema.infer(batch, 100);
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        try (ColumnarFileWriter writer = new AvroContainerWriter(file, schema, "TransformedRecord",
+            ColumnarFileWriter.Codec.DEFLATE, 16)) {
+            writer.write(batch);
+            writer.write(batch);
+        }
+
+        GenericData model = new GenericData();
+        model.addLogicalTypeConversion(new Conversions.DecimalConversion());
+        model.addLogicalTypeConversion(new TimeConversions.DateConversion());
+        model.addLogicalTypeConversion(new TimeConversions.TimestampMicrosConversion());
+        List<GenericRecord> read = new ArrayList<>();
+        try (DataFileReader<GenericRecord> reader = new DataFileReader<>(
+                new SeekableByteArrayInput(file.toByteArray()), new GenericDatumReader<>(null, null, model))) {
+            assertEquals("deflate", reader.getMetaString("avro.codec"));
+            reader.forEach(read::add);
+        }
+
+        assertEquals(100, read.size());
+        for (int i = 0; i < read.size(); i++) {
+            Map<String, Object> expected = RECORDS.get(i % RECORDS.size());
+            GenericRecord record = read.get(i);
+            assertEquals(expected.get("id"), record.get("id"));
+            assertEquals(expected.get("name"), record.get("name") != null ? record.get("name").toString() : null);
+            assertEquals(expected.get("amount"), record.get("amount"));
+            assertEquals(expected.get("day"), record.get("day"));
+            assertEquals(expected.get("at"), record.get("at"));
+            assertEquals(expected.get("active"), record.get("active"));
+            assertEquals(expected.get("ratio"), record.get("ratio"));
+        }
+    }
+
+    @Test
+    @DisplayName("parquet-hadoop reads every row group, column annotation and value of the file")
+    void testParquetReader(@TempDir Path directory) throws Exception {
+        ColumnBatch batch = ColumnBatch.of(RECORDS);
+        RecordSchema schema = RecordSchema.infer(batch, 100);
+        Path file = directory.resolve("customers.parquet");
+        try (OutputStream out = Files.newOutputStream(file);
+             ColumnarFileWriter writer = new ParquetFileWriter(out, schema, ColumnarFileWriter.Codec.DEFLATE)) {
+            writer.write(batch);
+            writer.write(batch);
+        }
+
+        Configuration conf = new Configuration();
+        org.apache.hadoop.fs.Path path = new org.apache.hadoop.fs.Path(file.toUri());
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(path, conf))) {
+            assertEquals(2, reader.getRowGroups().size());
+            assertEquals(100, reader.getRecordCount());
+            MessageType parsed = reader.getFooter().getFileMetaData().getSchema();
+            assertEquals(LogicalTypeAnnotation.stringType(), parsed.getType("name").getLogicalTypeAnnotation());
+            assertEquals(LogicalTypeAnnotation.decimalType(2, 38), parsed.getType("amount").getLogicalTypeAnnotation());
+            assertEquals(LogicalTypeAnnotation.dateType(), parsed.getType("day").getLogicalTypeAnnotation());
+            assertEquals(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MICROS),
+                parsed.getType("at").getLogicalTypeAnnotation());
+        }
+
+        try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), path).withConf(conf).build()) {
+            for (int i = 0; i < 100; i++) {
+                Map<String, Object> expected = RECORDS.get(i % RECORDS.size());
+                Group row = reader.read();
+                assertEquals(expected.get("id"), row.getLong("id", 0));
+                if (expected.get("name") == null) {
+                    assertEquals(0, row.getFieldRepetitionCount("name"));
+                } else {
+                    assertEquals(expected.get("name"), row.getString("name", 0));
+                }
+                assertEquals(expected.get("amount"), new BigDecimal(new BigInteger(row.getBinary("amount", 0).getBytes()), 2));
+                assertEquals(expected.get("day"), LocalDate.ofEpochDay(row.getInteger("day", 0)));
+                assertEquals(ChronoUnit.MICROS.between(Instant.EPOCH, (Instant) expected.get("at")), row.getLong("at", 0));
+                assertEquals(expected.get("active"), row.getBoolean("active", 0));
+                assertEquals(expected.get("ratio"), row.getDouble("ratio", 0));
+            }
+            assertNull(reader.read());
+        }
+    }
+
+    private static List<Map<String, Object>> records(int count) {
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("id", (long) i);
+            record.put("name", i % 10 == 0 ? null : "Customer " + i);
+            record.put("amount", BigDecimal.valueOf(i * 100L + 5, 2));
+            record.put("day", LocalDate.of(2024, 1, 1).plusDays(i));
+            record.put("at", Instant.parse("2024-01-01T00:00:00Z").plusMillis(i * 1500L));
+            record.put("active", i % 2 == 0);
+            record.put("ratio", i / 4.0);
+            records.add(record);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,445 @@
+package com.jivs.platform.service.transformation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jivs.platform.repository.TransformationJobRepository;
+import com.jivs.platform.repository.TransformationRuleRepository;
+import com.jivs.platform.security.SqlInjectionValidator;
+import com.jivs.platform.service.storage.StorageOptions;
+import com.jivs.platform.service.storage.StorageResult;
+import com.jivs.platform.service.storage.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for inferring schemas of transformed batches and writing them as Avro and Parquet files
+ */
+class ColumnarFileWriterTest {
+
+    private StorageService storageService;
+    private TransformationOutputWriter outputWriter;
+
+    @BeforeEach
+    void setUp() {
+        storageService = mock(StorageService.class);
+        outputWriter = new TransformationOutputWriter(storageService);
+    }
+
+    @Test
+    @DisplayName("Column types widen across sampled rows and disagreeing columns become strings")
+    void testSchemaInference() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", i % 2 == 0 ? i : (long) i);
+            row.put("ratio", i % 2 == 0 ? i : i / 2.0);
+            row.put("mixed", i % 2 == 0 ? i : "text");
+            row.put("amount", new BigDecimal(i + "." + "5".repeat(i % 3 + 1)));
+            row.put("day", LocalDate.of(2024, 1, 1).plusDays(i));
+            row.put("empty", null);
+            rows.add(row);
+        }
+
+        Map<String, RecordSchema.Field> fields = new HashMap<>();
+        RecordSchema.infer(ColumnBatch.of(rows), 100).getFields().forEach(field -> fields.put(field.name(), field));
+
+        assertEquals(RecordSchema.FieldType.LONG, fields.get("id").type());
+        assertEquals(RecordSchema.FieldType.DOUBLE, fields.get("ratio").type());
+        assertEquals(RecordSchema.FieldType.STRING, fields.get("mixed").type());
+        assertEquals(RecordSchema.FieldType.DECIMAL, fields.get("amount").type());
+        assertEquals(3, fields.get("amount").scale());
+        assertEquals(RecordSchema.FieldType.DATE, fields.get("day").type());
+        assertEquals(RecordSchema.FieldType.STRING, fields.get("empty").type());
+    }
+
+    @Test
+    @DisplayName("Avro schemas use valid, unique field names and nullable unions")
+    void testAvroSchema() {
+        RecordSchema schema = new RecordSchema(List.of(
+            new RecordSchema.Field("customer.name", RecordSchema.FieldType.STRING, 0),
+            new RecordSchema.Field("customer-name", RecordSchema.FieldType.STRING, 0),
+            new RecordSchema.Field("1st", RecordSchema.FieldType.INT, 0)));
+
+        String avro = schema.toAvroSchema("TransformedRecord");
+
+        assertTrue(avro.contains("{\"name\":\"customer_name\",\"type\":[\"null\",\"string\"],\"default\":null}"));
+        assertTrue(avro.contains("\"name\":\"customer_name_2\""));
+        assertTrue(avro.contains("\"name\":\"_1st\""));
+        assertTrue(schema.toParquetSchema().contains("  optional binary customer.name (STRING);"));
+    }
+
+    @Test
+    @DisplayName("Streamed batches come back from the Avro container record by record")
+    void testAvroRoundTrip() throws Exception {
+        ColumnBatch batch = ColumnBatch.of(records(100));
+        RecordSchema schema = outputWriter.inferSchema(batch);
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        try (ColumnarFileWriter writer = new AvroContainerWriter(file, schema, "TransformedRecord",
+            ColumnarFileWriter.Codec.DEFLATE, 16)) {
+            writer.write(batch);
+            writer.write(batch);
+        }
+
+        List<Object[]> decoded = readAvro(file.toByteArray(), schema.getFields().size());
+
+        assertEquals(200, decoded.size());
+        for (int i = 0; i < 200; i++) {
+            Object[] record = decoded.get(i);
+            assertEquals((long) (i % 100), record[0]);
+            assertEquals(i % 10 == 0 ? null : "Customer " + i % 100, record[1]);
+        }
+    }
+
+    @Test
+    @DisplayName("Parquet files hold a row group per batch and compress repetitive columns")
+    void testParquetFile(@TempDir Path directory) throws Exception {
+        ColumnBatch batch = ColumnBatch.of(records(1000));
+        RecordSchema schema = outputWriter.inferSchema(batch);
+        byte[] plain = parquet(schema, batch, ColumnarFileWriter.Codec.UNCOMPRESSED);
+        byte[] compressed = parquet(schema, batch, ColumnarFileWriter.Codec.DEFLATE);
+
+        for (byte[] file : List.of(plain, compressed)) {
+            assertEquals("PAR1", new String(file, 0, 4, StandardCharsets.US_ASCII));
+            assertEquals("PAR1", new String(file, file.length - 4, 4, StandardCharsets.US_ASCII));
+            int footer = ByteBuffer.wrap(file, file.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            assertTrue(footer > 0 && footer < file.length - 12);
+        }
+        assertTrue(compressed.length < plain.length / 2);
+
+        Path target = directory.resolve("customers.parquet");
+        outputWriter.write(batch, "PARQUET", target);
+        assertArrayEquals(new byte[] {'P', 'A', 'R', '1'}, Arrays.copyOf(Files.readAllBytes(target), 4));
+    }
+
+    @Test
+    @DisplayName("Parquet footers and pages decode to the written rows, nulls included")
+    @SuppressWarnings("unchecked")
+    void testParquetPages() throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", i % 7 == 0 ? null : (long) i);
+            row.put("name", i % 10 == 0 ? null : "Customer " + i);
+            row.put("active", i % 3 == 0 ? null : i % 2 == 0);
+            rows.add(row);
+        }
+        ColumnBatch batch = ColumnBatch.of(rows);
+        RecordSchema schema = outputWriter.inferSchema(batch);
+
+        for (ColumnarFileWriter.Codec codec : ColumnarFileWriter.Codec.values()) {
+            byte[] file = parquet(schema, batch, codec);
+            int footerLength = ByteBuffer.wrap(file, file.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            Map<Integer, Object> footer = new ThriftReader(file, file.length - 8 - footerLength).readStruct();
+
+            assertEquals(100L, footer.get(3));
+            List<Object> elements = (List<Object>) footer.get(2);
+            assertEquals(4, elements.size());
+            assertEquals("name", new String((byte[]) ((Map<Integer, Object>) elements.get(2)).get(4), StandardCharsets.UTF_8));
+            List<Object> rowGroups = (List<Object>) footer.get(4);
+            assertEquals(2, rowGroups.size());
+            for (Object rowGroup : rowGroups) {
+                List<Object> chunks = (List<Object>) ((Map<Integer, Object>) rowGroup).get(1);
+                assertEquals(50L, ((Map<Integer, Object>) rowGroup).get(3));
+                for (int c = 0; c < schema.getFields().size(); c++) {
+                    String column = schema.getFields().get(c).name();
+                    List<Object> values = readColumn(file, (Map<Integer, Object>) chunks.get(c));
+                    assertEquals(rows.stream().map(row -> row.get(column)).toList(), values, column);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Batches are stored as files the storage service does not compress again")
+    void testStore() throws Exception {
+        when(storageService.storeFile(eq("customers.avro"), any(byte[].class), any(StorageOptions.class)))
+            .thenReturn(new StorageResult());
+        StorageOptions options = new StorageOptions();
+        options.setCompress(true);
+
+        outputWriter.store(ColumnBatch.of(records(10)), "AVRO", "customers.avro", options);
+
+        ArgumentCaptor<byte[]> data = ArgumentCaptor.forClass(byte[].class);
+        verify(storageService).storeFile(eq("customers.avro"), data.capture(), eq(options));
+        assertArrayEquals(new byte[] {'O', 'b', 'j', 1}, Arrays.copyOf(data.getValue(), 4));
+        assertFalse(options.isCompress());
+        assertEquals("application/avro", options.getContentType());
+        assertThrows(IllegalArgumentException.class,
+            () -> outputWriter.open("ORC", outputWriter.inferSchema(ColumnBatch.of(records(1))), new ByteArrayOutputStream()));
+    }
+
+    @Test
+    @DisplayName("A value that does not fit the inferred type is rejected rather than written")
+    void testTypeMismatch() {
+        RecordSchema schema = new RecordSchema(List.of(new RecordSchema.Field("id", RecordSchema.FieldType.LONG, 0)));
+        ColumnBatch batch = ColumnBatch.of(List.of(new HashMap<>(Map.of("id", "not a number"))));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> new ParquetFileWriter(new ByteArrayOutputStream(), schema, ColumnarFileWriter.Codec.UNCOMPRESSED).write(batch));
+        // A long outside the int range of a column inferred as INT is not truncated
+        RecordSchema.Field count = new RecordSchema.Field("count", RecordSchema.FieldType.INT, 0);
+        assertEquals(42, RecordSchema.convert(count, 42L));
+        assertThrows(IllegalArgumentException.class, () -> RecordSchema.convert(count, 3_000_000_000L));
+    }
+
+    @Test
+    @DisplayName("Avro and Parquet targets give a batch file instead of schemas on every record")
+    void testColumnarTarget() {
+        TransformationService service = new TransformationService(mock(TransformationRuleRepository.class),
+            mock(TransformationJobRepository.class),
+            new TransformationEngine(new ObjectMapper(), new ScriptEnginePool(),
+                new ReferenceDataCache(Map.of(), new SqlInjectionValidator())),
+            new ParallelTransformationExecutor(), outputWriter);
+
+        TransformationService.BatchTransformationResult parquet = service.processBatch(records(20), List.of(), "PARQUET").join();
+        TransformationService.BatchTransformationResult json = service.processBatch(records(20), List.of(), "JSON").join();
+
+        assertArrayEquals(new byte[] {'P', 'A', 'R', '1'}, Arrays.copyOf(parquet.getOutputFile(), 4));
+        assertEquals(records(20).get(3), parquet.getTransformedRecords().get(3));
+        assertNull(json.getOutputFile());
+    }
+
+    private static byte[] parquet(RecordSchema schema, ColumnBatch batch, ColumnarFileWriter.Codec codec) throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        try (ColumnarFileWriter writer = new ParquetFileWriter(file, schema, codec)) {
+            writer.write(batch);
+            writer.write(batch);
+        }
+        return file.toByteArray();
+    }
+
+    /**
+     * Values of one column chunk, read from its single data page
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Object> readColumn(byte[] file, Map<Integer, Object> chunk) throws IOException {
+        Map<Integer, Object> metadata = (Map<Integer, Object>) chunk.get(3);
+        ThriftReader header = new ThriftReader(file, ((Long) metadata.get(9)).intValue());
+        Map<Integer, Object> pageHeader = header.readStruct();
+        byte[] page = Arrays.copyOfRange(file, header.position, header.position + ((Long) pageHeader.get(3)).intValue());
+        if ((Long) metadata.get(4) == 2) {
+            page = new GZIPInputStream(new ByteArrayInputStream(page)).readAllBytes();
+        }
+        assertEquals(((Long) pageHeader.get(2)).intValue(), page.length);
+
+        ByteBuffer buffer = ByteBuffer.wrap(page).order(ByteOrder.LITTLE_ENDIAN);
+        int levelsEnd = buffer.getInt() + 4;
+        List<Boolean> defined = new ArrayList<>();
+        while (buffer.position() < levelsEnd) {
+            long run = readVarint(buffer);
+            assertEquals(0, run & 1);
+            boolean present = buffer.get() == 1;
+            for (long i = 0; i < run >> 1; i++) {
+                defined.add(present);
+            }
+        }
+        assertEquals((long) defined.size(), ((Map<Integer, Object>) pageHeader.get(5)).get(1));
+
+        List<Object> values = new ArrayList<>();
+        int bit = 0;
+        for (boolean present : defined) {
+            if (!present) {
+                values.add(null);
+                continue;
+            }
+            switch (((Long) metadata.get(1)).intValue()) {
+                case 0 -> {
+                    values.add((page[levelsEnd + bit / 8] >> (bit % 8) & 1) == 1);
+                    bit++;
+                }
+                case 2 -> values.add(buffer.getLong());
+                case 6 -> {
+                    byte[] bytes = new byte[buffer.getInt()];
+                    buffer.get(bytes);
+                    values.add(new String(bytes, StandardCharsets.UTF_8));
+                }
+                default -> fail("Unexpected physical type " + metadata.get(1));
+            }
+        }
+        return values;
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = buffer.get() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static List<Map<String, Object>> records(int count) {
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("id", (long) i);
+            record.put("name", i % 10 == 0 ? null : "Customer " + i);
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Decode a deflate container whose fields are nullable longs and strings
+     */
+    private static List<Object[]> readAvro(byte[] file, int fieldCount) throws Exception {
+        Decoder header = new Decoder(file);
+        assertArrayEquals(new byte[] {'O', 'b', 'j', 1}, header.take(4));
+        Map<String, String> metadata = new HashMap<>();
+        for (long entries = header.readLong(); entries != 0; entries = header.readLong()) {
+            for (long i = 0; i < entries; i++) {
+                metadata.put(header.readString(), header.readString());
+            }
+        }
+        assertEquals("deflate", metadata.get("avro.codec"));
+        assertTrue(metadata.get("avro.schema").contains("\"name\":\"id\",\"type\":[\"null\",\"long\"]"));
+        byte[] sync = header.take(16);
+
+        List<Object[]> records = new ArrayList<>();
+        while (header.position < file.length) {
+            long count = header.readLong();
+            byte[] compressed = header.take((int) header.readLong());
+            assertArrayEquals(sync, header.take(16));
+            assertTrue(count <= 16);
+
+            Inflater inflater = new Inflater(true);
+            inflater.setInput(compressed);
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                block.write(buffer, 0, inflater.inflate(buffer));
+            }
+            inflater.end();
+
+            Decoder data = new Decoder(block.toByteArray());
+            for (long i = 0; i < count; i++) {
+                Object[] record = new Object[fieldCount];
+                record[0] = data.readLong() == 0 ? null : data.readLong();
+                record[1] = data.readLong() == 0 ? null : data.readString();
+                records.add(record);
+            }
+            assertEquals(data.bytes.length, data.position);
+        }
+        return records;
+    }
+
+    private static final class Decoder {
+        private final byte[] bytes;
+        private int position;
+
+        private Decoder(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        long readLong() {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = bytes[position++] & 0xFF;
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String readString() {
+            return new String(take((int) readLong()), StandardCharsets.UTF_8);
+        }
+
+        byte[] take(int length) {
+            byte[] taken = Arrays.copyOfRange(bytes, position, position + length);
+            position += length;
+            return taken;
+        }
+    }
+
+    /**
+     * Reads Thrift compact structs as maps of field id to value: integers as Long, binaries as
+     * byte arrays, lists and nested structs
+     */
+    private static final class ThriftReader {
+        private final byte[] bytes;
+        private int position;
+
+        private ThriftReader(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        Map<Integer, Object> readStruct() {
+            Map<Integer, Object> struct = new HashMap<>();
+            int id = 0;
+            for (int header = bytes[position++] & 0xFF; header != 0; header = bytes[position++] & 0xFF) {
+                id = header >> 4 == 0 ? (int) readZigZag() : id + (header >> 4);
+                struct.put(id, readValue(header & 0x0F));
+            }
+            return struct;
+        }
+
+        private Object readValue(int type) {
+            switch (type) {
+                case 5, 6:
+                    return readZigZag();
+                case 8:
+                    int length = (int) readVarint();
+                    byte[] value = Arrays.copyOfRange(bytes, position, position + length);
+                    position += length;
+                    return value;
+                case 9:
+                    int header = bytes[position++] & 0xFF;
+                    int size = header >> 4 == 15 ? (int) readVarint() : header >> 4;
+                    List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue(header & 0x0F));
+                    }
+                    return list;
+                case 12:
+                    return readStruct();
+                default:
+                    throw new IllegalStateException("Unexpected Thrift type " + type);
+            }
+        }
+
+        private long readVarint() {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = bytes[position++] & 0xFF;
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        private long readZigZag() {
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
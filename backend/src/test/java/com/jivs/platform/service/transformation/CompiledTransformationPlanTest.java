@@ -0,0 +1,282 @@
+package com.jivs.platform.service.transformation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jivs.platform.domain.transformation.TransformationRule;
+import com.jivs.platform.security.SqlInjectionValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpression;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for compiling a rule set once and applying it to many records
+ */
+class CompiledTransformationPlanTest {
+
+    private TransformationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new TransformationEngine(new ObjectMapper(), new ScriptEnginePool(),
+            new ReferenceDataCache(Map.of(), new SqlInjectionValidator()));
+    }
+
+    @Test
+    @DisplayName("Rules apply in priority order with ties kept in list order")
+    void testPriorityOrder() {
+        TransformationRule suffix = rule("suffix", "EXPRESSION", 2, null, "name");
+        suffix.setRuleDefinition("['name'] + '-b'");
+        TransformationRule prefix = rule("prefix", "EXPRESSION", 1, null, "name");
+        prefix.setRuleDefinition("['name'] + '-a'");
+        TransformationRule tie = rule("tie", "EXPRESSION", 2, null, "name");
+        tie.setRuleDefinition("['name'] + '-c'");
+
+        CompiledTransformationPlan plan = engine.compile(List.of(suffix, prefix, tie), "JSON");
+
+        assertEquals("x-a-b-c", plan.apply(Map.of("name", "x")).get("name"));
+    }
+
+    @Test
+    @DisplayName("Each rule type transforms records the same way for every record in the batch")
+    void testRuleTypes() {
+        TransformationRule move = rule("move", "FIELD_MAPPING", 1, "customer.name", "name");
+        TransformationRule status = rule("status", "VALUE_MAPPING", 2, "status", null);
+        status.setRuleDefinition("{\"A\":\"ACTIVE\",\"I\":\"INACTIVE\"}");
+        TransformationRule trim = rule("trim", "REGEX", 3, "name", "name");
+        trim.setRegexPattern("\\s+$");
+        trim.setRegexReplacement("");
+        TransformationRule digits = rule("digits", "REGEX", 4, "phone", "area");
+        digits.setRegexPattern("\\((\\d+)\\)");
+        TransformationRule total = rule("total", "AGGREGATION", 5, "amounts", "total");
+        total.setAggregationType("sum");
+        TransformationRule vip = rule("vip", "CONDITIONAL", 6, null, "tier");
+        vip.setCondition("['total'] > 100");
+        vip.setRuleDefinition("'VIP'");
+        TransformationRule region = rule("region", "ENRICHMENT", 7, null, null);
+        region.setRuleDefinition("{\"meta.region\":\"EU\"}");
+
+        CompiledTransformationPlan plan = engine.compile(
+            List.of(region, vip, total, digits, trim, status, move), "JSON");
+        assertEquals(7, plan.size());
+
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> source = new HashMap<>();
+            source.put("customer", new HashMap<>(Map.of("name", "Acme  ")));
+            source.put("status", i == 0 ? "A" : "I");
+            source.put("phone", "(0" + i + ") 555");
+            source.put("amounts", List.of(50, 40 + i * 20));
+
+            Map<String, Object> result = plan.apply(source);
+
+            assertEquals("Acme", result.get("name"));
+            assertEquals(Map.of(), result.get("customer"));
+            assertEquals(i == 0 ? "ACTIVE" : "INACTIVE", result.get("status"));
+            assertEquals(List.of("0" + i), result.get("area"));
+            assertEquals(90.0 + i * 20, result.get("total"));
+            assertEquals(i == 0 ? null : "VIP", result.get("tier"));
+            assertEquals(Map.of("region", "EU"), result.get("meta"));
+        }
+    }
+
+    @Test
+    @DisplayName("A rule that fails to compile or apply is skipped while the others still apply")
+    void testFailingRulesAreSkipped() {
+        TransformationRule broken = rule("broken", "REGEX", 1, "name", "name");
+        broken.setRegexPattern("([a-z");
+        TransformationRule unknown = rule("unknown", "TELEPATHY", 2, "name", "name");
+        TransformationRule nested = rule("nested", "FIELD_MAPPING", 3, "name", "name.first");
+        TransformationRule upper = rule("upper", "EXPRESSION", 4, null, "code");
+        upper.setRuleDefinition("['code'].toUpperCase()");
+
+        Map<String, Object> result = engine.compile(List.of(broken, unknown, nested, upper), "JSON")
+            .apply(Map.of("name", "acme", "code", "ab"));
+
+        assertEquals("acme", result.get("name"));
+        assertEquals("AB", result.get("code"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Records are copied and never share values parsed from a rule definition")
+    void testRecordsAreIsolated() {
+        TransformationRule defaults = rule("defaults", "ENRICHMENT", 1, null, null);
+        defaults.setRuleDefinition("{\"tags\":[\"new\"]}");
+        CompiledTransformationPlan plan = engine.compile(List.of(defaults), "JSON");
+        Map<String, Object> source = Map.of("id", 1);
+
+        Map<String, Object> first = plan.apply(source);
+        ((List<Object>) first.get("tags")).add("changed");
+        Map<String, Object> second = plan.apply(source);
+
+        assertEquals(List.of("new"), second.get("tags"));
+        assertEquals(Map.of("id", 1), source);
+    }
+
+    @Test
+    @DisplayName("Expressions read record fields as properties and compile to bytecode")
+    void testCompiledExpressions() {
+        TransformationRule net = rule("net", "EXPRESSION", 1, null, "net");
+        net.setRuleDefinition("amount - discount");
+        TransformationRule large = rule("large", "CONDITIONAL", 2, null, "size");
+        large.setCondition("net > 100");
+        large.setRuleDefinition("'LARGE'");
+        CompiledTransformationPlan plan = engine.compile(List.of(net, large), "JSON");
+
+        for (int i = 0; i < 300; i++) {
+            Map<String, Object> result = plan.apply(Map.of("amount", 100 + i, "discount", 50));
+            assertEquals(50 + i, result.get("net"));
+            assertEquals(50 + i > 100 ? "LARGE" : null, result.get("size"));
+        }
+
+        SpelExpression expression = (SpelExpression) engine.expression("amount - discount");
+        assertTrue(expression.compileExpression());
+        assertEquals(7, expression.getValue(CompiledTransformationPlan.newEvaluationContext(),
+            Map.of("amount", 10, "discount", 3)));
+    }
+
+    @Test
+    @DisplayName("Expressions are parsed once per text across plans")
+    void testExpressionCache() {
+        TransformationRule upper = rule("upper", "EXPRESSION", 1, null, "name");
+        upper.setRuleDefinition("name.toUpperCase()");
+
+        engine.compile(List.of(upper), "JSON");
+        Expression first = engine.expression("name.toUpperCase()");
+        engine.transform(Map.of("name", "acme"), List.of(upper), "JSON");
+
+        assertSame(first, engine.expression("name.toUpperCase()"));
+        assertNotSame(first, engine.expression("name.toLowerCase()"));
+    }
+
+    @Test
+    @DisplayName("Column batches transform to the same records as one record at a time")
+    void testColumnsMatchRows() {
+        TransformationRule rename = rule("rename", "FIELD_MAPPING", 1, "cust_name", "name");
+        TransformationRule merge = rule("merge", "FIELD_MAPPING", 2, "alt_code", "code");
+        TransformationRule status = rule("status", "VALUE_MAPPING", 3, "status", null);
+        status.setRuleDefinition("{\"A\":\"ACTIVE\",\"1\":\"ONE\"}");
+        TransformationRule trim = rule("trim", "REGEX", 4, "name", "name");
+        trim.setRegexPattern("\\s+$");
+        trim.setRegexReplacement("");
+        TransformationRule upper = rule("upper", "EXPRESSION", 5, null, "label");
+        upper.setRuleDefinition("name != null ? name.toUpperCase() : null");
+        TransformationRule total = rule("total", "AGGREGATION", 6, "amounts", "total");
+        total.setAggregationType("COUNT");
+        TransformationRule source = rule("source", "ENRICHMENT", 7, null, null);
+        source.setRuleDefinition("{\"origin\":\"legacy\",\"audit.by\":\"jivs\"}");
+        CompiledTransformationPlan plan = engine.compile(
+            List.of(rename, merge, status, trim, upper, total, source), "JSON");
+
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Map<String, Object> record = new HashMap<>();
+            record.put("cust_name", i % 7 == 0 ? null : "Customer " + i + "  ");
+            record.put("code", "C" + i);
+            if (i % 3 == 0) {
+                record.put("alt_code", "ALT" + i);
+            }
+            record.put("status", i % 2 == 0 ? "A" : 1);
+            record.put("amounts", List.of(i, i + 1));
+            records.add(record);
+        }
+
+        List<Map<String, Object>> columnar = plan.apply(ColumnBatch.of(records)).toRows();
+
+        assertEquals(records.size(), columnar.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(withoutNulls(plan.apply(records.get(i))), withoutNulls(columnar.get(i)));
+        }
+        assertEquals("ALT3", columnar.get(3).get("code"));
+        assertEquals("C4", columnar.get(4).get("code"));
+        assertEquals("ONE", columnar.get(1).get("status"));
+        assertEquals(Map.of("by", "jivs"), columnar.get(0).get("audit"));
+    }
+
+    @Test
+    @DisplayName("Fields a record lacks stay absent in column batches and expressions reading them still fail")
+    void testAbsentFields() {
+        TransformationRule nick = rule("nick", "EXPRESSION", 1, null, "nick");
+        nick.setRuleDefinition("nickname.toUpperCase()");
+        TransformationRule area = rule("area", "REGEX", 2, "phone", "area");
+        area.setRegexPattern("\\((\\d+)\\)");
+        area.setRuleDefinition(area.getRegexPattern());
+        CompiledTransformationPlan plan = engine.compile(List.of(nick, area), "JSON");
+
+        Map<String, Object> unnamed = new HashMap<>();
+        unnamed.put("id", 3);
+        unnamed.put("nickname", null);
+        List<Map<String, Object>> records = List.of(
+            new HashMap<>(Map.of("id", 1, "nickname", "ace", "phone", "(030) 555")),
+            new HashMap<>(Map.of("id", 2, "phone", "555")),
+            unnamed);
+
+        List<Map<String, Object>> columnar = plan.apply(ColumnBatch.of(records)).toRows();
+
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(plan.apply(records.get(i)), columnar.get(i));
+        }
+        assertEquals(Map.of("id", 1, "nickname", "ace", "phone", "(030) 555", "nick", "ACE", "area", List.of("030")),
+            columnar.get(0));
+        assertEquals(Map.of("id", 2, "phone", "555"), columnar.get(1));
+        assertTrue(columnar.get(2).containsKey("nickname"));
+        assertFalse(columnar.get(2).containsKey("phone"));
+    }
+
+    @Test
+    @DisplayName("Columns no rule writes pass through uncopied and the input batch is left as it was")
+    void testColumnsPassThrough() {
+        TransformationRule rename = rule("rename", "FIELD_MAPPING", 1, "cust_name", "name");
+        TransformationRule status = rule("status", "VALUE_MAPPING", 2, "status", null);
+        status.setRuleDefinition("{\"A\":\"ACTIVE\"}");
+        Object[] ids = {1L, 2L, 3L};
+        Object[] names = {"Acme", "Globex", "Initech"};
+        Object[] statuses = {"A", "I", "A"};
+        ColumnBatch input = new ColumnBatch(3)
+            .setColumn("id", ids)
+            .setColumn("cust_name", names)
+            .setColumn("status", statuses);
+
+        ColumnBatch output = engine.transform(input, List.of(rename, status), "JSON");
+
+        assertSame(ids, output.getColumn("id"));
+        assertSame(names, output.getColumn("name"));
+        assertNull(output.getColumn("cust_name"));
+        assertArrayEquals(new Object[] {"ACTIVE", "I", "ACTIVE"}, output.getColumn("status"));
+        assertArrayEquals(new Object[] {"A", "I", "A"}, statuses);
+        assertEquals(List.of("id", "cust_name", "status"), input.getColumnNames());
+    }
+
+    @Test
+    @DisplayName("The target format is applied after the rules")
+    void testTargetFormat() {
+        TransformationRule move = rule("move", "FIELD_MAPPING", 1, "name", "customer.name");
+
+        Map<String, Object> csv = engine.compile(List.of(move), "csv").apply(Map.of("name", "Acme", "id", 1));
+        Map<String, Object> xml = engine.transform(Map.of("id", 1), List.of(move), "XML");
+
+        assertEquals(Map.of("customer.name", "Acme", "id", 1), csv);
+        assertEquals(Map.of("root", Map.of("id", 1)), xml);
+    }
+
+    private static Map<String, Object> withoutNulls(Map<String, Object> record) {
+        Map<String, Object> copy = new HashMap<>(record);
+        copy.values().removeIf(Objects::isNull);
+        return copy;
+    }
+
+    private static TransformationRule rule(String name, String ruleType, int priority,
+                                           String sourceField, String targetField) {
+        TransformationRule rule = new TransformationRule();
+        rule.setName(name);
+        rule.setRuleType(ruleType);
+        rule.setPriority(priority);
+        rule.setSourceField(sourceField);
+        rule.setTargetField(targetField);
+        return rule;
+    }
+}
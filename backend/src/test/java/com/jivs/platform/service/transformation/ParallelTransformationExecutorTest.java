@@ -0,0 +1,106 @@
+package com.jivs.platform.service.transformation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jivs.platform.domain.transformation.TransformationRule;
+import com.jivs.platform.repository.TransformationJobRepository;
+import com.jivs.platform.repository.TransformationRuleRepository;
+import com.jivs.platform.security.SqlInjectionValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for splitting large transformation batches across a fork-join pool
+ */
+class ParallelTransformationExecutorTest {
+
+    private ParallelTransformationExecutor executor;
+    private TransformationEngine engine;
+    private List<TransformationRule> rules;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ParallelTransformationExecutor();
+        ReflectionTestUtils.setField(executor, "parallelism", 4);
+        ReflectionTestUtils.setField(executor, "chunkSize", 100);
+        engine = new TransformationEngine(new ObjectMapper(), new ScriptEnginePool(),
+            new ReferenceDataCache(Map.of(), new SqlInjectionValidator()));
+
+        TransformationRule upper = new TransformationRule();
+        upper.setName("upper");
+        upper.setRuleType("EXPRESSION");
+        upper.setRuleDefinition("name.toUpperCase()");
+        upper.setTargetField("name");
+        rules = List.of(upper);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Split batches come back in input order with every worker's throughput")
+    void testOrderPreserved() {
+        List<Map<String, Object>> records = records(1050);
+
+        ParallelTransformationExecutor.Result result = executor.transform(engine.compile(rules, "JSON"), records, true);
+
+        assertEquals(1050, result.getRecords().size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(i, result.getRecords().get(i).get("id"));
+            assertEquals("CUSTOMER " + i, result.getRecords().get(i).get("name"));
+        }
+        assertFalse(result.getWorkers().isEmpty());
+        assertTrue(result.getWorkers().size() <= 4);
+        assertEquals(1050, result.getWorkers().stream().mapToLong(ParallelTransformationExecutor.WorkerThroughput::getRecords).sum());
+        assertEquals(11, result.getWorkers().stream().mapToInt(ParallelTransformationExecutor.WorkerThroughput::getChunks).sum());
+        assertTrue(result.getWorkers().stream().allMatch(worker -> worker.getWorker().startsWith("transformation-worker-")));
+    }
+
+    @Test
+    @DisplayName("Without order every record still comes back exactly once")
+    void testCompletionOrder() {
+        ParallelTransformationExecutor.Result result = executor.transform(engine.compile(rules, "JSON"), records(1050), false);
+
+        Set<Object> ids = new HashSet<>();
+        result.getRecords().forEach(record -> ids.add(record.get("id")));
+        assertEquals(1050, result.getRecords().size());
+        assertEquals(1050, ids.size());
+    }
+
+    @Test
+    @DisplayName("Only batches larger than a chunk are split")
+    void testProcessBatchSplitsLargeBatches() {
+        TransformationService service = new TransformationService(mock(TransformationRuleRepository.class),
+            mock(TransformationJobRepository.class), engine, executor, mock(TransformationOutputWriter.class));
+
+        TransformationService.BatchTransformationResult small = service.processBatch(records(100), rules, "JSON").join();
+        TransformationService.BatchTransformationResult large = service.processBatch(records(500), rules, "JSON").join();
+
+        assertEquals(100, small.getSuccessCount());
+        assertTrue(small.getWorkers().isEmpty());
+        assertEquals(500, large.getSuccessCount());
+        assertEquals(0, large.getErrorCount());
+        assertFalse(large.getWorkers().isEmpty());
+        assertEquals("CUSTOMER 499", large.getTransformedRecords().get(499).get("name"));
+    }
+
+    private static List<Map<String, Object>> records(int count) {
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> record = new HashMap<>();
+            record.put("id", i);
+            record.put("name", "Customer " + i);
+            records.add(record);
+        }
+        return records;
+    }
+}
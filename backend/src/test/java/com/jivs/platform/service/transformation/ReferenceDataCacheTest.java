@@ -0,0 +1,179 @@
+package com.jivs.platform.service.transformation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jivs.platform.domain.transformation.TransformationRule;
+import com.jivs.platform.security.SqlInjectionValidator;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for enriching records from cached reference tables
+ */
+class ReferenceDataCacheTest {
+
+    private JdbcDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private ReferenceDataCache cache;
+    private TransformationEngine engine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(h2);
+        jdbc.execute("CREATE TABLE ref_country (iso_code VARCHAR(2) PRIMARY KEY, name VARCHAR(50), region VARCHAR(20))");
+        jdbc.update("INSERT INTO ref_country VALUES ('US', 'United States', 'AMER'), ('DE', 'Germany', 'EMEA'), "
+            + "('JP', 'Japan', 'APAC')");
+        jdbc.execute("CREATE TABLE ref_customer (id BIGINT PRIMARY KEY, name VARCHAR(50))");
+        for (long id = 1; id <= 20; id++) {
+            jdbc.update("INSERT INTO ref_customer VALUES (?, ?)", id, "Customer " + id);
+        }
+
+        // Every query borrows a connection, so counting connections counts round trips
+        dataSource = spy(h2);
+        cache = new ReferenceDataCache(Map.of("reference", dataSource), new SqlInjectionValidator());
+        engine = new TransformationEngine(new ObjectMapper(), new ScriptEnginePool(), cache);
+    }
+
+    @Test
+    @DisplayName("Small tables are preloaded once and serve every batch from memory")
+    void testPreloadedTable() throws Exception {
+        TransformationRule country = lookup("country", "country",
+            "{\"dataSource\":\"reference\",\"table\":\"ref_country\",\"keyColumn\":\"iso_code\","
+                + "\"fields\":{\"name\":\"country_name\",\"region\":\"region\"}}");
+        CompiledTransformationPlan plan = engine.compile(List.of(country), "JSON");
+        List<Map<String, Object>> records = new ArrayList<>();
+        String[] codes = {"US", "DE", "JP", "XX"};
+        for (int i = 0; i < 1000; i++) {
+            records.add(new HashMap<>(Map.of("id", i, "country", codes[i % 4])));
+        }
+
+        List<Map<String, Object>> first = plan.apply(ColumnBatch.of(records)).toRows();
+        Map<String, Object> single = plan.apply(Map.of("country", "JP"));
+
+        assertEquals("United States", first.get(0).get("country_name"));
+        assertEquals("EMEA", first.get(1).get("region"));
+        assertNull(first.get(3).get("country_name"));
+        assertEquals("Japan", single.get("country_name"));
+        // COUNT(*) and the preload
+        verify(dataSource, times(2)).getConnection();
+    }
+
+    @Test
+    @DisplayName("Large tables fetch a batch's missing keys together and remember misses")
+    void testBulkFetchedTable() throws Exception {
+        ReflectionTestUtils.setField(cache, "preloadMaxRows", 5L);
+        ReflectionTestUtils.setField(cache, "fetchChunkSize", 4);
+        TransformationRule customer = lookup("customer", "customer_id",
+            "{\"dataSource\":\"reference\",\"table\":\"ref_customer\",\"keyColumn\":\"id\","
+                + "\"fields\":{\"name\":\"customer_name\"}}");
+        CompiledTransformationPlan plan = engine.compile(List.of(customer), "JSON");
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            // Ten known keys in mixed representations, and one unknown
+            Object key = switch (i % 3) {
+                case 0 -> (long) (i % 10 + 1);
+                case 1 -> String.valueOf(i % 10 + 1);
+                default -> new BigDecimal(i % 10 + 1);
+            };
+            records.add(new HashMap<>(Map.of("customer_id", i == 99 ? 404 : key)));
+        }
+
+        List<Map<String, Object>> first = plan.apply(ColumnBatch.of(records)).toRows();
+        plan.apply(ColumnBatch.of(records));
+
+        for (int i = 0; i < 99; i++) {
+            assertEquals("Customer " + (i % 10 + 1), first.get(i).get("customer_name"));
+        }
+        assertNull(first.get(99).get("customer_name"));
+        // COUNT(*) plus eleven distinct keys in chunks of four; the second batch hits the cache
+        verify(dataSource, times(4)).getConnection();
+    }
+
+    @Test
+    @DisplayName("Fetched keys are bound as the key column's type, and keys it cannot hold are misses")
+    void testFetchedKeysConverted() {
+        ReflectionTestUtils.setField(cache, "preloadMaxRows", 5L);
+        jdbc.execute("CREATE TABLE ref_code (code VARCHAR(10) PRIMARY KEY, label VARCHAR(50))");
+        jdbc.update("INSERT INTO ref_code VALUES ('42', 'Answer'), ('7', 'Seven'), ('A1', 'Alpha'), "
+            + "('B2', 'Beta'), ('C3', 'Gamma'), ('D4', 'Delta')");
+        ReferenceDataCache.ReferenceTable codes = cache.table("reference", "ref_code", "code", List.of("label"));
+        ReferenceDataCache.ReferenceTable customers = cache.table("reference", "ref_customer", "id", List.of("name"));
+
+        // Numbers against a VARCHAR key, strings against a BIGINT key
+        Object[][] byCode = codes.lookupAll(new Object[] {42L, 7, "A1", new BigDecimal("42.00")});
+        Object[][] byId = customers.lookupAll(new Object[] {"3", "A1", new BigDecimal("4")});
+
+        assertEquals("Answer", byCode[0][0]);
+        assertEquals("Seven", byCode[1][0]);
+        assertEquals("Alpha", byCode[2][0]);
+        assertEquals("Answer", byCode[3][0]);
+        assertEquals("Customer 3", byId[0][0]);
+        assertNull(byId[1]);
+        assertEquals("Customer 4", byId[2][0]);
+    }
+
+    @Test
+    @DisplayName("Cached rows expire after their TTL and the LRU stays within its bound")
+    void testTtlAndEviction() throws Exception {
+        ReflectionTestUtils.setField(cache, "preloadMaxRows", 5L);
+        ReflectionTestUtils.setField(cache, "maxEntries", 3);
+        ReferenceDataCache.ReferenceTable table = cache.table("reference", "ref_customer", "id", List.of("name"));
+
+        for (long id = 1; id <= 5; id++) {
+            assertEquals("Customer " + id, table.lookup(id)[0]);
+        }
+        table.lookup(5L);
+        verify(dataSource, times(6)).getConnection();
+        table.lookup(1L);
+        verify(dataSource, times(7)).getConnection();
+
+        ReflectionTestUtils.setField(cache, "ttlMillis", 50L);
+        jdbc.update("UPDATE ref_customer SET name = 'Renamed' WHERE id = 1");
+        Thread.sleep(60);
+        assertEquals("Renamed", table.lookup(1L)[0]);
+    }
+
+    @Test
+    @DisplayName("Unsafe identifiers and unknown data sources are rejected when the rule compiles")
+    void testRejectsUnsafeDefinitions() {
+        assertThrows(IllegalArgumentException.class,
+            () -> cache.table("reference", "ref_country; DROP TABLE x", "iso_code", List.of("name")));
+        assertThrows(IllegalArgumentException.class,
+            () -> cache.table("missing", "ref_country", "iso_code", List.of("name")));
+    }
+
+    @Test
+    @DisplayName("Primitive key maps grow and keep every key")
+    void testLongObjectMap() {
+        ReferenceDataCache.LongObjectMap map = new ReferenceDataCache.LongObjectMap(4);
+        for (long key = -5000; key < 5000; key++) {
+            map.put(key * 7, new Object[] {key});
+        }
+        map.put(0, new Object[] {"replaced"});
+
+        assertEquals(10000, map.size());
+        assertEquals(-5000L, map.get(-35000)[0]);
+        assertEquals("replaced", map.get(0)[0]);
+        assertNull(map.get(1));
+    }
+
+    private static TransformationRule lookup(String name, String sourceField, String definition) {
+        TransformationRule rule = new TransformationRule();
+        rule.setName(name);
+        rule.setRuleType("LOOKUP");
+        rule.setSourceField(sourceField);
+        rule.setRuleDefinition(definition);
+        return rule;
+    }
+}
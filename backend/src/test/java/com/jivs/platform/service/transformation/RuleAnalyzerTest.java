@@ -0,0 +1,204 @@
+package com.jivs.platform.service.transformation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jivs.platform.domain.transformation.TransformationRule;
+import com.jivs.platform.repository.TransformationJobRepository;
+import com.jivs.platform.repository.TransformationRuleRepository;
+import com.jivs.platform.security.SqlInjectionValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for analyzing which fields rules read and write
+ */
+class RuleAnalyzerTest {
+
+    private TransformationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new TransformationEngine(new ObjectMapper(), new ScriptEnginePool(),
+            new ReferenceDataCache(Map.of(), new SqlInjectionValidator()));
+    }
+
+    @Test
+    @DisplayName("Rules overwritten before anything reads them are dropped, with rules only they read from")
+    void testDeadRulesDropped() {
+        TransformationRule doubled = expression("doubled", 1, "tmp", "amount * 2");
+        TransformationRule label = expression("label", 2, "label", "'Amount ' + tmp");
+        TransformationRule reset = enrichment("reset", 3, "{\"label\":\"n/a\",\"tmp\":null}");
+        TransformationRule kept = expression("kept", 4, "code", "code + '!'");
+        TransformationRule audit = enrichment("audit", 5, "{\"code\":\"fixed\"}");
+
+        CompiledTransformationPlan plan = engine.compile(List.of(doubled, label, reset, kept, audit), "JSON");
+        Map<String, Object> result = plan.apply(Map.of("amount", 21, "code", "c"));
+
+        // "kept" is overwritten too, and the two enrichments left fuse into one
+        assertEquals(1, plan.size());
+        assertEquals("n/a", result.get("label"));
+        assertNull(result.get("tmp"));
+        assertEquals("fixed", result.get("code"));
+    }
+
+    @Test
+    @DisplayName("A rule whose result is read before the overwrite is kept")
+    void testObservedRulesKept() {
+        TransformationRule doubled = expression("doubled", 1, "tmp", "amount * 2");
+        TransformationRule total = expression("total", 2, "total", "tmp + 1");
+        TransformationRule reset = enrichment("reset", 3, "{\"tmp\":0}");
+
+        CompiledTransformationPlan plan = engine.compile(List.of(doubled, total, reset), "JSON");
+
+        assertEquals(3, plan.size());
+        assertEquals(43, plan.apply(Map.of("amount", 21)).get("total"));
+    }
+
+    @Test
+    @DisplayName("Adjacent value mappings of a field and adjacent enrichments fuse into one rule each")
+    void testFusion() {
+        TransformationRule decode = valueMapping("decode", 1, "status", "{\"A\":\"ACTIVE\",\"I\":\"INACTIVE\"}");
+        TransformationRule number = valueMapping("number", 2, "status", "{\"ACTIVE\":1,\"X\":9}");
+        TransformationRule origin = enrichment("origin", 3, "{\"origin\":\"legacy\"}");
+        TransformationRule stamp = enrichment("stamp", 4, "{\"batch\":\"b1\"}");
+
+        CompiledTransformationPlan plan = engine.compile(List.of(decode, number, origin, stamp), "JSON");
+
+        assertEquals(2, plan.size());
+        assertEquals(List.of(List.of("decode+number", "origin+stamp")), plan.independentGroups());
+        assertEquals(1, plan.apply(Map.of("status", "A")).get("status"));
+        assertEquals("INACTIVE", plan.apply(Map.of("status", "I")).get("status"));
+        assertEquals(9, plan.apply(Map.of("status", "X")).get("status"));
+        assertEquals(1, plan.apply(Map.of("status", "ACTIVE")).get("status"));
+        assertEquals("Z", plan.apply(Map.of("status", "Z")).get("status"));
+        assertEquals("b1", plan.apply(Map.of()).get("batch"));
+    }
+
+    @Test
+    @DisplayName("Rules are levelled so each level only holds rules independent of one another")
+    void testIndependentGroups() {
+        TransformationRule rename = mapping("rename", 1, "cust_name", "name");
+        TransformationRule area = regex("area", 2, "phone", "area");
+        TransformationRule status = valueMapping("status", 3, "status", "{\"A\":\"ACTIVE\"}");
+        TransformationRule label = expression("label", 4, "label", "name + ' (' + area + ')'");
+        TransformationRule flag = expression("flag", 5, "flag", "['status'] == 'ACTIVE'");
+        TransformationRule dump = expression("dump", 6, "dump", "#root.size()");
+
+        CompiledTransformationPlan plan = engine.compile(List.of(rename, area, status, label, flag, dump), "JSON");
+
+        // dump reads the whole record, so it follows every rule that writes before it
+        assertEquals(List.of(List.of("rename", "area", "status"), List.of("label", "flag"), List.of("dump")),
+            plan.independentGroups());
+    }
+
+    @Test
+    @DisplayName("Independent column rules on a large batch give the same records as one record at a time")
+    void testConcurrentGroups() {
+        TransformationRule rename = mapping("rename", 1, "cust_name", "name");
+        TransformationRule area = regex("area", 2, "phone", "area");
+        TransformationRule status = valueMapping("status", 3, "status", "{\"A\":\"ACTIVE\",\"I\":\"INACTIVE\"}");
+        TransformationRule merge = mapping("merge", 4, "alt_code", "code");
+        TransformationRule label = expression("label", 5, "label", "name + ' ' + code");
+        CompiledTransformationPlan plan = engine.compile(List.of(rename, area, status, merge, label), "JSON");
+
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Map<String, Object> record = new HashMap<>();
+            record.put("cust_name", "Customer " + i);
+            record.put("phone", "(0" + i % 100 + ") 555");
+            record.put("status", i % 2 == 0 ? "A" : "I");
+            record.put("code", "C" + i);
+            if (i % 4 == 0) {
+                record.put("alt_code", "ALT" + i);
+            }
+            records.add(record);
+        }
+
+        List<Map<String, Object>> columnar = plan.apply(ColumnBatch.of(records)).toRows();
+
+        assertEquals(List.of("rename", "area", "status", "merge"), plan.independentGroups().get(0));
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(withoutNulls(plan.apply(records.get(i))), withoutNulls(columnar.get(i)));
+        }
+        assertEquals("Customer 4 ALT4", columnar.get(4).get("label"));
+        assertNull(columnar.get(4).get("cust_name"));
+        assertNull(columnar.get(4).get("alt_code"));
+    }
+
+    @Test
+    @DisplayName("Rules that overwrite each other's fields are reported as conflicts")
+    void testConflicts() {
+        TransformationRule move = mapping("move", 1, "legacy_code", "code");
+        TransformationRule computed = expression("computed", 2, "code", "'C' + id");
+        TransformationRule decode = valueMapping("decode", 3, "code", "{\"C1\":\"ONE\"}");
+        TransformationRule other = expression("other", 4, "other", "id");
+        List<TransformationRule> rules = List.of(move, computed, decode, other);
+
+        List<TransformationEngine.RuleConflict> conflicts = engine.findConflicts(rules);
+
+        assertEquals(1, conflicts.size());
+        assertSame(move, conflicts.get(0).first());
+        assertSame(computed, conflicts.get(0).second());
+        assertEquals("code", conflicts.get(0).field());
+
+        TransformationService service = new TransformationService(mock(TransformationRuleRepository.class),
+            mock(TransformationJobRepository.class), engine, new ParallelTransformationExecutor(),
+            mock(TransformationOutputWriter.class));
+        ValidationResult validation = service.validateRules(rules);
+        assertEquals(List.of("Rule conflicts detected for: move", "Rule conflicts detected for: computed"),
+            validation.getWarnings());
+    }
+
+    private static Map<String, Object> withoutNulls(Map<String, Object> record) {
+        Map<String, Object> copy = new HashMap<>(record);
+        copy.values().removeIf(Objects::isNull);
+        return copy;
+    }
+
+    private static TransformationRule expression(String name, int priority, String target, String expression) {
+        TransformationRule rule = rule(name, "EXPRESSION", priority, null, target);
+        rule.setRuleDefinition(expression);
+        return rule;
+    }
+
+    private static TransformationRule enrichment(String name, int priority, String values) {
+        TransformationRule rule = rule(name, "ENRICHMENT", priority, null, null);
+        rule.setRuleDefinition(values);
+        return rule;
+    }
+
+    private static TransformationRule valueMapping(String name, int priority, String field, String mappings) {
+        TransformationRule rule = rule(name, "VALUE_MAPPING", priority, field, null);
+        rule.setRuleDefinition(mappings);
+        return rule;
+    }
+
+    private static TransformationRule mapping(String name, int priority, String source, String target) {
+        TransformationRule rule = rule(name, "FIELD_MAPPING", priority, source, target);
+        rule.setRuleDefinition(source + " -> " + target);
+        return rule;
+    }
+
+    private static TransformationRule regex(String name, int priority, String source, String target) {
+        TransformationRule rule = rule(name, "REGEX", priority, source, target);
+        rule.setRegexPattern("\\((\\d+)\\)");
+        rule.setRuleDefinition(rule.getRegexPattern());
+        return rule;
+    }
+
+    private static TransformationRule rule(String name, String ruleType, int priority,
+                                           String sourceField, String targetField) {
+        TransformationRule rule = new TransformationRule();
+        rule.setName(name);
+        rule.setRuleType(ruleType);
+        rule.setPriority(priority);
+        rule.setSourceField(sourceField);
+        rule.setTargetField(targetField);
+        return rule;
+    }
+}
@@ -0,0 +1,230 @@
+package com.jivs.platform.service.transformation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jivs.platform.domain.transformation.TransformationRule;
+import com.jivs.platform.security.SqlInjectionValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.script.*;
+import java.io.Reader;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for compiling SCRIPT rules once and running them on pooled engines
+ */
+class ScriptEnginePoolTest {
+
+    private final AtomicInteger enginesCreated = new AtomicInteger();
+    private final AtomicInteger compilations = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private ScriptEnginePool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ScriptEnginePool(new ScriptEngineManager() {
+            @Override
+            public ScriptEngine getEngineByName(String shortName) {
+                if (!"test".equals(shortName)) {
+                    return null;
+                }
+                enginesCreated.incrementAndGet();
+                return new TestEngine();
+            }
+        });
+        ReflectionTestUtils.setField(pool, "poolSize", 2);
+        ReflectionTestUtils.setField(pool, "timeoutMillis", 2000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    @DisplayName("A script compiles once and every record is evaluated with its own bindings")
+    void testCompiledOnce() throws Exception {
+        ScriptEnginePool.Script script = pool.compile("test", "double amount");
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * 2, script.eval(Map.of("amount", i)));
+        }
+        assertEquals(1, enginesCreated.get());
+        assertEquals(1, compilations.get());
+        assertNull(script.eval(Map.of()));
+    }
+
+    @Test
+    @DisplayName("Concurrent evaluations never use more engines than the pool holds")
+    void testBoundedPool() throws Exception {
+        ScriptEnginePool.Script script = pool.compile("test", "sleep 20");
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(callers.submit(() -> script.eval(Map.of())));
+            }
+            for (Future<Object> result : results) {
+                assertEquals("slept", result.get());
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(2, enginesCreated.get());
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    @DisplayName("A script that overruns its deadline fails and its engine is replaced")
+    void testTimeout() throws Exception {
+        ReflectionTestUtils.setField(pool, "timeoutMillis", 100L);
+        ScriptEnginePool.Script slow = pool.compile("test", "sleep 5000");
+        ScriptEnginePool.Script fast = pool.compile("test", "double amount");
+
+        assertThrows(TimeoutException.class, () -> slow.eval(Map.of()));
+        assertEquals(4, fast.eval(Map.of("amount", 2)));
+        assertEquals(2, enginesCreated.get());
+    }
+
+    @Test
+    @DisplayName("Engines running scripts that ignore interrupts keep their slots, so the pool stays bounded")
+    void testRunawayScriptsKeepSlots() throws Exception {
+        ReflectionTestUtils.setField(pool, "timeoutMillis", 100L);
+        ScriptEnginePool.Script runaway = pool.compile("test", "stubborn 1500");
+        ScriptEnginePool.Script fast = pool.compile("test", "double amount");
+
+        assertThrows(TimeoutException.class, () -> runaway.eval(Map.of()));
+        assertThrows(TimeoutException.class, () -> runaway.eval(Map.of()));
+        // Both slots are held by scripts still running
+        ScriptException full = assertThrows(ScriptException.class, () -> fast.eval(Map.of("amount", 2)));
+        assertTrue(full.getMessage().contains("2 abandoned engines still running"));
+        assertEquals(2, enginesCreated.get());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (running.get() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(50);
+        assertEquals(4, fast.eval(Map.of("amount", 2)));
+        assertEquals(3, enginesCreated.get());
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    @DisplayName("Syntax errors surface when compiling and unknown script types compile to nothing")
+    void testCompileErrors() throws Exception {
+        assertThrows(ScriptException.class, () -> pool.compile("test", "explode"));
+        assertNull(pool.compile("cobol", "MOVE 1 TO X"));
+    }
+
+    @Test
+    @DisplayName("SCRIPT rules write the script's result to the target field")
+    void testScriptRule() {
+        TransformationEngine engine = new TransformationEngine(new ObjectMapper(), pool,
+            new ReferenceDataCache(Map.of(), new SqlInjectionValidator()));
+        TransformationRule rule = new TransformationRule();
+        rule.setName("double");
+        rule.setRuleType("SCRIPT");
+        rule.setScriptType("test");
+        rule.setRuleDefinition("double amount");
+        rule.setTargetField("doubled");
+
+        Map<String, Object> result = engine.transform(Map.of("amount", 21), List.of(rule), "JSON");
+
+        assertEquals(42, result.get("doubled"));
+        assertEquals(21, result.get("amount"));
+    }
+
+    /**
+     * Tiny language: "double <field>" sets result to twice an integer field of data,
+     * "sleep <ms>" sleeps and sets result to "slept", "stubborn <ms>" does the same while
+     * ignoring interrupts
+     */
+    private class TestEngine extends AbstractScriptEngine implements Compilable {
+
+        @Override
+        public CompiledScript compile(String script) throws ScriptException {
+            String[] parts = script.split(" ");
+            if (parts.length != 2 || !List.of("double", "sleep", "stubborn").contains(parts[0])) {
+                throw new ScriptException("Unknown statement: " + script);
+            }
+            compilations.incrementAndGet();
+            return new CompiledScript() {
+                @Override
+                public Object eval(ScriptContext context) throws ScriptException {
+                    return run(parts, context);
+                }
+
+                @Override
+                public ScriptEngine getEngine() {
+                    return TestEngine.this;
+                }
+            };
+        }
+
+        @Override
+        public CompiledScript compile(Reader script) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object eval(String script, ScriptContext context) throws ScriptException {
+            return compile(script).eval(context);
+        }
+
+        @Override
+        public Object eval(Reader reader, ScriptContext context) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Bindings createBindings() {
+            return new SimpleBindings();
+        }
+
+        @Override
+        public ScriptEngineFactory getFactory() {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Object run(String[] parts, ScriptContext context) throws ScriptException {
+            Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                if (parts[0].equals("sleep")) {
+                    Thread.sleep(Long.parseLong(parts[1]));
+                    bindings.put("result", "slept");
+                } else if (parts[0].equals("stubborn")) {
+                    long until = System.currentTimeMillis() + Long.parseLong(parts[1]);
+                    while (System.currentTimeMillis() < until) {
+                        try {
+                            Thread.sleep(10);
+                        } catch (InterruptedException ignored) {
+                            // Runs on regardless, like a runaway script
+                        }
+                    }
+                    bindings.put("result", "done");
+                } else {
+                    Object value = ((Map<String, Object>) bindings.get("data")).get(parts[1]);
+                    if (value != null) {
+                        bindings.put("result", (Integer) value * 2);
+                    }
+                }
+                return null;
+            } catch (InterruptedException e) {
+                throw new ScriptException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+}
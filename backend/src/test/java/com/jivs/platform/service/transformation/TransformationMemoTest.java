@@ -0,0 +1,227 @@
+package com.jivs.platform.service.transformation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jivs.platform.domain.transformation.TransformationRule;
+import com.jivs.platform.repository.TransformationJobRepository;
+import com.jivs.platform.repository.TransformationRuleRepository;
+import com.jivs.platform.security.SqlInjectionValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for memoizing the results of deterministic rules
+ */
+class TransformationMemoTest {
+
+    private TransformationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new TransformationEngine(new ObjectMapper(), new ScriptEnginePool(),
+            new ReferenceDataCache(Map.of(), new SqlInjectionValidator()));
+    }
+
+    @Test
+    @DisplayName("A deterministic rule runs once per distinct value of a batch and reports its hit rate")
+    void testRepeatedValuesHit() throws Exception {
+        TransformationRule normalize = deterministic(expression("normalize", 1, "name", "name.trim().toUpperCase()"));
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            records.add(new HashMap<>(Map.of("name", "  city " + i % 3 + " ")));
+        }
+        TransformationService service = new TransformationService(mock(TransformationRuleRepository.class),
+            mock(TransformationJobRepository.class), engine, new ParallelTransformationExecutor(),
+            mock(TransformationOutputWriter.class));
+
+        TransformationService.BatchTransformationResult result =
+            service.processBatch(records, List.of(normalize), "JSON").get();
+
+        assertEquals("CITY 1", result.getTransformedRecords().get(4).get("name"));
+        assertEquals("CITY 2", result.getTransformedRecords().get(998).get("name"));
+        assertEquals(997, result.getMemoStats().hits());
+        assertEquals(3, result.getMemoStats().misses());
+        assertEquals(3, result.getMemoStats().entries());
+        assertEquals(0.997, result.getMemoStats().hitRate(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Batches of a job share its memo until the job is released or a rule changes")
+    void testJobBatchesShareMemo() {
+        TransformationService service = new TransformationService(mock(TransformationRuleRepository.class),
+            mock(TransformationJobRepository.class), engine, new ParallelTransformationExecutor(),
+            mock(TransformationOutputWriter.class));
+        List<TransformationRule> rules = List.of(deterministic(expression("upper", 1, "name", "name.toUpperCase()")));
+        List<TransformationRule> edited = List.of(deterministic(expression("upper", 1, "name", "name.toUpperCase() + '!'")));
+
+        service.processJobBatch("job-1", cities(), rules, "JSON").join();
+        TransformationService.BatchTransformationResult second = service.processJobBatch("job-1", cities(), rules, "JSON").join();
+        assertEquals(new TransformationMemo.Stats(196, 4, 4), second.getMemoStats());
+
+        TransformationService.BatchTransformationResult changed = service.processJobBatch("job-1", cities(), edited, "JSON").join();
+        assertEquals("CITY 1!", changed.getTransformedRecords().get(1).get("name"));
+        assertEquals(new TransformationMemo.Stats(96, 4, 4), changed.getMemoStats());
+
+        service.releaseJob("job-1");
+        TransformationService.BatchTransformationResult released = service.processJobBatch("job-1", cities(), edited, "JSON").join();
+        assertEquals(new TransformationMemo.Stats(96, 4, 4), released.getMemoStats());
+    }
+
+    @Test
+    @DisplayName("A node drops the plan of a job that ran no batch there for a while")
+    void testIdleJobReleased() {
+        TransformationService service = new TransformationService(mock(TransformationRuleRepository.class),
+            mock(TransformationJobRepository.class), engine, new ParallelTransformationExecutor(),
+            mock(TransformationOutputWriter.class));
+        List<TransformationRule> rules = List.of(deterministic(expression("upper", 1, "name", "name.toUpperCase()")));
+
+        service.processJobBatch("job-1", cities(), rules, "JSON").join();
+        service.releaseIdleJobs(System.currentTimeMillis());
+        TransformationService.BatchTransformationResult kept = service.processJobBatch("job-1", cities(), rules, "JSON").join();
+        assertEquals(new TransformationMemo.Stats(196, 4, 4), kept.getMemoStats());
+
+        service.releaseIdleJobs(System.currentTimeMillis() + 600_001);
+        TransformationService.BatchTransformationResult expired = service.processJobBatch("job-1", cities(), rules, "JSON").join();
+        assertEquals(new TransformationMemo.Stats(96, 4, 4), expired.getMemoStats());
+    }
+
+    @Test
+    @DisplayName("Memoized column rules give the same records as unmemoized ones, without sharing results")
+    void testColumnsMatchUnmemoized() {
+        TransformationRule area = regex("area", 1, "phone", "area");
+        CompiledTransformationPlan plain = engine.compile(List.of(area), "JSON");
+        CompiledTransformationPlan memoized = engine.compile(List.of(deterministic(regex("area", 1, "phone", "area"))), "JSON");
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Map<String, Object> record = new HashMap<>();
+            record.put("phone", i % 7 == 0 ? null : "(0" + i % 5 + ") 555");
+            records.add(record);
+        }
+
+        List<Map<String, Object>> expected = plain.apply(ColumnBatch.of(records)).toRows();
+        List<Map<String, Object>> actual = memoized.apply(ColumnBatch.of(records)).toRows();
+
+        assertEquals(expected, actual);
+        assertEquals(List.of("01"), actual.get(1).get("area"));
+        assertNotSame(actual.get(1).get("area"), actual.get(6).get("area"));
+        assertEquals(5, memoized.getMemo().stats().misses());
+        assertEquals(0, plain.getMemo().stats().lookups());
+    }
+
+    @Test
+    @DisplayName("Changing a record's memoized list changes neither the cached result nor other records")
+    void testCachedListNotShared() {
+        CompiledTransformationPlan plan = engine.compile(List.of(deterministic(regex("area", 1, "phone", "area"))), "JSON");
+
+        @SuppressWarnings("unchecked")
+        List<Object> first = (List<Object>) plan.apply(new HashMap<>(Map.of("phone", "(01) 555"))).get("area");
+        first.add("02");
+        @SuppressWarnings("unchecked")
+        List<Object> second = (List<Object>) plan.apply(new HashMap<>(Map.of("phone", "(01) 555"))).get("area");
+        second.clear();
+
+        assertEquals(List.of("01"), plan.apply(new HashMap<>(Map.of("phone", "(01) 555"))).get("area"));
+        assertEquals(new TransformationMemo.Stats(2, 1, 1), plan.getMemo().stats());
+    }
+
+    @Test
+    @DisplayName("A memoized rule that leaves its target alone for a value leaves it alone on every hit")
+    void testUntouchedTarget() {
+        TransformationRule label = deterministic(rule("label", "CONDITIONAL", 1, null, "label"));
+        label.setCondition("status == 'A'");
+        label.setRuleDefinition("'active'");
+        CompiledTransformationPlan plan = engine.compile(List.of(label), "JSON");
+
+        assertEquals("old1", plan.apply(Map.of("status", "I", "label", "old1")).get("label"));
+        assertEquals("old2", plan.apply(Map.of("status", "I", "label", "old2")).get("label"));
+        assertEquals("active", plan.apply(Map.of("status", "A", "label", "old3")).get("label"));
+        assertEquals("old4", plan.apply(Map.of("label", "old4")).get("label"));
+        assertEquals(new TransformationMemo.Stats(1, 2, 2), plan.getMemo().ruleStats().get("label"));
+    }
+
+    @Test
+    @DisplayName("Unflagged rules and rules not computing one field from one other are not memoized")
+    void testNotMemoized() {
+        TransformationRule fullName = deterministic(expression("fullName", 1, "full_name", "first + ' ' + last"));
+        TransformationRule city = deterministic(expression("city", 2, "address.city", "town.trim()"));
+        TransformationRule upper = expression("upper", 3, "first", "first.toUpperCase()");
+        CompiledTransformationPlan plan = engine.compile(List.of(fullName, city, upper), "JSON");
+
+        Map<String, Object> result = plan.apply(Map.of("first", "ada", "last", "lovelace", "town", " london "));
+
+        assertEquals("ada lovelace", result.get("full_name"));
+        assertEquals(Map.of("city", "london"), result.get("address"));
+        assertEquals("ADA", result.get("first"));
+        assertEquals(0, plan.getMemo().stats().lookups());
+        assertTrue(plan.getMemo().ruleStats().isEmpty());
+    }
+
+    @Test
+    @DisplayName("The memo stays within its bound and evicts the least recently used value")
+    void testBound() {
+        ReflectionTestUtils.setField(engine, "memoMaxEntries", 2);
+        CompiledTransformationPlan plan = engine.compile(
+            List.of(deterministic(expression("upper", 1, "name", "name.toUpperCase()"))), "JSON");
+
+        for (String name : List.of("a", "b", "a", "c", "a", "b")) {
+            assertEquals(name.toUpperCase(), plan.apply(Map.of("name", name)).get("name"));
+        }
+
+        // "c" evicts "b", used less recently than "a"; "b" then evicts "c"
+        assertEquals(new TransformationMemo.Stats(2, 4, 2), plan.getMemo().stats());
+    }
+
+    @Test
+    @DisplayName("Editing a rule gives it a new version")
+    void testRuleVersion() {
+        TransformationRule rule = expression("upper", 1, "name", "name.toUpperCase()");
+        String version = TransformationEngine.ruleVersion(rule);
+
+        assertEquals(version, TransformationEngine.ruleVersion(expression("upper", 1, "name", "name.toUpperCase()")));
+        rule.setRuleDefinition("name.toLowerCase()");
+        assertNotEquals(version, TransformationEngine.ruleVersion(rule));
+    }
+
+    private static List<Map<String, Object>> cities() {
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            records.add(new HashMap<>(Map.of("name", "city " + i % 4)));
+        }
+        return records;
+    }
+
+    private static TransformationRule deterministic(TransformationRule rule) {
+        rule.getParameters().put(TransformationEngine.DETERMINISTIC_PARAMETER, "true");
+        return rule;
+    }
+
+    private static TransformationRule expression(String name, int priority, String target, String expression) {
+        TransformationRule rule = rule(name, "EXPRESSION", priority, null, target);
+        rule.setRuleDefinition(expression);
+        return rule;
+    }
+
+    private static TransformationRule regex(String name, int priority, String source, String target) {
+        TransformationRule rule = rule(name, "REGEX", priority, source, target);
+        rule.setRegexPattern("\\((\\d+)\\)");
+        rule.setRuleDefinition(rule.getRegexPattern());
+        return rule;
+    }
+
+    private static TransformationRule rule(String name, String ruleType, int priority,
+                                           String sourceField, String targetField) {
+        TransformationRule rule = new TransformationRule();
+        rule.setName(name);
+        rule.setRuleType(ruleType);
+        rule.setPriority(priority);
+        rule.setSourceField(sourceField);
+        rule.setTargetField(targetField);
+        return rule;
+    }
+}
@@ -0,0 +1,116 @@
+package com.jivs.platform.service.transformation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jivs.platform.security.SqlInjectionValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for cached XSLT stylesheets and streaming XML transformation
+ */
+class XmlTransformationTest {
+
+    private static final String RENAME_CUSTOMER = """
+        <xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+          <xsl:output omit-xml-declaration="yes"/>
+          <xsl:template match="customer">
+            <client id="{@id}"><xsl:value-of select="name"/></client>
+          </xsl:template>
+        </xsl:stylesheet>
+        """;
+
+    private TransformationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new TransformationEngine(new ObjectMapper(), new ScriptEnginePool(),
+            new ReferenceDataCache(Map.of(), new SqlInjectionValidator()));
+    }
+
+    @Test
+    @DisplayName("A stylesheet compiles once and is reused until its text changes")
+    void testTemplatesCached() throws Exception {
+        String first = engine.transformXml("<customer id=\"1\"><name>Ada</name></customer>", RENAME_CUSTOMER);
+        String second = engine.transformXml("<customer id=\"2\"><name>Grace</name></customer>", RENAME_CUSTOMER);
+
+        assertEquals("<client id=\"1\">Ada</client>", first.strip());
+        assertEquals("<client id=\"2\">Grace</client>", second.strip());
+        assertSame(engine.templates(RENAME_CUSTOMER), engine.templates(RENAME_CUSTOMER));
+        assertNotSame(engine.templates(RENAME_CUSTOMER), engine.templates(RENAME_CUSTOMER.replace("client", "buyer")));
+    }
+
+    @Test
+    @DisplayName("The template cache stays within its bound")
+    void testTemplatesCacheBound() throws Exception {
+        ReflectionTestUtils.setField(engine, "xsltCacheSize", 2);
+        for (int i = 0; i < 5; i++) {
+            engine.templates(RENAME_CUSTOMER.replace("client", "client" + i));
+        }
+
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(engine, "templatesCache")).size() <= 2);
+    }
+
+    @Test
+    @DisplayName("Documents stream from an input stream to an output stream")
+    void testStreamedDocument() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        engine.transformXml(stream("<customer id=\"7\"><name>Linus</name></customer>"), output, RENAME_CUSTOMER);
+
+        assertTrue(output.toString(StandardCharsets.UTF_8).contains("<client id=\"7\">Linus</client>"));
+    }
+
+    @Test
+    @DisplayName("Records are transformed one at a time inside a copy of the root element")
+    void testStreamedRecords() {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?><c:customers xmlns:c=\"urn:crm\"><header/>");
+        for (int i = 0; i < 1000; i++) {
+            xml.append("<customer id=\"").append(i).append("\"><name>Customer ").append(i).append("</name></customer>");
+        }
+        xml.append("</c:customers>");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long records = engine.transformXmlRecords(stream(xml.toString()), output, RENAME_CUSTOMER, "customer");
+
+        String result = output.toString(StandardCharsets.UTF_8);
+        assertEquals(1000, records);
+        assertTrue(result.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?><c:customers xmlns:c=\"urn:crm\">"
+            + "<client id=\"0\">Customer 0</client><client id=\"1\">Customer 1</client>"));
+        assertTrue(result.endsWith("<client id=\"999\">Customer 999</client></c:customers>"));
+        assertFalse(result.contains("header"));
+    }
+
+    @Test
+    @DisplayName("The copy of the root element keeps its attributes")
+    void testStreamedRootAttributes() {
+        String xml = "<c:customers xmlns:c=\"urn:crm\" xmlns:x=\"urn:export\" version=\"2\" x:batch=\"a&amp;b\"\n"
+            + "  note=\"&quot;line&#10;two&quot;\"><customer id=\"1\"><name>Ada</name></customer></c:customers>";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        engine.transformXmlRecords(stream(xml), output, RENAME_CUSTOMER, "customer");
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?><c:customers xmlns:c=\"urn:crm\" xmlns:x=\"urn:export\""
+                + " version=\"2\" x:batch=\"a&amp;b\" note=\"&quot;line&#10;two&quot;\"><client id=\"1\">Ada</client></c:customers>",
+            output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Malformed stylesheets fail the transformation")
+    void testInvalidStylesheet() {
+        assertThrows(RuntimeException.class, () -> engine.transformXml("<customer/>", "<xsl:stylesheet"));
+    }
+
+    private static InputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}